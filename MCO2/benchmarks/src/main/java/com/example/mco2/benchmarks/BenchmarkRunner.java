@@ -0,0 +1,48 @@
+/**
+ * BenchmarkRunner.java
+ *
+ * Entry point of the benchmarks jar. Runs the simulator benchmarks with
+ * allocation profiling turned on.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks in this module with JMH's {@link GCProfiler} attached, so every
+ * result also reports bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Any standard JMH command line arguments are passed through, for example
+ * {@code java -jar benchmarks.jar Checkout -rf json -rff results.json} to run only the
+ * checkout benchmarks and save the results for comparison.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the selected benchmarks (all of them if no pattern is given).
+     *
+     * @param args JMH command line arguments.
+     * @throws RunnerException if a benchmark fails.
+     * @throws CommandLineOptionException if the arguments are not valid JMH options.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class);
+        if (cli.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+        new Runner(options.build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/**
+ * CheckoutBenchmark.java
+ *
+ * JMH benchmarks for pricing a shopper's items at the CheckoutCounter.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import com.example.mco2.CheckoutCounter;
+import com.example.mco2.Product;
+import com.example.mco2.Receipt;
+import com.example.mco2.SupermarketMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CheckoutCounter#priceItems(List, boolean)}, the pricing and discount
+ * step of a checkout, without writing the receipt file.
+ * The basket is filled by cycling through the product catalog so it mixes food,
+ * beverages, alcohol and non-consumables, with repeats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckoutBenchmark {
+
+    /** Number of items in the basket (a full basket holds 15, a full cart 30). */
+    @Param({"2", "15", "30"})
+    public int itemCount;
+
+    /** Whether the senior discount rules apply. */
+    @Param({"false", "true"})
+    public boolean senior;
+
+    private List<Product> items;
+
+    /**
+     * Fills the basket from the catalog of the default map.
+     */
+    @Setup
+    public void setup() {
+        List<Product> catalog = new SupermarketMap().getAllProducts();
+        items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) items.add(catalog.get((i * 7) % catalog.size()));
+    }
+
+    /**
+     * Prices the basket.
+     *
+     * @return The receipt.
+     */
+    @Benchmark
+    public Receipt priceItems() {
+        return CheckoutCounter.priceItems(items, senior);
+    }
+}
\ No newline at end of file
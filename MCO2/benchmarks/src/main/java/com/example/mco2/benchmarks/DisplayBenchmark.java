@@ -0,0 +1,84 @@
+/**
+ * DisplayBenchmark.java
+ *
+ * JMH benchmarks for taking a product from and returning it to each
+ * type of Display on the map.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import com.example.mco2.ChilledCounter;
+import com.example.mco2.Display;
+import com.example.mco2.Product;
+import com.example.mco2.Refrigerator;
+import com.example.mco2.Shelf;
+import com.example.mco2.SupermarketMap;
+import com.example.mco2.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Display#returnProduct(Product)} for every display type.
+ * Each invocation takes the first product off a stocked display and returns it,
+ * so the display never fills up or runs empty.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplayBenchmark {
+
+    /** The display type under test. */
+    @Param({"Shelf", "Refrigerator", "ChilledCounter", "Table"})
+    public String displayType;
+
+    private Display display;
+
+    /**
+     * Finds the first stocked display of the selected type on the default map.
+     */
+    @Setup
+    public void setup() {
+        Class<? extends Display> type = switch (displayType) {
+            case "Shelf" -> Shelf.class;
+            case "Refrigerator" -> Refrigerator.class;
+            case "ChilledCounter" -> ChilledCounter.class;
+            case "Table" -> Table.class;
+            default -> throw new IllegalArgumentException("Unknown display type: " + displayType);
+        };
+        for (Display d : new SupermarketMap().getAllDisplays()) {
+            if (type.isInstance(d) && d.getProductCount() > 0) {
+                display = d;
+                return;
+            }
+        }
+        throw new IllegalStateException("No stocked " + displayType + " on the map.");
+    }
+
+    /**
+     * Takes the first product off the display and puts it back.
+     *
+     * @return {@code true} if the product was restocked.
+     */
+    @Benchmark
+    public boolean takeAndReturn() {
+        Product p = display.takeProductAt(0);
+        return display.returnProduct(p);
+    }
+}
\ No newline at end of file
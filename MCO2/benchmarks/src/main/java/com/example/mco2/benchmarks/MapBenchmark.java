@@ -0,0 +1,129 @@
+/**
+ * MapBenchmark.java
+ *
+ * JMH benchmarks for building the SupermarketMap and for the tile lookups
+ * done on every shopper step.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import com.example.mco2.Amenity;
+import com.example.mco2.Direction;
+import com.example.mco2.Display;
+import com.example.mco2.Point;
+import com.example.mco2.SupermarketMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures map construction (layout parsing, catalog creation and stocking) and the
+ * {@link SupermarketMap#getAmenityAt(int, int, int)}, {@link SupermarketMap#getAmenityInVision(Point, Direction, int)}
+ * and {@link SupermarketMap#findDisplaysWithProduct(String)} lookups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapBenchmark {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private SupermarketMap map;
+    private int size;
+
+    /**
+     * Builds the map that the lookup benchmarks read from.
+     */
+    @Setup
+    public void setup() {
+        map = new SupermarketMap();
+        size = map.getMapSize();
+    }
+
+    /**
+     * Builds both floors and stocks every display.
+     *
+     * @return The new map.
+     */
+    @Benchmark
+    public SupermarketMap construct() {
+        return new SupermarketMap();
+    }
+
+    /**
+     * Looks up every tile of both floors once.
+     *
+     * @param bh Consumes each amenity so the lookups are not removed.
+     */
+    @Benchmark
+    public void amenityAtAllTiles(Blackhole bh) {
+        for (int f = 0; f < 2; f++) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) bh.consume(map.getAmenityAt(x, y, f));
+            }
+        }
+    }
+
+    /**
+     * Looks up the tile in front of every tile of the ground floor, in all four directions.
+     *
+     * @param bh Consumes each amenity so the lookups are not removed.
+     */
+    @Benchmark
+    public void amenityInVisionAllTiles(Blackhole bh) {
+        for (int y = 1; y < size - 1; y++) {
+            for (int x = 1; x < size - 1; x++) {
+                Point pos = new Point(x, y);
+                for (Direction d : DIRECTIONS) bh.consume(map.getAmenityInVision(pos, d, 0));
+            }
+        }
+    }
+
+    /**
+     * Runs the product search terminal lookup.
+     *
+     * @param search Holds the search term.
+     * @return The matching displays.
+     */
+    @Benchmark
+    public List<Display> findDisplaysWithProduct(Search search) {
+        return map.findDisplaysWithProduct(search.query);
+    }
+
+    /**
+     * Gets a single amenity from the middle of the ground floor.
+     *
+     * @return The amenity at that tile.
+     */
+    @Benchmark
+    public Amenity amenityAtSingle() {
+        return map.getAmenityAt(10, 10, 0);
+    }
+
+    /**
+     * The search term for {@link #findDisplaysWithProduct(Search)}.
+     */
+    @State(Scope.Thread)
+    public static class Search {
+        /** "Eggs" matches several displays and "Caviar" matches none. */
+        @Param({"Eggs", "Caviar"})
+        public String query;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+/**
+ * MetricsBenchmark.java
+ *
+ * JMH benchmarks for the cost of recording one event in the Metrics registry.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import com.example.mco2.DenialReason;
+import com.example.mco2.Metrics;
+import com.example.mco2.Point;
+import com.example.mco2.Wall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a counter increment, an increment with an amenity breakdown, a denial and a
+ * latency sample, on 4 threads at once so contention shows up in the results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private final Wall wall = new Wall(new Point(0, 0));
+
+    /**
+     * Counts a move.
+     */
+    @Benchmark
+    public void increment() {
+        Metrics.MOVES.increment();
+    }
+
+    /**
+     * Counts a move blocked by a wall.
+     */
+    @Benchmark
+    public void incrementWithAmenity() {
+        Metrics.BLOCKS.increment(wall);
+    }
+
+    /**
+     * Counts a refused action.
+     */
+    @Benchmark
+    public void deny() {
+        Metrics.deny(DenialReason.DISPLAY_FULL, wall);
+    }
+
+    /**
+     * Records one latency sample.
+     */
+    @Benchmark
+    public void recordLatency() {
+        Metrics.PRICING_TIME.record(1234);
+    }
+}
\ No newline at end of file
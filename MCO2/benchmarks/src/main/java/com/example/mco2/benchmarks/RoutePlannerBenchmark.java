@@ -0,0 +1,113 @@
+/**
+ * RoutePlannerBenchmark.java
+ *
+ * JMH benchmarks for planning shopping routes with the RoutePlanner.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import com.example.mco2.Entrance;
+import com.example.mco2.EventLog;
+import com.example.mco2.LogLevel;
+import com.example.mco2.Point;
+import com.example.mco2.Product;
+import com.example.mco2.RoutePlanner;
+import com.example.mco2.ShoppingRoute;
+import com.example.mco2.SupermarketMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RoutePlanner#plan(Point, int, List)} from the Entrance of the default map, in
+ * sample mode so the results include the latency percentiles. Each call plans the next of
+ * {@value #LISTS} random shopping lists of different products (as many as the catalog allows),
+ * so the tour optimizer sees varied inputs. Building the planner's distance tables, which
+ * happens once per map, is measured separately.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutePlannerBenchmark {
+    /** Number of different shopping lists planned in turn. */
+    private static final int LISTS = 1024;
+
+    /** Number of items on each shopping list. */
+    @Param({"5", "20", "50"})
+    public int items;
+
+    private SupermarketMap map;
+    private RoutePlanner planner;
+    private Point start;
+    private List<List<Product>> lists;
+    private int next;
+
+    /**
+     * Builds the planner and the shopping lists.
+     */
+    @Setup
+    public void setup() {
+        EventLog.setLevel(LogLevel.OFF);
+        map = new SupermarketMap();
+        planner = new RoutePlanner(map);
+        for (int y = 0; y < map.getMapSize() && start == null; y++) {
+            for (int x = 0; x < map.getMapSize(); x++) {
+                if (map.getAmenityAt(x, y, 0) instanceof Entrance) start = new Point(x, y);
+            }
+        }
+
+        List<Product> catalog = map.getAllProducts();
+        int size = Math.min(items, catalog.size());
+        SplittableRandom random = new SplittableRandom(42L);
+        lists = new ArrayList<>(LISTS);
+        for (int i = 0; i < LISTS; i++) {
+            List<Product> shuffled = new ArrayList<>(catalog);
+            for (int j = 0; j < size; j++) Collections.swap(shuffled, j, j + random.nextInt(shuffled.size() - j));
+            lists.add(new ArrayList<>(shuffled.subList(0, size)));
+        }
+    }
+
+    /**
+     * Plans a route for the next shopping list.
+     *
+     * @return The route.
+     */
+    @Benchmark
+    public ShoppingRoute plan() {
+        List<Product> list = lists.get(next);
+        next = (next + 1) & (LISTS - 1);
+        return planner.plan(start, 0, list);
+    }
+
+    /**
+     * Builds a planner for the map, including its display-to-display distance tables.
+     *
+     * @return The planner.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RoutePlanner build() {
+        return new RoutePlanner(map);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+/**
+ * ShopperBenchmark.java
+ *
+ * JMH benchmarks for the Shopper actions that run on every key press
+ * and every simulation tick: moving and taking or returning products.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2.benchmarks;
+
+import com.example.mco2.Cart;
+import com.example.mco2.Direction;
+import com.example.mco2.Point;
+import com.example.mco2.Product;
+import com.example.mco2.Shopper;
+import com.example.mco2.SupermarketMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Shopper#move(Direction, SupermarketMap)} and a
+ * {@link Shopper#takeProduct(Product)} / {@link Shopper#returnProduct(Product)} pair.
+ * <p>
+ * The shopper walks back and forth along the open aisle in row 2 of the ground floor,
+ * so a move is never blocked and never lands on an amenity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopperBenchmark {
+    private SupermarketMap map;
+    private Shopper walker;
+    private Shopper carter;
+    private Product product;
+    private boolean east;
+
+    /**
+     * Builds the map, a walking shopper and a shopper holding a cart.
+     */
+    @Setup
+    public void setup() {
+        map = new SupermarketMap();
+        walker = new Shopper("Walker", 30, new Point(5, 2));
+        walker.setCurrentMap(map);
+        carter = new Shopper("Carter", 30, new Point(5, 2));
+        carter.setEquipment(new Cart());
+        product = map.getAllProducts().get(0);
+    }
+
+    /**
+     * Moves the shopper one tile, alternating east and west.
+     *
+     * @return The shopper's new position.
+     */
+    @Benchmark
+    public Point move() {
+        east = !east;
+        walker.move(east ? Direction.EAST : Direction.WEST, map);
+        return walker.getPosition();
+    }
+
+    /**
+     * Puts a product in the cart and takes it out again.
+     *
+     * @return The returned product.
+     */
+    @Benchmark
+    public Product takeAndReturn() {
+        carter.takeProduct(product);
+        return carter.returnProduct(product);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+/**
+ * BackRoom.java
+ *
+ * This class is the stock room behind the sales floor: how many units of every
+ * product are in storage, and the supplier orders placed to top them up.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Back-room inventory for every product in a map's catalog.
+ * <p>
+ * Stock is kept in an {@code int[]} indexed by the product's position in
+ * {@link SupermarketMap#getAllProducts()}. Whenever the stock of a product plus what is already on
+ * order drops to its reorder point, an order for the reorder quantity is placed with the supplier
+ * and delivered a fixed number of ticks later. Orders always take the same time, so they are
+ * kept in a plain FIFO queue.
+ */
+public class BackRoom {
+    private final List<Product> catalog;
+    private final Map<Product, Integer> indexOf;
+    private final int[] stock;
+    private final int[] onOrder;
+    private final int[] reorderPoint;
+    private final int[] reorderQuantity;
+    private final long leadTime;
+    /** Pending orders as {@code {delivery tick, product index, quantity}}, in delivery order. */
+    private final ArrayDeque<long[]> orders;
+    private long stockOuts;
+    private long ordersPlaced;
+
+    /**
+     * Constructs a back room holding the same amount of every product.
+     *
+     * @param map The {@link SupermarketMap} whose catalog is stored.
+     * @param initialStock The starting units of every product.
+     * @param reorderPoint The stock level (including units on order) that triggers an order.
+     * @param reorderQuantity The units ordered each time.
+     * @param leadTime The ticks between placing an order and receiving it.
+     */
+    public BackRoom(SupermarketMap map, int initialStock, int reorderPoint, int reorderQuantity, long leadTime) {
+        this.catalog = map.getAllProducts();
+        int n = catalog.size();
+        this.indexOf = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) indexOf.put(catalog.get(i), i);
+        this.stock = new int[n];
+        this.onOrder = new int[n];
+        this.reorderPoint = new int[n];
+        this.reorderQuantity = new int[n];
+        Arrays.fill(stock, initialStock);
+        Arrays.fill(this.reorderPoint, reorderPoint);
+        Arrays.fill(this.reorderQuantity, reorderQuantity);
+        this.leadTime = leadTime;
+        this.orders = new ArrayDeque<>();
+    }
+
+    /**
+     * Takes units of a product out of storage, placing a supplier order if stock runs low.
+     * Counts a stock-out if fewer units than asked for were available.
+     *
+     * @param product The {@link Product} wanted.
+     * @param wanted The number of units wanted.
+     * @param tick The current tick (for timing the order).
+     * @return The number of units handed over.
+     */
+    public int take(Product product, int wanted, long tick) {
+        Integer index = indexOf.get(product);
+        if (index == null) return 0;
+        int i = index;
+        int granted = Math.min(wanted, stock[i]);
+        stock[i] -= granted;
+        if (granted < wanted) stockOuts++;
+        if (stock[i] + onOrder[i] <= reorderPoint[i]) {
+            onOrder[i] += reorderQuantity[i];
+            orders.addLast(new long[] {tick + leadTime, i, reorderQuantity[i]});
+            ordersPlaced++;
+        }
+        return granted;
+    }
+
+    /**
+     * Puts units that could not be shelved back into storage.
+     *
+     * @param product The {@link Product} returned.
+     * @param count The number of units.
+     */
+    public void putBack(Product product, int count) {
+        Integer index = indexOf.get(product);
+        if (index != null) stock[index] += count;
+    }
+
+    /**
+     * Receives every order due by the given tick.
+     *
+     * @param tick The current tick.
+     * @return The number of orders received.
+     */
+    public int receiveDeliveries(long tick) {
+        int received = 0;
+        while (!orders.isEmpty() && orders.peekFirst()[0] <= tick) {
+            long[] order = orders.removeFirst();
+            int i = (int) order[1];
+            stock[i] += (int) order[2];
+            onOrder[i] -= (int) order[2];
+            received++;
+        }
+        return received;
+    }
+
+    /**
+     * Sets the reorder rule of one product (e.g., more stock for best sellers).
+     *
+     * @param product The {@link Product}.
+     * @param point The stock level that triggers an order.
+     * @param quantity The units ordered each time.
+     */
+    public void setReorderRule(Product product, int point, int quantity) {
+        Integer index = indexOf.get(product);
+        if (index == null) return;
+        reorderPoint[index] = point;
+        reorderQuantity[index] = quantity;
+    }
+
+    /**
+     * Gets the units of a product in storage.
+     *
+     * @param product The {@link Product}.
+     * @return The units in stock (0 for products not in the catalog).
+     */
+    public int getStock(Product product) {
+        Integer index = indexOf.get(product);
+        return index == null ? 0 : stock[index];
+    }
+
+    /**
+     * Gets the number of times staff asked for more units than were in storage.
+     * @return The stock-out count.
+     */
+    public long getStockOuts() { return stockOuts; }
+
+    /**
+     * Gets the number of supplier orders placed.
+     * @return The order count.
+     */
+    public long getOrdersPlaced() { return ordersPlaced; }
+
+    /**
+     * Gets the number of supplier orders not yet delivered.
+     * @return The pending order count.
+     */
+    public int getPendingOrders() { return orders.size(); }
+}
\ No newline at end of file
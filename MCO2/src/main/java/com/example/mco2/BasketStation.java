@@ -43,9 +43,10 @@ public class BasketStation extends Service {
 
             if (currentBasket.isEmpty()) {
                 shopper.removeEquipment();
-                showPopup(Alert.AlertType.INFORMATION, "Success", "Basket returned. Thank you!");
+                showPopup(shopper, Alert.AlertType.INFORMATION, "Success", "Basket returned. Thank you!");
             } else {
-                showPopup(Alert.AlertType.ERROR, "Error", "Cannot return basket: It is not empty.");
+                Metrics.deny(DenialReason.EQUIPMENT_NOT_EMPTY, this);
+                showPopup(shopper, Alert.AlertType.ERROR, "Error", "Cannot return basket: It is not empty.");
             }
             return;
         }
@@ -53,32 +54,21 @@ public class BasketStation extends Service {
         // 2. GETTING A BASKET
         if (!shopper.hasEquipment() && shopper.getHandCarried().isEmpty() && !shopper.getHasCheckedOut()) {
             shopper.setEquipment(new Basket());
-            showPopup(Alert.AlertType.INFORMATION, "Success", "Basket retrieved! Capacity: 15.");
+            Metrics.EQUIPMENT_PICKUPS.increment(this);
+            showPopup(shopper, Alert.AlertType.INFORMATION, "Success", "Basket retrieved! Capacity: 15.");
             return;
         }
 
         // 3. FAILURE MESSAGES
         if (shopper.hasEquipment()) {
-            showPopup(Alert.AlertType.WARNING, "Failed", "You already have equipment.");
+            Metrics.deny(DenialReason.ALREADY_HAS_EQUIPMENT, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Failed", "You already have equipment.");
         } else if (!shopper.getHandCarried().isEmpty()) {
-            showPopup(Alert.AlertType.WARNING, "Failed", "Your hands must be empty to grab a basket.");
+            Metrics.deny(DenialReason.HANDS_NOT_EMPTY, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Failed", "Your hands must be empty to grab a basket.");
         } else {
-            showPopup(Alert.AlertType.WARNING, "Failed", "Cannot retrieve basket.");
+            Metrics.deny(DenialReason.ALREADY_CHECKED_OUT, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Failed", "Cannot retrieve basket.");
         }
     }
-
-    /**
-     * Helper method to display a JavaFX alert dialog.
-     *
-     * @param type The type of alert (e.g., INFORMATION, ERROR).
-     * @param title The title of the dialog window.
-     * @param message The content text displayed inside the dialog.
-     */
-    private void showPopup(Alert.AlertType type, String title, String message) {
-        Alert alert = new Alert(type);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
-    }
 }
\ No newline at end of file
@@ -13,9 +13,8 @@ package com.example.mco2;
 import javafx.scene.control.Alert;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Date;
 
 /**
@@ -60,54 +59,55 @@ public class CheckoutCounter extends Service {
      */
     @Override
     public void interact(Shopper shopper) {
-        List<Product> items = shopper.getAllProducts();
+        Equipment equipment = shopper.getEquipment();
 
         // 1. CHECK: No Products
-        if (items.isEmpty()) {
-            showPopup(Alert.AlertType.WARNING, "Checkout Denied", "You have no products to pay for.");
+        if (equipment != null ? equipment.isEmpty() : shopper.getHandCarried().isEmpty()) {
+            Metrics.deny(DenialReason.NOTHING_TO_PAY, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Checkout Denied", "You have no products to pay for.");
             return;
         }
 
         // 2. CHECK: Already Paid
         if (shopper.getHasCheckedOut()) {
-            showPopup(Alert.AlertType.INFORMATION, "Status", "You have already paid for your items.");
+            Metrics.deny(DenialReason.ALREADY_PAID, this);
+            showPopup(shopper, Alert.AlertType.INFORMATION, "Status", "You have already paid for your items.");
             return;
         }
 
         // 3. CALCULATE TOTALS
-        double totalPrice = 0.0;
-        double discountedTotal = 0.0;
-        double totalDiscountApplied = 0.0;
         boolean isSenior = shopper.getAge() >= 60;
-
-        // Uses the full serial number as the unique key to accurately summarize items
-        Map<String, ProductSummary> summaryMap = new HashMap<>();
-
-        for (Product item : items) {
-            double itemPrice = item.getPrice();
-            double discount = 0.0;
-
-            if (isSenior && item.isConsumable()) {
-                if (item.getSerialPrefix().equals("ALC")) discount = 0.0; // No discount on alcohol
-                else if (item.isFood()) discount = itemPrice * FOOD_DISCOUNT_RATE;
-                else if (item.isBeverage()) discount = itemPrice * BEVERAGE_DISCOUNT_RATE;
+        SimulatorEvents.CheckoutPricing pricingEvent = SimulatorEvents.isRecording() ? new SimulatorEvents.CheckoutPricing() : null;
+        if (pricingEvent != null) pricingEvent.begin();
+        long pricingStart = System.nanoTime();
+        // Shoppers only pick up equipment with empty hands, so items are either all in it or all hand-carried
+        Receipt receipt = (equipment != null)
+                ? priceItems(equipment.getContents(), isSenior)
+                : priceItems(shopper.getHandCarried(), isSenior);
+        Metrics.PRICING_TIME.recordSince(pricingStart);
+        if (pricingEvent != null) {
+            pricingEvent.end();
+            if (pricingEvent.shouldCommit()) {
+                pricingEvent.shopper = shopper.getName();
+                pricingEvent.items = receipt.getItemCount();
+                pricingEvent.senior = isSenior;
+                pricingEvent.finalTotal = receipt.getFinalTotal();
+                pricingEvent.commit();
             }
-
-            double finalPrice = itemPrice - discount;
-            totalPrice += itemPrice;
-            discountedTotal += finalPrice;
-            totalDiscountApplied += discount;
-
-            // Using full serial number for summary key and constructor
-            String serial = item.getSerialNumber();
-
-            // Note: ProductSummary must have a 3-argument constructor for (serial, name, price)
-            summaryMap.putIfAbsent(serial, new ProductSummary(serial, item.getName(), item.getPrice()));
-            summaryMap.get(serial).addQuantity();
         }
-
-        // 4. GENERATE RECEIPT FILE
+        double totalPrice = receipt.getTotalPrice();
+        double discountedTotal = receipt.getFinalTotal();
+        double totalDiscountApplied = receipt.getTotalDiscount();
+        List<ProductSummary> lineItems = receipt.getLineItems();
+
+        // 4. GENERATE RECEIPT FILE (skipped for headless simulation runs)
+        if (isHeadless(shopper)) {
+            finalizeCheckout(shopper, receipt);
+            return;
+        }
         String filename = "receipt_" + shopper.getName() + ".txt";
+        SimulatorEvents.ReceiptWrite writeEvent = SimulatorEvents.isRecording() ? new SimulatorEvents.ReceiptWrite() : null;
+        if (writeEvent != null) writeEvent.begin();
         try (FileWriter writer = new FileWriter(filename)) {
             writer.write("--- Supermarket Receipt ---\n");
             writer.write("Shopper: " + shopper.getName() + " (Age: " + shopper.getAge() + ")\n");
@@ -115,7 +115,7 @@ public class CheckoutCounter extends Service {
             writer.write("--- Items Purchased ---\n");
 
             // ProductSummary.toString() now includes the serial number
-            for (ProductSummary summary : summaryMap.values()) {
+            for (ProductSummary summary : lineItems) {
                 writer.write(summary.toString() + "\n");
             }
 
@@ -126,36 +126,125 @@ public class CheckoutCounter extends Service {
             }
             writer.write(String.format("FINAL TOTAL: PHP %.2f\n", discountedTotal));
             writer.write("-----------------------------------\n");
+            writer.flush();
+            if (writeEvent != null) {
+                writeEvent.succeeded = true;
+                writeEvent.end();
+            }
 
             // 5. SHOW SUCCESS POPUP
             String message = String.format("Total: PHP %.2f\nDiscount: PHP %.2f\nPaid: PHP %.2f\n\nReceipt saved to file.",
                     totalPrice, totalDiscountApplied, discountedTotal);
-            showPopup(Alert.AlertType.INFORMATION, "Transaction Complete", message);
+            showPopup(shopper, Alert.AlertType.INFORMATION, "Transaction Complete", message);
 
         } catch (IOException e) {
-            showPopup(Alert.AlertType.ERROR, "Error", "Could not save receipt file. Check write permissions.");
+            if (writeEvent != null) writeEvent.end();
+            showPopup(shopper, Alert.AlertType.ERROR, "Error", "Could not save receipt file. Check write permissions.");
         }
 
-        // 6. FINALIZE: Clear equipment and items, set checked-out status
-        if (shopper.hasEquipment()) {
-            shopper.removeEquipment();
+        if (writeEvent != null && writeEvent.shouldCommit()) {
+            writeEvent.file = filename;
+            writeEvent.lineItems = lineItems.size();
+            writeEvent.commit();
         }
-        shopper.getHandCarried().clear();
-        shopper.setHasCheckedOut(true);
+
+        // 6. FINALIZE
+        finalizeCheckout(shopper, receipt);
+    }
+
+    /**
+     * Prices a list of items, applying the senior discount rules when requested.
+     * Seniors get 20% off food and 10% off beverages, with no discount on alcohol.
+     *
+     * @param items The {@link Product}s being paid for.
+     * @param isSenior {@code true} if the shopper is a senior citizen (60 or older).
+     * @return A {@link Receipt} with the grouped line items and totals.
+     */
+    public static Receipt priceItems(List<Product> items, boolean isSenior) {
+        double totalPrice = 0.0;
+        double discountedTotal = 0.0;
+        double totalDiscountApplied = 0.0;
+
+        // Uses the full serial number to accurately summarize items; lists are short, so a linear search is enough
+        List<ProductSummary> lineItems = new ArrayList<>();
+
+        for (Product item : items) {
+            double itemPrice = item.getPrice();
+            double discount = discountFor(item, isSenior);
+
+            double finalPrice = itemPrice - discount;
+            totalPrice += itemPrice;
+            discountedTotal += finalPrice;
+            totalDiscountApplied += discount;
+
+            String serial = item.getSerialNumber();
+            ProductSummary line = null;
+            for (ProductSummary existing : lineItems) {
+                if (existing.getSerialNumber().equals(serial)) line = existing;
+            }
+            if (line == null) {
+                line = new ProductSummary(serial, item.getName(), item.getPrice());
+                lineItems.add(line);
+            }
+            line.addQuantity();
+        }
+        return new Receipt(lineItems, totalPrice, totalDiscountApplied, discountedTotal, isSenior, items.size());
     }
 
     /**
-     * Helper method to display a JavaFX alert dialog.
+     * Prices the contents of a cart or basket line by line, applying the senior discount rules when requested.
+     * Takes time proportional to the number of distinct products, not the number of units.
      *
-     * @param type The type of alert (e.g., INFORMATION, ERROR).
-     * @param title The title of the dialog window.
-     * @param message The content text displayed inside the dialog.
+     * @param items The {@link SkuMultiset} being paid for.
+     * @param isSenior {@code true} if the shopper is a senior citizen (60 or older).
+     * @return A {@link Receipt} with the grouped line items and totals.
      */
-    private void showPopup(Alert.AlertType type, String title, String message) {
-        Alert alert = new Alert(type);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
+    public static Receipt priceItems(SkuMultiset items, boolean isSenior) {
+        double totalDiscountApplied = 0.0;
+        List<ProductSummary> lineItems = new ArrayList<>(items.getLineCount());
+
+        for (int i = 0; i < items.getLineCount(); i++) {
+            Product item = items.getLineProduct(i);
+            int quantity = items.getLineQuantity(i);
+            totalDiscountApplied += discountFor(item, isSenior) * quantity;
+
+            ProductSummary line = new ProductSummary(item.getSerialNumber(), item.getName(), item.getPrice());
+            line.addQuantity(quantity);
+            lineItems.add(line);
+        }
+        double totalPrice = items.getTotalPrice();
+        return new Receipt(lineItems, totalPrice, totalDiscountApplied, totalPrice - totalDiscountApplied, isSenior, items.size());
+    }
+
+    /**
+     * Works out the senior discount on one unit of a product.
+     *
+     * @param item The {@link Product}.
+     * @param isSenior {@code true} if the shopper is a senior citizen.
+     * @return The discount in PHP (0 for non-seniors, non-consumables and alcohol).
+     */
+    private static double discountFor(Product item, boolean isSenior) {
+        if (!isSenior || !item.isConsumable()) return 0.0;
+        if (item.isAlcohol()) return 0.0; // No discount on alcohol
+        if (item.isFood()) return item.getPrice() * FOOD_DISCOUNT_RATE;
+        if (item.isBeverage()) return item.getPrice() * BEVERAGE_DISCOUNT_RATE;
+        return 0.0;
+    }
+
+    /**
+     * Clears the shopper's equipment and hand-carried items, marks them as checked out,
+     * and tells the map's {@link CheckoutListener}s about the sale.
+     *
+     * @param shopper The {@link Shopper} who has just paid.
+     * @param receipt The priced {@link Receipt}.
+     */
+    private void finalizeCheckout(Shopper shopper, Receipt receipt) {
+        if (shopper.hasEquipment()) {
+            shopper.removeEquipment();
+        }
+        shopper.getHandCarried().clear();
+        shopper.setHasCheckedOut(true);
+        Metrics.CHECKOUTS.increment(this);
+        if (shopper.getCurrentMap() != null) shopper.getCurrentMap().notifyCheckout(shopper, receipt);
     }
 }
\ No newline at end of file
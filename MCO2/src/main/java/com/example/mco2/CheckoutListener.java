@@ -0,0 +1,26 @@
+/**
+ * CheckoutListener.java
+ *
+ * This interface is notified every time a shopper pays at a checkout counter.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * Receives every completed checkout on a {@link SupermarketMap}.
+ * Register listeners with {@link SupermarketMap#addCheckoutListener(CheckoutListener)}.
+ * Listeners are called on the thread applying the checkout, after the receipt is priced.
+ */
+public interface CheckoutListener {
+
+    /**
+     * Called once for every completed checkout.
+     *
+     * @param shopper The {@link Shopper} who paid.
+     * @param receipt The priced {@link Receipt}.
+     */
+    void onCheckout(Shopper shopper, Receipt receipt);
+}
\ No newline at end of file
@@ -11,7 +11,6 @@
  */
 package com.example.mco2;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,7 +30,7 @@ public class ChilledCounter extends Display {
      */
     public ChilledCounter(Point position, String address) {
         super(position, address);
-        this.products = new ArrayList<>(MAX_CAPACITY);
+        this.products = createTiers(1, MAX_CAPACITY).get(0);
     }
 
     /**
@@ -40,28 +39,19 @@ public class ChilledCounter extends Display {
      */
     @Override
     public void interact(Shopper shopper) {
-        System.out.println("Interacting with Chilled Counter at " + getAddress());
+        EventLog.log(LogLevel.DEBUG, "display.interact", shopper.getName(), getAddress());
     }
 
     /**
-     * Attempts to return a product to the counter.
+     * Checks if a product belongs on the counter.
      * Only chilled meats (CHK) and seafood (BEF, SEA prefixes) are allowed.
-     * * @param product The product to return.
-     * @return {@code true} if the product was successfully added, {@code false} otherwise (wrong type or full).
+     * * @param product The product being returned.
+     * @return {@code true} if the product type is allowed on the counter.
      */
     @Override
-    public boolean returnProduct(Product product) {
+    protected boolean accepts(Product product) {
         String prefix = product.getSerialPrefix();
-        if (!(prefix.equals("CHK") || prefix.equals("BEF") || prefix.equals("SEA"))) {
-            System.out.println("[Denied: Only chilled meats/seafood can be placed here.]");
-            return false;
-        }
-        if (isFull()) {
-            System.out.println("[Denied: This Chilled Counter is full.]");
-            return false;
-        }
-        this.products.add(product);
-        return true;
+        return prefix.equals("CHK") || prefix.equals("BEF") || prefix.equals("SEA");
     }
 
     /**
@@ -72,27 +62,6 @@ public class ChilledCounter extends Display {
     @Override
     public Product removeProduct(Shopper shopper) { return null; }
 
-    /**
-     * Checks if the counter is full.
-     * * @return {@code true} if the list is at maximum capacity, {@code false} otherwise.
-     */
-    @Override
-    public boolean isFull() { return this.products.size() >= MAX_CAPACITY; }
-
-    /**
-     * Checks if any product matching the provided name is currently in the counter's list.
-     * * @param name The name to search for.
-     * @return {@code true} if the product is found, {@code false} otherwise.
-     */
-    @Override
-    public boolean containsProductByName(String name) {
-        String lowerName = name.toLowerCase();
-        for (Product p : products) {
-            if (p.getName().toLowerCase().contains(lowerName)) return true;
-        }
-        return false;
-    }
-
     /**
      * Gets the raw list of products currently stored in the counter.
      * * @return The list of products.
@@ -0,0 +1,99 @@
+/**
+ * Counter.java
+ *
+ * This class is a named event counter that many threads can increment at once,
+ * with an optional breakdown by the type of amenity involved.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count of events, registered in {@link Metrics}.
+ * <p>
+ * Counts are kept in {@link LongAdder}s, so concurrent increments from the decide and apply
+ * phases do not contend on one memory location. The per-amenity breakdown is looked up
+ * through a {@link ClassValue}, which costs about as much as a field read once warmed up.
+ */
+public class Counter {
+    private final String name;
+    private final LongAdder total;
+    private final Map<String, LongAdder> byAmenity;
+    private final ClassValue<LongAdder> byType;
+
+    /**
+     * Constructs a new counter. Use {@link Metrics#counter(String)} to create registered counters.
+     *
+     * @param name The metric name (e.g., "shopper.moves").
+     */
+    Counter(String name) {
+        this.name = name;
+        this.total = new LongAdder();
+        this.byAmenity = new ConcurrentHashMap<>();
+        this.byType = new ClassValue<>() {
+            @Override
+            protected LongAdder computeValue(Class<?> type) {
+                return byAmenity.computeIfAbsent(type.getSimpleName(), k -> new LongAdder());
+            }
+        };
+    }
+
+    /**
+     * Counts one event.
+     */
+    public void increment() { total.increment(); }
+
+    /**
+     * Counts one event and attributes it to the type of the given amenity.
+     *
+     * @param amenity The {@link Amenity} involved, or {@code null} if there is none.
+     */
+    public void increment(Amenity amenity) {
+        total.increment();
+        if (amenity != null) byType.get(amenity.getClass()).increment();
+    }
+
+    /**
+     * Counts several events at once.
+     *
+     * @param count The number of events.
+     */
+    public void add(long count) { total.add(count); }
+
+    /**
+     * Gets the total count.
+     * @return The number of events counted since the last reset.
+     */
+    public long get() { return total.sum(); }
+
+    /**
+     * Gets the count for each amenity type, sorted by type name.
+     * @return A copy of the per-amenity counts.
+     */
+    public Map<String, Long> getBreakdown() {
+        Map<String, Long> copy = new TreeMap<>();
+        byAmenity.forEach((type, adder) -> copy.put(type, adder.sum()));
+        return copy;
+    }
+
+    /**
+     * Gets the metric name.
+     * @return The name.
+     */
+    public String getName() { return name; }
+
+    /**
+     * Sets the total and every breakdown count back to zero.
+     */
+    void reset() {
+        total.reset();
+        byAmenity.values().forEach(LongAdder::reset);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+/**
+ * DenialReason.java
+ *
+ * This enum lists the reasons an amenity or the shopper's own inventory can refuse an action.
+ * It is used to break down the denial counters in {@link Metrics}.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * The reason an action was refused.
+ */
+public enum DenialReason {
+    /** The display does not accept this type of product. */
+    WRONG_PRODUCT_TYPE,
+    /** The display has no room left. */
+    DISPLAY_FULL,
+    /** The shopper is under 18 and tried to take alcohol. */
+    UNDERAGE,
+    /** The shopper's hands or equipment are full. */
+    CARRY_FULL,
+    /** The shopper reached the checkout with no products. */
+    NOTHING_TO_PAY,
+    /** The shopper already paid. */
+    ALREADY_PAID,
+    /** The shopper tried to leave while still holding a cart or basket. */
+    EQUIPMENT_NOT_RETURNED,
+    /** The shopper tried to leave with products they have not paid for. */
+    UNPAID_ITEMS,
+    /** The shopper tried to return a cart or basket that still has products in it. */
+    EQUIPMENT_NOT_EMPTY,
+    /** The shopper tried to pick up equipment while already holding some. */
+    ALREADY_HAS_EQUIPMENT,
+    /** The shopper tried to pick up equipment while carrying products by hand. */
+    HANDS_NOT_EMPTY,
+    /** The shopper tried to pick up equipment after checking out. */
+    ALREADY_CHECKED_OUT,
+    /** The shopper tried to go back through a used entrance. */
+    ENTRANCE_LOCKED
+}
\ No newline at end of file
@@ -11,13 +11,33 @@
  */
 package com.example.mco2;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
 /**
  * An abstract class representing a fixed amenity on the map used to display and store products.
  * Displays are generally impassable and provide the main interaction points for a Shopper
  * to acquire or return items.
+ * <p>
+ * The products are kept in flat arrays, one slot per product, tier after tier. A display owns
+ * its arrays until a {@link SupermarketMap} binds it to the arrays of its {@link StoreOverlay},
+ * where the stock of every display of the map lives side by side.
  */
 public abstract class Display extends Amenity {
     private final String address;
+    private int lowStockLevel = -1;
+    private StockListener stockListener;
+    private Product[] slots;
+    private int slotBase;
+    private int[] tierSizes;
+    private int tierBase;
+    private int tierCount;
+    private int tierCapacity;
+    private List<List<Product>> tiers;
 
     /**
      * Constructs a new Display instance.
@@ -30,6 +50,134 @@ public abstract class Display extends Amenity {
         this.address = address;
     }
 
+    /**
+     * Creates the tiers of the display, empty. Concrete displays call this once from their constructor.
+     *
+     * @param tierCount The number of tiers.
+     * @param capacity The number of products each tier holds.
+     * @return One list per tier, backed by the display's slot arrays. A tier refuses to grow past its capacity.
+     */
+    protected List<List<Product>> createTiers(int tierCount, int capacity) {
+        this.slots = new Product[tierCount * capacity];
+        this.tierSizes = new int[tierCount];
+        this.tierCount = tierCount;
+        this.tierCapacity = capacity;
+        List<List<Product>> tiers = new ArrayList<>(tierCount);
+        for (int t = 0; t < tierCount; t++) tiers.add(new Tier(t));
+        this.tiers = Collections.unmodifiableList(tiers);
+        return this.tiers;
+    }
+
+    /**
+     * Moves the stock of the display into shared arrays, copying whatever it holds now.
+     * From then on every change is made in those arrays.
+     *
+     * @param slots The slot array; the display uses {@link #getCapacity()} slots from {@code slotBase}.
+     * @param slotBase The first slot of the display.
+     * @param tierSizes The tier size array; the display uses {@link #getTierCount()} entries from {@code tierBase}.
+     * @param tierBase The first tier of the display.
+     */
+    void bindStock(Product[] slots, int slotBase, int[] tierSizes, int tierBase) {
+        System.arraycopy(this.slots, this.slotBase, slots, slotBase, tierCount * tierCapacity);
+        System.arraycopy(this.tierSizes, this.tierBase, tierSizes, tierBase, tierCount);
+        this.slots = slots;
+        this.slotBase = slotBase;
+        this.tierSizes = tierSizes;
+        this.tierBase = tierBase;
+    }
+
+    /**
+     * One tier of a display, as a list over the display's slot arrays.
+     */
+    private final class Tier extends AbstractList<Product> implements RandomAccess {
+        private final int tier;
+
+        /**
+         * Constructs the view of one tier.
+         *
+         * @param tier The zero-based tier index.
+         */
+        private Tier(int tier) { this.tier = tier; }
+
+        /**
+         * Gets the slot where the tier starts.
+         * @return The slot index.
+         */
+        private int start() { return slotBase + tier * tierCapacity; }
+
+        /**
+         * Gets the number of products on the tier.
+         * @return The tier size.
+         */
+        @Override
+        public int size() { return tierSizes[tierBase + tier]; }
+
+        /**
+         * Gets the product at a position of the tier.
+         *
+         * @param index The position, from 0.
+         * @return The {@link Product}.
+         */
+        @Override
+        public Product get(int index) {
+            Objects.checkIndex(index, size());
+            return slots[start() + index];
+        }
+
+        /**
+         * Replaces the product at a position of the tier.
+         *
+         * @param index The position, from 0.
+         * @param product The new {@link Product}.
+         * @return The product replaced.
+         */
+        @Override
+        public Product set(int index, Product product) {
+            Objects.checkIndex(index, size());
+            Product old = slots[start() + index];
+            slots[start() + index] = product;
+            return old;
+        }
+
+        /**
+         * Inserts a product, moving the ones after it along.
+         *
+         * @param index The position, from 0 to the tier size.
+         * @param product The {@link Product}.
+         * @throws IllegalStateException if the tier is full.
+         */
+        @Override
+        public void add(int index, Product product) {
+            int size = size();
+            Objects.checkIndex(index, size + 1);
+            if (size == tierCapacity) throw new IllegalStateException("The tier is full.");
+            int start = start();
+            System.arraycopy(slots, start + index, slots, start + index + 1, size - index);
+            slots[start + index] = product;
+            tierSizes[tierBase + tier]++;
+            modCount++;
+        }
+
+        /**
+         * Removes a product, moving the ones after it back.
+         *
+         * @param index The position, from 0.
+         * @return The removed {@link Product}.
+         */
+        @Override
+        public Product remove(int index) {
+            int size = size();
+            Objects.checkIndex(index, size);
+            int start = start();
+            Product removed = slots[start + index];
+            System.arraycopy(slots, start + index + 1, slots, start + index, size - index - 1);
+            slots[start + size - 1] = null;
+            tierSizes[tierBase + tier]--;
+            modCount++;
+            return removed;
+        }
+    }
+
     /**
      * Overrides the default impassable status defined in {@link Amenity}.
      * Displays cannot be passed through.
@@ -39,7 +187,7 @@ public abstract class Display extends Amenity {
     @Override
     public boolean isPassable() { return false; }
 
-    // These abstract methods form the contract for all concrete Display implementations.
+    // These methods form the contract for all concrete Display implementations.
 
     /**
      * Handles the removal of a product from the display's inventory by the shopper.
@@ -53,29 +201,233 @@ public abstract class Display extends Amenity {
     public abstract Product removeProduct(Shopper shopper);
 
     /**
-     * Attempts to return (stock) a product onto the display.
-     * Concrete implementations must contain logic to check if the product type is allowed.
+     * Checks if a product belongs on this kind of display, from its serial prefix.
+     *
+     * @param product The {@link Product} being returned.
+     * @return {@code true} if the product type is allowed on the display.
+     */
+    protected abstract boolean accepts(Product product);
+
+    /**
+     * Attempts to return (stock) a product onto the first non-full tier of the display.
+     * The product type must pass {@link #accepts(Product)}.
      *
      * @param product The {@link Product} to be placed back onto the display.
      * @return {@code true} if the product was successfully stocked; {@code false} if the display is full or the product type is disallowed.
      */
-    public abstract boolean returnProduct(Product product);
+    public boolean returnProduct(Product product) {
+        if (!accepts(product)) return deny(product, DenialReason.WRONG_PRODUCT_TYPE);
+        for (List<Product> tier : tiers) {
+            if (tier.size() < tierCapacity) {
+                tier.add(product);
+                Metrics.RETURNS.increment(this);
+                SimulatorEvents.displayReturn(this, product, null);
+                int count = getProductCount();
+                stockChanged(count - 1, count);
+                return true;
+            }
+        }
+        return deny(product, DenialReason.DISPLAY_FULL);
+    }
+
+    /**
+     * Counts, reports and logs a refused return.
+     *
+     * @param product The {@link Product} that was refused.
+     * @param reason Why it was refused.
+     * @return Always {@code false}, for {@link #returnProduct(Product)} to return.
+     */
+    private boolean deny(Product product, DenialReason reason) {
+        Metrics.deny(reason, this);
+        SimulatorEvents.displayReturn(this, product, reason);
+        EventLog.log(LogLevel.INFO, "display.denied", getAddress(), reason.name());
+        return false;
+    }
+
+    /**
+     * Gets the maximum number of products the display can hold (across all tiers).
+     * Every tier of a display holds the same number of products.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() { return tierCount * tierCapacity; }
+
+    /**
+     * Refills the display with copies of one product, tier by tier, without the category
+     * checks and counters of {@link #returnProduct(Product)}. Used by restocking staff.
+     *
+     * @param product The {@link Product} to stock.
+     * @param count The most products to add.
+     * @return The number of products actually added (less than {@code count} if the display fills up).
+     */
+    public int restock(Product product, int count) {
+        int placed = 0;
+        for (int t = 0; t < tierCount && placed < count; t++) {
+            List<Product> tier = tiers.get(t);
+            while (tier.size() < tierCapacity && placed < count) {
+                tier.add(product);
+                placed++;
+            }
+        }
+        if (placed > 0) {
+            int after = getProductCount();
+            stockChanged(after - placed, after);
+        }
+        return placed;
+    }
+
+    /**
+     * Gets the product count at or below which the display counts as {@link StockLevel#LOW}.
+     *
+     * @return The low-stock level (half the capacity unless set otherwise).
+     */
+    public int getLowStockLevel() { return lowStockLevel < 0 ? getCapacity() / 2 : lowStockLevel; }
+
+    /**
+     * Sets the product count at or below which the display counts as {@link StockLevel#LOW}.
+     * Changing the level does not send an event by itself.
+     *
+     * @param level The low-stock level (0 makes the display go straight from stocked to empty).
+     */
+    public void setLowStockLevel(int level) { this.lowStockLevel = level; }
+
+    /**
+     * Gets the current stock level of the display.
+     *
+     * @return The {@link StockLevel}.
+     */
+    public StockLevel getStockLevel() { return levelOf(getProductCount()); }
+
+    /**
+     * Classifies a product count against the low-stock level.
+     *
+     * @param count A product count.
+     * @return The {@link StockLevel} of a display holding that many products.
+     */
+    private StockLevel levelOf(int count) {
+        if (count == 0) return StockLevel.EMPTY;
+        return count <= getLowStockLevel() ? StockLevel.LOW : StockLevel.STOCKED;
+    }
+
+    /**
+     * Called by concrete displays after every take or return, and by {@link #restock(Product, int)}.
+     * Counts the display running out and tells the listener if the stock level changed.
+     *
+     * @param before The product count before the change.
+     * @param after The product count after the change.
+     */
+    protected void stockChanged(int before, int after) {
+        StockLevel from = levelOf(before);
+        StockLevel to = levelOf(after);
+        if (from == to) return;
+        if (to == StockLevel.EMPTY) Metrics.STOCKOUTS.increment(this);
+        if (stockListener != null) stockListener.onStockLevelChange(this, from, to);
+    }
+
+    /**
+     * Sets the listener told about stock level changes. Set by {@link SupermarketMap}.
+     *
+     * @param listener The {@link StockListener}, or {@code null} for none.
+     */
+    void setStockListener(StockListener listener) { this.stockListener = listener; }
 
     /**
      * Checks if the display has reached its maximum product capacity.
      *
-     * @return {@code true} if the display is full; {@code false} otherwise.
+     * @return {@code true} if every tier is full; {@code false} otherwise.
      */
-    public abstract boolean isFull();
+    public boolean isFull() {
+        for (int t = 0; t < tierCount; t++) {
+            if (tierSizes[tierBase + t] < tierCapacity) return false;
+        }
+        return true;
+    }
 
     /**
-     * Checks if the display currently holds a product whose name matches the search term.
+     * Checks if the display currently holds a product whose name matches the search term
+     * (case-insensitive, partial match).
      * This is used primarily by the {@link ProductSearch} amenity.
      *
      * @param name The name or partial name of the product to search for.
      * @return {@code true} if the product is found; {@code false} otherwise.
      */
-    public abstract boolean containsProductByName(String name);
+    public boolean containsProductByName(String name) {
+        String lowerName = name.toLowerCase();
+        for (List<Product> tier : tiers) {
+            for (Product p : tier) {
+                if (p.getName().toLowerCase().contains(lowerName)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of products currently stocked on the display (across all tiers).
+     *
+     * @return The current product count.
+     */
+    public int getProductCount() {
+        int count = 0;
+        for (int t = 0; t < tierCount; t++) count += tierSizes[tierBase + t];
+        return count;
+    }
+
+    /**
+     * Gets the product at the given slot without removing it.
+     * Slots are numbered in reading order (tier by tier), matching the layout of the display dialog.
+     *
+     * @param index The zero-based slot index.
+     * @return The {@link Product} stocked at that slot, or {@code null} if the index is out of range.
+     */
+    public Product getProductAt(int index) {
+        if (index < 0) return null;
+        for (int t = 0; t < tierCount; t++) {
+            int size = tierSizes[tierBase + t];
+            if (index < size) return slots[slotBase + t * tierCapacity + index];
+            index -= size;
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns the product at the given slot.
+     * Slots are numbered in reading order (tier by tier), matching the layout of the display dialog.
+     *
+     * @param index The zero-based slot index.
+     * @return The removed {@link Product}, or {@code null} if the index is out of range.
+     */
+    public Product takeProductAt(int index) {
+        if (index < 0) return null;
+        int slot = index;
+        for (List<Product> tier : tiers) {
+            if (index < tier.size()) {
+                Product product = tier.remove(index);
+                Metrics.TAKES.increment(this);
+                SimulatorEvents.displayTake(this, slot, product);
+                int count = getProductCount();
+                stockChanged(count + 1, count);
+                return product;
+            }
+            index -= tier.size();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of storage tiers of the display (1 for flat displays such as Tables).
+     *
+     * @return The tier count.
+     */
+    public int getTierCount() { return tierCount; }
+
+    /**
+     * Gets the mutable list of products on one tier.
+     * Used by {@link StoreSnapshot} to save and restore the exact tier layout.
+     *
+     * @param tier The zero-based tier index.
+     * @return The products on that tier.
+     */
+    public List<Product> getTier(int tier) { return tiers.get(tier); }
 
     /**
      * Gets the descriptive address or location identifier of the display.
@@ -19,7 +19,8 @@ import javafx.scene.control.Alert; // <--- Needed for popups
  * enforcing a one-way flow into the store.
  */
 public class Entrance extends Service {
-    private boolean hasBeenUsed;
+    private boolean[] usedFlags;
+    private int usedIndex;
 
     /**
      * Constructs a new Entrance amenity.
@@ -28,7 +29,21 @@ public class Entrance extends Service {
      */
     public Entrance(Point position) {
         super(position);
-        this.hasBeenUsed = false;
+        this.usedFlags = new boolean[1];
+        this.usedIndex = 0;
+    }
+
+    /**
+     * Moves the used flag of the Entrance into a shared array (that of a {@link StoreOverlay}),
+     * copying its current value.
+     *
+     * @param flags The array of used flags.
+     * @param index The entry of this Entrance.
+     */
+    void bindState(boolean[] flags, int index) {
+        flags[index] = usedFlags[usedIndex];
+        this.usedFlags = flags;
+        this.usedIndex = index;
     }
 
     /**
@@ -40,7 +55,7 @@ public class Entrance extends Service {
     @Override
     public boolean isPassable() {
         // Passable only if we haven't stepped off it yet
-        return !this.hasBeenUsed;
+        return !usedFlags[usedIndex];
     }
 
     /**
@@ -52,35 +67,28 @@ public class Entrance extends Service {
      */
     @Override
     public void interact(Shopper shopper) {
-        if (!this.hasBeenUsed) {
+        if (!usedFlags[usedIndex]) {
             // User is standing on it at the start
-            showPopup(Alert.AlertType.INFORMATION, "Welcome", "You are at the Entrance.\nMove (W/A/S/D) to enter the supermarket.");
+            showPopup(shopper, Alert.AlertType.INFORMATION, "Welcome", "You are at the Entrance.\nMove (W/A/S/D) to enter the supermarket.");
         } else {
             // User tries to go back
-            showPopup(Alert.AlertType.WARNING, "Locked", "You must proceed to the Checkout/Exit.");
+            Metrics.deny(DenialReason.ENTRANCE_LOCKED, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Locked", "You must proceed to the Checkout/Exit.");
         }
     }
 
-    /**
-     * Helper method to display a JavaFX alert dialog.
-     *
-     * @param type The type of alert (e.g., INFORMATION, ERROR).
-     * @param title The title of the dialog window.
-     * @param message The content text displayed inside the dialog.
-     */
-    private void showPopup(Alert.AlertType type, String title, String message) {
-        Alert alert = new Alert(type);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
-    }
-
     /**
      * Sets the state of the Entrance to 'used'.
      * This is called when the shopper moves off the Entrance tile, making it impassable thereafter.
      */
     public void setHasBeenUsed() {
-        this.hasBeenUsed = true;
+        usedFlags[usedIndex] = true;
     }
+
+    /**
+     * Checks if the shopper has already stepped off the Entrance.
+     *
+     * @return {@code true} if the entrance has been used and is now locked; {@code false} otherwise.
+     */
+    public boolean getHasBeenUsed() { return usedFlags[usedIndex]; }
 }
\ No newline at end of file
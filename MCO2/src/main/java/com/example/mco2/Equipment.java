@@ -11,17 +11,20 @@
  */
 package com.example.mco2;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * An abstract class representing equipment (like a Cart or Basket) used by the {@link Shopper}
  * to carry multiple {@link Product} items.
- * It manages the capacity and the list of products currently held.
+ * It manages the capacity and the products currently held, which are counted by SKU
+ * in a {@link SkuMultiset} so carts can be summarized and priced line by line.
  */
 public abstract class Equipment {
     private final String name;
     private final int maxCapacity;
+    private final SkuMultiset contents;
     private final List<Product> currentProducts;
 
     /**
@@ -33,7 +36,17 @@ public abstract class Equipment {
     public Equipment(String name, int maxCapacity) {
         this.name = name;
         this.maxCapacity = maxCapacity;
-        this.currentProducts = new ArrayList<>(maxCapacity);
+        this.contents = new SkuMultiset();
+        this.currentProducts = new AbstractList<>() {
+            @Override
+            public Product get(int index) { return contents.get(index); }
+
+            @Override
+            public int size() { return contents.size(); }
+
+            @Override
+            public Iterator<Product> iterator() { return contents.iterator(); }
+        };
     }
 
     /**
@@ -45,18 +58,18 @@ public abstract class Equipment {
      */
     public boolean addProduct(Product product) {
         if (isFull()) return false;
-        currentProducts.add(product);
+        contents.add(product);
         return true;
     }
 
     /**
-     * Attempts to remove a specific product instance from the equipment.
+     * Attempts to remove one unit of a product from the equipment.
      *
-     * @param product The exact {@link Product} instance to remove.
+     * @param product The {@link Product} to remove (any product with the same serial number).
      * @return The removed {@link Product} if successful; {@code null} if the product was not found in the equipment.
      */
     public Product removeProduct(Product product) {
-        return currentProducts.remove(product) ? product : null;
+        return contents.remove(product) ? product : null;
     }
 
     /**
@@ -64,14 +77,21 @@ public abstract class Equipment {
      *
      * @return {@code true} if the number of products equals or exceeds the max capacity; {@code false} otherwise.
      */
-    public boolean isFull() { return currentProducts.size() >= maxCapacity; }
+    public boolean isFull() { return contents.size() >= maxCapacity; }
 
     /**
      * Checks if the equipment currently holds no products.
      *
-     * @return {@code true} if the list of current products is empty; {@code false} otherwise.
+     * @return {@code true} if no products are held; {@code false} otherwise.
+     */
+    public boolean isEmpty() { return contents.isEmpty(); }
+
+    /**
+     * Gets the number of products the equipment can hold.
+     *
+     * @return The maximum capacity.
      */
-    public boolean isEmpty() { return currentProducts.isEmpty(); }
+    public int getMaxCapacity() { return maxCapacity; }
 
     /**
      * Gets the name of the equipment.
@@ -81,9 +101,17 @@ public abstract class Equipment {
     public String getName() { return name; }
 
     /**
-     * Gets the mutable list of products currently held by the equipment.
+     * Gets a read-only view of the products currently held, one element per unit, line by line.
+     * Use {@link #addProduct(Product)} and {@link #removeProduct(Product)} to change the contents.
      *
      * @return The {@code List<Product>} representing the current inventory of the equipment.
      */
     public List<Product> getCurrentProducts() { return currentProducts; }
+
+    /**
+     * Gets the products held, counted by SKU.
+     *
+     * @return The {@link SkuMultiset} backing the equipment.
+     */
+    public SkuMultiset getContents() { return contents; }
 }
\ No newline at end of file
@@ -0,0 +1,258 @@
+/**
+ * EventLog.java
+ *
+ * This class is the simulator's structured, asynchronous event log. Shoppers and amenities
+ * hand entries to a lock-free ring buffer and a background thread writes them out.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Process-wide structured event log.
+ * <p>
+ * {@link #log(LogLevel, String, String, String)} never blocks and never allocates: it claims a slot
+ * of a fixed ring of {@value #CAPACITY} {@link LogEvent}s with a compare-and-set, fills it and
+ * publishes it. A daemon drain thread writes published entries to the current {@link EventSink}
+ * (JSON Lines on standard output by default), and parks while the ring is empty until
+ * {@code log} publishes again. If the ring is full the entry is dropped and counted in
+ * {@link #DROPPED}, so a slow sink can never stall the simulation.
+ * <p>
+ * Entries below the current level are discarded before touching the ring, and at {@link LogLevel#OFF}
+ * every call returns after a single field read. The log starts {@link LogLevel#OFF}, so the GUI and
+ * code using the simulator as a library print nothing unless asked to: the starting level and an
+ * optional output file can be set with the {@code mco2.log.level} and {@code mco2.log.file} system
+ * properties, and command-line tools pick their own level with {@link #setDefaultLevel(LogLevel)}.
+ * An unknown level name is reported on standard error and {@link LogLevel#INFO} is used instead.
+ */
+public final class EventLog {
+    /** Number of entries the ring buffer can hold (a power of two). */
+    public static final int CAPACITY = 1 << 14;
+
+    /** Entries dropped because the ring buffer was full. */
+    public static final Counter DROPPED = Metrics.counter("eventlog.dropped");
+
+    /** Entries the sink failed to write. */
+    public static final Counter SINK_ERRORS = Metrics.counter("eventlog.sink_errors");
+
+    private static final int MASK = CAPACITY - 1;
+
+    /** The system property holding the starting level. */
+    private static final String LEVEL_PROPERTY = "mco2.log.level";
+
+    private static final LogEvent[] RING = new LogEvent[CAPACITY];
+    private static final AtomicLong TAIL = new AtomicLong();
+    private static final Object DRAIN_LOCK = new Object();
+
+    /** Next sequence to drain. Only read and written while holding {@link #DRAIN_LOCK}. */
+    private static long head;
+
+    private static volatile int threshold;
+    private static volatile EventSink sink;
+    private static volatile Thread drainThread;
+    /** Set while the drain thread is about to park or parked, so {@code log} knows to wake it. */
+    private static volatile boolean drainIdle;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) RING[i] = new LogEvent(i);
+        threshold = parseLevel(System.getProperty(LEVEL_PROPERTY)).ordinal();
+        sink = openDefaultSink(System.getProperty("mco2.log.file"));
+    }
+
+    /**
+     * This class only has static members.
+     */
+    private EventLog() { }
+
+    /**
+     * Reads the starting level from the {@code mco2.log.level} property.
+     *
+     * @param name The level name, in any case, or {@code null} if the property is not set.
+     * @return The {@link LogLevel}: {@link LogLevel#OFF} if the name is missing, {@link LogLevel#INFO} if it is unknown.
+     */
+    private static LogLevel parseLevel(String name) {
+        if (name == null) return LogLevel.OFF;
+        try {
+            return LogLevel.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + LEVEL_PROPERTY + " '" + name + "' (expected one of "
+                    + Arrays.toString(LogLevel.values()) + "); logging at INFO");
+            return LogLevel.INFO;
+        }
+    }
+
+    /**
+     * Creates the sink used until {@link #setSink(EventSink)} is called.
+     *
+     * @param file The path of the log file, or {@code null} for standard output.
+     * @return A JSON Lines sink.
+     */
+    private static EventSink openDefaultSink(String file) {
+        if (file != null) {
+            try {
+                return new JsonLinesSink(Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Could not open event log file " + file + ": " + e.getMessage());
+            }
+        }
+        return new JsonLinesSink(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Logs an entry if its level is enabled. Never blocks; drops the entry if the ring is full.
+     *
+     * @param level The severity of the entry.
+     * @param event The event name (e.g., "shopper.blocked").
+     * @param subject Who or what the entry is about (a shopper name or display address).
+     * @param detail Extra information, or {@code null}.
+     */
+    public static void log(LogLevel level, String event, String subject, String detail) {
+        if (level.ordinal() < threshold) return;
+
+        long position = TAIL.get();
+        LogEvent slot;
+        while (true) {
+            slot = RING[(int) position & MASK];
+            long lag = slot.sequence - position;
+            if (lag == 0) {
+                if (TAIL.compareAndSet(position, position + 1)) break;
+                position = TAIL.get();
+            } else if (lag < 0) {
+                // The drain thread has not freed this slot yet: the ring is full
+                DROPPED.increment();
+                return;
+            } else {
+                position = TAIL.get();
+            }
+        }
+        slot.set(System.currentTimeMillis(), level, event, subject, detail);
+        slot.sequence = position + 1;
+
+        Thread drainer = drainThread;
+        if (drainer == null) startDrainThread();
+        else if (drainIdle) LockSupport.unpark(drainer);
+    }
+
+    /**
+     * Checks if entries of a level would be logged. Use this to skip building
+     * expensive detail strings when the level is disabled.
+     *
+     * @param level The level to check.
+     * @return {@code true} if entries of this level are kept.
+     */
+    public static boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * Sets the lowest level that is logged.
+     *
+     * @param level The new level ({@link LogLevel#OFF} discards everything).
+     */
+    public static void setLevel(LogLevel level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * Sets the level a command-line tool logs at, unless the {@code mco2.log.level} property asked
+     * for one explicitly.
+     *
+     * @param level The tool's own default level.
+     */
+    public static void setDefaultLevel(LogLevel level) {
+        if (System.getProperty(LEVEL_PROPERTY) == null) setLevel(level);
+    }
+
+    /**
+     * Gets the lowest level that is logged.
+     * @return The current {@link LogLevel}.
+     */
+    public static LogLevel getLevel() { return LogLevel.values()[threshold]; }
+
+    /**
+     * Replaces the sink. Entries already in the ring are written to the old sink first.
+     *
+     * @param newSink The {@link EventSink} to write to from now on.
+     */
+    public static void setSink(EventSink newSink) {
+        synchronized (DRAIN_LOCK) {
+            drain();
+            sink = newSink;
+        }
+    }
+
+    /**
+     * Writes every entry logged so far to the sink and flushes it. Called at shutdown,
+     * and useful before reading a log file that is still being written.
+     */
+    public static void flush() {
+        drain();
+    }
+
+    /**
+     * Writes all published entries to the sink.
+     *
+     * @return The number of entries written.
+     */
+    private static int drain() {
+        synchronized (DRAIN_LOCK) {
+            EventSink out = sink;
+            int written = 0;
+            while (true) {
+                LogEvent slot = RING[(int) head & MASK];
+                if (slot.sequence != head + 1) break;
+                try {
+                    out.write(slot);
+                } catch (IOException e) {
+                    SINK_ERRORS.increment();
+                }
+                slot.clear();
+                slot.sequence = head + CAPACITY;
+                head++;
+                written++;
+            }
+            if (written > 0) {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    SINK_ERRORS.increment();
+                }
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Starts the drain thread (once) and registers a shutdown hook that writes any remaining entries.
+     */
+    private static synchronized void startDrainThread() {
+        if (drainThread != null) return;
+        Thread thread = new Thread(() -> {
+            while (true) {
+                if (drain() > 0) continue;
+                // Announce the park before the last look at the ring: an entry published after
+                // that look sees the flag and unparks, so it cannot be left waiting
+                drainIdle = true;
+                if (drain() == 0) LockSupport.park();
+                drainIdle = false;
+            }
+        }, "event-log-drain");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EventLog::flush, "event-log-flush"));
+        drainThread = thread;
+    }
+}
\ No newline at end of file
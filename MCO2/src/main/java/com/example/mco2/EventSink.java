@@ -0,0 +1,34 @@
+/**
+ * EventSink.java
+ *
+ * This interface is the destination the event log drain thread writes entries to.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+
+/**
+ * Receives the entries drained from the {@link EventLog}.
+ * Methods are only ever called from one thread at a time.
+ */
+public interface EventSink {
+
+    /**
+     * Writes one entry. The entry is reused after this method returns.
+     *
+     * @param event The {@link LogEvent} to write.
+     * @throws IOException if the entry cannot be written.
+     */
+    void write(LogEvent event) throws IOException;
+
+    /**
+     * Flushes buffered entries. Called whenever the drain thread runs out of entries.
+     *
+     * @throws IOException if the entries cannot be flushed.
+     */
+    void flush() throws IOException;
+}
\ No newline at end of file
@@ -40,14 +40,16 @@ public class Exit extends Service {
     public void interact(Shopper shopper) {
         // 1. CHECK EQUIPMENT
         if (shopper.hasEquipment()) {
-            showPopup(Alert.AlertType.WARNING, "Exit Denied", "Please return your Cart/Basket first.");
+            Metrics.deny(DenialReason.EQUIPMENT_NOT_RETURNED, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Exit Denied", "Please return your Cart/Basket first.");
             return;
         }
 
         // 2. CHECK PAYMENT
-        boolean acquiredProducts = !shopper.getAllProducts().isEmpty();
+        boolean acquiredProducts = shopper.getProductCount() > 0;
         if (acquiredProducts && !shopper.getHasCheckedOut()) {
-            showPopup(Alert.AlertType.WARNING, "Exit Denied", "You have items! Please pay at the counter first.");
+            Metrics.deny(DenialReason.UNPAID_ITEMS, this);
+            showPopup(shopper, Alert.AlertType.WARNING, "Exit Denied", "You have items! Please pay at the counter first.");
             return;
         }
 
@@ -55,20 +57,6 @@ public class Exit extends Service {
         // We do NOT show a popup here because SupermarketFX handles the "Game Over" dialog.
         // We just flag the shopper as exited.
         shopper.setHasExited(true);
-    }
-
-    /**
-     * Helper method to display a JavaFX alert dialog.
-     *
-     * @param type The type of alert (e.g., WARNING, ERROR).
-     * @param title The title of the dialog window.
-     * @param message The content text displayed inside the dialog.
-     */
-    private void showPopup(Alert.AlertType type, String title, String message) {
-        Alert alert = new Alert(type);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
+        Metrics.EXITS.increment(this);
     }
 }
\ No newline at end of file
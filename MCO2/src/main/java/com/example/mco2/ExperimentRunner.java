@@ -0,0 +1,389 @@
+/**
+ * ExperimentRunner.java
+ *
+ * This class runs batches of headless simulations over ranges of scenario parameters
+ * and streams a one-line summary of every run to a CSV file as it finishes.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * A parameter sweep over a scenario (a {@link StoreLayout} plus run settings).
+ * <p>
+ * Each {@link Parameter} has a range and a number of levels. {@link #runGrid(Path, int)} runs every
+ * combination of levels; {@link #runLatinHypercube(int, Path, int)} draws a Latin hypercube sample
+ * instead, which covers each range evenly with far fewer runs. Every design point is run once per
+ * replicate, and replicate {@code r} uses the same seed at every point, so points are compared
+ * on the same shoppers.
+ * <p>
+ * Runs are executed on a work-stealing {@link ForkJoinPool}. Design points are worked out from the
+ * run number when a run starts, and each summary is written and flushed as soon as its run ends,
+ * so memory holds only the simulations in progress (one per thread), whatever the size of the sweep.
+ * The scenario layout is immutable and shared by every run; each run builds its own map from it,
+ * since a map holds the stock its shoppers take.
+ * <p>
+ * The {@link Metrics} counters, {@link #RUNS} among them, are process-wide: while runs execute in
+ * parallel (or several sweeps run at once) every counter adds up all of them, so it cannot be read
+ * as the figure of one run. The summary columns are worked out from each run's own simulation and
+ * are not affected.
+ */
+public class ExperimentRunner {
+    /** The parameters a sweep can vary. */
+    public enum Parameter {
+        /** Total number of shoppers who come in (rounded to a whole number). */
+        SHOPPERS,
+        /** Mean number of new shoppers per tick. */
+        ARRIVAL_RATE,
+        /** Number of Checkout Counters open, nearest the Exit first (rounded; the rest become walls). */
+        COUNTERS_OPEN,
+        /** Share of shoppers who take a cart rather than a basket. */
+        CART_SHARE
+    }
+
+    /** Header of the summary file; one column per parameter, then the results of the run. */
+    public static final String CSV_HEADER = "run,replicate,seed,shoppers,arrival_rate,counters_open,cart_share,"
+            + "ticks,arrived,exited,mean_ticks_in_store,max_ticks_in_store,unavailable_items,wall_ms";
+
+    /** Runs finished since start-up, by every sweep of the process. */
+    public static final Counter RUNS = Metrics.counter("experiment.runs");
+
+    private final StoreLayout scenario;
+    private final long seed;
+    private final double[] min;
+    private final double[] max;
+    private final int[] levels;
+    private final Map<Integer, StoreLayout> layoutsByCounters;
+    private int replicates;
+    private int maxTicks;
+    private int tileCapacity;
+
+    /**
+     * Constructs a sweep over a scenario. Until ranges are set, every run has 200 shoppers arriving
+     * at 0.3 per tick, all counters open and no cart preference; runs last until every shopper has
+     * left or 3000 ticks have passed, with 2 shoppers allowed per tile.
+     *
+     * @param scenario The {@link StoreLayout} every run uses.
+     * @param seed The seed the replicate seeds are derived from.
+     */
+    public ExperimentRunner(StoreLayout scenario, long seed) {
+        this.scenario = scenario;
+        this.seed = seed;
+        int n = Parameter.values().length;
+        this.min = new double[n];
+        this.max = new double[n];
+        this.levels = new int[n];
+        this.layoutsByCounters = new ConcurrentHashMap<>();
+        setValue(Parameter.SHOPPERS, 200);
+        setValue(Parameter.ARRIVAL_RATE, 0.3);
+        setValue(Parameter.COUNTERS_OPEN, countCounters(scenario));
+        setValue(Parameter.CART_SHARE, 0.0);
+        this.replicates = 1;
+        this.maxTicks = 3000;
+        this.tileCapacity = 2;
+    }
+
+    /**
+     * Sets the range of a parameter.
+     *
+     * @param parameter The {@link Parameter}.
+     * @param from The lowest value.
+     * @param to The highest value.
+     * @param levelCount The number of evenly spaced grid levels from {@code from} to {@code to} (at least 1).
+     */
+    public void setRange(Parameter parameter, double from, double to, int levelCount) {
+        if (levelCount < 1 || to < from) throw new IllegalArgumentException("A range needs from <= to and at least one level.");
+        min[parameter.ordinal()] = from;
+        max[parameter.ordinal()] = to;
+        levels[parameter.ordinal()] = levelCount;
+    }
+
+    /**
+     * Fixes a parameter to one value.
+     *
+     * @param parameter The {@link Parameter}.
+     * @param value The value used by every run.
+     */
+    public void setValue(Parameter parameter, double value) {
+        setRange(parameter, value, value, 1);
+    }
+
+    /**
+     * Sets how many times each design point is run.
+     *
+     * @param replicates The number of replicates (at least 1), each with its own seed.
+     */
+    public void setReplicates(int replicates) {
+        if (replicates < 1) throw new IllegalArgumentException("At least one replicate is needed.");
+        this.replicates = replicates;
+    }
+
+    /**
+     * Sets the run settings that are not swept.
+     *
+     * @param maxTicks The longest a run may last, even if shoppers are still inside.
+     * @param tileCapacity How many shoppers may stand on an ordinary tile (0 for no limit).
+     */
+    public void setRunLimits(int maxTicks, int tileCapacity) {
+        if (maxTicks < 1 || tileCapacity < 0) throw new IllegalArgumentException("Invalid run limits.");
+        this.maxTicks = maxTicks;
+        this.tileCapacity = tileCapacity;
+    }
+
+    /**
+     * Gets the number of design points of a full grid.
+     * @return The product of the level counts.
+     */
+    public long getGridSize() {
+        long size = 1;
+        for (int l : levels) size *= l;
+        return size;
+    }
+
+    /**
+     * Runs every combination of parameter levels.
+     *
+     * @param output The CSV file to write (replaced if it exists).
+     * @param threads The number of runs executed at once.
+     * @return The number of runs.
+     * @throws IOException if the summaries cannot be written.
+     */
+    public int runGrid(Path output, int threads) throws IOException {
+        long size = getGridSize();
+        if (size > Integer.MAX_VALUE / replicates) throw new IllegalArgumentException("The grid is too large; use a Latin hypercube.");
+        return execute((int) size, this::gridPoint, output, threads);
+    }
+
+    /**
+     * Runs a Latin hypercube sample: each range is cut into {@code samples} equal strata, every stratum
+     * of every parameter is used exactly once, and the strata of different parameters are paired at random.
+     *
+     * @param samples The number of design points.
+     * @param output The CSV file to write (replaced if it exists).
+     * @param threads The number of runs executed at once.
+     * @return The number of runs.
+     * @throws IOException if the summaries cannot be written.
+     */
+    public int runLatinHypercube(int samples, Path output, int threads) throws IOException {
+        if (samples < 1) throw new IllegalArgumentException("At least one sample is needed.");
+        int n = Parameter.values().length;
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] unit = new double[n][samples];
+        for (int p = 0; p < n; p++) {
+            int[] strata = IntStream.range(0, samples).toArray();
+            for (int i = samples - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = strata[i];
+                strata[i] = strata[j];
+                strata[j] = swap;
+            }
+            for (int i = 0; i < samples; i++) unit[p][i] = (strata[i] + random.nextDouble()) / samples;
+        }
+        return execute(samples, i -> {
+            double[] point = new double[n];
+            for (int p = 0; p < n; p++) point[p] = min[p] + (max[p] - min[p]) * unit[p][i];
+            return point;
+        }, output, threads);
+    }
+
+    /**
+     * Works out a point of the full grid from its number.
+     *
+     * @param index The point number, from 0 to {@link #getGridSize()} - 1.
+     * @return The value of every parameter.
+     */
+    private double[] gridPoint(int index) {
+        double[] point = new double[levels.length];
+        for (int p = 0; p < levels.length; p++) {
+            int level = index % levels[p];
+            index /= levels[p];
+            point[p] = levels[p] == 1 ? min[p] : min[p] + (max[p] - min[p]) * level / (levels[p] - 1);
+        }
+        return point;
+    }
+
+    /**
+     * Runs every replicate of every design point on a work-stealing pool and streams the summaries.
+     *
+     * @param points The number of design points.
+     * @param design Gives the parameter values of a point from its number.
+     * @param output The CSV file to write.
+     * @param threads The number of runs executed at once.
+     * @return The number of runs.
+     * @throws IOException if the summaries cannot be written.
+     */
+    private int execute(int points, IntFunction<double[]> design, Path output, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed.");
+        long[] seeds = new long[replicates];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int r = 0; r < replicates; r++) seeds[r] = random.nextLong();
+        int runs = points * replicates;
+        AtomicInteger finished = new AtomicInteger();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            out.write(CSV_HEADER + "\n");
+            out.flush();
+            pool.submit(() -> IntStream.range(0, runs).parallel().forEach(run -> {
+                int replicate = run % replicates;
+                String summary = run(run, replicate, seeds[replicate], design.apply(run / replicates));
+                try {
+                    synchronized (out) {
+                        out.write(summary);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                RUNS.increment();
+                EventLog.log(LogLevel.INFO, "experiment.run", String.valueOf(run), finished.incrementAndGet() + "/" + runs);
+            })).join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return runs;
+    }
+
+    /**
+     * Runs one simulation and formats its summary.
+     *
+     * @param run The run number.
+     * @param replicate The replicate number.
+     * @param runSeed The seed of the simulation and its shoppers.
+     * @param point The value of every parameter.
+     * @return A CSV line in the order of {@link #CSV_HEADER}.
+     */
+    private String run(int run, int replicate, long runSeed, double[] point) {
+        long begin = System.nanoTime();
+        int shoppers = (int) Math.round(point[Parameter.SHOPPERS.ordinal()]);
+        double rate = point[Parameter.ARRIVAL_RATE.ordinal()];
+        int countersOpen = Math.max(1, (int) Math.round(point[Parameter.COUNTERS_OPEN.ordinal()]));
+        double cartShare = point[Parameter.CART_SHARE.ordinal()];
+
+        StoreLayout layout = layoutsByCounters.computeIfAbsent(countersOpen, k -> closeCounters(scenario, k));
+        ScenarioLoop loop = new ScenarioLoop(layout, runSeed, tileCapacity, rate, cartShare, shoppers);
+        ScenarioLoop.Summary summary;
+        try {
+            while (loop.getSimulation().getTick() < maxTicks) {
+                loop.step();
+                if (loop.isFinished()) break;
+            }
+            summary = loop.summarize();
+        } finally {
+            loop.shutdown();
+        }
+
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%.4f,%d,%.4f,%d,%d,%d,%.2f,%d,%d,%.1f%n",
+                run, replicate, runSeed, shoppers, rate, countersOpen, cartShare, loop.getSimulation().getTick(),
+                summary.getArrived(), summary.getExited(), summary.getMeanTimeInStore(),
+                summary.getLongestTimeInStore(), summary.getUnavailable(),
+                (System.nanoTime() - begin) / 1_000_000.0);
+    }
+
+    /**
+     * Counts the Checkout Counters of a layout.
+     *
+     * @param layout The {@link StoreLayout}.
+     * @return The number of {@code "c"} tiles.
+     */
+    private static int countCounters(StoreLayout layout) {
+        return findCounters(layout).size();
+    }
+
+    /**
+     * Lists the Checkout Counters of a layout, nearest the Exit of their floor first.
+     *
+     * @param layout The {@link StoreLayout}.
+     * @return Each counter as {@code {floor, x, y}}.
+     */
+    private static List<int[]> findCounters(StoreLayout layout) {
+        String[][][] grid = layout.toGrid();
+        List<int[]> counters = new ArrayList<>();
+        List<int[]> exits = new ArrayList<>();
+        for (int f = 0; f < grid.length; f++) {
+            for (int y = 0; y < grid[f].length; y++) {
+                for (int x = 0; x < grid[f][y].length; x++) {
+                    if (grid[f][y][x].equals("c")) counters.add(new int[] {f, x, y});
+                    else if (grid[f][y][x].equals("ex")) exits.add(new int[] {f, x, y});
+                }
+            }
+        }
+        Comparator<int[]> byExit = Comparator.comparingInt(c -> {
+            int best = Integer.MAX_VALUE;
+            for (int[] e : exits) if (e[0] == c[0]) best = Math.min(best, Math.abs(e[1] - c[1]) + Math.abs(e[2] - c[2]));
+            return best;
+        });
+        counters.sort(byExit.thenComparingInt(c -> c[0]).thenComparingInt(c -> c[2]).thenComparingInt(c -> c[1]));
+        return counters;
+    }
+
+    /**
+     * Closes all but some Checkout Counters by turning them into walls.
+     *
+     * @param layout The {@link StoreLayout}.
+     * @param open How many counters stay open, nearest the Exit first.
+     * @return The layout with the other counters closed (the same layout if none are closed).
+     */
+    public static StoreLayout closeCounters(StoreLayout layout, int open) {
+        List<int[]> counters = findCounters(layout);
+        if (open >= counters.size()) return layout;
+        String[][][] grid = layout.toGrid();
+        for (int[] c : counters.subList(Math.max(0, open), counters.size())) grid[c[0]][c[2]][c[1]] = "w";
+        return new StoreLayout(grid);
+    }
+
+    /**
+     * Runs a sweep on the default layout and writes the summaries to a CSV file.
+     * Usage: {@code ExperimentRunner <output csv> [grid|lhs] [samples] [threads] [seed]}.
+     * The grid varies shoppers (100 to 400, 4 levels), arrival rate (0.1 to 0.5, 5 levels),
+     * counters open (2 to 8, 4 levels) and cart share (0 to 1, 3 levels).
+     *
+     * @param args The output file, the design (default {@code grid}), the number of Latin hypercube
+     *             samples (default 50), the threads (default: all processors) and the seed (default 42).
+     * @throws IOException if the output file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ExperimentRunner <output csv> [grid|lhs] [samples] [threads] [seed]");
+            return;
+        }
+        Path output = Path.of(args[0]);
+        boolean hypercube = args.length > 1 && args[1].equals("lhs");
+        int samples = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        EventLog.setDefaultLevel(LogLevel.OFF);
+
+        ExperimentRunner runner = new ExperimentRunner(StoreLayout.of(new SupermarketMap()), seed);
+        runner.setRange(Parameter.SHOPPERS, 100, 400, 4);
+        runner.setRange(Parameter.ARRIVAL_RATE, 0.1, 0.5, 5);
+        runner.setRange(Parameter.COUNTERS_OPEN, 2, 8, 4);
+        runner.setRange(Parameter.CART_SHARE, 0, 1, 3);
+        long begin = System.nanoTime();
+        int runs = hypercube ? runner.runLatinHypercube(samples, output, threads) : runner.runGrid(output, threads);
+        System.out.printf("%d runs on %d threads in %.1f s; summaries in %s%n",
+                runs, threads, (System.nanoTime() - begin) / 1e9, output);
+    }
+}
\ No newline at end of file
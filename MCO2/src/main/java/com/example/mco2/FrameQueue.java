@@ -0,0 +1,94 @@
+/**
+ * FrameQueue.java
+ *
+ * This class holds the encoded messages waiting to be written to one reader of a live stream,
+ * such as a StatePublisher subscriber or a MultiplayerServer player.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded queue between the thread producing messages and the thread writing them to one
+ * reader, which never makes the producer wait. When the reader falls so far behind that the
+ * queue is full, everything queued is dropped and the queue asks for a resync: the producer
+ * checks {@link #takeResync()} and sends a message the reader can catch up from (a keyframe, or
+ * everything in view) instead of another change.
+ */
+public final class FrameQueue {
+    private final ArrayBlockingQueue<byte[]> queue;
+    private final Counter dropped;
+    /** Set when the reader must be sent a message to catch up from. */
+    private volatile boolean resync;
+
+    /**
+     * Constructs an empty queue.
+     *
+     * @param capacity The messages the reader may fall behind by.
+     * @param dropped The {@link Counter} of messages dropped because the reader fell behind.
+     * @param resync {@code true} if the first message must be one to catch up from.
+     */
+    public FrameQueue(int capacity, Counter dropped, boolean resync) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = dropped;
+        this.resync = resync;
+    }
+
+    /**
+     * Queues a message, or drops the queue and asks for a resync if the reader is too far behind.
+     *
+     * @param message The encoded message.
+     * @return {@code true} if the message was queued.
+     */
+    public boolean offer(byte[] message) {
+        if (queue.offer(message)) return true;
+        dropped.add(queue.size() + 1);
+        queue.clear();
+        resync = true;
+        return false;
+    }
+
+    /**
+     * Checks if the reader needs a message to catch up from, without clearing the request.
+     *
+     * @return {@code true} if a resync is wanted.
+     */
+    public boolean isResyncWanted() { return resync; }
+
+    /**
+     * Checks if the reader needs a message to catch up from, and clears the request.
+     *
+     * @return {@code true} if the next message must be one to catch up from.
+     */
+    public boolean takeResync() {
+        if (!resync) return false;
+        resync = false;
+        return true;
+    }
+
+    /**
+     * Writes queued messages to a stream, flushing whenever the queue runs dry, until the
+     * writing thread is interrupted.
+     *
+     * @param out The stream.
+     * @throws IOException if the stream fails.
+     * @throws InterruptedException if the writing thread is interrupted.
+     */
+    public void drainTo(OutputStream out) throws IOException, InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            byte[] message = queue.poll();
+            if (message == null) {
+                out.flush();
+                message = queue.take();
+            }
+            out.write(message);
+        }
+        throw new InterruptedException();
+    }
+}
\ No newline at end of file
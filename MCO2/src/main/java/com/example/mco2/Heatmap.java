@@ -0,0 +1,184 @@
+/**
+ * Heatmap.java
+ *
+ * This class counts where shoppers walk, where they spend their time and which
+ * tiles they interact with, so busy aisles and displays can be found after a run.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Arrays;
+
+/**
+ * Per-floor traffic counters for a {@link SupermarketMap}.
+ * <p>
+ * Three counters are kept for every tile, each in a flat {@code int[]} per floor indexed by
+ * {@code y * size + x}, so recording is a single array increment:
+ * <ul>
+ *     <li><b>Visits:</b> how many times a shopper stepped onto the tile.</li>
+ *     <li><b>Dwell:</b> how many ticks shoppers spent standing on the tile.</li>
+ *     <li><b>Interactions:</b> how many times a shopper used the amenity on the tile (for a
+ *     {@link Display}, taking or returning a product).</li>
+ * </ul>
+ * The counters are written by the thread running the simulation only. Other threads read them
+ * through {@link HeatmapSnapshot}s: {@link #snapshot()} copies the arrays without locking, and
+ * with a snapshot interval set, a fresh copy is published every few ticks for
+ * {@link #getLatest()} to return without any copying at all.
+ */
+public class Heatmap {
+    private final int size;
+    private final int[][] visits;
+    private final int[][] dwell;
+    private final int[][] interactions;
+    private int snapshotInterval;
+    private volatile HeatmapSnapshot latest;
+
+    /**
+     * Constructs an empty heatmap covering every floor of a map.
+     *
+     * @param map The {@link SupermarketMap} to count traffic on.
+     */
+    public Heatmap(SupermarketMap map) {
+        this.size = map.getMapSize();
+        int floors = map.getFloorCount();
+        this.visits = new int[floors][size * size];
+        this.dwell = new int[floors][size * size];
+        this.interactions = new int[floors][size * size];
+    }
+
+    /**
+     * Checks if a coordinate lies on the map.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return {@code true} if the tile exists.
+     */
+    private boolean inBounds(int x, int y, int floor) {
+        return floor >= 0 && floor < visits.length && x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    /**
+     * Counts a shopper stepping onto a tile.
+     *
+     * @param position The tile.
+     * @param floor The floor index.
+     */
+    public void visit(Point position, int floor) {
+        int x = position.getX(), y = position.getY();
+        if (inBounds(x, y, floor)) visits[floor][y * size + x]++;
+    }
+
+    /**
+     * Counts a shopper spending one tick on a tile.
+     *
+     * @param position The tile.
+     * @param floor The floor index.
+     */
+    public void dwell(Point position, int floor) {
+        int x = position.getX(), y = position.getY();
+        if (inBounds(x, y, floor)) dwell[floor][y * size + x]++;
+    }
+
+    /**
+     * Counts a shopper using the amenity on a tile.
+     *
+     * @param position The tile of the amenity (usually the tile in front of the shopper).
+     * @param floor The floor index.
+     */
+    public void interact(Point position, int floor) {
+        int x = position.getX(), y = position.getY();
+        if (inBounds(x, y, floor)) interactions[floor][y * size + x]++;
+    }
+
+    /**
+     * Sets how often {@link #endTick(long)} publishes a snapshot for {@link #getLatest()}.
+     *
+     * @param ticks The number of ticks between snapshots, or 0 to stop publishing.
+     */
+    public void setSnapshotInterval(int ticks) { this.snapshotInterval = ticks; }
+
+    /**
+     * Called by the simulation at the end of every tick. Publishes a new snapshot when the
+     * snapshot interval has passed.
+     *
+     * @param tick The tick that just ended.
+     */
+    public void endTick(long tick) {
+        if (snapshotInterval > 0 && (tick + 1) % snapshotInterval == 0) latest = snapshot();
+    }
+
+    /**
+     * Copies the counters. Safe to call from any thread; if the simulation is running at the
+     * same time, tiles written during the copy may be one tick ahead of the others.
+     *
+     * @return A new {@link HeatmapSnapshot}.
+     */
+    public HeatmapSnapshot snapshot() {
+        return new HeatmapSnapshot(size, copy(visits), copy(dwell), copy(interactions));
+    }
+
+    /**
+     * Copies every floor of a counter.
+     *
+     * @param counters The per-floor arrays.
+     * @return A deep copy.
+     */
+    private static int[][] copy(int[][] counters) {
+        int[][] result = new int[counters.length][];
+        for (int f = 0; f < counters.length; f++) result[f] = counters[f].clone();
+        return result;
+    }
+
+    /**
+     * Gets the most recently published snapshot without copying anything.
+     *
+     * @return The last {@link HeatmapSnapshot} published by {@link #endTick(long)}, or {@code null} if none yet.
+     */
+    public HeatmapSnapshot getLatest() { return latest; }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public void reset() {
+        for (int f = 0; f < visits.length; f++) {
+            Arrays.fill(visits[f], 0);
+            Arrays.fill(dwell[f], 0);
+            Arrays.fill(interactions[f], 0);
+        }
+        latest = null;
+    }
+
+    /**
+     * Gets the number of visits to a tile so far.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The visit count (0 outside the map).
+     */
+    public int getVisits(int x, int y, int floor) {
+        return inBounds(x, y, floor) ? visits[floor][y * size + x] : 0;
+    }
+
+    /**
+     * Gets the number of ticks spent on a tile so far.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The dwell count (0 outside the map).
+     */
+    public int getDwell(int x, int y, int floor) {
+        return inBounds(x, y, floor) ? dwell[floor][y * size + x] : 0;
+    }
+
+    /**
+     * Gets the width and height of each floor.
+     * @return The size in tiles.
+     */
+    public int getSize() { return size; }
+}
\ No newline at end of file
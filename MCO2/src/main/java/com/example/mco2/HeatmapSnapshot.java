@@ -0,0 +1,275 @@
+/**
+ * HeatmapSnapshot.java
+ *
+ * This class is a point-in-time copy of a Heatmap that can be drawn, ranked or
+ * exported as CSV and PNG without affecting the running simulation.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * An immutable copy of the visit, dwell and interaction counters of a {@link Heatmap}.
+ * <p>
+ * Besides per-tile lookups, a snapshot can rank the displays of a map by traffic. Shoppers
+ * never stand on a {@link Display}, so the traffic of a display is the number of interactions
+ * with it plus the dwell on the walkable tiles next to it (the aisle in front of it).
+ */
+public class HeatmapSnapshot {
+    /** The counters a snapshot holds. */
+    public enum Metric { VISITS, DWELL, INTERACTIONS }
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final int size;
+    private final int[][] visits;
+    private final int[][] dwell;
+    private final int[][] interactions;
+
+    /**
+     * Constructs a snapshot from arrays already copied by {@link Heatmap#snapshot()}.
+     *
+     * @param size The width and height of each floor.
+     * @param visits The per-floor visit counts.
+     * @param dwell The per-floor dwell counts.
+     * @param interactions The per-floor interaction counts.
+     */
+    HeatmapSnapshot(int size, int[][] visits, int[][] dwell, int[][] interactions) {
+        this.size = size;
+        this.visits = visits;
+        this.dwell = dwell;
+        this.interactions = interactions;
+    }
+
+    /**
+     * Gets the per-floor arrays of a metric.
+     *
+     * @param metric The {@link Metric} wanted.
+     * @return The arrays, indexed by floor and then {@code y * size + x}.
+     */
+    private int[][] arrays(Metric metric) {
+        switch (metric) {
+            case VISITS: return visits;
+            case DWELL: return dwell;
+            default: return interactions;
+        }
+    }
+
+    /**
+     * Gets the value of a metric on one tile.
+     *
+     * @param metric The {@link Metric} wanted.
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The count (0 outside the map).
+     */
+    public int get(Metric metric, int x, int y, int floor) {
+        if (floor < 0 || floor >= visits.length || x < 0 || x >= size || y < 0 || y >= size) return 0;
+        return arrays(metric)[floor][y * size + x];
+    }
+
+    /**
+     * Gets the highest value of a metric on one floor, for scaling a colour ramp.
+     *
+     * @param metric The {@link Metric} wanted.
+     * @param floor The floor index.
+     * @return The largest count on the floor.
+     */
+    public int getMax(Metric metric, int floor) {
+        int max = 0;
+        for (int value : arrays(metric)[floor]) max = Math.max(max, value);
+        return max;
+    }
+
+    /**
+     * Gets the sum of a metric over every floor.
+     *
+     * @param metric The {@link Metric} wanted.
+     * @return The total count.
+     */
+    public long getTotal(Metric metric) {
+        long total = 0;
+        for (int[] floor : arrays(metric)) {
+            for (int value : floor) total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the traffic of a display: interactions with it plus dwell on the walkable tiles next to it.
+     *
+     * @param map The {@link SupermarketMap} the heatmap was recorded on.
+     * @param display The {@link Display} to score.
+     * @return The traffic count.
+     */
+    public long getTraffic(SupermarketMap map, Display display) {
+        int floor = map.getFloorOf(display);
+        if (floor < 0) return 0;
+        int x = display.getPosition().getX(), y = display.getPosition().getY();
+        long traffic = get(Metric.INTERACTIONS, x, y, floor);
+        for (Direction d : Direction.values()) {
+            Point n = display.getPosition().getNextPosition(d);
+            Amenity a = map.getAmenityAt(n.getX(), n.getY(), floor);
+            if (a == null || a.isPassable()) traffic += get(Metric.DWELL, n.getX(), n.getY(), floor);
+        }
+        return traffic;
+    }
+
+    /**
+     * Ranks the displays of a map by traffic, busiest first.
+     *
+     * @param map The {@link SupermarketMap} the heatmap was recorded on.
+     * @param limit The maximum number of displays to return.
+     * @return Up to {@code limit} {@link Display}s, busiest first.
+     */
+    public List<Display> getBusiestDisplays(SupermarketMap map, int limit) {
+        List<Display> ranked = new ArrayList<>(map.getAllDisplays());
+        long[] traffic = new long[ranked.size()];
+        for (int i = 0; i < traffic.length; i++) traffic[i] = getTraffic(map, ranked.get(i));
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < traffic.length; i++) order.add(i);
+        order.sort(Comparator.comparingLong((Integer i) -> traffic[i]).reversed());
+        List<Display> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, order.size()); i++) result.add(ranked.get(order.get(i)));
+        return result;
+    }
+
+    /**
+     * Writes every tile with any traffic as CSV, one row per tile:
+     * {@code floor,row,col,amenity,address,visits,dwell,interactions}.
+     *
+     * @param file The file to write.
+     * @param map The {@link SupermarketMap} the heatmap was recorded on (for amenity names and display addresses).
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeCsv(Path file, SupermarketMap map) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("floor,row,col,amenity,address,visits,dwell,interactions\n");
+            for (int f = 0; f < visits.length; f++) {
+                for (int i = 0; i < size * size; i++) {
+                    if (visits[f][i] == 0 && dwell[f][i] == 0 && interactions[f][i] == 0) continue;
+                    int x = i % size, y = i / size;
+                    Amenity a = map.getAmenityAt(x, y, f);
+                    out.write((f == 0 ? "GF" : "2F") + "," + y + "," + x + ","
+                            + (a == null ? "" : a.getClass().getSimpleName()) + ","
+                            + (a instanceof Display ? "\"" + ((Display) a).getAddress() + "\"" : "") + ","
+                            + visits[f][i] + "," + dwell[f][i] + "," + interactions[f][i] + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws one floor of a metric as a PNG image, from black (no traffic) through blue and red
+     * to yellow (the busiest tile). The square root of each count is used so quiet aisles still show.
+     *
+     * @param file The file to write.
+     * @param metric The {@link Metric} to draw.
+     * @param floor The floor index.
+     * @param scale The width and height of each tile in pixels.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writePng(Path file, Metric metric, int floor, int scale) throws IOException {
+        int[] values = arrays(metric)[floor];
+        double max = Math.sqrt(Math.max(1, getMax(metric, floor)));
+        int width = size * scale;
+
+        ByteArrayOutputStream pixels = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(pixels)) {
+            byte[] row = new byte[1 + width * 3];
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int rgb = heatColor(Math.sqrt(values[y * size + x]) / max);
+                    for (int s = 0; s < scale; s++) {
+                        int p = 1 + (x * scale + s) * 3;
+                        row[p] = (byte) (rgb >> 16);
+                        row[p + 1] = (byte) (rgb >> 8);
+                        row[p + 2] = (byte) rgb;
+                    }
+                }
+                for (int s = 0; s < scale; s++) deflater.write(row); // filter byte 0, then the pixels
+            }
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream ihdr = new DataOutputStream(header);
+        ihdr.writeInt(width);
+        ihdr.writeInt(width);
+        ihdr.writeByte(8); // bits per channel
+        ihdr.writeByte(2); // RGB
+        ihdr.writeByte(0);
+        ihdr.writeByte(0);
+        ihdr.writeByte(0);
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            DataOutputStream png = new DataOutputStream(out);
+            png.write(PNG_SIGNATURE);
+            writeChunk(png, "IHDR", header.toByteArray());
+            writeChunk(png, "IDAT", pixels.toByteArray());
+            writeChunk(png, "IEND", new byte[0]);
+            png.flush();
+        }
+    }
+
+    /**
+     * Writes one PNG chunk: length, type, data and CRC.
+     *
+     * @param out The stream to write to.
+     * @param type The four-letter chunk type.
+     * @param data The chunk data.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Maps an intensity to a colour on a black, blue, red, yellow ramp.
+     *
+     * @param t The intensity, from 0 to 1.
+     * @return The colour as {@code 0xRRGGBB}.
+     */
+    static int heatColor(double t) {
+        t = Math.max(0, Math.min(1, t));
+        int r = (int) (255 * Math.min(1, t * 2));
+        int g = (int) (255 * Math.max(0, t * 2 - 1));
+        int b = (int) (255 * (t < 0.5 ? t * 2 : 2 - t * 2));
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Gets the width and height of each floor.
+     * @return The size in tiles.
+     */
+    public int getSize() { return size; }
+
+    /**
+     * Gets the number of floors covered.
+     * @return The floor count.
+     */
+    public int getFloorCount() { return visits.length; }
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+/**
+ * InputLog.java
+ *
+ * This class records every shopper action of a session as a compact stream of binary
+ * events, so the session can later be re-executed exactly by the Replay engine.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An append-only, in-memory log of shopper actions stored in a compact binary format.
+ * <p>
+ * File layout: a header ({@value #MAGIC} magic number, format version, master seed)
+ * followed by a stream of events. Every event starts with a one-byte tag:
+ * <ul>
+ *     <li>{@link #TAG_TICK_END}: the current tick is over.</li>
+ *     <li>{@link #TAG_ADD_SHOPPER}: a shopper joined (age varint, name length varint, UTF-8 name).</li>
+ *     <li>{@link #TAG_OCCUPANCY}: an {@link OccupancyGrid} was attached (tile count varint, then the capacity
+ *     of every tile as a varint, 0 meaning unlimited).</li>
+ *     <li>{@link #TAG_RESTOCK}: staff refilled a display (display index varint, catalog index of the
+ *     product varint, units added varint).</li>
+ *     <li>{@link #TAG_LEAVE}: a shopper was taken out of the store, such as a player who disconnected
+ *     (shopper index varint).</li>
+ *     <li>{@link #TAG_ACTION_BASE} + action ordinal: a {@link ShopperAction} was applied
+ *     (shopper index varint, argument varint).</li>
+ * </ul>
+ * A typical action takes three bytes.
+ */
+public class InputLog {
+    /** Magic number at the start of every log file ("SMLG"). */
+    public static final int MAGIC = 0x534D4C47;
+
+    /** The version of the binary format. */
+    public static final byte VERSION = 1;
+
+    /** Size of the header in bytes (magic, version, seed). */
+    public static final int HEADER_SIZE = 4 + 1 + 8;
+
+    /** Tag marking the end of a tick. */
+    public static final byte TAG_TICK_END = 0x00;
+
+    /** Tag for a shopper joining the session. */
+    public static final byte TAG_ADD_SHOPPER = 0x01;
+
+    /** Tag for an occupancy grid being attached to the map. */
+    public static final byte TAG_OCCUPANCY = 0x02;
+
+    /** Tag for a display being refilled by restocking staff. */
+    public static final byte TAG_RESTOCK = 0x03;
+
+    /** Tag for a shopper being taken out of the store. */
+    public static final byte TAG_LEAVE = 0x04;
+
+    /** Base tag for actions; the action ordinal is added to it. */
+    public static final byte TAG_ACTION_BASE = 0x10;
+
+    private final long seed;
+    private byte[] data;
+    private int length;
+    private long tickCount;
+
+    /**
+     * Constructs an empty log for a session started with the given master seed.
+     *
+     * @param seed The master seed of the recorded {@link Simulation} (0 for GUI sessions).
+     */
+    public InputLog(long seed) {
+        this.seed = seed;
+        this.data = new byte[4096];
+        ByteBuffer.wrap(data).putInt(MAGIC).put(VERSION).putLong(seed);
+        this.length = HEADER_SIZE;
+        this.tickCount = 0;
+    }
+
+    /**
+     * Wraps bytes that were previously produced by {@link #toByteArray()}.
+     *
+     * @param bytes The raw log bytes, including the header.
+     * @throws IOException if the header is missing or the version is not supported.
+     */
+    private InputLog(byte[] bytes) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || header.getInt() != MAGIC) throw new IOException("Not an input log file.");
+        byte version = header.get();
+        if (version != VERSION) throw new IOException("Unsupported input log version " + version + ".");
+        this.seed = header.getLong();
+        this.data = bytes;
+        this.length = bytes.length;
+        this.tickCount = countTicks();
+    }
+
+    /**
+     * Records a shopper joining the session.
+     *
+     * @param name The name of the shopper.
+     * @param age The age of the shopper.
+     */
+    public void recordShopper(String name, int age) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(1 + 10 + nameBytes.length);
+        data[length++] = TAG_ADD_SHOPPER;
+        writeVarint(age);
+        writeVarint(nameBytes.length);
+        System.arraycopy(nameBytes, 0, data, length, nameBytes.length);
+        length += nameBytes.length;
+    }
+
+    /**
+     * Records an action applied to a shopper.
+     *
+     * @param shopperIndex The index of the shopper (in the order they joined).
+     * @param action The {@link ShopperAction} applied.
+     * @param arg The action argument.
+     */
+    public void recordAction(int shopperIndex, ShopperAction action, int arg) {
+        ensureCapacity(1 + 5 + 5);
+        data[length++] = (byte) (TAG_ACTION_BASE + action.ordinal());
+        writeVarint(shopperIndex);
+        writeVarint(arg);
+    }
+
+    /**
+     * Records an occupancy grid being attached, with the capacity of every tile.
+     *
+     * @param occupancy The {@link OccupancyGrid} that was attached.
+     */
+    public void recordOccupancy(OccupancyGrid occupancy) {
+        int size = occupancy.getSize();
+        int tiles = occupancy.getFloorCount() * size * size;
+        ensureCapacity(1 + 5 + 5 * tiles);
+        data[length++] = TAG_OCCUPANCY;
+        writeVarint(tiles);
+        for (int f = 0; f < occupancy.getFloorCount(); f++) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int capacity = occupancy.getCapacity(x, y, f);
+                    writeVarint(capacity == OccupancyGrid.UNLIMITED ? 0 : capacity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the tile capacities of a {@link #TAG_OCCUPANCY} event into a grid.
+     *
+     * @param buffer A buffer positioned just after the tag.
+     * @param occupancy An {@link OccupancyGrid} for a map of the same size.
+     */
+    public static void readOccupancy(ByteBuffer buffer, OccupancyGrid occupancy) {
+        int size = occupancy.getSize();
+        int tiles = Varint.read(buffer);
+        for (int i = 0; i < tiles; i++) {
+            int capacity = Varint.read(buffer);
+            occupancy.setCapacity(i % size, (i / size) % size, i / (size * size), capacity == 0 ? OccupancyGrid.UNLIMITED : capacity);
+        }
+    }
+
+    /**
+     * Records a display being refilled.
+     *
+     * @param displayIndex The index of the display in {@link SupermarketMap#getAllDisplays()}.
+     * @param productIndex The index of the product in {@link SupermarketMap#getAllProducts()}.
+     * @param count The number of units added.
+     */
+    public void recordRestock(int displayIndex, int productIndex, int count) {
+        ensureCapacity(1 + 5 + 5 + 5);
+        data[length++] = TAG_RESTOCK;
+        writeVarint(displayIndex);
+        writeVarint(productIndex);
+        writeVarint(count);
+    }
+
+    /**
+     * Records a shopper being taken out of the store.
+     *
+     * @param shopperIndex The index of the shopper (in the order they joined).
+     */
+    public void recordLeave(int shopperIndex) {
+        ensureCapacity(1 + 5);
+        data[length++] = TAG_LEAVE;
+        writeVarint(shopperIndex);
+    }
+
+    /**
+     * Records the end of the current tick.
+     */
+    public void recordTickEnd() {
+        ensureCapacity(1);
+        data[length++] = TAG_TICK_END;
+        tickCount++;
+    }
+
+    /**
+     * Writes the log to a file.
+     *
+     * @param file The destination path.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        Files.write(file, toByteArray());
+    }
+
+    /**
+     * Reads a log from a file.
+     *
+     * @param file The path of a file previously written by {@link #writeTo(Path)}.
+     * @return The loaded {@link InputLog}.
+     * @throws IOException if the file cannot be read or is not a valid log.
+     */
+    public static InputLog readFrom(Path file) throws IOException {
+        return new InputLog(Files.readAllBytes(file));
+    }
+
+    /**
+     * Copies the log (header and events) into a new array.
+     *
+     * @return The raw log bytes.
+     */
+    public byte[] toByteArray() { return Arrays.copyOf(data, length); }
+
+    /**
+     * Gets a read-only buffer over the recorded events, positioned just after the header.
+     *
+     * @return A {@link ByteBuffer} view of the events.
+     */
+    public ByteBuffer events() {
+        return ByteBuffer.wrap(data, 0, length).position(HEADER_SIZE).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the master seed stored in the header.
+     * @return The master seed.
+     */
+    public long getSeed() { return seed; }
+
+    /**
+     * Gets the number of complete ticks recorded.
+     * @return The tick count.
+     */
+    public long getTickCount() { return tickCount; }
+
+    /**
+     * Gets the size of the log in bytes, including the header.
+     * @return The size in bytes.
+     */
+    public int size() { return length; }
+
+    /**
+     * Skips over one event whose tag has already been read.
+     *
+     * @param tag The tag of the event.
+     * @param buffer The buffer positioned just after the tag.
+     */
+    public static void skipEvent(byte tag, ByteBuffer buffer) {
+        if (tag == TAG_ADD_SHOPPER) {
+            Varint.read(buffer);
+            int nameLength = Varint.read(buffer);
+            buffer.position(buffer.position() + nameLength);
+        } else if (tag == TAG_OCCUPANCY) {
+            int tiles = Varint.read(buffer);
+            for (int i = 0; i < tiles; i++) Varint.read(buffer);
+        } else if (tag == TAG_RESTOCK) {
+            Varint.read(buffer);
+            Varint.read(buffer);
+            Varint.read(buffer);
+        } else if (tag == TAG_LEAVE) {
+            Varint.read(buffer);
+        } else if (tag != TAG_TICK_END) {
+            Varint.read(buffer);
+            Varint.read(buffer);
+        }
+    }
+
+    /**
+     * Counts the tick ends of a log read from bytes, skipping every other event.
+     *
+     * @return The number of complete ticks.
+     */
+    private long countTicks() {
+        ByteBuffer buffer = events();
+        long ticks = 0;
+        while (buffer.hasRemaining()) {
+            byte tag = buffer.get();
+            if (tag == TAG_TICK_END) ticks++;
+            else skipEvent(tag, buffer);
+        }
+        return ticks;
+    }
+
+    /**
+     * Appends a varint. Negative values are written as unsigned and take five bytes.
+     * The caller has already made room with {@link #ensureCapacity(int)}.
+     *
+     * @param value The value.
+     */
+    private void writeVarint(int value) {
+        length = Varint.write(data, length, Integer.toUnsignedLong(value));
+    }
+
+    /**
+     * Grows the byte array, at least doubling it, so that {@code extra} more bytes fit.
+     *
+     * @param extra The most bytes about to be appended.
+     */
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+/**
+ * JsonLinesSink.java
+ *
+ * This class writes event log entries as JSON Lines: one JSON object per line.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An {@link EventSink} that writes each entry as a single-line JSON object, for example:
+ * <pre>
+ * {"ts":1700000000000,"level":"DEBUG","event":"shopper.blocked","subject":"Ana","detail":"Wall"}
+ * </pre>
+ * Fields that are {@code null} are left out.
+ */
+public class JsonLinesSink implements EventSink {
+    private final Writer writer;
+    private final StringBuilder line;
+
+    /**
+     * Constructs a sink writing to the given writer. Wrap files in a buffered writer.
+     *
+     * @param writer The destination.
+     */
+    public JsonLinesSink(Writer writer) {
+        this.writer = writer;
+        this.line = new StringBuilder(128);
+    }
+
+    /**
+     * Writes one entry as a JSON line.
+     *
+     * @param event The {@link LogEvent} to write.
+     * @throws IOException if the writer fails.
+     */
+    @Override
+    public void write(LogEvent event) throws IOException {
+        line.setLength(0);
+        line.append("{\"ts\":").append(event.getTimestamp());
+        line.append(",\"level\":\"").append(event.getLevel().name()).append('"');
+        appendField("event", event.getEvent());
+        appendField("subject", event.getSubject());
+        appendField("detail", event.getDetail());
+        line.append("}\n");
+        writer.append(line);
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException if the writer fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Appends a string field, escaping it for JSON. Skips {@code null} values.
+     *
+     * @param name The field name.
+     * @param value The field value.
+     */
+    private void appendField(String name, String value) {
+        if (value == null) return;
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+                    else line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
\ No newline at end of file
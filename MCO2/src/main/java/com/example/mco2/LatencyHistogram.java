@@ -0,0 +1,163 @@
+/**
+ * LatencyHistogram.java
+ *
+ * This class records durations (in nanoseconds) in fixed-size log-linear buckets,
+ * so tail percentiles of millions of samples can be reported with bounded memory.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative long values with a relative precision of better than 1%.
+ * <p>
+ * Values below {@code 2 * SUB_BUCKETS} get a bucket each. Above that, every power-of-two
+ * range is split into {@value #SUB_BUCKETS} equal sub-buckets (the same idea as an HDR histogram),
+ * so recording is a few shifts and one array increment and never allocates.
+ * Percentiles report the upper bound of the bucket they fall into.
+ * This class is not thread-safe; give each thread its own histogram and {@link #add(LatencyHistogram)} them.
+ */
+public class LatencyHistogram {
+    /** log2 of the number of sub-buckets per power of two. */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /** Number of sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+    private long min;
+    private long max;
+
+    /**
+     * Constructs an empty histogram covering every non-negative long value.
+     */
+    public LatencyHistogram() {
+        this.counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+        reset();
+    }
+
+    /**
+     * Records one value. Negative values are recorded as 0.
+     *
+     * @param value The value to record (e.g., a duration in nanoseconds).
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Adds all values recorded by another histogram to this one.
+     *
+     * @param other The histogram to merge in.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Gets the value below which the given percentage of recorded values fall.
+     *
+     * @param percentile A percentile between 0 and 100 (e.g., 99.9).
+     * @return The upper bound of the bucket holding that percentile, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long rank = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * totalCount);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highestValueIn(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Finds the bucket of a value.
+     *
+     * @param value A non-negative value.
+     * @return The bucket index.
+     */
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param index The bucket index.
+     * @return The upper bound of the bucket.
+     */
+    private static long highestValueIn(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long low = ((long) (SUB_BUCKETS + index % SUB_BUCKETS)) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * @return The count.
+     */
+    public long getCount() { return totalCount; }
+
+    /**
+     * Gets the smallest recorded value.
+     * @return The minimum, or 0 if nothing was recorded.
+     */
+    public long getMin() { return totalCount == 0 ? 0 : min; }
+
+    /**
+     * Gets the largest recorded value.
+     * @return The maximum, or 0 if nothing was recorded.
+     */
+    public long getMax() { return max; }
+
+    /**
+     * Gets the exact mean of the recorded values.
+     * @return The mean, or 0 if nothing was recorded.
+     */
+    public double getMean() { return totalCount == 0 ? 0.0 : (double) sum / totalCount; }
+
+    /**
+     * Summarizes the histogram, treating the values as nanoseconds and printing microseconds.
+     *
+     * @return A one-line summary with the count, mean, p50, p99, p99.9 and max.
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                totalCount, getMean() / 1000.0,
+                getValueAtPercentile(50) / 1000.0, getValueAtPercentile(99) / 1000.0,
+                getValueAtPercentile(99.9) / 1000.0, max / 1000.0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+/**
+ * LatencyRecorder.java
+ *
+ * This class is a named latency metric that many threads can record into at once
+ * without sharing a histogram.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Records durations into one {@link LatencyHistogram} per thread, registered in {@link Metrics}.
+ * <p>
+ * Recording only touches the calling thread's histogram, so it needs no locks.
+ * {@link #snapshot()} merges the histograms of every thread that has recorded so far.
+ * <p>
+ * A histogram is only held for as long as its thread is alive: whenever a thread starts recording
+ * or a snapshot is taken, the histograms of threads that have ended are merged into one retired
+ * total and dropped, so short-lived worker threads (one pool per run) do not pile up.
+ */
+public class LatencyRecorder {
+    private final String name;
+    private final List<Slot> perThread;
+    private final LatencyHistogram retired;
+    private final ThreadLocal<LatencyHistogram> local;
+
+    /**
+     * Constructs a new recorder. Use {@link Metrics#latency(String)} to create registered recorders.
+     *
+     * @param name The metric name (e.g., "checkout.pricing").
+     */
+    LatencyRecorder(String name) {
+        this.name = name;
+        this.perThread = new ArrayList<>();
+        this.retired = new LatencyHistogram();
+        this.local = ThreadLocal.withInitial(this::register);
+    }
+
+    /**
+     * Creates the calling thread's histogram.
+     *
+     * @return The new {@link LatencyHistogram}.
+     */
+    private synchronized LatencyHistogram register() {
+        retireEnded();
+        LatencyHistogram histogram = new LatencyHistogram();
+        perThread.add(new Slot(Thread.currentThread(), histogram));
+        return histogram;
+    }
+
+    /**
+     * Merges the histograms of threads that have ended into the retired total and drops them.
+     * Must be called holding this recorder's lock.
+     */
+    private void retireEnded() {
+        Iterator<Slot> it = perThread.iterator();
+        while (it.hasNext()) {
+            Slot slot = it.next();
+            Thread owner = slot.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                retired.add(slot.histogram);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) { local.get().record(nanos); }
+
+    /**
+     * Records the time elapsed since a start time taken with {@link System#nanoTime()}.
+     *
+     * @param startNanos The start time.
+     */
+    public void recordSince(long startNanos) { record(System.nanoTime() - startNanos); }
+
+    /**
+     * Merges the histograms of all threads. Values recorded while the merge is running
+     * may or may not be included.
+     *
+     * @return A new {@link LatencyHistogram} holding everything recorded so far.
+     */
+    public synchronized LatencyHistogram snapshot() {
+        retireEnded();
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(retired);
+        for (Slot slot : perThread) merged.add(slot.histogram);
+        return merged;
+    }
+
+    /**
+     * Gets the metric name.
+     * @return The name.
+     */
+    public String getName() { return name; }
+
+    /**
+     * Clears every thread's histogram. Should only be called while nothing is recording.
+     */
+    synchronized void reset() {
+        retired.reset();
+        for (Slot slot : perThread) slot.histogram.reset();
+    }
+
+    /**
+     * A thread's histogram. The thread is held weakly, so a slot never keeps its thread alive.
+     */
+    private static final class Slot {
+        private final WeakReference<Thread> owner;
+        private final LatencyHistogram histogram;
+
+        /**
+         * Constructs a slot.
+         *
+         * @param owner The thread recording into the histogram.
+         * @param histogram The thread's {@link LatencyHistogram}.
+         */
+        private Slot(Thread owner, LatencyHistogram histogram) {
+            this.owner = new WeakReference<>(owner);
+            this.histogram = histogram;
+        }
+    }
+}
\ No newline at end of file
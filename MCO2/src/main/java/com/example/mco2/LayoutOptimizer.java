@@ -0,0 +1,508 @@
+/**
+ * LayoutOptimizer.java
+ *
+ * This class searches for store layouts that get shoppers through the store faster, by
+ * mutating a starting layout and scoring each candidate with headless simulations.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Simulated annealing over {@link StoreLayout}s.
+ * <p>
+ * Every iteration proposes a batch of neighbours of the current layout, each made by one mutation:
+ * <ul>
+ *     <li>swapping two display blocks of the same shape but a different kind (e.g., a block of
+ *     Shelves and a block of Tables);</li>
+ *     <li>moving a Checkout Counter to a wall tile of the same row;</li>
+ *     <li>opening a cross-aisle by clearing a middle row of a display block at least three tiles tall.</li>
+ * </ul>
+ * Candidates that would put a display where its products cannot be kept (e.g., bread in a Refrigerator),
+ * or leave a display, station, counter or the Exit out of reach of the Entrance, are thrown away. The rest are scored in parallel: each is run as several independent headless
+ * {@link Simulation}s whose shoppers follow planned routes, and the score is the mean number of ticks
+ * a shopper spends in the store, plus {@value #UNAVAILABLE_PENALTY} ticks for every list item that
+ * no display holds any more (lower is better). Every candidate uses the same replica seeds, so two
+ * layouts are compared on the same shoppers. The best proposal of the batch replaces the current
+ * layout if it is better, or with the usual annealing probability if it is worse.
+ * <p>
+ * Scores are cached by layout, so a layout that is proposed again is never simulated twice.
+ * Proposals are drawn on the caller's thread from one random stream, and every simulation runs on
+ * a single thread, so a search gives the same result whatever the number of threads.
+ */
+public class LayoutOptimizer {
+    /** Ticks added to the score for each list item that is no longer sold anywhere in the store. */
+    public static final int UNAVAILABLE_PENALTY = 60;
+
+    /** Layouts simulated, counting each layout once. */
+    public static final Counter EVALUATIONS = Metrics.counter("layout.evaluations");
+
+    /** Scores answered from the cache. */
+    public static final Counter CACHE_HITS = Metrics.counter("layout.cache_hits");
+
+    /** Tile codes of amenities that hold products. */
+    private static final String[] DISPLAY_CODES = {"sh", "t", "r", "f"};
+
+    /** How many times a mutation is retried before a proposal is given up. */
+    private static final int MUTATION_ATTEMPTS = 20;
+
+    /**
+     * Proposals scored per iteration unless {@link #setBatchSize(int)} says otherwise. It does not
+     * depend on the thread count, since the batch size changes which layouts a search visits.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 8;
+
+    /** Temperature at the start of a search, as a fraction of the starting score. */
+    private static final double INITIAL_TEMPERATURE = 0.02;
+
+    /** Temperature at the end of a search, as a fraction of the starting score. */
+    private static final double FINAL_TEMPERATURE = 0.0005;
+
+    private final StoreLayout start;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private final Map<StoreLayout, Double> scores;
+    private long[] replicaSeeds;
+    private int ticks;
+    private double arrivalRate;
+    private int tileCapacity;
+    private int batchSize;
+    private StoreLayout best;
+    private double bestScore;
+
+    /**
+     * Constructs an optimizer with 3 replicas of 1500 ticks per candidate, 0.3 arrivals per tick,
+     * 2 shoppers per tile and batches of {@value #DEFAULT_BATCH_SIZE} proposals.
+     *
+     * @param start The {@link StoreLayout} to start from.
+     * @param threads The number of candidate simulations run at once.
+     * @param seed The seed of the proposals and of the simulated shoppers.
+     */
+    public LayoutOptimizer(StoreLayout start, int threads, long seed) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed.");
+        this.start = start;
+        this.seed = seed;
+        this.pool = new ForkJoinPool(threads);
+        this.scores = new ConcurrentHashMap<>();
+        this.arrivalRate = 0.3;
+        this.tileCapacity = 2;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        setRuns(3, 1500);
+    }
+
+    /**
+     * Sets how each candidate is simulated. Clears the score cache.
+     *
+     * @param replicas The number of independent runs averaged per candidate.
+     * @param ticks The length of each run.
+     */
+    public void setRuns(int replicas, int ticks) {
+        if (replicas < 1 || ticks < 1) throw new IllegalArgumentException("Replicas and ticks must be at least 1.");
+        SplittableRandom random = new SplittableRandom(seed);
+        this.replicaSeeds = new long[replicas];
+        for (int r = 0; r < replicas; r++) replicaSeeds[r] = random.nextLong();
+        this.ticks = ticks;
+        scores.clear();
+    }
+
+    /**
+     * Sets the crowd the candidates are scored under. Clears the score cache.
+     *
+     * @param arrivalRate The mean number of new shoppers per tick.
+     * @param tileCapacity How many shoppers may stand on an ordinary tile.
+     */
+    public void setLoad(double arrivalRate, int tileCapacity) {
+        if (arrivalRate < 0 || tileCapacity < 1) throw new IllegalArgumentException("Invalid load.");
+        this.arrivalRate = arrivalRate;
+        this.tileCapacity = tileCapacity;
+        scores.clear();
+    }
+
+    /**
+     * Sets how many proposals are scored per iteration. Searches with different batch sizes visit
+     * different layouts, so results only compare between runs with the same batch size.
+     *
+     * @param batchSize The batch size (at least 1; a multiple of the thread count keeps every core busy).
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1.");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param iterations The number of batches to propose.
+     * @return The best {@link StoreLayout} found (the starting layout if nothing beat it).
+     */
+    public StoreLayout optimize(int iterations) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StoreLayout current = start;
+        double currentScore = score(current);
+        best = current;
+        bestScore = currentScore;
+        double temperature = INITIAL_TEMPERATURE * currentScore;
+        double cooling = Math.pow(FINAL_TEMPERATURE / INITIAL_TEMPERATURE, 1.0 / Math.max(1, iterations - 1));
+
+        for (int it = 0; it < iterations; it++, temperature *= cooling) {
+            List<StoreLayout> proposals = new ArrayList<>();
+            for (int i = 0; i < batchSize; i++) {
+                StoreLayout proposal = propose(current, random);
+                if (proposal != null) proposals.add(proposal);
+            }
+            if (proposals.isEmpty()) continue;
+
+            double[] proposalScores = scoreAll(proposals);
+            int pick = 0;
+            for (int i = 1; i < proposals.size(); i++) if (proposalScores[i] < proposalScores[pick]) pick = i;
+            double delta = proposalScores[pick] - currentScore;
+            boolean accepted = delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature);
+            if (accepted) {
+                current = proposals.get(pick);
+                currentScore = proposalScores[pick];
+                if (currentScore < bestScore) {
+                    best = current;
+                    bestScore = currentScore;
+                }
+            }
+            EventLog.log(LogLevel.INFO, "layout.iteration", String.valueOf(it),
+                    String.format("current=%.2f best=%.2f accepted=%b", currentScore, bestScore, accepted));
+        }
+        return best;
+    }
+
+    /**
+     * Scores a layout, simulating it only if it has not been scored before.
+     *
+     * @param layout The {@link StoreLayout}.
+     * @return The mean ticks per shopper, with penalties (lower is better).
+     */
+    public double score(StoreLayout layout) {
+        return scoreAll(List.of(layout))[0];
+    }
+
+    /**
+     * Scores several layouts, running the simulations of every layout not cached yet in parallel.
+     *
+     * @param layouts The layouts.
+     * @return Their scores, in the same order.
+     */
+    public double[] scoreAll(List<StoreLayout> layouts) {
+        List<StoreLayout> pending = new ArrayList<>(new LinkedHashSet<>(layouts));
+        pending.removeIf(scores::containsKey);
+        int replicas = replicaSeeds.length;
+        double[] runs = new double[pending.size() * replicas];
+        if (!pending.isEmpty()) {
+            pool.submit(() -> IntStream.range(0, runs.length).parallel()
+                    .forEach(k -> runs[k] = simulate(pending.get(k / replicas), replicaSeeds[k % replicas]))).join();
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            double sum = 0;
+            for (int r = 0; r < replicas; r++) sum += runs[i * replicas + r];
+            scores.put(pending.get(i), sum / replicas);
+            EVALUATIONS.increment();
+        }
+
+        double[] result = new double[layouts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = scores.get(layouts.get(i));
+        CACHE_HITS.add(layouts.size() - pending.size());
+        return result;
+    }
+
+    /**
+     * Runs one headless simulation of a layout.
+     *
+     * @param layout The {@link StoreLayout}.
+     * @param runSeed The seed of the simulation and its shoppers.
+     * @return The mean ticks per shopper in the store (shoppers still inside at the end count the
+     *         ticks so far), plus the penalty for unavailable items.
+     */
+    private double simulate(StoreLayout layout, long runSeed) {
+        ScenarioLoop loop = new ScenarioLoop(layout, runSeed, tileCapacity, arrivalRate, 0.0, Long.MAX_VALUE);
+        for (int t = 0; t < ticks; t++) loop.step();
+        ScenarioLoop.Summary summary = loop.summarize();
+        loop.shutdown();
+        return (summary.getTotalTimeInStore() + (double) UNAVAILABLE_PENALTY * summary.getUnavailable())
+                / Math.max(1, summary.getArrived());
+    }
+
+    /**
+     * Makes a valid neighbour of a layout by applying one random mutation.
+     *
+     * @param layout The current layout.
+     * @param random The random stream of the search.
+     * @return A different, valid layout, or {@code null} if no attempt produced one.
+     */
+    private StoreLayout propose(StoreLayout layout, SplittableRandom random) {
+        for (int attempt = 0; attempt < MUTATION_ATTEMPTS; attempt++) {
+            String[][][] grid = layout.toGrid();
+            int floor = random.nextInt(grid.length);
+            boolean changed;
+            switch (random.nextInt(3)) {
+                case 0: changed = swapBlocks(grid[floor], random); break;
+                case 1: changed = moveCounter(grid[floor], random); break;
+                default: changed = openCrossAisle(grid[floor], random); break;
+            }
+            if (!changed) continue;
+            StoreLayout candidate = new StoreLayout(grid);
+            if (isValid(candidate.toMap())) return candidate;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the groups of touching display tiles with the same code on one floor.
+     *
+     * @param floor The codes of the floor, indexed by {@code [row][column]}.
+     * @return Each block as {@code {minX, minY, maxX, maxY, tile count}}; a block is a rectangle
+     *         when its tile count equals its area.
+     */
+    private static List<int[]> findBlocks(String[][] floor) {
+        List<int[]> blocks = new ArrayList<>();
+        boolean[][] seen = new boolean[floor.length][floor[0].length];
+        int[] stack = new int[floor.length * floor[0].length];
+        for (int y = 0; y < floor.length; y++) {
+            for (int x = 0; x < floor[y].length; x++) {
+                if (seen[y][x] || !isDisplay(floor[y][x])) continue;
+                String code = floor[y][x];
+                int[] block = {x, y, x, y, 0};
+                int top = 0;
+                stack[top++] = y * floor[0].length + x;
+                seen[y][x] = true;
+                while (top > 0) {
+                    int tile = stack[--top];
+                    int tx = tile % floor[0].length, ty = tile / floor[0].length;
+                    block[0] = Math.min(block[0], tx);
+                    block[1] = Math.min(block[1], ty);
+                    block[2] = Math.max(block[2], tx);
+                    block[3] = Math.max(block[3], ty);
+                    block[4]++;
+                    for (Direction d : Direction.values()) {
+                        Point n = new Point(tx, ty).getNextPosition(d);
+                        int nx = n.getX(), ny = n.getY();
+                        if (ny < 0 || ny >= floor.length || nx < 0 || nx >= floor[ny].length) continue;
+                        if (seen[ny][nx] || !floor[ny][nx].equals(code)) continue;
+                        seen[ny][nx] = true;
+                        stack[top++] = ny * floor[0].length + nx;
+                    }
+                }
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Checks if a tile code is one of the display codes.
+     *
+     * @param code The tile code.
+     * @return {@code true} for a Shelf, Table, Chilled Counter or Refrigerator.
+     */
+    private static boolean isDisplay(String code) {
+        for (String c : DISPLAY_CODES) if (c.equals(code)) return true;
+        return false;
+    }
+
+    /**
+     * Checks if a block is a full rectangle.
+     *
+     * @param block A block from {@link #findBlocks(String[][])}.
+     * @return {@code true} if every tile of its bounding box belongs to it.
+     */
+    private static boolean isRectangle(int[] block) {
+        return block[4] == (block[2] - block[0] + 1) * (block[3] - block[1] + 1);
+    }
+
+    /**
+     * Swaps a random rectangular display block with another of the same shape and a different code.
+     *
+     * @param floor The codes of one floor, edited in place.
+     * @param random The random stream of the search.
+     * @return {@code true} if a swap was made.
+     */
+    private static boolean swapBlocks(String[][] floor, SplittableRandom random) {
+        List<int[]> blocks = findBlocks(floor);
+        blocks.removeIf(b -> !isRectangle(b));
+        if (blocks.isEmpty()) return false;
+        int[] a = blocks.get(random.nextInt(blocks.size()));
+        String codeA = floor[a[1]][a[0]];
+        List<int[]> partners = new ArrayList<>();
+        for (int[] b : blocks) {
+            boolean sameShape = b[2] - b[0] == a[2] - a[0] && b[3] - b[1] == a[3] - a[1];
+            if (sameShape && !floor[b[1]][b[0]].equals(codeA)) partners.add(b);
+        }
+        if (partners.isEmpty()) return false;
+        int[] b = partners.get(random.nextInt(partners.size()));
+        String codeB = floor[b[1]][b[0]];
+        for (int dy = 0; dy <= a[3] - a[1]; dy++) {
+            for (int dx = 0; dx <= a[2] - a[0]; dx++) {
+                floor[a[1] + dy][a[0] + dx] = codeB;
+                floor[b[1] + dy][b[0] + dx] = codeA;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves a random Checkout Counter to a wall tile of the same row (not the outer wall).
+     *
+     * @param floor The codes of one floor, edited in place.
+     * @param random The random stream of the search.
+     * @return {@code true} if a counter was moved.
+     */
+    private static boolean moveCounter(String[][] floor, SplittableRandom random) {
+        List<int[]> counters = new ArrayList<>();
+        for (int y = 1; y < floor.length - 1; y++) {
+            for (int x = 1; x < floor[y].length - 1; x++) if (floor[y][x].equals("c")) counters.add(new int[] {x, y});
+        }
+        if (counters.isEmpty()) return false;
+        int[] counter = counters.get(random.nextInt(counters.size()));
+        String[] row = floor[counter[1]];
+        List<Integer> walls = new ArrayList<>();
+        for (int x = 1; x < row.length - 1; x++) if (row[x].equals("w")) walls.add(x);
+        if (walls.isEmpty()) return false;
+        int target = walls.get(random.nextInt(walls.size()));
+        row[target] = "c";
+        row[counter[0]] = "w";
+        return true;
+    }
+
+    /**
+     * Clears a middle row of a random rectangular display block at least three tiles tall.
+     *
+     * @param floor The codes of one floor, edited in place.
+     * @param random The random stream of the search.
+     * @return {@code true} if a cross-aisle was opened.
+     */
+    private static boolean openCrossAisle(String[][] floor, SplittableRandom random) {
+        List<int[]> blocks = findBlocks(floor);
+        blocks.removeIf(b -> !isRectangle(b) || b[3] - b[1] < 2);
+        if (blocks.isEmpty()) return false;
+        int[] block = blocks.get(random.nextInt(blocks.size()));
+        int y = block[1] + 1 + random.nextInt(block[3] - block[1] - 1);
+        for (int x = block[0]; x <= block[2]; x++) floor[y][x] = "b";
+        return true;
+    }
+
+    /**
+     * Checks if shoppers can still use the whole store: every display holds the products of its place
+     * in the store, every display, station and counter can be reached from the Entrance without crossing
+     * a counter, and the Exit can be reached from every counter.
+     *
+     * @param map A {@link SupermarketMap} built from the candidate layout.
+     * @return {@code true} if the layout is usable.
+     */
+    public static boolean isValid(SupermarketMap map) {
+        PathFinder pathFinder = new PathFinder(map, true);
+        List<Amenity> targets = new ArrayList<>();
+        List<Amenity> counters = new ArrayList<>();
+        List<Amenity> exits = new ArrayList<>();
+        int[] reach = null;
+        int size = map.getMapSize();
+        for (int f = 0; f < map.getFloorCount(); f++) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    Amenity a = map.getAmenityAt(x, y, f);
+                    if (a instanceof Entrance) reach = pathFinder.distancesFrom(a.getPosition(), f);
+                    else if (a instanceof CheckoutCounter) counters.add(a);
+                    else if (a instanceof Exit) exits.add(a);
+                    else if (a instanceof Display || a instanceof BasketStation || a instanceof CartStation) targets.add(a);
+                }
+            }
+        }
+        if (reach == null || counters.isEmpty() || exits.isEmpty()) return false;
+        for (Amenity a : targets) if (!canUse(reach, pathFinder.accessTiles(a))) return false;
+        for (Display d : map.getAllDisplays()) if (d.getProductCount() == 0) return false;
+        for (Amenity c : counters) {
+            if (reach[pathFinder.tileOf(c.getPosition(), map.getFloorOf(c))] == PathFinder.UNREACHABLE) return false;
+            int[] fromCounter = pathFinder.distancesFrom(c.getPosition(), map.getFloorOf(c));
+            boolean leaves = false;
+            for (Amenity e : exits) leaves |= canUse(fromCounter, pathFinder.accessTiles(e));
+            if (!leaves) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if any of some tiles is reachable.
+     *
+     * @param distance A distance table.
+     * @param tiles The tile numbers.
+     * @return {@code true} if at least one tile has a distance.
+     */
+    private static boolean canUse(int[] distance, int[] tiles) {
+        for (int tile : tiles) if (distance[tile] != PathFinder.UNREACHABLE) return true;
+        return false;
+    }
+
+    /**
+     * Gets the best layout of the last search.
+     * @return The best {@link StoreLayout}, or {@code null} before {@link #optimize(int)}.
+     */
+    public StoreLayout getBest() { return best; }
+
+    /**
+     * Gets the score of the best layout of the last search.
+     * @return The best score.
+     */
+    public double getBestScore() { return bestScore; }
+
+    /**
+     * Gets the number of layouts scored so far.
+     * @return The size of the score cache.
+     */
+    public int getCacheSize() { return scores.size(); }
+
+    /**
+     * Stops the simulation threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Optimizes the default layout and prints the best layout found.
+     * Usage: {@code LayoutOptimizer [iterations] [threads] [seed] [arrivals per tick] [ticks per run] [batch size]}.
+     *
+     * @param args Optional overrides for the number of batches (default 40), threads (default: all
+     *             processors), seed (default 42), arrival rate (default 0.3), run length (default 1500)
+     *             and batch size (default {@value #DEFAULT_BATCH_SIZE}, whatever the thread count).
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 0.3;
+        int runTicks = args.length > 4 ? Integer.parseInt(args[4]) : 1500;
+        int batchSize = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_BATCH_SIZE;
+        EventLog.setDefaultLevel(LogLevel.OFF);
+
+        StoreLayout start = StoreLayout.of(new SupermarketMap());
+        LayoutOptimizer optimizer = new LayoutOptimizer(start, threads, seed);
+        optimizer.setRuns(3, runTicks);
+        optimizer.setLoad(rate, 2);
+        optimizer.setBatchSize(batchSize);
+        long begin = System.nanoTime();
+        double startScore = optimizer.score(start);
+        StoreLayout best = optimizer.optimize(iterations);
+        long elapsed = System.nanoTime() - begin;
+        optimizer.shutdown();
+
+        System.out.printf("%d iterations on %d threads in %.1f s: %d layouts simulated, %d cache hits%n",
+                iterations, threads, elapsed / 1e9, EVALUATIONS.get(), CACHE_HITS.get());
+        System.out.printf("Mean ticks per shopper: %.2f at the start, %.2f at best (%d tiles changed)%n",
+                startScore, optimizer.getBestScore(), best.countDifferences(start));
+        System.out.print(best);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,442 @@
+/**
+ * LoadGenerator.java
+ *
+ * This class stress-tests the headless Simulation by feeding it a stream of synthetic
+ * shoppers (arrival times, ages and shopping lists) and measuring how it keeps up.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates shopper populations for a {@link Simulation} and reports throughput and latency.
+ * <p>
+ * Arrivals per tick follow a Poisson distribution whose mean is the base arrival rate
+ * multiplied by a time-of-day curve. Each arriving shopper gets an age from the configured
+ * mix of minors, adults and seniors (so the alcohol age limit and the senior discount both come
+ * into play) and a shopping list drawn from the map's product catalog, optionally skewed
+ * towards popular items with a Zipf distribution. A share of the shoppers can be made to take a
+ * cart rather than a basket, and the total number of shoppers can be capped.
+ * <p>
+ * The generator uses its own random stream, so the same seed always produces the same
+ * population. Every tick the time spent adding arrivals, in the decide phase and in the
+ * apply phase is recorded in a {@link LatencyHistogram}.
+ */
+public class LoadGenerator {
+    /**
+     * Relative arrival rate for each hour of a typical day, from opening (index 0) onwards:
+     * quiet mornings, a lunch peak and a bigger after-work peak.
+     */
+    public static final double[] TYPICAL_DAY = {
+            0.3, 0.5, 0.7, 0.9, 1.4, 1.2, 0.8, 0.7, 0.9, 1.4, 1.8, 1.6, 1.0, 0.5
+    };
+
+    /** Above this mean, Poisson arrivals are drawn from a normal approximation. */
+    private static final double NORMAL_APPROXIMATION_MEAN = 30.0;
+
+    private final Simulation simulation;
+    private final SplittableRandom random;
+    private final List<Product> catalog;
+
+    private double arrivalsPerTick;
+    private double[] dayCurve;
+    private int ticksPerHour;
+    private double minorShare;
+    private double seniorShare;
+    private int minListSize;
+    private int maxListSize;
+    private double[] popularityCdf;
+    private double cartShare;
+    private long shopperLimit;
+
+    private final LatencyHistogram arrivalLatency;
+    private final LatencyHistogram decideLatency;
+    private final LatencyHistogram applyLatency;
+    private final LatencyHistogram tickLatency;
+    private long arrivals;
+    private long minors;
+    private long seniors;
+    private long ticksRun;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a load generator with one arrival per tick on average, a flat day,
+     * 10% minors, 20% seniors and shopping lists of 1 to 8 uniformly chosen products.
+     *
+     * @param simulation The {@link Simulation} to feed shoppers into.
+     * @param seed The seed of the generator's own random stream.
+     */
+    public LoadGenerator(Simulation simulation, long seed) {
+        this.simulation = simulation;
+        this.random = new SplittableRandom(seed);
+        this.catalog = simulation.getMap().getAllProducts();
+        this.arrivalsPerTick = 1.0;
+        this.dayCurve = new double[] {1.0};
+        this.ticksPerHour = 1;
+        this.minorShare = 0.10;
+        this.seniorShare = 0.20;
+        this.minListSize = 1;
+        this.maxListSize = 8;
+        setPopularitySkew(0.0);
+        this.cartShare = 0.0;
+        this.shopperLimit = Long.MAX_VALUE;
+        this.arrivalLatency = new LatencyHistogram();
+        this.decideLatency = new LatencyHistogram();
+        this.applyLatency = new LatencyHistogram();
+        this.tickLatency = new LatencyHistogram();
+    }
+
+    /**
+     * Sets the base arrival rate.
+     *
+     * @param arrivalsPerTick The mean number of new shoppers per tick before the day curve is applied.
+     */
+    public void setArrivalRate(double arrivalsPerTick) {
+        if (arrivalsPerTick < 0) throw new IllegalArgumentException("Arrival rate cannot be negative.");
+        this.arrivalsPerTick = arrivalsPerTick;
+    }
+
+    /**
+     * Sets a time-of-day curve that scales the arrival rate. After the last hour the curve repeats.
+     *
+     * @param hourlyMultipliers The rate multiplier for each hour (e.g., {@link #TYPICAL_DAY}).
+     * @param ticksPerHour How many ticks make up one hour.
+     */
+    public void setDayCurve(double[] hourlyMultipliers, int ticksPerHour) {
+        if (hourlyMultipliers.length == 0 || ticksPerHour < 1) {
+            throw new IllegalArgumentException("The day curve needs at least one hour of at least one tick.");
+        }
+        this.dayCurve = hourlyMultipliers.clone();
+        this.ticksPerHour = ticksPerHour;
+    }
+
+    /**
+     * Sets the age mix of arriving shoppers. Minors are 12-17, seniors 60-85 and everyone else 18-59.
+     *
+     * @param minorShare The fraction of shoppers under 18.
+     * @param seniorShare The fraction of shoppers aged 60 or older.
+     */
+    public void setAgeMix(double minorShare, double seniorShare) {
+        if (minorShare < 0 || seniorShare < 0 || minorShare + seniorShare > 1) {
+            throw new IllegalArgumentException("Age shares must be between 0 and 1 in total.");
+        }
+        this.minorShare = minorShare;
+        this.seniorShare = seniorShare;
+    }
+
+    /**
+     * Sets the range of shopping list sizes. Sizes are chosen uniformly in the range.
+     *
+     * @param min The smallest list size.
+     * @param max The largest list size (at most the catalog size).
+     */
+    public void setListSize(int min, int max) {
+        if (min < 0 || max < min || max > catalog.size()) {
+            throw new IllegalArgumentException("List size must be between 0 and " + catalog.size() + ".");
+        }
+        this.minListSize = min;
+        this.maxListSize = max;
+    }
+
+    /**
+     * Sets how strongly shopping lists favour popular products. Product {@code k} of the catalog
+     * is picked with a weight of {@code 1 / (k + 1)^skew}, so 0 is uniform and 1 is a classic Zipf curve.
+     *
+     * @param skew The Zipf exponent (0 or more).
+     */
+    public void setPopularitySkew(double skew) {
+        if (skew < 0) throw new IllegalArgumentException("Skew cannot be negative.");
+        double[] cdf = new double[catalog.size()];
+        double total = 0;
+        for (int k = 0; k < cdf.length; k++) {
+            total += 1.0 / Math.pow(k + 1, skew);
+            cdf[k] = total;
+        }
+        for (int k = 0; k < cdf.length; k++) cdf[k] /= total;
+        this.popularityCdf = cdf;
+    }
+
+    /**
+     * Sets the share of shoppers who take a cart even when a basket would hold their list
+     * (only matters with route planning, see {@link Simulation#enableRoutePlanning()}).
+     *
+     * @param cartShare The fraction of shoppers who prefer a cart, between 0 and 1.
+     */
+    public void setCartShare(double cartShare) {
+        if (cartShare < 0 || cartShare > 1) throw new IllegalArgumentException("Cart share must be between 0 and 1.");
+        this.cartShare = cartShare;
+    }
+
+    /**
+     * Caps the total number of shoppers; once that many have arrived, nobody else comes in.
+     *
+     * @param shopperLimit The most shoppers to add (at least 0).
+     */
+    public void setShopperLimit(long shopperLimit) {
+        if (shopperLimit < 0) throw new IllegalArgumentException("Shopper limit cannot be negative.");
+        this.shopperLimit = shopperLimit;
+    }
+
+    /**
+     * Runs the simulation for the given number of ticks, adding the arrivals of each tick before it is stepped.
+     *
+     * @param ticks The number of ticks to run.
+     */
+    public void run(int ticks) {
+        long runStart = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            long start = System.nanoTime();
+            int count = (int) Math.min(nextArrivalCount(rateAt(simulation.getTick())), shopperLimit - arrivals);
+            for (int i = 0; i < count; i++) {
+                int age = nextAge();
+                List<Product> list = nextShoppingList();
+                // Only draw when carts are wanted, so populations without them keep their old random sequence
+                boolean cart = cartShare > 0 && random.nextDouble() < cartShare;
+                simulation.addShopper("Shopper " + (arrivals + 1), age, list, cart);
+                arrivals++;
+                if (age < 18) minors++;
+                else if (age >= 60) seniors++;
+            }
+            long arrived = System.nanoTime();
+            simulation.step();
+            long end = System.nanoTime();
+
+            arrivalLatency.record(arrived - start);
+            decideLatency.record(simulation.getLastDecideNanos());
+            applyLatency.record(simulation.getLastApplyNanos());
+            tickLatency.record(end - start);
+        }
+        ticksRun += ticks;
+        elapsedNanos += System.nanoTime() - runStart;
+    }
+
+    /**
+     * Gets the mean arrival rate for a tick, after applying the day curve.
+     *
+     * @param tick The simulation tick.
+     * @return The expected number of arrivals in that tick.
+     */
+    public double rateAt(long tick) {
+        int hour = (int) ((tick / ticksPerHour) % dayCurve.length);
+        return arrivalsPerTick * dayCurve[hour];
+    }
+
+    /**
+     * Draws a Poisson-distributed number of arrivals.
+     * Small means use Knuth's multiplication method; large means use a rounded normal approximation.
+     *
+     * @param mean The expected number of arrivals.
+     * @return The number of arrivals.
+     */
+    private int nextArrivalCount(double mean) {
+        if (mean <= 0) return 0;
+        if (mean > NORMAL_APPROXIMATION_MEAN) {
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Draws the age of an arriving shopper from the configured mix.
+     *
+     * @return The age.
+     */
+    private int nextAge() {
+        double u = random.nextDouble();
+        if (u < minorShare) return random.nextInt(12, 18);
+        if (u < minorShare + seniorShare) return random.nextInt(60, 86);
+        return random.nextInt(18, 60);
+    }
+
+    /**
+     * Draws a shopping list of distinct products from the catalog.
+     *
+     * @return A new, mutable list of products.
+     */
+    private List<Product> nextShoppingList() {
+        int size = random.nextInt(minListSize, maxListSize + 1);
+        List<Product> list = new ArrayList<>(size);
+        while (list.size() < size) {
+            Product p = catalog.get(nextPopularIndex());
+            if (!list.contains(p)) list.add(p);
+        }
+        return list;
+    }
+
+    /**
+     * Draws a catalog index from the popularity distribution.
+     *
+     * @return An index into the catalog.
+     */
+    private int nextPopularIndex() {
+        double u = random.nextDouble();
+        int low = 0, high = popularityCdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (popularityCdf[mid] < u) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Gets the number of shoppers added so far.
+     * @return The arrival count.
+     */
+    public long getArrivals() { return arrivals; }
+
+    /**
+     * Gets the sustained arrival throughput of all runs so far.
+     * @return Shoppers added per second of wall-clock time.
+     */
+    public double getShoppersPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : arrivals * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets the sustained tick throughput of all runs so far.
+     * @return Ticks simulated per second of wall-clock time.
+     */
+    public double getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : ticksRun * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets the time spent adding arrivals in each tick.
+     * @return The arrival phase {@link LatencyHistogram}.
+     */
+    public LatencyHistogram getArrivalLatency() { return arrivalLatency; }
+
+    /**
+     * Gets the time spent in the decide phase of each tick.
+     * @return The decide phase {@link LatencyHistogram}.
+     */
+    public LatencyHistogram getDecideLatency() { return decideLatency; }
+
+    /**
+     * Gets the time spent in the apply phase of each tick.
+     * @return The apply phase {@link LatencyHistogram}.
+     */
+    public LatencyHistogram getApplyLatency() { return applyLatency; }
+
+    /**
+     * Gets the total time of each tick (arrivals, decide and apply).
+     * @return The whole-tick {@link LatencyHistogram}.
+     */
+    public LatencyHistogram getTickLatency() { return tickLatency; }
+
+    /**
+     * Builds a multi-line report of the population, throughput and phase latencies.
+     *
+     * @return The report text.
+     */
+    public String report() {
+        long exited = 0, checkedOut = 0;
+        for (Shopper s : simulation.getShoppers()) {
+            if (s.getHasExited()) exited++;
+            if (s.getHasCheckedOut()) checkedOut++;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Ticks: %d in %.2f s (%.1f ticks/s)%n", ticksRun, elapsedNanos / 1e9, getTicksPerSecond()));
+        sb.append(String.format("Shoppers: %d arrived (%d minors, %d seniors), %d checked out, %d exited%n",
+                arrivals, minors, seniors, checkedOut, exited));
+        sb.append(String.format("Sustained: %.1f shoppers/s%n", getShoppersPerSecond()));
+        sb.append("Arrive: ").append(arrivalLatency).append(System.lineSeparator());
+        sb.append("Decide: ").append(decideLatency).append(System.lineSeparator());
+        sb.append("Apply:  ").append(applyLatency).append(System.lineSeparator());
+        sb.append("Tick:   ").append(tickLatency).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    /**
+     * Runs a load test over one simulated day and prints the report.
+     * Usage: {@code LoadGenerator [ticks] [arrivals per tick] [threads] [seed] [tile capacity] [restockers]}.
+     *
+     * @param args Optional overrides for the tick count (default 5000), base arrival rate (default 2),
+     *             decide-phase threads (default 1), seed (default 42) and shoppers allowed per tile
+     *             (default 0, meaning shoppers walk through each other) and restocking workers
+     *             (default 0, meaning displays are never refilled).
+     *             If the {@code mco2.heatmap.dir} system property is set, a traffic heatmap is also
+     *             recorded, the busiest displays are printed, and the heatmap is written to that
+     *             directory as {@code heatmap.csv} plus one dwell PNG per floor.
+     *             If the {@code mco2.shoppers.packed} system property is {@code true}, shoppers are kept
+     *             in a {@link ShopperStore}.
+     */
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        double rate = args.length > 1 ? Double.parseDouble(args[1]) : 2.0;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        int tileCapacity = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        int restockers = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        // Keep the report readable unless a log level was asked for explicitly
+        EventLog.setDefaultLevel(LogLevel.OFF);
+
+        boolean packed = Boolean.getBoolean("mco2.shoppers.packed");
+        Simulation simulation = new Simulation(seed, new SupermarketMap(), threads, packed);
+        simulation.registerGauges();
+        if (tileCapacity > 0) simulation.enableOccupancy(tileCapacity);
+        Replenishment replenishment = restockers > 0 ? simulation.enableReplenishment(restockers) : null;
+        if (replenishment != null) replenishment.registerGauges();
+        String heatmapDir = System.getProperty("mco2.heatmap.dir");
+        Heatmap heatmap = heatmapDir != null ? simulation.enableHeatmap(0) : null;
+        int hourTicks = Math.max(1, ticks / TYPICAL_DAY.length);
+        SalesAnalytics sales = simulation.enableSalesAnalytics(hourTicks, 3);
+        LoadGenerator generator = new LoadGenerator(simulation, seed);
+        generator.setArrivalRate(rate);
+        generator.setDayCurve(TYPICAL_DAY, hourTicks);
+        generator.setPopularitySkew(1.0);
+        generator.run(ticks);
+        simulation.shutdown();
+        System.out.print(generator.report());
+        if (replenishment != null) {
+            System.out.printf("Restocking: %d workers, %d trips, %d units, %d back-room stock-outs, %d orders%n",
+                    restockers, Replenishment.TRIPS.get(), Replenishment.UNITS.get(),
+                    replenishment.getBackRoom().getStockOuts(), replenishment.getBackRoom().getOrdersPlaced());
+            System.out.printf("Stock-outs: %d empty display-ticks, %d displays empty at close%n",
+                    Replenishment.EMPTY_DISPLAY_TICKS.get(), replenishment.getEmptyDisplays());
+        }
+        System.out.print("Sales (all day): " + sales.getAllTime().format());
+        System.out.print("Sales (last 3 hours): " + sales.getSlidingWindow().format());
+        System.out.print(Metrics.snapshot().format());
+        if (heatmap != null) exportHeatmap(heatmap.snapshot(), simulation.getMap(), Path.of(heatmapDir));
+    }
+
+    /**
+     * Prints the ten busiest displays and writes the heatmap files of a run.
+     *
+     * @param heatmap The {@link HeatmapSnapshot} taken at the end of the run.
+     * @param map The {@link SupermarketMap} the run used.
+     * @param dir The directory to write {@code heatmap.csv} and the PNGs into.
+     */
+    private static void exportHeatmap(HeatmapSnapshot heatmap, SupermarketMap map, Path dir) {
+        System.out.println("Busiest displays (interactions + aisle dwell):");
+        for (Display d : heatmap.getBusiestDisplays(map, 10)) {
+            System.out.printf("  %-12s %-15s %d%n", d.getAddress(), d.getClass().getSimpleName(), heatmap.getTraffic(map, d));
+        }
+        try {
+            Files.createDirectories(dir);
+            heatmap.writeCsv(dir.resolve("heatmap.csv"), map);
+            heatmap.writePng(dir.resolve("heatmap_GF_dwell.png"), HeatmapSnapshot.Metric.DWELL, 0, 16);
+            heatmap.writePng(dir.resolve("heatmap_2F_dwell.png"), HeatmapSnapshot.Metric.DWELL, 1, 16);
+        } catch (IOException e) {
+            System.err.println("Failed to write heatmap: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+/**
+ * LogEvent.java
+ *
+ * This class is one entry of the structured event log: a timestamp, a level,
+ * an event name and the shopper or amenity it is about.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * A single structured log entry.
+ * <p>
+ * Instances are slots of the {@link EventLog} ring buffer and are reused once an
+ * {@link EventSink} has written them, so a sink must copy any value it wants to keep.
+ */
+public class LogEvent {
+    /** Sequence number used by the ring buffer to hand the slot between writers and the drain thread. */
+    volatile long sequence;
+
+    private long timestamp;
+    private LogLevel level;
+    private String event;
+    private String subject;
+    private String detail;
+
+    /**
+     * Constructs an empty slot for the given ring position.
+     *
+     * @param sequence The initial sequence number of the slot.
+     */
+    LogEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Fills the slot with a new entry.
+     *
+     * @param timestamp The time of the event in milliseconds since the epoch.
+     * @param level The severity.
+     * @param event The event name.
+     * @param subject Who or what the event is about.
+     * @param detail Extra information, or {@code null}.
+     */
+    void set(long timestamp, LogLevel level, String event, String subject, String detail) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.event = event;
+        this.subject = subject;
+        this.detail = detail;
+    }
+
+    /**
+     * Drops the references held by the slot so logged strings can be garbage collected.
+     */
+    void clear() {
+        this.event = null;
+        this.subject = null;
+        this.detail = null;
+    }
+
+    /**
+     * Gets the time of the event.
+     * @return Milliseconds since the epoch.
+     */
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * Gets the severity of the event.
+     * @return The {@link LogLevel}.
+     */
+    public LogLevel getLevel() { return level; }
+
+    /**
+     * Gets the event name (e.g., "shopper.blocked").
+     * @return The event name.
+     */
+    public String getEvent() { return event; }
+
+    /**
+     * Gets who or what the event is about (a shopper name or display address).
+     * @return The subject, or {@code null}.
+     */
+    public String getSubject() { return subject; }
+
+    /**
+     * Gets the extra information of the event (e.g., the amenity that blocked a move).
+     * @return The detail, or {@code null}.
+     */
+    public String getDetail() { return detail; }
+}
\ No newline at end of file
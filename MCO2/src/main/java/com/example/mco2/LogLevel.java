@@ -0,0 +1,26 @@
+/**
+ * LogLevel.java
+ *
+ * This enumeration defines the severity levels of the structured event log.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * The severity of a {@link LogEvent}, from most to least detailed.
+ * Setting the {@link EventLog} to a level keeps that level and everything more severe.
+ */
+public enum LogLevel {
+
+    /** Routine detail, such as blocked moves and display interactions. */
+    DEBUG,
+    /** Notable events, such as floor changes and refused actions. */
+    INFO,
+    /** Problems the simulator can recover from. */
+    WARN,
+    /** Turns the event log off entirely. Not used for events. */
+    OFF
+}
\ No newline at end of file
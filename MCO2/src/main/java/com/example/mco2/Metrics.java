@@ -0,0 +1,165 @@
+/**
+ * Metrics.java
+ *
+ * This class is the registry of every counter, latency recorder and gauge in the simulator,
+ * and holds the built-in metrics for shopper, display and checkout operations.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide metrics registry.
+ * <p>
+ * The built-in metrics are plain static fields, so an instrumented code path only pays for a
+ * {@link java.util.concurrent.atomic.LongAdder} increment (a few nanoseconds, even with many threads).
+ * Names are only used when a {@link MetricsSnapshot} is taken or exported.
+ */
+public final class Metrics {
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyRecorder> LATENCIES = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    /** Successful shopper moves. */
+    public static final Counter MOVES = counter("shopper.moves");
+
+    /** Moves blocked by an impassable amenity, broken down by what blocked them. */
+    public static final Counter BLOCKS = counter("shopper.blocked");
+
+    /** Moves refused because the target tile was already at its occupancy limit. */
+    public static final Counter CROWD_BLOCKS = counter("shopper.crowd_blocked");
+
+    /** Trips up or down the stairs. */
+    public static final Counter FLOOR_CHANGES = counter("shopper.floor_changes");
+
+    /** Products taken off a display, broken down by display type. */
+    public static final Counter TAKES = counter("display.takes");
+
+    /** Products put back on a display, broken down by display type. */
+    public static final Counter RETURNS = counter("display.returns");
+
+    /** Displays running out of products, broken down by display type. */
+    public static final Counter STOCKOUTS = counter("display.stockouts");
+
+    /** Carts and baskets picked up, broken down by station type. */
+    public static final Counter EQUIPMENT_PICKUPS = counter("equipment.pickups");
+
+    /** Completed checkouts. */
+    public static final Counter CHECKOUTS = counter("checkout.completed");
+
+    /** Shoppers who left the store. */
+    public static final Counter EXITS = counter("shopper.exits");
+
+    /** All refused actions, broken down by the amenity that refused them. */
+    public static final Counter DENIALS = counter("denials");
+
+    /** Time spent pricing items at the checkout. */
+    public static final LatencyRecorder PRICING_TIME = latency("checkout.pricing");
+
+    /** Time spent in the decide phase of a simulation tick. */
+    public static final LatencyRecorder DECIDE_TIME = latency("simulation.decide");
+
+    /** Time spent in the apply phase of a simulation tick. */
+    public static final LatencyRecorder APPLY_TIME = latency("simulation.apply");
+
+    private static final Counter[] DENIALS_BY_REASON = new Counter[DenialReason.values().length];
+
+    static {
+        for (DenialReason reason : DenialReason.values()) {
+            DENIALS_BY_REASON[reason.ordinal()] = counter("denials." + reason.name().toLowerCase());
+        }
+    }
+
+    /**
+     * This class only has static members.
+     */
+    private Metrics() { }
+
+    /**
+     * Gets the counter with the given name, creating and registering it if needed.
+     *
+     * @param name The metric name.
+     * @return The {@link Counter}.
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Gets the latency recorder with the given name, creating and registering it if needed.
+     *
+     * @param name The metric name.
+     * @return The {@link LatencyRecorder}.
+     */
+    public static LatencyRecorder latency(String name) {
+        return LATENCIES.computeIfAbsent(name, LatencyRecorder::new);
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge with the same name.
+     * The supplier is only called when a snapshot is taken.
+     *
+     * @param name The metric name.
+     * @param gauge Supplies the current value.
+     */
+    public static void registerGauge(String name, LongSupplier gauge) {
+        GAUGES.put(name, gauge);
+    }
+
+    /**
+     * Counts a refused action.
+     *
+     * @param reason Why the action was refused.
+     * @param where The {@link Amenity} that refused it, or {@code null} if the shopper's own inventory did.
+     */
+    public static void deny(DenialReason reason, Amenity where) {
+        DENIALS.increment(where);
+        DENIALS_BY_REASON[reason.ordinal()].increment(where);
+    }
+
+    /**
+     * Gets the number of actions refused for a reason.
+     *
+     * @param reason The reason.
+     * @return The count.
+     */
+    public static long getDenials(DenialReason reason) {
+        return DENIALS_BY_REASON[reason.ordinal()].get();
+    }
+
+    /**
+     * Takes a point-in-time copy of every registered metric.
+     *
+     * @return A new {@link MetricsSnapshot}.
+     */
+    public static MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(COUNTERS.values(), LATENCIES.values(), GAUGES);
+    }
+
+    /**
+     * Writes a snapshot of every registered metric to a text file.
+     *
+     * @param file The destination path (overwritten if it exists).
+     * @throws IOException if the file cannot be written.
+     */
+    public static void export(Path file) throws IOException {
+        snapshot().writeTo(file);
+    }
+
+    /**
+     * Sets every counter and latency recorder back to zero. Gauges are left registered.
+     * Should only be called while nothing is recording.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        LATENCIES.values().forEach(LatencyRecorder::reset);
+    }
+}
\ No newline at end of file
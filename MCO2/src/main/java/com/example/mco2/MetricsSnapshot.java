@@ -0,0 +1,152 @@
+/**
+ * MetricsSnapshot.java
+ *
+ * This class is a point-in-time copy of the metrics registry that can be read,
+ * printed or exported without affecting the running simulation.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * An immutable copy of all counters, gauges and latency histograms, taken by {@link Metrics#snapshot()}.
+ * <p>
+ * The text form has one metric per line, sorted by name. Breakdowns are written as
+ * {@code name.AmenityType}, and latencies as a count followed by percentiles in nanoseconds:
+ * <pre>
+ * counter shopper.blocked 120
+ * counter shopper.blocked.Wall 95
+ * gauge simulation.shoppers 40
+ * latency checkout.pricing count=12 mean=812 p50=790 p90=1020 p99=1400 p99.9=1400 max=1400
+ * </pre>
+ */
+public class MetricsSnapshot {
+    private final long timestamp;
+    private final Map<String, Long> counters;
+    private final Map<String, Map<String, Long>> breakdowns;
+    private final Map<String, Long> gauges;
+    private final Map<String, LatencyHistogram> latencies;
+
+    /**
+     * Copies the current values of the given metrics.
+     *
+     * @param counters The registered counters.
+     * @param recorders The registered latency recorders.
+     * @param gauges The registered gauges.
+     */
+    MetricsSnapshot(Collection<Counter> counters, Collection<LatencyRecorder> recorders, Map<String, LongSupplier> gauges) {
+        this.timestamp = System.currentTimeMillis();
+        this.counters = new TreeMap<>();
+        this.breakdowns = new TreeMap<>();
+        for (Counter c : counters) {
+            this.counters.put(c.getName(), c.get());
+            Map<String, Long> breakdown = c.getBreakdown();
+            if (!breakdown.isEmpty()) this.breakdowns.put(c.getName(), breakdown);
+        }
+        this.gauges = new TreeMap<>();
+        gauges.forEach((name, gauge) -> this.gauges.put(name, gauge.getAsLong()));
+        this.latencies = new TreeMap<>();
+        for (LatencyRecorder r : recorders) this.latencies.put(r.getName(), r.snapshot());
+    }
+
+    /**
+     * Gets the value of a counter.
+     *
+     * @param name The counter name.
+     * @return The count, or 0 if no such counter was registered.
+     */
+    public long getCounter(String name) { return counters.getOrDefault(name, 0L); }
+
+    /**
+     * Gets the per-amenity breakdown of a counter.
+     *
+     * @param name The counter name.
+     * @return The counts by amenity type (empty if nothing was attributed to an amenity).
+     */
+    public Map<String, Long> getBreakdown(String name) {
+        return breakdowns.getOrDefault(name, Collections.emptyMap());
+    }
+
+    /**
+     * Gets the value of a gauge.
+     *
+     * @param name The gauge name.
+     * @return The value, or 0 if no such gauge was registered.
+     */
+    public long getGauge(String name) { return gauges.getOrDefault(name, 0L); }
+
+    /**
+     * Gets the merged histogram of a latency recorder.
+     *
+     * @param name The recorder name.
+     * @return The {@link LatencyHistogram}, or {@code null} if no such recorder was registered.
+     */
+    public LatencyHistogram getLatency(String name) { return latencies.get(name); }
+
+    /**
+     * Gets all counter totals.
+     * @return An unmodifiable map of counter names to values, sorted by name.
+     */
+    public Map<String, Long> getCounters() { return Collections.unmodifiableMap(counters); }
+
+    /**
+     * Gets all gauge values.
+     * @return An unmodifiable map of gauge names to values, sorted by name.
+     */
+    public Map<String, Long> getGauges() { return Collections.unmodifiableMap(gauges); }
+
+    /**
+     * Gets when the snapshot was taken.
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * Formats the snapshot as text, one metric per line.
+     *
+     * @return The text form described in the class documentation.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        String nl = System.lineSeparator();
+        counters.forEach((name, value) -> {
+            sb.append("counter ").append(name).append(' ').append(value).append(nl);
+            getBreakdown(name).forEach((type, count) ->
+                    sb.append("counter ").append(name).append('.').append(type).append(' ').append(count).append(nl));
+        });
+        gauges.forEach((name, value) -> sb.append("gauge ").append(name).append(' ').append(value).append(nl));
+        latencies.forEach((name, h) -> sb.append(String.format("latency %s count=%d mean=%.0f p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+                name, h.getCount(), h.getMean(), h.getValueAtPercentile(50), h.getValueAtPercentile(90),
+                h.getValueAtPercentile(99), h.getValueAtPercentile(99.9), h.getMax())));
+        return sb.toString();
+    }
+
+    /**
+     * Writes the text form to a file.
+     *
+     * @param file The destination path (overwritten if it exists).
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        Files.writeString(file, format(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the text form of the snapshot.
+     * @return The same as {@link #format()}.
+     */
+    @Override
+    public String toString() { return format(); }
+}
\ No newline at end of file
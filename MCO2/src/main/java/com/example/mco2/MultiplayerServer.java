@@ -0,0 +1,569 @@
+/**
+ * MultiplayerServer.java
+ *
+ * This class hosts one authoritative simulation that several SupermarketFX players join over
+ * the network, each controlling their own shopper.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A server that owns the only real {@link Simulation} of a shared store and runs it at a fixed
+ * tick rate. Players connect with {@link NetworkClient} (started by {@code SupermarketFX --connect=host:port}).
+ * <p>
+ * Every message in either direction is its length as a varint, then a one-byte tag and varints:
+ * <ul>
+ *     <li>{@link #TAG_HELLO} (client): age, name length, UTF-8 name. Must be the first message.</li>
+ *     <li>{@link #TAG_INPUT} (client): sequence number, {@link ShopperAction} ordinal, argument.</li>
+ *     <li>{@link #TAG_VIEW} (client): the viewport as column, row, width and height.</li>
+ *     <li>{@link #TAG_WELCOME} (server): the player's shopper index, the tick length in milliseconds, the map size.</li>
+ *     <li>{@link #TAG_STATE} (server): the tick; the sequence number of the last input applied; the player's
+ *     column and row (zigzag-encoded), floor, facing ordinal and flags (1 checked out, 2 exited); the other
+ *     shoppers in view, as a count then the index gap, column, row and facing of each; the displays in view
+ *     that changed, as a count then the index gap and, for every tier, its size and the catalog index of
+ *     every product.</li>
+ * </ul>
+ * <b>Input queues.</b> Each player's inputs wait in a queue of {@link #INPUT_QUEUE} entries, and each
+ * tick applies at most one input per player, in the order sent. Inputs arriving while the queue is
+ * full are dropped; the player finds out from the acknowledged sequence number.
+ * <p>
+ * <b>Interest management.</b> A player is only sent the shoppers on their own floor inside their
+ * viewport (the whole floor until they send one), and only the displays there whose contents changed
+ * since they were last sent.
+ * <p>
+ * <b>Slow players.</b> State messages are queued per player in a {@link FrameQueue}, at most
+ * {@link #OUTPUT_QUEUE} at a time. When a player falls behind, their queue is dropped and every display
+ * in view is sent again with the next state, so the simulation never waits for the network.
+ * <p>
+ * <b>Limits.</b> At most {@link #MAX_PLAYERS} connections are served at once; further connections are
+ * closed straight away. A client that does not send its greeting within {@link #HELLO_TIMEOUT_MILLIS}
+ * is disconnected.
+ * <p>
+ * When a player disconnects, their shopper is taken out of the store at the next tick
+ * ({@link Simulation#removeShopper(int)}), so other players stop seeing them.
+ */
+public class MultiplayerServer implements AutoCloseable {
+    /** The port used when none is given. */
+    public static final int DEFAULT_PORT = 7070;
+
+    /** Ticks per second used when none is given. */
+    public static final int DEFAULT_TICK_RATE = 10;
+
+    /** Tag of the first client message. */
+    public static final byte TAG_HELLO = 0x01;
+
+    /** Tag of a client input. */
+    public static final byte TAG_INPUT = 0x02;
+
+    /** Tag of a client viewport change. */
+    public static final byte TAG_VIEW = 0x03;
+
+    /** Tag of the server's reply to {@link #TAG_HELLO}. */
+    public static final byte TAG_WELCOME = 0x11;
+
+    /** Tag of the state sent to each player after every tick. */
+    public static final byte TAG_STATE = 0x12;
+
+    /** Inputs a player may send ahead of the server. */
+    public static final int INPUT_QUEUE = 16;
+
+    /** State messages a player may fall behind by. */
+    public static final int OUTPUT_QUEUE = 32;
+
+    /** The longest message accepted from a client, in bytes. */
+    static final int MAX_MESSAGE = 1024;
+
+    /** Connections served at once, counting players still greeting the server. */
+    public static final int MAX_PLAYERS = 32;
+
+    /** How long a new connection may take to send its greeting. */
+    public static final int HELLO_TIMEOUT_MILLIS = 5000;
+
+    /** Inputs dropped because a player's queue was full. */
+    public static final Counter DROPPED_INPUTS = Metrics.counter("multiplayer.dropped_inputs");
+
+    /** State messages dropped because a player fell behind. */
+    public static final Counter DROPPED_STATES = Metrics.counter("multiplayer.dropped_states");
+
+    /** Connections closed because {@link #MAX_PLAYERS} were already connected. */
+    public static final Counter REFUSED_PLAYERS = Metrics.counter("multiplayer.refused_players");
+
+    private final Simulation simulation;
+    private final SupermarketMap map;
+    private final int size;
+    private final long tickMillis;
+    private final Map<Product, Integer> catalogIndex;
+    private final List<Player> players;
+    private final ConcurrentLinkedQueue<Player> joining;
+    /** Connections being served, from accepting them until they close. */
+    private final AtomicInteger connections;
+    private final ScheduledExecutorService ticker;
+    private final ServerSocket listener;
+    private final ShopperAction[] actionValues = ShopperAction.values();
+    private long[] displayHashes;
+    private byte[] buffer;
+    private int length;
+
+    /**
+     * Constructs a server and starts listening. Call {@link #start()} to start ticking.
+     *
+     * @param simulation The {@link Simulation} players join; it must not be stepped by anyone else.
+     * @param address The address to listen on (the loopback address for this machine only).
+     * @param port The port, or 0 for any free port.
+     * @param tickRate Ticks per second.
+     * @throws IOException if the port cannot be bound.
+     */
+    public MultiplayerServer(Simulation simulation, InetAddress address, int port, int tickRate) throws IOException {
+        if (tickRate < 1 || tickRate > 1000) throw new IllegalArgumentException("The tick rate must be between 1 and 1000.");
+        this.simulation = simulation;
+        this.map = simulation.getMap();
+        this.size = map.getMapSize();
+        this.tickMillis = 1000L / tickRate;
+        this.catalogIndex = new IdentityHashMap<>();
+        List<Product> catalog = map.getAllProducts();
+        for (int i = 0; i < catalog.size(); i++) catalogIndex.put(catalog.get(i), i);
+        this.players = new CopyOnWriteArrayList<>();
+        this.joining = new ConcurrentLinkedQueue<>();
+        this.connections = new AtomicInteger();
+        this.displayHashes = new long[map.getAllDisplays().size()];
+        this.buffer = new byte[4096];
+        this.ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "multiplayer-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.listener = new ServerSocket(port, 50, address);
+    }
+
+    /**
+     * Starts accepting players and running ticks.
+     */
+    public void start() {
+        Thread acceptor = new Thread(() -> {
+            while (!listener.isClosed()) {
+                try {
+                    Socket socket = listener.accept();
+                    if (connections.incrementAndGet() > MAX_PLAYERS) {
+                        connections.decrementAndGet();
+                        REFUSED_PLAYERS.increment();
+                        EventLog.log(LogLevel.WARN, "multiplayer.full", socket.getInetAddress().getHostAddress(), null);
+                        socket.close();
+                        continue;
+                    }
+                    new Player(socket).start();
+                } catch (IOException e) {
+                    if (!listener.isClosed()) EventLog.log(LogLevel.WARN, "multiplayer.accept_failed", null, e.toString());
+                }
+            }
+        }, "multiplayer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops ticking, closes the listener and disconnects every player.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        try {
+            listener.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+        for (Player p : players) p.close();
+        players.clear();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return The port.
+     */
+    public int getPort() { return listener.getLocalPort(); }
+
+    /**
+     * Gets the number of connected players.
+     * @return The player count.
+     */
+    public int getPlayerCount() { return players.size(); }
+
+    /**
+     * Runs one tick: admits new players, takes out the shoppers of players who left, applies one
+     * queued input per player, steps the simulation and sends every player what they can see.
+     */
+    private void tick() {
+        try {
+            Player joined;
+            while ((joined = joining.poll()) != null) {
+                if (joined.closed) continue;
+                simulation.addPlayer(joined.name, joined.age);
+                joined.shopperIndex = simulation.getShoppers().size() - 1;
+                players.add(joined);
+                joined.welcome();
+                EventLog.log(LogLevel.INFO, "multiplayer.join", joined.name, "shopper " + joined.shopperIndex);
+            }
+            for (Player p : players) {
+                if (!p.closed) continue;
+                players.remove(p);
+                simulation.removeShopper(p.shopperIndex);
+            }
+            for (Player p : players) {
+                int[] input = p.inputs.poll();
+                if (input == null) continue;
+                p.ack = input[0];
+                ShopperAction action = actionValues[input[1]];
+                boolean directional = action == ShopperAction.MOVE || action == ShopperAction.FACE;
+                if (directional && input[2] >= Direction.values().length) continue;
+                simulation.submit(p.shopperIndex, action, input[2]);
+            }
+            simulation.step();
+
+            List<Display> displays = map.getAllDisplays();
+            for (int d = 0; d < displays.size(); d++) displayHashes[d] = contentHash(displays.get(d));
+            for (Player p : players) {
+                if (!p.closed) p.frames.offer(encodeState(p));
+            }
+        } catch (RuntimeException e) {
+            // Keep ticking; a failed tick must not stop the store for everyone
+            EventLog.log(LogLevel.WARN, "multiplayer.tick_failed", String.valueOf(simulation.getTick()), e.toString());
+        }
+    }
+
+    /**
+     * Hashes the products on a display, tier by tier.
+     *
+     * @param display The {@link Display}.
+     * @return A hash that changes whenever a product is taken, returned or restocked.
+     */
+    private long contentHash(Display display) {
+        long hash = 17;
+        for (int t = 0; t < display.getTierCount(); t++) {
+            List<Product> tier = display.getTier(t);
+            hash = 31 * hash + tier.size();
+            for (int i = 0; i < tier.size(); i++) hash = 31 * hash + catalogIndex.get(tier.get(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Encodes the state one player is sent after a tick, and remembers the displays sent.
+     *
+     * @param p The {@link Player}.
+     * @return The message, prefixed by its length.
+     */
+    private byte[] encodeState(Player p) {
+        if (p.frames.takeResync()) Arrays.fill(p.sentHashes, Long.MIN_VALUE);
+        Shopper own = simulation.getShoppers().get(p.shopperIndex);
+        Point position = own.getPosition();
+        int floor = own.getCurrentFloor();
+        int[] view = p.view;
+
+        length = 0;
+        ensureCapacity(64);
+        buffer[length++] = TAG_STATE;
+        writeVarint(simulation.getTick() - 1);
+        writeVarint(p.ack);
+        writeVarint(Varint.zigzag(position.getX()));
+        writeVarint(Varint.zigzag(position.getY()));
+        writeVarint(floor);
+        writeVarint(own.getFacing().ordinal());
+        writeVarint((own.getHasCheckedOut() ? 1 : 0) | (own.getHasExited() ? 2 : 0));
+
+        List<Shopper> shoppers = simulation.getShoppers();
+        int countAt = reserveCount();
+        int entries = 0, previous = -1;
+        for (int i = 0; i < shoppers.size(); i++) {
+            if (i == p.shopperIndex) continue;
+            Shopper s = shoppers.get(i);
+            if (s.getHasExited() || s.getCurrentFloor() != floor) continue;
+            Point at = s.getPosition();
+            if (!inView(view, at.getX(), at.getY())) continue;
+            ensureCapacity(20);
+            writeVarint(i - previous - 1);
+            writeVarint(at.getX());
+            writeVarint(at.getY());
+            writeVarint(s.getFacing().ordinal());
+            previous = i;
+            entries++;
+        }
+        closeCount(countAt, entries);
+
+        List<Display> displays = map.getAllDisplays();
+        countAt = reserveCount();
+        entries = 0;
+        previous = -1;
+        for (int d = 0; d < displays.size(); d++) {
+            Display display = displays.get(d);
+            Point at = display.getPosition();
+            if (p.sentHashes[d] == displayHashes[d] || map.getFloorOf(display) != floor || !inView(view, at.getX(), at.getY())) continue;
+            ensureCapacity(10 + 5 * display.getTierCount() + 5 * display.getProductCount());
+            writeVarint(d - previous - 1);
+            writeVarint(display.getTierCount());
+            for (int t = 0; t < display.getTierCount(); t++) {
+                List<Product> tier = display.getTier(t);
+                writeVarint(tier.size());
+                for (int i = 0; i < tier.size(); i++) writeVarint(catalogIndex.get(tier.get(i)));
+            }
+            p.sentHashes[d] = displayHashes[d];
+            previous = d;
+            entries++;
+        }
+        closeCount(countAt, entries);
+
+        byte[] message = new byte[Varint.size(length) + length];
+        System.arraycopy(buffer, 0, message, Varint.write(message, 0, length), length);
+        return message;
+    }
+
+    /**
+     * Checks if a tile is inside a viewport.
+     *
+     * @param view The viewport (column, row, width, height).
+     * @param x The column.
+     * @param y The row.
+     * @return {@code true} if the tile is in view.
+     */
+    private static boolean inView(int[] view, int x, int y) {
+        return x >= view[0] && x < view[0] + view[2] && y >= view[1] && y < view[1] + view[3];
+    }
+
+    /**
+     * Leaves room for an entry count written once the entries are known.
+     *
+     * @return Where the count goes.
+     */
+    private int reserveCount() {
+        ensureCapacity(5);
+        int at = length;
+        length += 5;
+        return at;
+    }
+
+    /**
+     * Writes an entry count into the room left for it, and moves the entries up against it.
+     *
+     * @param countAt Where the count goes.
+     * @param entries The number of entries.
+     */
+    private void closeCount(int countAt, int entries) {
+        int countSize = Varint.size(entries);
+        System.arraycopy(buffer, countAt + 5, buffer, countAt + countSize, length - countAt - 5);
+        int end = length - (5 - countSize);
+        length = countAt;
+        writeVarint(entries);
+        length = end;
+    }
+
+    private void writeVarint(long value) {
+        length = Varint.write(buffer, length, value);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+
+    /**
+     * One connected player: their socket, their queued inputs and state messages, and what they were last sent.
+     */
+    private final class Player {
+        private final Socket socket;
+        private final ArrayBlockingQueue<int[]> inputs;
+        /** State messages waiting to be written; asks for every display in view again when the player falls behind. */
+        private final FrameQueue frames;
+        private final long[] sentHashes;
+        private String name;
+        private int age;
+        private int shopperIndex;
+        private int ack;
+        /** The viewport (column, row, width, height), replaced whole when the player sends a new one. */
+        private volatile int[] view;
+        private volatile Thread writer;
+        private volatile boolean closed;
+
+        /**
+         * Constructs a player for a new connection.
+         *
+         * @param socket The connection.
+         */
+        Player(Socket socket) {
+            this.socket = socket;
+            this.inputs = new ArrayBlockingQueue<>(INPUT_QUEUE);
+            this.frames = new FrameQueue(OUTPUT_QUEUE, DROPPED_STATES, false);
+            this.sentHashes = new long[displayHashes.length];
+            Arrays.fill(sentHashes, Long.MIN_VALUE);
+            this.view = new int[] { 0, 0, size, size };
+        }
+
+        /**
+         * Starts the thread reading the player's messages. Their messages are written once they have joined.
+         */
+        void start() {
+            Thread reader = new Thread(this::read, "multiplayer-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Reads the greeting, queues the player to join at the next tick, then reads inputs until
+         * the connection closes. A greeting that takes longer than {@link #HELLO_TIMEOUT_MILLIS}
+         * closes the connection.
+         */
+        private void read() {
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                byte[] message = readMessage(in);
+                if (message.length < 1 || message[0] != TAG_HELLO) throw new IOException("Expected a greeting.");
+                DataInputStream hello = new DataInputStream(new ByteArrayInputStream(message, 1, message.length - 1));
+                age = Varint.read(hello);
+                byte[] nameBytes = new byte[Math.min(Varint.read(hello), 64)];
+                hello.readFully(nameBytes);
+                name = new String(nameBytes, StandardCharsets.UTF_8);
+                socket.setSoTimeout(0);
+                joining.add(this);
+
+                while (!closed) {
+                    message = readMessage(in);
+                    DataInputStream body = new DataInputStream(new ByteArrayInputStream(message, 1, message.length - 1));
+                    if (message[0] == TAG_INPUT) {
+                        int sequence = Varint.read(body);
+                        int action = Varint.read(body);
+                        int arg = Varint.read(body);
+                        if (action >= actionValues.length) continue;
+                        if (!inputs.offer(new int[] { sequence, action, arg })) DROPPED_INPUTS.increment();
+                    } else if (message[0] == TAG_VIEW) {
+                        view = new int[] { Varint.read(body), Varint.read(body), Varint.read(body), Varint.read(body) };
+                    }
+                }
+            } catch (EOFException | SocketException e) {
+                // The player left
+            } catch (IOException e) {
+                EventLog.log(LogLevel.WARN, "multiplayer.bad_client", name, e.getMessage());
+            }
+            close();
+        }
+
+        /**
+         * Reads one length-prefixed message.
+         *
+         * @param in The stream.
+         * @return The message, starting with its tag.
+         * @throws IOException if the stream fails or the message is empty or too long.
+         */
+        private byte[] readMessage(DataInputStream in) throws IOException {
+            int messageLength = Varint.read(in);
+            if (messageLength < 1 || messageLength > MAX_MESSAGE) throw new IOException("Bad message length " + messageLength + ".");
+            byte[] message = new byte[messageLength];
+            in.readFully(message);
+            return message;
+        }
+
+        /**
+         * Starts the thread writing the player's messages, with the reply to the greeting first.
+         * Called on the tick thread once the player's shopper exists.
+         */
+        void welcome() {
+            byte[] body = new byte[1 + 3 * Varint.MAX_BYTES];
+            body[0] = TAG_WELCOME;
+            int at = 1;
+            for (long value : new long[] { shopperIndex, tickMillis, size }) at = Varint.write(body, at, value);
+            byte[] message = new byte[Varint.size(at) + at];
+            System.arraycopy(body, 0, message, Varint.write(message, 0, at), at);
+
+            Thread thread = new Thread(() -> write(message), "multiplayer-writer");
+            thread.setDaemon(true);
+            writer = thread;
+            thread.start();
+        }
+
+        /**
+         * Writes the welcome, then queued state messages, until the connection closes.
+         *
+         * @param welcome The reply to the greeting, prefixed by its length.
+         */
+        private void write(byte[] welcome) {
+            try (OutputStream raw = socket.getOutputStream()) {
+                BufferedOutputStream out = new BufferedOutputStream(raw, 8192);
+                out.write(welcome);
+                frames.drainTo(out);
+            } catch (IOException | InterruptedException e) {
+                // The player left or the server is closing
+            }
+            close();
+        }
+
+        /**
+         * Closes the connection and frees its place. The tick thread takes the player's shopper
+         * out of the store at its next tick.
+         */
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+            Thread thread = writer;
+            if (thread != null) thread.interrupt();
+            connections.decrementAndGet();
+            EventLog.log(LogLevel.INFO, "multiplayer.leave", name, null);
+        }
+    }
+
+    /**
+     * Hosts a shared store until the process is stopped.
+     * Usage: {@code MultiplayerServer [port] [tick rate] [address] [seed]}.
+     *
+     * @param args The port (default {@value #DEFAULT_PORT}), ticks per second (default {@value #DEFAULT_TICK_RATE}),
+     *             the address to listen on (default: loopback only; {@code 0.0.0.0} for the whole LAN)
+     *             and the seed (default 42).
+     * @throws IOException if the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int tickRate = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TICK_RATE;
+        InetAddress address = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        EventLog.setDefaultLevel(LogLevel.WARN);
+
+        MultiplayerServer server = new MultiplayerServer(new Simulation(seed), address, port, tickRate);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.printf("Hosting a shared store on %s:%d at %d ticks per second%n",
+                address.getHostAddress(), server.getPort(), tickRate);
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            server.close();
+        }
+    }
+}
\ No newline at end of file
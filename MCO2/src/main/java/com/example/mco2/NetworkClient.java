@@ -0,0 +1,398 @@
+/**
+ * NetworkClient.java
+ *
+ * This class connects a SupermarketFX window to a MultiplayerServer, sending the player's actions
+ * and applying the states the server sends back.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The player's end of a {@link MultiplayerServer} connection.
+ * <p>
+ * The server decides where every shopper really is. To keep the controls responsive, the player's
+ * own moves are applied locally straight away and kept as pending until the server acknowledges
+ * them; each state received puts the shopper where the server says and then replays the moves the
+ * server has not applied yet ({@link #reconcile(State, Shopper, SupermarketMap)}). Products taken
+ * or returned are likewise applied locally, and the displays in view are overwritten with the
+ * server's contents whenever they change.
+ * <p>
+ * States are read on a background thread and handed to the listener given to
+ * {@link #connect(String, int, String, int, Consumer)}, which must move them to the thread that
+ * owns the map. Connecting and the greeting each give up after {@link #CONNECT_TIMEOUT_MILLIS}.
+ */
+public class NetworkClient implements AutoCloseable {
+    /** How long connecting to the server, and then waiting for its welcome, may take. */
+    public static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int shopperIndex;
+    private final long tickMillis;
+    private final int mapSize;
+    /** Inputs sent but not yet acknowledged, oldest first, each as sequence number, action ordinal and argument. */
+    private final ArrayDeque<int[]> pending;
+    private final Consumer<State> listener;
+    private int sequence;
+    private long lastMovement;
+    private volatile boolean closed;
+
+    /**
+     * One state received from the server.
+     */
+    public static final class State {
+        private long tick;
+        private int ack;
+        private Point position;
+        private int floor;
+        private Direction facing;
+        private boolean checkedOut;
+        private boolean exited;
+        private final List<int[]> others = new ArrayList<>();
+        private final List<int[][]> displays = new ArrayList<>();
+        private final List<Integer> displayIndices = new ArrayList<>();
+
+        /**
+         * Constructs an empty state, filled in as a message from the server is parsed.
+         */
+        private State() { }
+
+        /**
+         * Gets the tick the state was taken after.
+         * @return The tick.
+         */
+        public long getTick() { return tick; }
+
+        /**
+         * Gets the floor the player is on.
+         * @return The floor index.
+         */
+        public int getFloor() { return floor; }
+
+        /**
+         * Gets the other shoppers the player can see, each as shopper index, column, row and facing ordinal.
+         * @return The visible shoppers.
+         */
+        public List<int[]> getOthers() { return others; }
+
+        /**
+         * Gets the indices (in {@link SupermarketMap#getAllDisplays()}) of the displays that changed.
+         * @return The display indices.
+         */
+        public List<Integer> getChangedDisplays() { return displayIndices; }
+    }
+
+    /**
+     * Connects to a server and joins its store.
+     *
+     * @param host The server host.
+     * @param port The server port.
+     * @param name The player's name.
+     * @param age The player's age.
+     * @param listener Called on the reading thread with every state received, and with {@code null}
+     *                 once the connection is lost.
+     * @return A connected client.
+     * @throws IOException if the connection fails or times out, or the server does not reply as expected.
+     */
+    public static NetworkClient connect(String host, int port, String name, int age, Consumer<State> listener) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            return new NetworkClient(socket, name, age, listener);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the greeting, waits for the welcome and starts reading states. A server that closes
+     * the connection instead of welcoming the player is full.
+     *
+     * @param socket The connection.
+     * @param name The player's name.
+     * @param age The player's age.
+     * @param listener The state listener.
+     * @throws IOException if the handshake fails.
+     */
+    private NetworkClient(Socket socket, String name, int age, Consumer<State> listener) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(socket.getInputStream());
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.pending = new ArrayDeque<>();
+        this.listener = listener;
+        this.lastMovement = System.nanoTime() - Long.MAX_VALUE / 2;
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream hello = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(hello);
+        body.writeByte(MultiplayerServer.TAG_HELLO);
+        Varint.write(body, age);
+        Varint.write(body, Math.min(nameBytes.length, 64));
+        body.write(nameBytes, 0, Math.min(nameBytes.length, 64));
+        socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+        sendMessage(hello.toByteArray());
+
+        DataInputStream welcome;
+        try {
+            welcome = readMessage();
+        } catch (EOFException e) {
+            throw new IOException("The server closed the connection; it may be full.");
+        }
+        if (welcome.readByte() != MultiplayerServer.TAG_WELCOME) throw new IOException("Expected a welcome.");
+        this.shopperIndex = Varint.read(welcome);
+        this.tickMillis = Varint.read(welcome);
+        this.mapSize = Varint.read(welcome);
+        socket.setSoTimeout(0);
+
+        Thread reader = new Thread(this::read, "multiplayer-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Checks if a move or turn may be sent now. Moves are limited to one per tick so the player
+     * cannot run ahead of the server.
+     *
+     * @return {@code true} if at least one tick has passed since the last move or turn.
+     */
+    public synchronized boolean canSendMovement() {
+        return System.nanoTime() - lastMovement >= tickMillis * 1_000_000L;
+    }
+
+    /**
+     * Sends an action to apply to the player's shopper. The caller applies it locally as well.
+     *
+     * @param action The {@link ShopperAction}.
+     * @param arg The action argument.
+     */
+    public synchronized void send(ShopperAction action, int arg) {
+        if (closed) return;
+        if (action == ShopperAction.MOVE || action == ShopperAction.FACE) lastMovement = System.nanoTime();
+        sequence++;
+        pending.add(new int[] { sequence, action.ordinal(), arg });
+        ByteArrayOutputStream message = new ByteArrayOutputStream(8);
+        DataOutputStream body = new DataOutputStream(message);
+        try {
+            body.writeByte(MultiplayerServer.TAG_INPUT);
+            Varint.write(body, sequence);
+            Varint.write(body, action.ordinal());
+            Varint.write(body, arg);
+            sendMessage(message.toByteArray());
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Tells the server which part of the floor the player can see. Until this is sent the whole floor is visible.
+     *
+     * @param x The first column in view.
+     * @param y The first row in view.
+     * @param width The number of columns in view.
+     * @param height The number of rows in view.
+     */
+    public synchronized void setView(int x, int y, int width, int height) {
+        if (closed) return;
+        ByteArrayOutputStream message = new ByteArrayOutputStream(8);
+        DataOutputStream body = new DataOutputStream(message);
+        try {
+            body.writeByte(MultiplayerServer.TAG_VIEW);
+            for (int v : new int[] { x, y, width, height }) Varint.write(body, Math.max(0, v));
+            sendMessage(message.toByteArray());
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Brings the local copy of the store in line with a state from the server. The shopper is put
+     * where the server has them, the moves and turns the server has not applied yet are replayed on
+     * top, and the changed displays are refilled with the server's products.
+     *
+     * @param state The state received.
+     * @param shopper The player's local {@link Shopper}.
+     * @param map The local {@link SupermarketMap}.
+     */
+    public void reconcile(State state, Shopper shopper, SupermarketMap map) {
+        int[][] replay;
+        synchronized (this) {
+            while (!pending.isEmpty() && pending.peek()[0] <= state.ack) pending.poll();
+            replay = pending.toArray(new int[0][]);
+        }
+        Point position = state.position;
+        int floor = state.floor;
+        Direction facing = state.facing;
+        for (int[] input : replay) {
+            if (input[1] == ShopperAction.FACE.ordinal()) {
+                facing = Direction.values()[input[2]];
+            } else if (input[1] == ShopperAction.MOVE.ordinal()) {
+                Point next = position.getNextPosition(Direction.values()[input[2]]);
+                Amenity target = map.getAmenityAt(next.getX(), next.getY(), floor);
+                if (target == null || target.isPassable()) {
+                    position = next;
+                    if (target instanceof Stairs) floor = floor == 0 ? 1 : 0;
+                }
+            }
+        }
+        shopper.restoreState(position, facing, floor);
+        if (state.checkedOut) shopper.setHasCheckedOut(true);
+        if (state.exited) shopper.setHasExited(true);
+
+        List<Display> displays = map.getAllDisplays();
+        List<Product> catalog = map.getAllProducts();
+        for (int d = 0; d < state.displayIndices.size(); d++) {
+            Display display = displays.get(state.displayIndices.get(d));
+            int[][] tiers = state.displays.get(d);
+            for (int t = 0; t < tiers.length && t < display.getTierCount(); t++) {
+                List<Product> tier = display.getTier(t);
+                tier.clear();
+                for (int product : tiers[t]) tier.add(catalog.get(product));
+            }
+        }
+    }
+
+    /**
+     * Reads states until the connection closes.
+     */
+    private void read() {
+        try {
+            while (!closed) {
+                DataInputStream message = readMessage();
+                if (message.readByte() != MultiplayerServer.TAG_STATE) continue;
+                listener.accept(parseState(message));
+            }
+        } catch (EOFException | SocketException e) {
+            // The server went away or the client was closed
+        } catch (IOException e) {
+            EventLog.log(LogLevel.WARN, "multiplayer.bad_server", null, e.getMessage());
+        }
+        close();
+        listener.accept(null);
+    }
+
+    /**
+     * Parses the body of a state message.
+     *
+     * @param message The message, positioned after its tag.
+     * @return The state.
+     * @throws IOException if the message is malformed.
+     */
+    private static State parseState(DataInputStream message) throws IOException {
+        State state = new State();
+        state.tick = Varint.read(message);
+        state.ack = Varint.read(message);
+        int x = Varint.unzigzag(Varint.read(message));
+        int y = Varint.unzigzag(Varint.read(message));
+        state.position = new Point(x, y);
+        state.floor = Varint.read(message);
+        state.facing = Direction.values()[Varint.read(message)];
+        int flags = Varint.read(message);
+        state.checkedOut = (flags & 1) != 0;
+        state.exited = (flags & 2) != 0;
+
+        int count = Varint.read(message);
+        int index = -1;
+        for (int i = 0; i < count; i++) {
+            index += Varint.read(message) + 1;
+            state.others.add(new int[] { index, Varint.read(message),
+                    Varint.read(message), Varint.read(message) });
+        }
+        count = Varint.read(message);
+        index = -1;
+        for (int i = 0; i < count; i++) {
+            index += Varint.read(message) + 1;
+            int[][] tiers = new int[Varint.read(message)][];
+            for (int t = 0; t < tiers.length; t++) {
+                tiers[t] = new int[Varint.read(message)];
+                for (int p = 0; p < tiers[t].length; p++) tiers[t][p] = Varint.read(message);
+            }
+            state.displayIndices.add(index);
+            state.displays.add(tiers);
+        }
+        return state;
+    }
+
+    /**
+     * Reads one length-prefixed message.
+     *
+     * @return The message.
+     * @throws IOException if the stream fails or ends.
+     */
+    private DataInputStream readMessage() throws IOException {
+        byte[] message = new byte[Varint.read(in)];
+        in.readFully(message);
+        return new DataInputStream(new ByteArrayInputStream(message));
+    }
+
+    /**
+     * Writes one message with its length prefix and flushes it.
+     *
+     * @param message The message, starting with its tag.
+     * @throws IOException if the connection fails.
+     */
+    private void sendMessage(byte[] message) throws IOException {
+        Varint.write(out, message.length);
+        out.write(message);
+        out.flush();
+    }
+
+    /**
+     * Gets the index of the player's shopper in the server's simulation.
+     * @return The shopper index.
+     */
+    public int getShopperIndex() { return shopperIndex; }
+
+    /**
+     * Gets the length of a server tick.
+     * @return The tick length in milliseconds.
+     */
+    public long getTickMillis() { return tickMillis; }
+
+    /**
+     * Gets the size of the server's map.
+     * @return The width (and height) of each floor.
+     */
+    public int getMapSize() { return mapSize; }
+
+    /**
+     * Gets the number of inputs sent but not yet applied by the server.
+     * @return The pending input count.
+     */
+    public synchronized int getPendingCount() { return pending.size(); }
+
+    /**
+     * Disconnects from the server, which takes the player's shopper out of the shared store.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+}
\ No newline at end of file
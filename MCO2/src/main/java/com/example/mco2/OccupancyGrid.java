@@ -0,0 +1,199 @@
+/**
+ * OccupancyGrid.java
+ *
+ * This class tracks how many shoppers stand on each tile of each floor, and how many
+ * are allowed to, so that shoppers in a crowded simulation block each other.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Arrays;
+
+/**
+ * A per-floor grid of shopper counts and tile capacities.
+ * <p>
+ * Each floor is stored as a flat {@code int[]} indexed by {@code y * size + x}, so every
+ * query and update is a single array access. Attach a grid to a map with
+ * {@link SupermarketMap#setOccupancy(OccupancyGrid)}; {@link Shopper#move(Direction, SupermarketMap)}
+ * then refuses to step onto a tile that is already at capacity.
+ * <p>
+ * By default every tile holds the same number of shoppers, except the Entrance and Exit,
+ * which are unlimited (shoppers arrive and leave through them), and each Checkout Counter,
+ * which serves one shopper at a time.
+ */
+public class OccupancyGrid {
+    /** Capacity of a tile with no limit. */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final int size;
+    private final int[][] occupancy;
+    private final int[][] capacity;
+    private int total;
+
+    /**
+     * Constructs an empty grid for a map, with the default capacities described above.
+     *
+     * @param map The {@link SupermarketMap} whose floors the grid covers.
+     * @param tileCapacity How many shoppers may stand on an ordinary tile (at least 1).
+     */
+    public OccupancyGrid(SupermarketMap map, int tileCapacity) {
+        if (tileCapacity < 1) throw new IllegalArgumentException("Tile capacity must be at least 1.");
+        this.size = map.getMapSize();
+        int floors = map.getFloorCount();
+        this.occupancy = new int[floors][size * size];
+        this.capacity = new int[floors][size * size];
+        for (int f = 0; f < floors; f++) {
+            Arrays.fill(capacity[f], tileCapacity);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    Amenity a = map.getAmenityAt(x, y, f);
+                    if (a instanceof Entrance || a instanceof Exit) capacity[f][y * size + x] = UNLIMITED;
+                    else if (a instanceof CheckoutCounter) capacity[f][y * size + x] = 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every shopper from the grid. Tile capacities are kept.
+     */
+    public void clear() {
+        for (int[] floor : occupancy) Arrays.fill(floor, 0);
+        total = 0;
+    }
+
+    /**
+     * Checks if a coordinate lies on the grid.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return {@code true} if the tile exists.
+     */
+    private boolean inBounds(int x, int y, int floor) {
+        return floor >= 0 && floor < occupancy.length && x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    /**
+     * Gets the number of shoppers on a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The shopper count (0 outside the grid).
+     */
+    public int getOccupancy(int x, int y, int floor) {
+        return inBounds(x, y, floor) ? occupancy[floor][y * size + x] : 0;
+    }
+
+    /**
+     * Gets the number of shoppers allowed on a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The capacity ({@link #UNLIMITED} outside the grid).
+     */
+    public int getCapacity(int x, int y, int floor) {
+        return inBounds(x, y, floor) ? capacity[floor][y * size + x] : UNLIMITED;
+    }
+
+    /**
+     * Sets the number of shoppers allowed on a tile (e.g., 1 for a narrow aisle).
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @param tileCapacity The new capacity (at least 1, or {@link #UNLIMITED}).
+     */
+    public void setCapacity(int x, int y, int floor, int tileCapacity) {
+        if (tileCapacity < 1) throw new IllegalArgumentException("Tile capacity must be at least 1.");
+        if (inBounds(x, y, floor)) capacity[floor][y * size + x] = tileCapacity;
+    }
+
+    /**
+     * Checks if one more shopper fits on a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return {@code true} if the tile is below capacity.
+     */
+    public boolean hasRoom(int x, int y, int floor) {
+        if (!inBounds(x, y, floor)) return true;
+        int i = y * size + x;
+        return occupancy[floor][i] < capacity[floor][i];
+    }
+
+    /**
+     * Checks if a shopper stepping onto a tile would have room once they arrive.
+     * Stepping onto {@link Stairs} lands the shopper on the same tile of the other floor.
+     *
+     * @param target The tile being stepped onto.
+     * @param floor The floor the shopper is on now.
+     * @param targetAmenity The amenity on the target tile, or {@code null}.
+     * @return {@code true} if the shopper would fit.
+     */
+    public boolean hasRoomFor(Point target, int floor, Amenity targetAmenity) {
+        int landingFloor = (targetAmenity instanceof Stairs) ? (floor == 0 ? 1 : 0) : floor;
+        return hasRoom(target.getX(), target.getY(), landingFloor);
+    }
+
+    /**
+     * Adds a shopper to a tile.
+     *
+     * @param position The tile.
+     * @param floor The floor index.
+     */
+    public void enter(Point position, int floor) {
+        if (!inBounds(position.getX(), position.getY(), floor)) return;
+        occupancy[floor][position.getY() * size + position.getX()]++;
+        total++;
+    }
+
+    /**
+     * Removes a shopper from a tile.
+     *
+     * @param position The tile.
+     * @param floor The floor index.
+     */
+    public void leave(Point position, int floor) {
+        if (!inBounds(position.getX(), position.getY(), floor)) return;
+        occupancy[floor][position.getY() * size + position.getX()]--;
+        total--;
+    }
+
+    /**
+     * Moves a shopper from one tile to another.
+     *
+     * @param from The tile they left.
+     * @param fromFloor The floor they left.
+     * @param to The tile they arrived on.
+     * @param toFloor The floor they arrived on.
+     */
+    public void move(Point from, int fromFloor, Point to, int toFloor) {
+        leave(from, fromFloor);
+        enter(to, toFloor);
+    }
+
+    /**
+     * Gets the number of shoppers on the grid.
+     * @return The total occupancy of all floors.
+     */
+    public int getTotal() { return total; }
+
+    /**
+     * Gets the width and height of each floor.
+     * @return The size in tiles.
+     */
+    public int getSize() { return size; }
+
+    /**
+     * Gets the number of floors covered.
+     * @return The floor count.
+     */
+    public int getFloorCount() { return occupancy.length; }
+}
\ No newline at end of file
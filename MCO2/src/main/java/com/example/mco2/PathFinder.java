@@ -0,0 +1,370 @@
+/**
+ * PathFinder.java
+ *
+ * This class finds shortest walking routes between tiles of a SupermarketMap,
+ * across both floors, for computer-controlled staff and shoppers.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Breadth-first search over the walkable tiles of a map.
+ * <p>
+ * A tile is walkable if it is empty or holds a passable amenity other than the {@link Entrance}
+ * (which locks behind the first shopper, so routes never use it). Stepping onto {@link Stairs}
+ * lands on the same tile of the other floor, exactly as {@link Shopper#move(Direction, SupermarketMap)}
+ * does. Tiles are numbered {@code (floor * size + y) * size + x}. Distance tables from a start
+ * tile are cached, since staff and planners keep asking about the same few starting points
+ * (e.g., the back room or the Entrance). The cache may be shared by several threads. Other
+ * shoppers are ignored.
+ * <p>
+ * A path finder built for shoppers never routes across a {@link CheckoutCounter}, since stepping
+ * onto one checks the shopper out; a route may still start or end on a counter.
+ */
+public class PathFinder {
+    /** Distance of a tile that cannot be reached. */
+    public static final int UNREACHABLE = -1;
+
+    private final SupermarketMap map;
+    private final int size;
+    private final int floors;
+    private final boolean avoidCounters;
+    private final AtomicReferenceArray<int[]> distanceCache;
+
+    /**
+     * Constructs a path finder for staff on a map. The map layout must not change afterwards.
+     *
+     * @param map The {@link SupermarketMap} to search.
+     */
+    public PathFinder(SupermarketMap map) {
+        this(map, false);
+    }
+
+    /**
+     * Constructs a path finder for a map. The map layout must not change afterwards.
+     *
+     * @param map The {@link SupermarketMap} to search.
+     * @param avoidCounters {@code true} to never walk across a {@link CheckoutCounter} (for shoppers).
+     */
+    public PathFinder(SupermarketMap map, boolean avoidCounters) {
+        this.map = map;
+        this.size = map.getMapSize();
+        this.floors = map.getFloorCount();
+        this.avoidCounters = avoidCounters;
+        this.distanceCache = new AtomicReferenceArray<>(floors * size * size);
+    }
+
+    /**
+     * Gets the tile number of a position.
+     *
+     * @param position The tile.
+     * @param floor The floor index.
+     * @return The tile number.
+     */
+    public int tileOf(Point position, int floor) {
+        return (floor * size + position.getY()) * size + position.getX();
+    }
+
+    /**
+     * Checks if a shopper could stand on a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return {@code true} if the tile is on the map and walkable.
+     */
+    private boolean isWalkable(int x, int y, int floor) {
+        if (x < 0 || x >= size || y < 0 || y >= size) return false;
+        Amenity a = map.getAmenityAt(x, y, floor);
+        return a == null || (a.isPassable() && !(a instanceof Entrance));
+    }
+
+    /**
+     * Checks if a route may pass over a tile, rather than only start or end on it.
+     *
+     * @param tile The tile number.
+     * @return {@code false} for a counter when counters are avoided.
+     */
+    public boolean canPassOver(int tile) {
+        return !avoidCounters || !(map.getAmenityAt(tile % size, (tile / size) % size, floor(tile)) instanceof CheckoutCounter);
+    }
+
+    /**
+     * Gets the tile a shopper ends up on after one step.
+     *
+     * @param tile The tile number stepped from.
+     * @param direction The {@link Direction} of the step.
+     * @return The tile number landed on (on the other floor after {@link Stairs}), or -1 if the
+     *         step leads off the map or onto a tile that cannot be walked on.
+     */
+    public int stepFrom(int tile, Direction direction) {
+        int f = floor(tile);
+        Point next = pointOf(tile).getNextPosition(direction);
+        if (!isWalkable(next.getX(), next.getY(), f)) return -1;
+        int nf = (map.getAmenityAt(next.getX(), next.getY(), f) instanceof Stairs) ? (f == 0 ? 1 : 0) : f;
+        return tileOf(next, nf);
+    }
+
+    /**
+     * Runs a breadth-first search from one tile.
+     *
+     * @param start The start tile.
+     * @param floor The floor of the start tile.
+     * @param parents If not {@code null}, receives the tile each tile was reached from.
+     * @return The distance in steps to every tile, or {@link #UNREACHABLE}.
+     */
+    private int[] search(Point start, int floor, int[] parents) {
+        int[] distance = new int[floors * size * size];
+        Arrays.fill(distance, UNREACHABLE);
+        int[] queue = new int[distance.length];
+        int head = 0, tail = 0;
+        int first = tileOf(start, floor);
+        distance[first] = 0;
+        queue[tail++] = first;
+        Direction[] directions = Direction.values();
+
+        while (head < tail) {
+            int tile = queue[head++];
+            if (tile != first && !canPassOver(tile)) continue;
+            int f = tile / (size * size);
+            int x = tile % size, y = (tile / size) % size;
+            for (Direction d : directions) {
+                Point next = new Point(x, y).getNextPosition(d);
+                int nx = next.getX(), ny = next.getY();
+                if (!isWalkable(nx, ny, f)) continue;
+                int nf = (map.getAmenityAt(nx, ny, f) instanceof Stairs) ? (f == 0 ? 1 : 0) : f;
+                int n = (nf * size + ny) * size + nx;
+                if (distance[n] != UNREACHABLE) continue;
+                distance[n] = distance[tile] + 1;
+                if (parents != null) parents[n] = tile;
+                queue[tail++] = n;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the walking distance from a tile to every tile of the map. The result is cached
+     * and shared, so it must not be modified.
+     *
+     * @param start The start tile.
+     * @param floor The floor of the start tile.
+     * @return The distances, indexed by tile number ({@link #UNREACHABLE} where there is no path).
+     */
+    public int[] distancesFrom(Point start, int floor) {
+        return distancesFrom(tileOf(start, floor));
+    }
+
+    /**
+     * Gets the walking distance from a tile to every tile of the map. The result is cached
+     * and shared, so it must not be modified.
+     *
+     * @param start The tile number of the start tile.
+     * @return The distances, indexed by tile number ({@link #UNREACHABLE} where there is no path).
+     */
+    public int[] distancesFrom(int start) {
+        int[] distance = distanceCache.get(start);
+        if (distance == null) {
+            // Two threads may both search; either result is correct, so the first one stored wins
+            distance = search(new Point(start % size, (start / size) % size), floor(start), null);
+            if (!distanceCache.compareAndSet(start, null, distance)) distance = distanceCache.get(start);
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the walking distance between two tiles.
+     *
+     * @param from The start tile.
+     * @param fromFloor The floor of the start tile.
+     * @param to The destination tile.
+     * @param toFloor The floor of the destination tile.
+     * @return The number of steps, or {@link #UNREACHABLE}.
+     */
+    public int distance(Point from, int fromFloor, Point to, int toFloor) {
+        return distancesFrom(from, fromFloor)[tileOf(to, toFloor)];
+    }
+
+    /**
+     * Gets the walking distance from a tile to the nearest tile from which an amenity
+     * can be used (a walkable tile next to it, on the same floor).
+     *
+     * @param from The start tile.
+     * @param floor The floor of the start tile.
+     * @param amenity The {@link Amenity} to reach (e.g., a {@link Display}).
+     * @return The number of steps, or {@link #UNREACHABLE}.
+     */
+    public int distanceTo(Point from, int floor, Amenity amenity) {
+        int[] distance = distancesFrom(from, floor);
+        int best = UNREACHABLE;
+        for (int tile : accessTiles(amenity)) {
+            int d = distance[tile];
+            if (d != UNREACHABLE && (best == UNREACHABLE || d < best)) best = d;
+        }
+        return best;
+    }
+
+    /**
+     * Finds a shortest route from a tile to a tile next to an amenity, ending facing the amenity.
+     *
+     * @param from The start tile.
+     * @param floor The floor of the start tile.
+     * @param amenity The {@link Amenity} to reach.
+     * @return The moves to make, then a final {@link Direction} to face (so the list is never
+     *         empty when a route exists), or {@code null} if the amenity cannot be reached.
+     */
+    public List<Direction> routeTo(Point from, int floor, Amenity amenity) {
+        int[] parents = new int[floors * size * size];
+        int[] distance = search(from, floor, parents);
+        int best = UNREACHABLE;
+        for (int tile : accessTiles(amenity)) {
+            if (distance[tile] != UNREACHABLE && (best == UNREACHABLE || distance[tile] < distance[best])) best = tile;
+        }
+        if (best == UNREACHABLE) return null;
+
+        List<Direction> route = new ArrayList<>();
+        int start = tileOf(from, floor);
+        for (int tile = best; tile != start; tile = parents[tile]) route.add(stepBetween(parents[tile], tile));
+        Collections.reverse(route);
+        route.add(stepBetween(best, tileOf(amenity.getPosition(), floor(best))));
+        return route;
+    }
+
+    /**
+     * Finds a shortest route between two tiles.
+     *
+     * @param from The start tile.
+     * @param fromFloor The floor of the start tile.
+     * @param to The destination tile.
+     * @param toFloor The floor of the destination tile.
+     * @return The moves to make (empty if already there), or {@code null} if there is no route.
+     */
+    public List<Direction> route(Point from, int fromFloor, Point to, int toFloor) {
+        int[] parents = new int[floors * size * size];
+        int[] distance = search(from, fromFloor, parents);
+        int target = tileOf(to, toFloor);
+        if (distance[target] == UNREACHABLE) return null;
+        List<Direction> route = new ArrayList<>();
+        int start = tileOf(from, fromFloor);
+        for (int tile = target; tile != start; tile = parents[tile]) route.add(stepBetween(parents[tile], tile));
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * Finds a shortest route between two tiles by walking back through the cached distance
+     * table of the start tile, so no new search is needed once that table exists.
+     *
+     * @param from The tile number of the start tile.
+     * @param to The tile number of the destination tile.
+     * @return The moves to make (empty if already there), or {@code null} if there is no route.
+     */
+    public List<Direction> routeBetween(int from, int to) {
+        int[] distance = distancesFrom(from);
+        if (distance[to] == UNREACHABLE) return null;
+        Direction[] route = new Direction[distance[to]];
+        for (int tile = to; tile != from; ) {
+            int previous = previousTile(distance, tile);
+            route[distance[tile] - 1] = stepBetween(previous, tile);
+            tile = previous;
+        }
+        return Arrays.asList(route);
+    }
+
+    /**
+     * Finds a tile one step closer to the start from which a single step reaches a tile.
+     *
+     * @param distance The distance table of the start tile.
+     * @param tile A reachable tile other than the start.
+     * @return The tile number of the previous tile on a shortest route.
+     */
+    private int previousTile(int[] distance, int tile) {
+        int f = floor(tile);
+        int x = tile % size, y = (tile / size) % size;
+        int other = f == 0 ? 1 : 0;
+        for (int pf : new int[] { f, other }) {
+            // A tile is arrived at from its own floor, unless the other floor has Stairs on it
+            boolean arrives = (pf == f) ? !(map.getAmenityAt(x, y, f) instanceof Stairs)
+                    : map.getAmenityAt(x, y, pf) instanceof Stairs;
+            if (!arrives) continue;
+            for (Direction d : Direction.values()) {
+                Point p = new Point(x, y).getNextPosition(d);
+                int px = p.getX(), py = p.getY();
+                if (px < 0 || px >= size || py < 0 || py >= size) continue;
+                int previous = (pf * size + py) * size + px;
+                if (distance[previous] != distance[tile] - 1) continue;
+                if (distance[previous] > 0 && !canPassOver(previous)) continue;
+                return previous;
+            }
+        }
+        throw new IllegalStateException("Distance table does not lead back to its start.");
+    }
+
+    /**
+     * Gets the walkable tiles from which an amenity can be used.
+     *
+     * @param amenity The {@link Amenity}.
+     * @return The tile numbers of its walkable neighbours on its own floor.
+     */
+    public int[] accessTiles(Amenity amenity) {
+        int floor = map.getFloorOf(amenity);
+        if (floor < 0) return new int[0];
+        int[] tiles = new int[4];
+        int count = 0;
+        for (Direction d : Direction.values()) {
+            Point n = amenity.getPosition().getNextPosition(d);
+            // Stairs move the shopper away, so they cannot be stood on to use an amenity
+            if (isWalkable(n.getX(), n.getY(), floor) && !(map.getAmenityAt(n.getX(), n.getY(), floor) instanceof Stairs)) {
+                tiles[count++] = tileOf(n, floor);
+            }
+        }
+        return Arrays.copyOf(tiles, count);
+    }
+
+    /**
+     * Gets the position of a tile number.
+     *
+     * @param tile The tile number.
+     * @return The {@link Point} of the tile on its floor.
+     */
+    public Point pointOf(int tile) { return new Point(tile % size, (tile / size) % size); }
+
+    /**
+     * Gets the floor of a tile number.
+     *
+     * @param tile The tile number.
+     * @return The floor index.
+     */
+    public int floor(int tile) { return tile / (size * size); }
+
+    /**
+     * Gets the direction of a single step between two neighbouring tiles (ignoring floors,
+     * since taking the stairs keeps the same column and row).
+     *
+     * @param from The tile stepped from.
+     * @param to The tile stepped to.
+     * @return The {@link Direction} of the step.
+     */
+    public Direction stepBetween(int from, int to) {
+        int dx = to % size - from % size;
+        int dy = (to / size) % size - (from / size) % size;
+        if (dy < 0) return Direction.NORTH;
+        if (dy > 0) return Direction.SOUTH;
+        return dx < 0 ? Direction.WEST : Direction.EAST;
+    }
+
+    /**
+     * Gets the width and height of each floor.
+     * @return The size in tiles.
+     */
+    public int getSize() { return size; }
+}
\ No newline at end of file
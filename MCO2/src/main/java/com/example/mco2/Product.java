@@ -11,16 +11,24 @@
  */
 package com.example.mco2;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Represents a product item available for sale in the supermarket.
  * The product is defined by its serial number, name, price, and consumption attributes.
  */
 public class Product {
+    /** SKU ids handed out so far, by serial number. Shared by every map so ids stay stable. */
+    private static final Map<String, Integer> SKU_IDS = new HashMap<>();
+
     private final String serialNumber;
+    private final int skuId;
     private final String name;
     private final double price;
     private final boolean isConsumable;
     private final boolean isBeverage;
+    private final boolean isAlcohol;
 
     /**
      * Constructs a new Product instance.
@@ -33,10 +41,27 @@ public class Product {
      */
     public Product(String serialNumber, String name, double price, boolean isConsumable, boolean isBeverage) {
         this.serialNumber = serialNumber;
+        this.skuId = skuIdOf(serialNumber);
         this.name = name;
         this.price = price;
         this.isConsumable = isConsumable;
         this.isBeverage = isBeverage;
+        this.isAlcohol = getSerialPrefix().equals("ALC");
+    }
+
+    /**
+     * Looks up the SKU id of a serial number, handing out the next free id the first time it is seen.
+     *
+     * @param serialNumber The serial number.
+     * @return The SKU id.
+     */
+    private static synchronized int skuIdOf(String serialNumber) {
+        Integer id = SKU_IDS.get(serialNumber);
+        if (id == null) {
+            id = SKU_IDS.size();
+            SKU_IDS.put(serialNumber, id);
+        }
+        return id;
     }
 
     /**
@@ -66,6 +91,14 @@ public class Product {
      */
     public String getSerialNumber() { return serialNumber; }
 
+    /**
+     * Gets the SKU id of the product: a small number, unique per serial number, that can index arrays.
+     * Products with the same serial number share an id, even when they belong to different maps.
+     *
+     * @return The SKU id (0 or more).
+     */
+    public int getSkuId() { return skuId; }
+
     /**
      * Gets the common name of the product.
      *
@@ -94,6 +127,13 @@ public class Product {
      */
     public boolean isBeverage() { return isBeverage; }
 
+    /**
+     * Checks if the product is alcohol ("ALC" prefix), which minors may not take and seniors get no discount on.
+     *
+     * @return {@code true} if it is alcohol; {@code false} otherwise.
+     */
+    public boolean isAlcohol() { return isAlcohol; }
+
     /**
      * Provides a display-friendly string representation of the product, showing the name and price.
      *
@@ -35,6 +35,6 @@ public class ProductSearch extends Service {
      */
     @Override
     public void interact(Shopper shopper) {
-        System.out.println("Accessing Product Search Terminal...");
+        EventLog.log(LogLevel.DEBUG, "search.open", shopper.getName(), null);
     }
 }
\ No newline at end of file
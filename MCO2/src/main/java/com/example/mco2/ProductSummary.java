@@ -56,6 +56,13 @@ public class ProductSummary {
      */
     public void addQuantity() { this.quantity++; }
 
+    /**
+     * Increases the quantity count for this summary item.
+     *
+     * @param count The number of units to add.
+     */
+    public void addQuantity(int count) { this.quantity += count; }
+
     /**
      * Calculates the total price for this item summary (unit price multiplied by quantity).
      *
@@ -84,6 +91,15 @@ public class ProductSummary {
         return name;
     }
 
+    /**
+     * Gets the serial number the summary is grouped by.
+     *
+     * @return The serial number, or "N/A" for summaries grouped by name.
+     */
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
     /**
      * Gets the current accumulated quantity of this product type.
      *
@@ -0,0 +1,82 @@
+/**
+ * Receipt.java
+ *
+ * This class holds the result of pricing a shopper's items at the checkout counter:
+ * the grouped line items, the total price, the senior discount and the amount paid.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.List;
+
+/**
+ * The priced result of a checkout, produced by {@link CheckoutCounter#priceItems(java.util.List, boolean)}.
+ * Line items are grouped by full serial number.
+ */
+public class Receipt {
+    private final List<ProductSummary> lineItems;
+    private final double totalPrice;
+    private final double totalDiscount;
+    private final double finalTotal;
+    private final boolean isSenior;
+    private final int itemCount;
+
+    /**
+     * Constructs a new Receipt.
+     *
+     * @param lineItems The items grouped by serial number, one summary per serial number.
+     * @param totalPrice The sum of all item prices before discounts.
+     * @param totalDiscount The total senior discount applied.
+     * @param finalTotal The amount to be paid after discounts.
+     * @param isSenior {@code true} if the senior discount rules were applied.
+     * @param itemCount The number of individual items priced.
+     */
+    public Receipt(List<ProductSummary> lineItems, double totalPrice, double totalDiscount,
+                   double finalTotal, boolean isSenior, int itemCount) {
+        this.lineItems = lineItems;
+        this.totalPrice = totalPrice;
+        this.totalDiscount = totalDiscount;
+        this.finalTotal = finalTotal;
+        this.isSenior = isSenior;
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Gets the line items, grouped by full serial number.
+     * @return One {@link ProductSummary} per serial number.
+     */
+    public List<ProductSummary> getLineItems() { return lineItems; }
+
+    /**
+     * Gets the total price before discounts.
+     * @return The total price in PHP.
+     */
+    public double getTotalPrice() { return totalPrice; }
+
+    /**
+     * Gets the total senior discount applied.
+     * @return The discount in PHP.
+     */
+    public double getTotalDiscount() { return totalDiscount; }
+
+    /**
+     * Gets the amount paid after discounts.
+     * @return The final total in PHP.
+     */
+    public double getFinalTotal() { return finalTotal; }
+
+    /**
+     * Checks if the senior discount rules were applied.
+     * @return {@code true} for senior shoppers; {@code false} otherwise.
+     */
+    public boolean isSenior() { return isSenior; }
+
+    /**
+     * Gets the number of individual items on the receipt.
+     * @return The item count.
+     */
+    public int getItemCount() { return itemCount; }
+}
\ No newline at end of file
@@ -10,7 +10,6 @@
  */
 package com.example.mco2;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -36,10 +35,7 @@ public class Refrigerator extends Display {
      */
     public Refrigerator(Point position, String address) {
         super(position, address);
-        this.tiers = new ArrayList<>(NUM_TIERS);
-        for (int i = 0; i < NUM_TIERS; i++) {
-            this.tiers.add(new ArrayList<>(TIER_CAPACITY));
-        }
+        this.tiers = createTiers(NUM_TIERS, TIER_CAPACITY);
     }
 
     /**
@@ -49,34 +45,20 @@ public class Refrigerator extends Display {
      */
     @Override
     public void interact(Shopper shopper) {
-        System.out.println("Interacting with Refrigerator at " + getAddress());
+        EventLog.log(LogLevel.DEBUG, "display.interact", shopper.getName(), getAddress());
     }
 
     /**
-     * Attempts to return a product to the first available non-full tier.
+     * Checks if a product belongs in the refrigerator.
      * Only products with serial prefixes "FRZ" (Frozen), "CHS" (Cheese), or "MLK" (Milk) are allowed.
      *
-     * @param product The {@link Product} to return.
-     * @return {@code true} if the product was successfully added; {@code false} otherwise (wrong type or full).
+     * @param product The {@link Product} being returned.
+     * @return {@code true} if the product type is allowed in the refrigerator.
      */
     @Override
-    public boolean returnProduct(Product product) {
+    protected boolean accepts(Product product) {
         String prefix = product.getSerialPrefix();
-
-        if (!(prefix.equals("FRZ") || prefix.equals("CHS") || prefix.equals("MLK"))) {
-            System.out.println("[Denied: Only Frozen Food, Cheese, or Milk allowed here.]");
-            return false;
-        }
-
-        // Find first non-full tier
-        for (List<Product> tier : tiers) {
-            if (tier.size() < TIER_CAPACITY) {
-                tier.add(product);
-                return true;
-            }
-        }
-        System.out.println("[Denied: This Refrigerator is full.]");
-        return false;
+        return prefix.equals("FRZ") || prefix.equals("CHS") || prefix.equals("MLK");
     }
 
     /**
@@ -88,36 +70,6 @@ public class Refrigerator extends Display {
     @Override
     public Product removeProduct(Shopper shopper) { return null; }
 
-    /**
-     * Checks if the refrigerator is completely full (i.e., all tiers are at capacity).
-     *
-     * @return {@code true} if every tier is full; {@code false} otherwise.
-     */
-    @Override
-    public boolean isFull() {
-        for (List<Product> tier : tiers) {
-            if (tier.size() < TIER_CAPACITY) return false;
-        }
-        return true;
-    }
-
-    /**
-     * Checks if any product in any tier matches the provided search name (case-insensitive, partial match).
-     *
-     * @param name The name or partial name of the product to search for.
-     * @return {@code true} if the product is found in any tier; {@code false} otherwise.
-     */
-    @Override
-    public boolean containsProductByName(String name) {
-        String lowerName = name.toLowerCase();
-        for (List<Product> tier : tiers) {
-            for (Product p : tier) {
-                if (p.getName().toLowerCase().contains(lowerName)) return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Gets the raw list structure representing all tiers and their contents.
      *
@@ -0,0 +1,216 @@
+/**
+ * Replay.java
+ *
+ * This class re-executes a recorded InputLog headlessly. It can fast-forward through
+ * a whole session at full speed or jump to any recorded tick.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Replays the events of an {@link InputLog} against a fresh headless {@link Simulation}.
+ * <p>
+ * Recorded actions are applied directly, so the decide phase (and its random streams)
+ * is never run during a replay. While loading, the start offset of every tick is indexed.
+ * Every {@value #SNAPSHOT_INTERVAL} ticks a {@link StoreSnapshot} is kept in memory, so
+ * {@link #seek(long)} restores the nearest earlier snapshot and only replays the ticks after it.
+ */
+public class Replay {
+    /** Number of ticks between in-memory snapshots. */
+    public static final int SNAPSHOT_INTERVAL = 256;
+
+    private final InputLog log;
+    private final int[] tickOffsets;
+    private final ByteBuffer[] snapshots;
+
+    private Simulation simulation;
+    private ByteBuffer events;
+    private long currentTick;
+
+    /**
+     * Constructs a replay of the given log, positioned at tick 0.
+     *
+     * @param log The recorded {@link InputLog}.
+     */
+    public Replay(InputLog log) {
+        this.log = log;
+        this.tickOffsets = indexTicks(log);
+        this.snapshots = new ByteBuffer[(int) (log.getTickCount() / SNAPSHOT_INTERVAL) + 1];
+        restart();
+    }
+
+    /**
+     * Builds an index of the buffer position where each tick starts.
+     *
+     * @param log The log to index.
+     * @return An array where element {@code t} is the offset of the first event of tick {@code t}.
+     */
+    private static int[] indexTicks(InputLog log) {
+        int[] offsets = new int[(int) log.getTickCount() + 1];
+        ByteBuffer buffer = log.events();
+        int tick = 0;
+        offsets[0] = buffer.position();
+        while (buffer.hasRemaining()) {
+            byte tag = buffer.get();
+            if (tag == InputLog.TAG_TICK_END) offsets[++tick] = buffer.position();
+            else InputLog.skipEvent(tag, buffer);
+        }
+        return offsets;
+    }
+
+    /**
+     * Discards the current state and starts again from an empty store at tick 0.
+     */
+    private void restart() {
+        if (simulation != null) simulation.shutdown();
+        this.simulation = new Simulation(log.getSeed());
+        this.events = log.events();
+        this.currentTick = 0;
+        snapshots[0] = StoreSnapshot.encode(simulation);
+    }
+
+    /**
+     * Replaces the current state with a saved snapshot and moves the log position to match it.
+     *
+     * @param slot The snapshot slot (the snapshot was taken at tick {@code slot * SNAPSHOT_INTERVAL}).
+     */
+    private void restoreSnapshot(int slot) {
+        try {
+            Simulation restored = StoreSnapshot.decode(snapshots[slot].duplicate(), 1);
+            simulation.shutdown();
+            simulation = restored;
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory snapshot could not be decoded.", e);
+        }
+        currentTick = (long) slot * SNAPSHOT_INTERVAL;
+        events.position(tickOffsets[(int) currentTick]);
+    }
+
+    /**
+     * Replays events until the end of the next tick.
+     *
+     * @return {@code true} if a tick was replayed; {@code false} if the log has ended.
+     */
+    public boolean stepTick() {
+        if (currentTick >= log.getTickCount()) return false;
+        ShopperAction[] actions = ShopperAction.values();
+
+        while (events.hasRemaining()) {
+            byte tag = events.get();
+            if (tag == InputLog.TAG_TICK_END) {
+                simulation.endTick();
+                currentTick++;
+                if (currentTick % SNAPSHOT_INTERVAL == 0) {
+                    int slot = (int) (currentTick / SNAPSHOT_INTERVAL);
+                    if (snapshots[slot] == null) snapshots[slot] = StoreSnapshot.encode(simulation);
+                }
+                return true;
+            } else if (tag == InputLog.TAG_OCCUPANCY) {
+                OccupancyGrid occupancy = new OccupancyGrid(simulation.getMap(), 1);
+                InputLog.readOccupancy(events, occupancy);
+                simulation.setOccupancy(occupancy);
+            } else if (tag == InputLog.TAG_RESTOCK) {
+                int displayIndex = Varint.read(events);
+                int productIndex = Varint.read(events);
+                simulation.restock(displayIndex, productIndex, Varint.read(events));
+            } else if (tag == InputLog.TAG_LEAVE) {
+                simulation.removeShopper(Varint.read(events));
+            } else if (tag == InputLog.TAG_ADD_SHOPPER) {
+                int age = Varint.read(events);
+                byte[] name = new byte[Varint.read(events)];
+                events.get(name);
+                simulation.addShopper(new String(name, StandardCharsets.UTF_8), age);
+            } else {
+                int shopperIndex = Varint.read(events);
+                int arg = Varint.read(events);
+                simulation.apply(shopperIndex, actions[tag - InputLog.TAG_ACTION_BASE], arg);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replays the whole remaining session as fast as possible.
+     */
+    public void runToEnd() {
+        while (stepTick()) { }
+    }
+
+    /**
+     * Moves the replay to the start of the given tick.
+     * If a snapshot exists between the current tick (or before it, when jumping backwards)
+     * and the target, the replay resumes from the latest such snapshot.
+     *
+     * @param tick The tick to jump to (clamped to the recorded range).
+     */
+    public void seek(long tick) {
+        long target = Math.max(0, Math.min(tick, log.getTickCount()));
+        int slot = (int) (target / SNAPSHOT_INTERVAL);
+        while (slot > 0 && snapshots[slot] == null) slot--;
+
+        long snapshotTick = (long) slot * SNAPSHOT_INTERVAL;
+        if (target < currentTick || snapshotTick > currentTick) restoreSnapshot(slot);
+        while (currentTick < target) stepTick();
+    }
+
+    /**
+     * Gets the byte offset in the log where the given tick starts.
+     *
+     * @param tick A tick between 0 and {@link #getTickCount()}.
+     * @return The offset of the tick's first event.
+     */
+    public int getTickOffset(long tick) { return tickOffsets[(int) tick]; }
+
+    /**
+     * Gets the simulation holding the replayed state.
+     * @return The {@link Simulation} being replayed into.
+     */
+    public Simulation getSimulation() { return simulation; }
+
+    /**
+     * Gets the tick the replay is currently at.
+     * @return The current tick.
+     */
+    public long getCurrentTick() { return currentTick; }
+
+    /**
+     * Gets the number of ticks in the recorded session.
+     * @return The total tick count.
+     */
+    public long getTickCount() { return log.getTickCount(); }
+
+    /**
+     * Replays a recorded session file headlessly and prints a short summary.
+     * Usage: {@code Replay <log file> [tick]}.
+     *
+     * @param args The path of the log file, and optionally the tick to stop at.
+     * @throws IOException if the log file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: Replay <log file> [tick]");
+            return;
+        }
+        EventLog.setDefaultLevel(LogLevel.OFF);
+        InputLog log = InputLog.readFrom(Path.of(args[0]));
+        long start = System.nanoTime();
+        Replay replay = new Replay(log);
+        if (args.length > 1) replay.seek(Long.parseLong(args[1]));
+        else replay.runToEnd();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Replayed %d of %d ticks (%d shoppers) in %.2f ms%n",
+                replay.getCurrentTick(), replay.getTickCount(),
+                replay.getSimulation().getShoppers().size(), elapsed / 1_000_000.0);
+        System.out.printf("State fingerprint: %016x%n", replay.getSimulation().fingerprint());
+        replay.getSimulation().shutdown();
+    }
+}
\ No newline at end of file
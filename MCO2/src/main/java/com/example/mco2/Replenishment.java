@@ -0,0 +1,300 @@
+/**
+ * Replenishment.java
+ *
+ * This class keeps the sales floor stocked during a simulation: it spots depleted
+ * displays, queues restocking jobs and sends workers from the back room to do them.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The restocking subsystem of a {@link Simulation}, run once per tick after the shoppers act.
+ * <p>
+ * Every display has a planogram product: the product it was stocked with when the simulation
+ * started. A display is due for restocking once it holds no more than the low-stock fraction of
+ * its capacity. Rather than checking every display each tick, the subsystem listens for
+ * {@link StockListener} events: a display turning {@link StockLevel#LOW} or {@link StockLevel#EMPTY}
+ * is queued, and one turning {@link StockLevel#STOCKED} again (e.g., after returns) is dropped.
+ * Due displays wait in a priority queue ordered by how empty they were when queued, then by how
+ * far they are from the back room, and idle workers take the most urgent job, load what the display
+ * is missing from the {@link BackRoom}, and walk there. Displays whose product is out of stock in
+ * the back room wait aside until a delivery arrives.
+ * <p>
+ * Every refill goes through {@link Simulation#restock(int, int, int)}, so it is recorded in an
+ * attached {@link InputLog} and replays exactly. Workers and the back room themselves are not
+ * saved in snapshots.
+ */
+public class Replenishment implements StockListener {
+    /** Units put on displays by restocking staff. */
+    public static final Counter UNITS = Metrics.counter("restock.units");
+
+    /** Restocking trips completed. */
+    public static final Counter TRIPS = Metrics.counter("restock.trips");
+
+    /** Ticks during which a display stood empty, summed over all displays. */
+    public static final Counter EMPTY_DISPLAY_TICKS = Metrics.counter("restock.empty_display_ticks");
+
+    /** Fraction of capacity at or below which a display is due for restocking, by default. */
+    public static final double DEFAULT_LOW_STOCK_FRACTION = 0.5;
+
+    private final Simulation simulation;
+    private final SupermarketMap map;
+    private final PathFinder pathFinder;
+    private final BackRoom backRoom;
+    private final Point backRoomPosition;
+    private final int backRoomFloor;
+    private final List<Display> displays;
+    private final Map<Display, Integer> indexOf;
+    private final int[] planogram;
+    private final int[] distance;
+    private final boolean[] assigned;
+    private final int[] version;
+    private final PriorityQueue<int[]> jobs;
+    private final List<Integer> waiting;
+    private final List<Restocker> workers;
+    private int emptyDisplays;
+
+    /**
+     * Constructs the subsystem for a simulation whose displays are fully stocked.
+     *
+     * @param simulation The {@link Simulation} to keep stocked.
+     * @param backRoom The {@link BackRoom} stock comes from.
+     * @param backRoomPosition The walkable tile where workers load stock.
+     * @param backRoomFloor The floor of that tile.
+     * @param workerCount The number of restocking workers.
+     */
+    public Replenishment(Simulation simulation, BackRoom backRoom, Point backRoomPosition, int backRoomFloor, int workerCount) {
+        this.simulation = simulation;
+        this.map = simulation.getMap();
+        this.pathFinder = new PathFinder(map);
+        this.backRoom = backRoom;
+        this.backRoomPosition = backRoomPosition;
+        this.backRoomFloor = backRoomFloor;
+        this.displays = map.getAllDisplays();
+
+        int n = displays.size();
+        List<Product> catalog = map.getAllProducts();
+        this.planogram = new int[n];
+        this.distance = new int[n];
+        this.assigned = new boolean[n];
+        this.version = new int[n];
+        this.indexOf = new IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            Display d = displays.get(i);
+            planogram[i] = d.getProductCount() > 0 ? catalog.indexOf(d.getProductAt(0)) : -1;
+            distance[i] = pathFinder.distanceTo(backRoomPosition, backRoomFloor, d);
+            indexOf.put(d, i);
+            if (d.getProductCount() == 0) emptyDisplays++;
+        }
+        // Most empty first (stored as products on hand, scaled by capacity), then nearest first
+        this.jobs = new PriorityQueue<>(Comparator.<int[]>comparingInt(job -> job[1]).thenComparingInt(job -> job[2]));
+        this.waiting = new ArrayList<>();
+        setLowStockFraction(DEFAULT_LOW_STOCK_FRACTION);
+        map.addStockListener(this);
+
+        List<Restocker> staff = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) staff.add(new Restocker("Restocker " + (i + 1), backRoomPosition, backRoomFloor));
+        this.workers = Collections.unmodifiableList(staff);
+    }
+
+    /**
+     * Registers the {@code restock.*} gauges in {@link Metrics}. The registry keeps the replenishment
+     * (and its map) reachable for the rest of the process, so this is only for processes that run a
+     * single simulation, such as {@link LoadGenerator#main(String[])}.
+     */
+    public void registerGauges() {
+        Metrics.registerGauge("restock.empty_displays", this::getEmptyDisplays);
+        Metrics.registerGauge("restock.backroom_stockouts", backRoom::getStockOuts);
+        Metrics.registerGauge("restock.orders_placed", backRoom::getOrdersPlaced);
+    }
+
+    /**
+     * Runs one tick: receives deliveries, assigns jobs to idle workers and moves every
+     * busy worker one tile.
+     *
+     * @param tick The current tick.
+     */
+    public void tick(long tick) {
+        if (backRoom.receiveDeliveries(tick) > 0 && !waiting.isEmpty()) {
+            List<Integer> retry = new ArrayList<>(waiting);
+            waiting.clear();
+            for (int index : retry) enqueue(index);
+        }
+        EMPTY_DISPLAY_TICKS.add(emptyDisplays);
+
+        for (Restocker worker : workers) {
+            switch (worker.getState()) {
+                case IDLE:
+                    assignJob(worker, tick);
+                    break;
+                case TO_DISPLAY:
+                    if (worker.walk(map)) refill(worker);
+                    break;
+                case RETURNING:
+                    if (worker.walk(map)) {
+                        if (worker.getCarried() > 0) backRoom.putBack(worker.getCarrying(), worker.getCarried());
+                        worker.finish();
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Queues or drops a display as its stock level changes, and keeps the empty display count.
+     *
+     * @param display The {@link Display} whose stock changed.
+     * @param from The previous {@link StockLevel}.
+     * @param to The new {@link StockLevel}.
+     */
+    @Override
+    public void onStockLevelChange(Display display, StockLevel from, StockLevel to) {
+        Integer index = indexOf.get(display);
+        if (index == null) return;
+        if (from == StockLevel.EMPTY) emptyDisplays--;
+        if (to == StockLevel.EMPTY) emptyDisplays++;
+        if (to == StockLevel.STOCKED) version[index]++;
+        else enqueue(index);
+    }
+
+    /**
+     * Queues a restocking job for a display, replacing any job already queued for it.
+     * Displays that are being restocked, have no planogram product or cannot be reached are ignored.
+     *
+     * @param index The index of the display.
+     */
+    private void enqueue(int index) {
+        if (assigned[index] || planogram[index] < 0 || distance[index] == PathFinder.UNREACHABLE) return;
+        Display d = displays.get(index);
+        jobs.add(new int[] {index, d.getProductCount() * 1000 / d.getCapacity(), distance[index], ++version[index]});
+    }
+
+    /**
+     * Queues every display that is due right now. Used when the subsystem starts and when the
+     * low-stock fraction changes, since neither produces stock events by itself.
+     */
+    private void enqueueDue() {
+        for (int i = 0; i < displays.size(); i++) {
+            if (displays.get(i).getStockLevel() != StockLevel.STOCKED) enqueue(i);
+        }
+    }
+
+    /**
+     * Gives an idle worker the most urgent job and loads the stock for it. A job whose display
+     * cannot be reached from the back room stays queued for a later tick.
+     *
+     * @param worker The idle {@link Restocker}.
+     * @param tick The current tick.
+     */
+    private void assignJob(Restocker worker, long tick) {
+        int index;
+        Product product;
+        List<Direction> route;
+        List<int[]> unroutable = null;
+        while (true) {
+            int[] job = jobs.poll();
+            if (job == null) break;
+            index = job[0];
+            if (job[3] != version[index] || assigned[index]) continue;
+            product = map.getAllProducts().get(planogram[index]);
+            if (backRoom.getStock(product) <= 0) {
+                waiting.add(index);
+                continue;
+            }
+            route = pathFinder.routeTo(backRoomPosition, backRoomFloor, displays.get(index));
+            if (route != null && !route.isEmpty()) {
+                if (unroutable != null) jobs.addAll(unroutable);
+                assign(worker, index, product, route, tick);
+                return;
+            }
+            // No route right now: keep the job for a later tick rather than loading stock for it
+            if (unroutable == null) unroutable = new ArrayList<>();
+            unroutable.add(job);
+        }
+        if (unroutable != null) jobs.addAll(unroutable);
+    }
+
+    /**
+     * Loads the stock for a job and sends a worker on its way.
+     *
+     * @param worker The idle {@link Restocker}.
+     * @param index The index of the display to refill.
+     * @param product The {@link Product} the display stocks.
+     * @param route The route from the back room, ending with the direction that faces the display.
+     * @param tick The current tick.
+     */
+    private void assign(Restocker worker, int index, Product product, List<Direction> route, long tick) {
+        Display display = displays.get(index);
+        int loaded = backRoom.take(product, display.getCapacity() - display.getProductCount(), tick);
+        worker.load(index, product, loaded);
+        assigned[index] = true;
+        // The last direction of the route only turns the worker towards the display
+        worker.startRoute(route.subList(0, route.size() - 1), Restocker.State.TO_DISPLAY);
+        worker.face(route.get(route.size() - 1));
+        if (route.size() == 1) refill(worker);
+    }
+
+    /**
+     * Refills the display of a worker who has reached it and sends them back to the back room.
+     *
+     * @param worker The {@link Restocker} at the display.
+     */
+    private void refill(Restocker worker) {
+        int index = worker.getJob();
+        int placed = simulation.restock(index, planogram[index], worker.getCarried());
+        UNITS.add(placed);
+        TRIPS.increment();
+        worker.setCarried(worker.getCarried() - placed);
+        assigned[index] = false;
+        // Still short (shoppers kept taking, or the back room could not fill it): queue it again
+        if (displays.get(index).getStockLevel() != StockLevel.STOCKED) enqueue(index);
+        List<Direction> back = pathFinder.route(worker.getPosition(), worker.getFloor(), backRoomPosition, backRoomFloor);
+        worker.startRoute(back != null ? back : List.of(), Restocker.State.RETURNING);
+    }
+
+    /**
+     * Sets the fraction of capacity at or below which a display is due for restocking,
+     * by setting the low-stock level of every display, and queues the displays now due.
+     *
+     * @param fraction The low-stock fraction (0 restocks only empty displays).
+     */
+    public void setLowStockFraction(double fraction) {
+        for (Display d : displays) d.setLowStockLevel((int) (d.getCapacity() * fraction));
+        enqueueDue();
+    }
+
+    /**
+     * Gets the back room stock comes from.
+     * @return The {@link BackRoom}.
+     */
+    public BackRoom getBackRoom() { return backRoom; }
+
+    /**
+     * Gets the restocking workers.
+     * @return An unmodifiable list of {@link Restocker}s.
+     */
+    public List<Restocker> getWorkers() { return workers; }
+
+    /**
+     * Gets the number of displays that are empty right now.
+     * @return The empty display count.
+     */
+    public int getEmptyDisplays() { return emptyDisplays; }
+
+    /**
+     * Gets the number of queued jobs, including replaced ones not yet discarded.
+     * @return The job queue length.
+     */
+    public int getQueuedJobs() { return jobs.size(); }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+/**
+ * Restocker.java
+ *
+ * This class represents a member of staff who carries stock from the back room
+ * to depleted displays on the sales floor.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * A restocking worker, driven one tick at a time by {@link Replenishment}.
+ * <p>
+ * A worker waits at the back room until a job is assigned, loads the product the display is
+ * meant to hold, walks to the display one tile per tick, refills it, and walks back. Workers
+ * walk through other shoppers (they are not counted in an {@link OccupancyGrid}) and never
+ * interact with the amenities they pass.
+ */
+public class Restocker {
+    /** What the worker is doing. */
+    public enum State { IDLE, TO_DISPLAY, RETURNING }
+
+    private final String name;
+    private final ArrayDeque<Direction> route;
+    private Point position;
+    private int floor;
+    private Direction facing;
+    private State state;
+    private int job;
+    private Product carrying;
+    private int carried;
+
+    /**
+     * Constructs a worker waiting at the back room.
+     *
+     * @param name The worker's name.
+     * @param position The back-room tile.
+     * @param floor The floor of the back room.
+     */
+    public Restocker(String name, Point position, int floor) {
+        this.name = name;
+        this.route = new ArrayDeque<>();
+        this.position = position;
+        this.floor = floor;
+        this.facing = Direction.NORTH;
+        this.state = State.IDLE;
+        this.job = -1;
+    }
+
+    /**
+     * Starts walking a route.
+     *
+     * @param moves The moves to make, one per tick.
+     * @param next The state to be in while walking.
+     */
+    void startRoute(List<Direction> moves, State next) {
+        route.clear();
+        route.addAll(moves);
+        state = next;
+    }
+
+    /**
+     * Takes the next step of the current route, changing floors on {@link Stairs}.
+     *
+     * @param map The {@link SupermarketMap} being walked.
+     * @return {@code true} if the route is finished after this tick.
+     */
+    boolean walk(SupermarketMap map) {
+        Direction step = route.pollFirst();
+        if (step != null) {
+            position = position.getNextPosition(step);
+            facing = step;
+            if (map.getAmenityAt(position.getX(), position.getY(), floor) instanceof Stairs) floor = (floor == 0) ? 1 : 0;
+        }
+        return route.isEmpty();
+    }
+
+    /**
+     * Assigns a job and the stock loaded for it.
+     *
+     * @param displayIndex The index of the display to refill.
+     * @param product The {@link Product} loaded.
+     * @param count The units loaded.
+     */
+    void load(int displayIndex, Product product, int count) {
+        this.job = displayIndex;
+        this.carrying = product;
+        this.carried = count;
+    }
+
+    /**
+     * Sets how many units the worker still carries after refilling.
+     *
+     * @param count The units left.
+     */
+    void setCarried(int count) { this.carried = count; }
+
+    /**
+     * Finishes the current job and waits for the next one.
+     */
+    void finish() {
+        state = State.IDLE;
+        job = -1;
+        carrying = null;
+        carried = 0;
+    }
+
+    /**
+     * Turns the worker.
+     *
+     * @param direction The {@link Direction} to face.
+     */
+    void face(Direction direction) { this.facing = direction; }
+
+    /**
+     * Gets the worker's name.
+     * @return The name.
+     */
+    public String getName() { return name; }
+
+    /**
+     * Gets the worker's position.
+     * @return The current {@link Point}.
+     */
+    public Point getPosition() { return position; }
+
+    /**
+     * Gets the worker's floor.
+     * @return The floor index.
+     */
+    public int getFloor() { return floor; }
+
+    /**
+     * Gets the direction the worker faces.
+     * @return The {@link Direction}.
+     */
+    public Direction getFacing() { return facing; }
+
+    /**
+     * Gets what the worker is doing.
+     * @return The {@link State}.
+     */
+    public State getState() { return state; }
+
+    /**
+     * Gets the display the worker is refilling.
+     * @return The display index, or -1 if the worker has no job.
+     */
+    public int getJob() { return job; }
+
+    /**
+     * Gets the product the worker carries.
+     * @return The {@link Product}, or {@code null} if empty-handed.
+     */
+    public Product getCarrying() { return carrying; }
+
+    /**
+     * Gets how many units the worker carries.
+     * @return The unit count.
+     */
+    public int getCarried() { return carried; }
+}
\ No newline at end of file
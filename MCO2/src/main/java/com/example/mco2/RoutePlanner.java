@@ -0,0 +1,581 @@
+/**
+ * RoutePlanner.java
+ *
+ * This class plans the order in which a shopper visits the displays holding the items on
+ * their shopping list, and the walk from the first display to the checkout and the Exit.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plans {@link ShoppingRoute}s over the distance tables of a shopper {@link PathFinder}.
+ * <p>
+ * Everything that depends only on the layout is worked out once, when the planner is built:
+ * the tiles each display can be used from, the shortest walk between every pair of displays,
+ * and the shortest finish (display, checkout counter, Exit) from every display. Planning a list
+ * then only reads those tables:
+ * <ol>
+ *     <li>A nearest-neighbour tour picks, from wherever the shopper is, the closest stocked display
+ *     for any item still needed, until the list is covered (items out of stock everywhere are
+ *     reported as unavailable).</li>
+ *     <li>2-opt (reversing a run of stops) and Or-opt (moving a run of up to three stops elsewhere,
+ *     either way round) improve the order until neither finds a shorter tour.</li>
+ *     <li>For the final order, a pass over the access tiles of every stop picks the tile to stand
+ *     on at each display, the checkout counter and the Exit tile that make the whole walk shortest.
+ *     The nearest-neighbour order gets the same pass, and is kept if it comes out shorter.</li>
+ * </ol>
+ * A list longer than a shopper can carry by hand starts at the nearest {@link BasketStation}
+ * (or {@link CartStation}, if a basket is too small); checking out takes the equipment back,
+ * so it never has to be returned. A planner is safe to share between threads once built;
+ * stock levels are read when planning.
+ */
+public class RoutePlanner {
+    /** Cost used for stops that cannot be reached from each other. */
+    private static final int FAR = 1 << 20;
+
+    /** Longest run of stops Or-opt moves at once. */
+    private static final int OR_OPT_RUN = 3;
+
+    /** Number of products a shopper can carry without a basket or cart. */
+    private static final int HAND_CAPACITY = 2;
+
+    private final SupermarketMap map;
+    private final PathFinder pathFinder;
+    private final List<Display> displays;
+    private final int[][] access;
+    private final int[][] displaysBySku;
+    private final int[] between;
+    private final int[] finish;
+    private final int[] counterTiles;
+    private final int[] counterToExit;
+    private final int[] exitTiles;
+    private final Amenity[] exitAt;
+    private final int[] basketTiles;
+    private final Amenity[] basketAt;
+    private final int[] cartTiles;
+    private final Amenity[] cartAt;
+    private final int basketCapacity;
+    private final int cartCapacity;
+
+    /**
+     * Constructs a planner for a map whose displays are fully stocked (each display is
+     * expected to keep holding the product it holds now). The map layout must not change afterwards.
+     *
+     * @param map The {@link SupermarketMap} to plan routes on.
+     */
+    public RoutePlanner(SupermarketMap map) {
+        this.map = map;
+        this.pathFinder = new PathFinder(map, true);
+        this.displays = map.getAllDisplays();
+        int n = displays.size();
+
+        this.access = new int[n][];
+        int maxSku = -1;
+        for (int i = 0; i < n; i++) {
+            access[i] = pathFinder.accessTiles(displays.get(i));
+            if (displays.get(i).getProductCount() > 0) maxSku = Math.max(maxSku, displays.get(i).getProductAt(0).getSkuId());
+        }
+        int[] perSku = new int[maxSku + 1];
+        for (Display d : displays) if (d.getProductCount() > 0) perSku[d.getProductAt(0).getSkuId()]++;
+        this.displaysBySku = new int[maxSku + 1][];
+        for (int s = 0; s <= maxSku; s++) displaysBySku[s] = new int[perSku[s]];
+        for (int i = 0; i < n; i++) {
+            Display d = displays.get(i);
+            if (d.getProductCount() == 0) continue;
+            int sku = d.getProductAt(0).getSkuId();
+            displaysBySku[sku][displaysBySku[sku].length - perSku[sku]--] = i;
+        }
+
+        List<Integer> counters = new ArrayList<>();
+        List<Amenity> exits = new ArrayList<>();
+        List<Amenity> baskets = new ArrayList<>();
+        List<Amenity> carts = new ArrayList<>();
+        int size = map.getMapSize();
+        for (int f = 0; f < map.getFloorCount(); f++) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    Amenity a = map.getAmenityAt(x, y, f);
+                    if (a instanceof CheckoutCounter) counters.add(pathFinder.tileOf(a.getPosition(), f));
+                    else if (a instanceof Exit) exits.add(a);
+                    else if (a instanceof BasketStation) baskets.add(a);
+                    else if (a instanceof CartStation) carts.add(a);
+                }
+            }
+        }
+        this.counterTiles = counters.stream().mapToInt(Integer::intValue).toArray();
+        this.exitAt = accessOwners(exits);
+        this.exitTiles = accessTiles(exitAt);
+        this.basketAt = accessOwners(baskets);
+        this.basketTiles = accessTiles(basketAt);
+        this.cartAt = accessOwners(carts);
+        this.cartTiles = accessTiles(cartAt);
+        this.basketCapacity = new Basket().getMaxCapacity();
+        this.cartCapacity = new Cart().getMaxCapacity();
+        this.counterToExit = new int[counterTiles.length];
+        for (int c = 0; c < counterTiles.length; c++) {
+            counterToExit[c] = nearest(pathFinder.distancesFrom(counterTiles[c]), exitTiles);
+        }
+
+        this.between = new int[n * n];
+        this.finish = new int[n];
+        Arrays.fill(between, FAR);
+        Arrays.fill(finish, FAR);
+        for (int i = 0; i < n; i++) {
+            for (int tile : access[i]) {
+                int[] distance = pathFinder.distancesFrom(tile);
+                for (int j = 0; j < n; j++) between[i * n + j] = Math.min(between[i * n + j], nearest(distance, access[j]));
+                for (int c = 0; c < counterTiles.length; c++) {
+                    if (distance[counterTiles[c]] != PathFinder.UNREACHABLE) {
+                        finish[i] = Math.min(finish[i], distance[counterTiles[c]] + counterToExit[c]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the path finder whose distance tables the planner uses (it never routes across a counter).
+     * @return The shopper {@link PathFinder}.
+     */
+    public PathFinder getPathFinder() { return pathFinder; }
+
+    /**
+     * Lists the amenity behind every access tile of some amenities.
+     *
+     * @param amenities The amenities.
+     * @return One entry per access tile, in the order of {@link #accessTiles(Amenity[])}.
+     */
+    private Amenity[] accessOwners(List<Amenity> amenities) {
+        List<Amenity> owners = new ArrayList<>();
+        for (Amenity a : amenities) {
+            for (int i = 0; i < pathFinder.accessTiles(a).length; i++) owners.add(a);
+        }
+        return owners.toArray(new Amenity[0]);
+    }
+
+    /**
+     * Lists the access tiles of some amenities.
+     *
+     * @param owners The amenity behind each tile, from {@link #accessOwners(List)}.
+     * @return The tile numbers.
+     */
+    private int[] accessTiles(Amenity[] owners) {
+        int[] tiles = new int[owners.length];
+        for (int i = 0; i < owners.length; ) {
+            for (int tile : pathFinder.accessTiles(owners[i])) tiles[i++] = tile;
+        }
+        return tiles;
+    }
+
+    /**
+     * Gets the distance to the nearest of some tiles.
+     *
+     * @param distance A distance table.
+     * @param tiles The candidate tile numbers.
+     * @return The shortest distance, or {@link #FAR} if none is reachable.
+     */
+    private static int nearest(int[] distance, int[] tiles) {
+        int best = FAR;
+        for (int tile : tiles) {
+            int d = distance[tile];
+            if (d != PathFinder.UNREACHABLE && d < best) best = d;
+        }
+        return best;
+    }
+
+    /**
+     * Plans a route for a shopping list.
+     *
+     * @param start The tile the shopper is on.
+     * @param floor The floor the shopper is on.
+     * @param shoppingList The {@link Product}s wanted (repeat a product to buy several units).
+     * @return The planned {@link ShoppingRoute}.
+     * @throws IllegalStateException if the Exit cannot be reached from the start tile.
+     */
+    public ShoppingRoute plan(Point start, int floor, List<Product> shoppingList) {
+        return plan(start, floor, shoppingList, false);
+    }
+
+    /**
+     * Plans a route for a shopping list, choosing what the shopper carries it in.
+     *
+     * @param start The tile the shopper is on.
+     * @param floor The floor the shopper is on.
+     * @param shoppingList The {@link Product}s wanted (repeat a product to buy several units).
+     * @param prefersCart {@code true} to pick up a cart whenever the list is too long to carry by hand.
+     * @return The planned {@link ShoppingRoute}.
+     * @throws IllegalStateException if the Exit cannot be reached from the start tile.
+     */
+    public ShoppingRoute plan(Point start, int floor, List<Product> shoppingList, boolean prefersCart) {
+        return plan(start, floor, shoppingList, prefersCart, true);
+    }
+
+    /**
+     * Plans a route for a shopping list, optionally keeping the nearest-neighbour order as it is.
+     * Tests use the unimproved order as the baseline an improved route must not be longer than.
+     *
+     * @param start The tile the shopper is on.
+     * @param floor The floor the shopper is on.
+     * @param shoppingList The {@link Product}s wanted (repeat a product to buy several units).
+     * @param prefersCart {@code true} to pick up a cart whenever the list is too long to carry by hand.
+     * @param improve {@code true} to improve the order with 2-opt and Or-opt.
+     * @return The planned {@link ShoppingRoute}.
+     * @throws IllegalStateException if the Exit cannot be reached from the start tile.
+     */
+    ShoppingRoute plan(Point start, int floor, List<Product> shoppingList, boolean prefersCart, boolean improve) {
+        int startTile = pathFinder.tileOf(start, floor);
+        int[] fromStart = pathFinder.distancesFrom(startTile);
+        int n = displays.size();
+
+        // Where the walk to the first display really starts: here, or at a station for a basket or cart
+        int units = shoppingList.size();
+        boolean basket = !prefersCart && units <= basketCapacity && basketTiles.length > 0;
+        int[] pickupTiles = units <= HAND_CAPACITY ? null : basket ? basketTiles : cartTiles;
+        Amenity[] pickupAt = pickupTiles == basketTiles ? basketAt : cartAt;
+        if (pickupTiles != null && pickupTiles.length == 0) pickupTiles = null;
+        int[] startCost = new int[n];
+        if (pickupTiles == null) {
+            for (int d = 0; d < n; d++) startCost[d] = nearest(fromStart, access[d]);
+        } else {
+            Arrays.fill(startCost, FAR);
+            for (int tile : pickupTiles) {
+                if (fromStart[tile] == PathFinder.UNREACHABLE) continue;
+                int[] distance = pathFinder.distancesFrom(tile);
+                for (int d = 0; d < n; d++) startCost[d] = Math.min(startCost[d], fromStart[tile] + nearest(distance, access[d]));
+            }
+        }
+
+        // Group the list into products and units still needed
+        int k = 0;
+        Product[] wanted = new Product[shoppingList.size()];
+        int[] need = new int[shoppingList.size()];
+        for (Product p : shoppingList) {
+            int j = 0;
+            while (j < k && wanted[j] != p) j++;
+            if (j == k) wanted[k++] = p;
+            need[j]++;
+        }
+
+        // 1. Nearest-neighbour tour
+        boolean[] visited = new boolean[n];
+        int[] stopDisplay = new int[Math.max(1, shoppingList.size())];
+        int[] stopProduct = new int[stopDisplay.length];
+        int[] stopUnits = new int[stopDisplay.length];
+        int m = 0;
+        List<Product> unavailable = new ArrayList<>();
+        int current = -1;
+        while (true) {
+            int best = -1, bestProduct = -1, bestCost = FAR;
+            for (int j = 0; j < k; j++) {
+                if (need[j] == 0) continue;
+                int sku = wanted[j].getSkuId();
+                boolean found = false;
+                if (sku < displaysBySku.length) {
+                    for (int d : displaysBySku[sku]) {
+                        if (visited[d] || displays.get(d).getProductCount() == 0) continue;
+                        int cost = current < 0 ? startCost[d] : between[current * n + d];
+                        if (cost >= FAR) continue;
+                        found = true;
+                        if (cost < bestCost) {
+                            best = d;
+                            bestProduct = j;
+                            bestCost = cost;
+                        }
+                    }
+                }
+                if (!found) {
+                    unavailable.addAll(Collections.nCopies(need[j], wanted[j]));
+                    need[j] = 0;
+                }
+            }
+            if (best < 0) break;
+            int taken = Math.min(need[bestProduct], displays.get(best).getProductCount());
+            need[bestProduct] -= taken;
+            visited[best] = true;
+            stopDisplay[m] = best;
+            stopProduct[m] = bestProduct;
+            stopUnits[m] = taken;
+            m++;
+            current = best;
+        }
+
+        // 2. Improve the order; node 0 is the start, 1..m the stops and m + 1 the finish
+        int[] weight = new int[(m + 2) * (m + 2)];
+        Arrays.fill(weight, FAR);
+        for (int i = 1; i <= m; i++) {
+            int di = stopDisplay[i - 1];
+            weight[i] = startCost[di];
+            weight[i * (m + 2) + m + 1] = finish[di];
+            for (int j = 1; j <= m; j++) if (i != j) weight[i * (m + 2) + j] = between[di * n + stopDisplay[j - 1]];
+        }
+        int[] seed = new int[m + 2];
+        for (int i = 0; i < seed.length; i++) seed[i] = i;
+        int[] tour = seed.clone();
+        if (improve) improve(tour, weight, m);
+
+        // 3. Choose the tiles to stand on and build the legs
+        if (m == 0) pickupTiles = null;
+        return buildRoute(startTile, pickupTiles, pickupAt, tour, Arrays.equals(tour, seed) ? null : seed,
+                stopDisplay, stopProduct, stopUnits, wanted, unavailable);
+    }
+
+    /**
+     * Plans the way out for a shopper still holding equipment they did not check out with
+     * (e.g., everything on their list was out of stock): back to a station, then to the Exit.
+     *
+     * @param start The tile the shopper is on.
+     * @param floor The floor the shopper is on.
+     * @param equipment The {@link Equipment} to return.
+     * @return The planned {@link ShoppingRoute}.
+     * @throws IllegalStateException if the Exit cannot be reached from the start tile.
+     */
+    public ShoppingRoute planReturn(Point start, int floor, Equipment equipment) {
+        boolean cart = equipment instanceof Cart;
+        int[] stationTiles = cart ? cartTiles : basketTiles;
+        return buildRoute(pathFinder.tileOf(start, floor), stationTiles.length > 0 ? stationTiles : null,
+                cart ? cartAt : basketAt, new int[] { 0, 1 }, null, new int[0], new int[0], new int[0],
+                new Product[0], new ArrayList<>());
+    }
+
+    /**
+     * Applies 2-opt and Or-opt moves to a tour until neither shortens it.
+     *
+     * @param tour The node order; the first and last nodes (start and finish) stay in place.
+     * @param weight The cost from node {@code a} to node {@code b} at {@code a * (m + 2) + b}.
+     * @param m The number of stops.
+     */
+    private static void improve(int[] tour, int[] weight, int m) {
+        int w = m + 2;
+        long[] forward = new long[w];
+        long[] backward = new long[w];
+        int[] moved = new int[w];
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            // Prefix sums of the stop-to-stop costs, walked forwards and backwards (costs may be asymmetric)
+            for (int p = 1; p < w - 1; p++) {
+                forward[p + 1] = forward[p] + weight[tour[p] * w + tour[p + 1]];
+                backward[p + 1] = backward[p] + weight[tour[p + 1] * w + tour[p]];
+            }
+
+            // 2-opt: reverse the stops at positions i..j
+            for (int i = 1; i < m && !improved; i++) {
+                for (int j = i + 1; j <= m; j++) {
+                    long before = weight[tour[i - 1] * w + tour[i]] + (forward[j] - forward[i]) + weight[tour[j] * w + tour[j + 1]];
+                    long after = weight[tour[i - 1] * w + tour[j]] + (backward[j] - backward[i]) + weight[tour[i] * w + tour[j + 1]];
+                    if (after < before) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int t = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = t;
+                        }
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+            if (improved) continue;
+
+            // Or-opt: move the run at positions i..i+len-1 between positions p and p + 1
+            for (int len = 1; len <= OR_OPT_RUN && !improved; len++) {
+                for (int i = 1; i + len - 1 <= m && !improved; i++) {
+                    int first = tour[i], last = tour[i + len - 1];
+                    long removed = weight[tour[i - 1] * w + first] + weight[last * w + tour[i + len]]
+                            - weight[tour[i - 1] * w + tour[i + len]];
+                    long inside = forward[i + len - 1] - forward[i];
+                    long reversedInside = backward[i + len - 1] - backward[i];
+                    for (int p = 0; p <= m; p++) {
+                        if (p >= i - 1 && p <= i + len - 1) continue;
+                        long gap = weight[tour[p] * w + tour[p + 1]];
+                        long ahead = weight[tour[p] * w + first] + weight[last * w + tour[p + 1]] - gap;
+                        long reversed = weight[tour[p] * w + last] + weight[first * w + tour[p + 1]] - gap + reversedInside - inside;
+                        boolean flip = reversed < ahead;
+                        if (Math.min(ahead, reversed) < removed) {
+                            moveRun(tour, moved, i, len, p, flip);
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a run of stops to just after another position of the tour.
+     *
+     * @param tour The node order.
+     * @param scratch An array as long as the tour.
+     * @param i The position of the first stop of the run.
+     * @param len The length of the run.
+     * @param p The position the run is placed after (outside the run).
+     * @param flip {@code true} to place the run in reverse order.
+     */
+    private static void moveRun(int[] tour, int[] scratch, int i, int len, int p, boolean flip) {
+        int count = 0;
+        for (int q = 0; q < tour.length; q++) {
+            if (q >= i && q < i + len) continue;
+            scratch[count++] = tour[q];
+            if (q == p) {
+                for (int r = 0; r < len; r++) scratch[count++] = tour[flip ? i + len - 1 - r : i + r];
+            }
+        }
+        System.arraycopy(scratch, 0, tour, 0, tour.length);
+    }
+
+    /**
+     * Lists, in walking order, the tiles the route may stand on for each of its stops.
+     *
+     * @param startTile The tile number the route starts on.
+     * @param pickupTiles The access tiles of the stations where equipment is picked up, or {@code null} for none.
+     * @param tour The node order (node {@code i} is stop {@code i - 1}).
+     * @param stopDisplay The display index of each stop.
+     * @return One array of tile numbers per layer: the start, the station, every display, the counter and the Exit.
+     */
+    private int[][] layerTiles(int startTile, int[] pickupTiles, int[] tour, int[] stopDisplay) {
+        int m = tour.length - 2;
+        int first = pickupTiles != null ? 2 : 1;
+        int layers = first + m + (m > 0 ? 1 : 0);
+        int[][] tiles = new int[layers + 1][];
+        tiles[0] = new int[] { startTile };
+        if (pickupTiles != null) tiles[1] = pickupTiles;
+        for (int s = 1; s <= m; s++) tiles[first + s - 1] = access[stopDisplay[tour[s] - 1]];
+        if (m > 0) tiles[layers - 1] = counterTiles;
+        tiles[layers] = exitTiles;
+        return tiles;
+    }
+
+    /**
+     * Picks one tile of every layer so that the walk through the layers is shortest.
+     *
+     * @param tiles The tiles of every layer, from {@link #layerTiles(int, int[], int[], int[])}.
+     * @param chosen Receives the index of the tile picked in each layer.
+     * @return The length of the walk, or {@link #FAR} if the last layer cannot be reached.
+     */
+    private int chooseTiles(int[][] tiles, int[] chosen) {
+        int layers = tiles.length - 1;
+        // cost[l][t] is the shortest walk ending on tile t of layer l; via[l][t] the tile index it came from
+        int[][] cost = new int[layers + 1][];
+        int[][] via = new int[layers + 1][];
+        cost[0] = new int[] { 0 };
+        for (int l = 1; l <= layers; l++) {
+            cost[l] = new int[tiles[l].length];
+            via[l] = new int[tiles[l].length];
+            Arrays.fill(cost[l], FAR);
+            for (int a = 0; a < tiles[l - 1].length; a++) {
+                if (cost[l - 1][a] >= FAR) continue;
+                int[] distance = pathFinder.distancesFrom(tiles[l - 1][a]);
+                for (int b = 0; b < tiles[l].length; b++) {
+                    int d = distance[tiles[l][b]];
+                    if (d != PathFinder.UNREACHABLE && cost[l - 1][a] + d < cost[l][b]) {
+                        cost[l][b] = cost[l - 1][a] + d;
+                        via[l][b] = a;
+                    }
+                }
+            }
+        }
+
+        chosen[layers] = -1;
+        int length = FAR;
+        for (int b = 0; b < tiles[layers].length; b++) {
+            if (cost[layers][b] < length) {
+                length = cost[layers][b];
+                chosen[layers] = b;
+            }
+        }
+        if (chosen[layers] < 0) return FAR;
+        for (int l = layers; l > 0; l--) chosen[l - 1] = via[l][chosen[l]];
+        return length;
+    }
+
+    /**
+     * Picks the tile to stand on at every stop (and the station, counter and Exit tile) so that
+     * the walk is shortest for the given order, then builds the route.
+     * <p>
+     * The order is improved on the shortest walks between displays, which the tiles finally
+     * chosen do not always achieve, so an improved order can now and then come out a step or two
+     * longer than the order it was improved from. Given that order as well, the shorter of the
+     * two is built.
+     *
+     * @param startTile The tile number the route starts on.
+     * @param pickupTiles The access tiles of the stations where equipment is picked up, or {@code null} for none.
+     * @param pickupAt The station behind each of those tiles.
+     * @param tour The improved node order (node {@code i} is stop {@code i - 1}).
+     * @param seed The order {@code tour} was improved from, or {@code null} if it is the same.
+     * @param stopDisplay The display index of each stop.
+     * @param stopProduct The index in {@code wanted} of the product taken at each stop.
+     * @param stopUnits The units taken at each stop.
+     * @param wanted The distinct products on the list.
+     * @param unavailable The units that could not be planned for.
+     * @return The {@link ShoppingRoute}.
+     * @throws IllegalStateException if the Exit cannot be reached.
+     */
+    private ShoppingRoute buildRoute(int startTile, int[] pickupTiles, Amenity[] pickupAt, int[] tour, int[] seed,
+                                     int[] stopDisplay, int[] stopProduct, int[] stopUnits,
+                                     Product[] wanted, List<Product> unavailable) {
+        int[][] tiles = layerTiles(startTile, pickupTiles, tour, stopDisplay);
+        int[] chosen = new int[tiles.length];
+        int length = chooseTiles(tiles, chosen);
+        if (seed != null) {
+            int[][] seedTiles = layerTiles(startTile, pickupTiles, seed, stopDisplay);
+            int[] seedChosen = new int[seedTiles.length];
+            int seedLength = chooseTiles(seedTiles, seedChosen);
+            if (seedLength < length) {
+                tour = seed;
+                tiles = seedTiles;
+                chosen = seedChosen;
+                length = seedLength;
+            }
+        }
+        if (length >= FAR) throw new IllegalStateException("The Exit cannot be reached from the start tile.");
+
+        int m = tour.length - 2;
+        int first = pickupTiles != null ? 2 : 1;
+        int layers = tiles.length - 1;
+        // owners[l] names the amenity behind each tile of a station or Exit layer
+        Amenity[][] owners = new Amenity[layers + 1][];
+        if (pickupTiles != null) owners[1] = pickupAt;
+        owners[layers] = exitAt;
+
+        List<Amenity> stops = new ArrayList<>();
+        List<List<Direction>> legs = new ArrayList<>();
+        List<List<Product>> products = new ArrayList<>();
+        Point[] positions = new Point[layers];
+        int[] floors = new int[layers];
+        for (int l = 1; l <= layers; l++) {
+            int to = tiles[l][chosen[l]];
+            positions[l - 1] = pathFinder.pointOf(to);
+            floors[l - 1] = pathFinder.floor(to);
+            List<Direction> moves = pathFinder.routeBetween(tiles[l - 1][chosen[l - 1]], to);
+            List<Direction> leg = new ArrayList<>(moves.size() + 1);
+            leg.addAll(moves);
+            Amenity stop;
+            List<Product> taken = Collections.emptyList();
+            if (owners[l] != null) {
+                stop = owners[l][chosen[l]];
+            } else if (l < first + m) {
+                int s = tour[l - first + 1] - 1;
+                stop = displays.get(stopDisplay[s]);
+                taken = Collections.nCopies(stopUnits[s], wanted[stopProduct[s]]);
+            } else {
+                Point counter = pathFinder.pointOf(to);
+                stop = map.getAmenityAt(counter.getX(), counter.getY(), pathFinder.floor(to));
+            }
+            if (!(stop instanceof CheckoutCounter)) {
+                leg.add(pathFinder.stepBetween(to, pathFinder.tileOf(stop.getPosition(), pathFinder.floor(to))));
+            }
+            stops.add(stop);
+            legs.add(leg);
+            products.add(taken);
+        }
+        return new ShoppingRoute(stops, legs, products, positions, floors, unavailable, length);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+/**
+ * SalesAnalytics.java
+ *
+ * This class aggregates every checkout of a run into rolling windows of simulated time,
+ * so sales can be watched while the simulation is running without keeping receipts.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A streaming aggregation of checkouts, fed as a {@link CheckoutListener}.
+ * <p>
+ * Time is divided into tumbling windows of a fixed number of ticks. Each receipt is added to the
+ * window it falls in and to an all-time total; when a window ends it is handed to the window
+ * listener (if any) and kept as one of the last few windows, which together form a sliding window.
+ * Receipts themselves are never kept, so memory stays the same however many checkouts run.
+ * <p>
+ * Windows are closed when the next checkout arrives or when a window is read, using the clock
+ * given at construction (normally {@link Simulation#getTick()}). All methods are synchronized,
+ * so windows can be read from another thread while the simulation runs.
+ */
+public class SalesAnalytics implements CheckoutListener {
+    /** How many SKUs each window's best-seller summary tracks by default. */
+    public static final int DEFAULT_SKU_CAPACITY = 64;
+
+    private final LongSupplier clock;
+    private final int windowTicks;
+    private final int slidingWindows;
+    private final int skuCapacity;
+    private final ArrayDeque<SalesWindow> recent;
+    private final SalesWindow allTime;
+    private SalesWindow current;
+    private SalesWindow last;
+    private Consumer<SalesWindow> windowListener;
+
+    /**
+     * Constructs an analytics pipeline.
+     *
+     * @param clock Supplies the current tick.
+     * @param windowTicks The length of each tumbling window in ticks.
+     * @param slidingWindows How many tumbling windows the sliding window spans (including the current one).
+     * @param skuCapacity How many SKUs each best-seller summary tracks.
+     */
+    public SalesAnalytics(LongSupplier clock, int windowTicks, int slidingWindows, int skuCapacity) {
+        if (windowTicks < 1 || slidingWindows < 1) throw new IllegalArgumentException("Windows must span at least one tick.");
+        this.clock = clock;
+        this.windowTicks = windowTicks;
+        this.slidingWindows = slidingWindows;
+        this.skuCapacity = skuCapacity;
+        this.recent = new ArrayDeque<>(slidingWindows);
+        this.allTime = new SalesWindow(0, 0, skuCapacity);
+        long now = clock.getAsLong();
+        long start = now - Math.floorMod(now, windowTicks);
+        this.current = new SalesWindow(start, start + windowTicks, skuCapacity);
+    }
+
+    /**
+     * Adds a checkout to the current window and the all-time totals.
+     *
+     * @param shopper The {@link Shopper} who paid.
+     * @param receipt The priced {@link Receipt}.
+     */
+    @Override
+    public synchronized void onCheckout(Shopper shopper, Receipt receipt) {
+        advance();
+        current.add(receipt);
+        allTime.add(receipt);
+    }
+
+    /**
+     * Closes every window that has ended by the current tick.
+     */
+    private void advance() {
+        long now = clock.getAsLong();
+        while (now >= current.getEnd()) {
+            close(current);
+            long start = current.getEnd();
+            // After a long quiet spell, skip straight to the window holding the current tick
+            if (now - start >= (long) windowTicks * slidingWindows) {
+                start = now - Math.floorMod(now, windowTicks);
+                recent.clear();
+            }
+            current = new SalesWindow(start, start + windowTicks, skuCapacity);
+        }
+    }
+
+    /**
+     * Hands a finished window to the listener and keeps it for the sliding window.
+     *
+     * @param window The {@link SalesWindow} that just ended.
+     */
+    private void close(SalesWindow window) {
+        if (windowListener != null) windowListener.accept(window);
+        last = window;
+        if (slidingWindows > 1) {
+            if (recent.size() == slidingWindows - 1) recent.removeFirst();
+            recent.addLast(window);
+        }
+    }
+
+    /**
+     * Sets a listener called with every tumbling window as it ends (e.g., to print hourly sales).
+     *
+     * @param listener The listener, or {@code null} for none.
+     */
+    public synchronized void setWindowListener(Consumer<SalesWindow> listener) { this.windowListener = listener; }
+
+    /**
+     * Gets the window still being filled.
+     * @return A copy of the current tumbling window.
+     */
+    public synchronized SalesWindow getCurrentWindow() {
+        advance();
+        return copy(current, current.getStart(), current.getEnd());
+    }
+
+    /**
+     * Gets the last window that has ended.
+     * @return A copy of the last complete tumbling window, or {@code null} if none has ended yet.
+     */
+    public synchronized SalesWindow getLastWindow() {
+        advance();
+        return last == null ? null : copy(last, last.getStart(), last.getEnd());
+    }
+
+    /**
+     * Gets the sliding window: the current window plus the windows that ended just before it.
+     * @return A new {@link SalesWindow} covering up to {@code slidingWindows} tumbling windows.
+     */
+    public synchronized SalesWindow getSlidingWindow() {
+        advance();
+        long start = recent.isEmpty() ? current.getStart() : recent.peekFirst().getStart();
+        SalesWindow result = new SalesWindow(start, current.getEnd(), skuCapacity);
+        for (SalesWindow w : recent) result.merge(w);
+        result.merge(current);
+        return result;
+    }
+
+    /**
+     * Gets the totals of every checkout since the pipeline was created.
+     * @return A copy of the all-time figures.
+     */
+    public synchronized SalesWindow getAllTime() {
+        return copy(allTime, 0, clock.getAsLong());
+    }
+
+    /**
+     * Copies a window so it can be read while this pipeline keeps changing.
+     *
+     * @param window The window to copy.
+     * @param start The start tick of the copy.
+     * @param end The end tick of the copy.
+     * @return An independent {@link SalesWindow}.
+     */
+    private SalesWindow copy(SalesWindow window, long start, long end) {
+        SalesWindow result = new SalesWindow(start, end, skuCapacity);
+        result.merge(window);
+        return result;
+    }
+
+    /**
+     * Gets the length of each tumbling window.
+     * @return The window length in ticks.
+     */
+    public int getWindowTicks() { return windowTicks; }
+}
\ No newline at end of file
@@ -0,0 +1,237 @@
+/**
+ * SalesWindow.java
+ *
+ * This class holds the sales figures of every checkout in a span of simulated time:
+ * revenue per category, best-selling SKUs, basket sizes and senior discounts.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregated sales over the ticks {@code [start, end)}, built by {@link SalesAnalytics}.
+ * <p>
+ * Memory does not grow with the number of checkouts: categories are bounded by the catalog,
+ * SKUs are tracked by a fixed-size {@link SpaceSaving} summary, and basket sizes are counted
+ * in a fixed array with one bucket per size up to {@value #MAX_BASKET_SIZE} items and a final
+ * bucket for anything larger. Category revenue is before the senior discount, which is totalled
+ * separately.
+ */
+public class SalesWindow {
+    /** The largest basket size with its own bucket; larger baskets share the last bucket. */
+    public static final int MAX_BASKET_SIZE = 64;
+
+    private final long start;
+    private final long end;
+    private final Map<String, double[]> categoryRevenue;
+    private final long[] basketSizes;
+    private final SpaceSaving topSkus;
+    private long transactions;
+    private long items;
+    private double grossRevenue;
+    private double netRevenue;
+    private double seniorDiscount;
+    private long seniorTransactions;
+
+    /**
+     * Constructs an empty window.
+     *
+     * @param start The first tick covered.
+     * @param end The tick after the last one covered.
+     * @param skuCapacity How many SKUs the best-seller summary tracks.
+     */
+    public SalesWindow(long start, long end, int skuCapacity) {
+        this.start = start;
+        this.end = end;
+        this.categoryRevenue = new TreeMap<>();
+        this.basketSizes = new long[MAX_BASKET_SIZE + 2];
+        this.topSkus = new SpaceSaving(skuCapacity);
+    }
+
+    /**
+     * Adds one checkout to the window.
+     *
+     * @param receipt The priced {@link Receipt}.
+     */
+    void add(Receipt receipt) {
+        transactions++;
+        items += receipt.getItemCount();
+        grossRevenue += receipt.getTotalPrice();
+        netRevenue += receipt.getFinalTotal();
+        if (receipt.isSenior()) {
+            seniorTransactions++;
+            seniorDiscount += receipt.getTotalDiscount();
+        }
+        basketSizes[Math.min(receipt.getItemCount(), MAX_BASKET_SIZE + 1)]++;
+        for (ProductSummary line : receipt.getLineItems()) {
+            String serial = line.getSerialNumber();
+            String prefix = serial.length() >= 3 ? serial.substring(0, 3) : serial;
+            categoryRevenue.computeIfAbsent(prefix, k -> new double[1])[0] += line.getTotalPrice();
+            topSkus.offer(serial, line.getQuantity());
+        }
+    }
+
+    /**
+     * Adds every figure of another window to this one.
+     *
+     * @param other The {@link SalesWindow} to add.
+     */
+    void merge(SalesWindow other) {
+        transactions += other.transactions;
+        items += other.items;
+        grossRevenue += other.grossRevenue;
+        netRevenue += other.netRevenue;
+        seniorTransactions += other.seniorTransactions;
+        seniorDiscount += other.seniorDiscount;
+        for (int i = 0; i < basketSizes.length; i++) basketSizes[i] += other.basketSizes[i];
+        for (Map.Entry<String, double[]> e : other.categoryRevenue.entrySet()) {
+            categoryRevenue.computeIfAbsent(e.getKey(), k -> new double[1])[0] += e.getValue()[0];
+        }
+        topSkus.merge(other.topSkus);
+    }
+
+    /**
+     * Gets the first tick covered.
+     * @return The start tick (inclusive).
+     */
+    public long getStart() { return start; }
+
+    /**
+     * Gets the tick after the last one covered.
+     * @return The end tick (exclusive).
+     */
+    public long getEnd() { return end; }
+
+    /**
+     * Gets the number of checkouts.
+     * @return The transaction count.
+     */
+    public long getTransactions() { return transactions; }
+
+    /**
+     * Gets the number of items sold.
+     * @return The item count.
+     */
+    public long getItems() { return items; }
+
+    /**
+     * Gets the revenue before discounts.
+     * @return The gross revenue in PHP.
+     */
+    public double getGrossRevenue() { return grossRevenue; }
+
+    /**
+     * Gets the amount actually paid.
+     * @return The net revenue in PHP.
+     */
+    public double getNetRevenue() { return netRevenue; }
+
+    /**
+     * Gets the total senior discount given.
+     * @return The discount in PHP.
+     */
+    public double getSeniorDiscount() { return seniorDiscount; }
+
+    /**
+     * Gets the number of checkouts by seniors.
+     * @return The senior transaction count.
+     */
+    public long getSeniorTransactions() { return seniorTransactions; }
+
+    /**
+     * Gets the revenue (before discounts) of one category.
+     *
+     * @param prefix The serial prefix of the category (e.g., "BRD").
+     * @return The revenue in PHP, or 0 if nothing in the category was sold.
+     */
+    public double getCategoryRevenue(String prefix) {
+        double[] revenue = categoryRevenue.get(prefix);
+        return revenue == null ? 0.0 : revenue[0];
+    }
+
+    /**
+     * Gets the revenue (before discounts) of every category sold.
+     * @return A map from serial prefix to revenue in PHP, sorted by prefix.
+     */
+    public Map<String, Double> getCategoryRevenue() {
+        Map<String, Double> result = new TreeMap<>();
+        for (Map.Entry<String, double[]> e : categoryRevenue.entrySet()) result.put(e.getKey(), e.getValue()[0]);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the best-selling SKUs.
+     *
+     * @param n The number of SKUs wanted.
+     * @return Up to {@code n} {@link SpaceSaving.Entry}s (serial number and units sold), best first.
+     */
+    public List<SpaceSaving.Entry> getTopSkus(int n) { return topSkus.getTop(n); }
+
+    /**
+     * Gets the number of checkouts of exactly a given size.
+     *
+     * @param size The number of items in the basket.
+     * @return The checkout count ({@code size > MAX_BASKET_SIZE} returns the count of all larger baskets).
+     */
+    public long getBasketSizeCount(int size) {
+        return basketSizes[Math.max(0, Math.min(size, MAX_BASKET_SIZE + 1))];
+    }
+
+    /**
+     * Gets a basket size percentile.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The smallest basket size that at least this share of checkouts do not exceed
+     *         ({@code MAX_BASKET_SIZE + 1} stands for anything larger), or 0 if there were no checkouts.
+     */
+    public int getBasketSizePercentile(double percentile) {
+        if (transactions == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * transactions));
+        long seen = 0;
+        for (int size = 0; size < basketSizes.length; size++) {
+            seen += basketSizes[size];
+            if (seen >= rank) return size;
+        }
+        return MAX_BASKET_SIZE + 1;
+    }
+
+    /**
+     * Gets the average number of items per checkout.
+     * @return The mean basket size, or 0 if there were no checkouts.
+     */
+    public double getMeanBasketSize() { return transactions == 0 ? 0.0 : (double) items / transactions; }
+
+    /**
+     * Gets a text summary of the window.
+     *
+     * @return Several lines with totals, basket sizes, senior discounts, categories and the top five SKUs.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Ticks %d-%d: %d checkouts, %d items, PHP %.2f gross, PHP %.2f paid%n",
+                start, end, transactions, items, grossRevenue, netRevenue));
+        sb.append(String.format("  Basket size: mean=%.1f p50=%d p90=%d p99=%d%n", getMeanBasketSize(),
+                getBasketSizePercentile(50), getBasketSizePercentile(90), getBasketSizePercentile(99)));
+        sb.append(String.format("  Seniors: %d checkouts, PHP %.2f discount%n", seniorTransactions, seniorDiscount));
+        sb.append("  Categories:");
+        for (Map.Entry<String, double[]> e : categoryRevenue.entrySet()) {
+            sb.append(String.format(" %s=%.2f", e.getKey(), e.getValue()[0]));
+        }
+        sb.append(System.lineSeparator()).append("  Top SKUs: ").append(getTopSkus(5)).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    /**
+     * Gets the text form of the window.
+     * @return The same as {@link #format()}.
+     */
+    @Override
+    public String toString() { return format(); }
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+/**
+ * ScenarioLoop.java
+ *
+ * This class runs the arrival loop shared by the {@link SimulationServer}'s scenario runs, the
+ * {@link ExperimentRunner} and the {@link LayoutOptimizer}.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.List;
+
+/**
+ * One headless simulation of a layout under a stream of arriving shoppers. Shoppers arrive from a
+ * {@link LoadGenerator}, walk planned routes (with occupancy limits if a tile capacity is given)
+ * and leave; the loop counts the shopping-list items no display stocks as shoppers arrive, and
+ * notices when every shopper of a limited run has left.
+ * <p>
+ * A loop is used by one thread, tick by tick:
+ * <pre>
+ * ScenarioLoop loop = new ScenarioLoop(layout, seed, 2, 0.3, 0.0, 200);
+ * while (!loop.isFinished() &amp;&amp; loop.getSimulation().getTick() &lt; maxTicks) loop.step();
+ * ScenarioLoop.Summary summary = loop.summarize();
+ * loop.shutdown();
+ * </pre>
+ */
+public final class ScenarioLoop {
+    private final Simulation simulation;
+    private final LoadGenerator generator;
+    private final long shopperLimit;
+    private final List<Shopper> present;
+    private long unavailable;
+    private int checked;
+
+    /**
+     * Constructs a loop at tick 0 with no shoppers.
+     *
+     * @param layout The {@link StoreLayout} to simulate.
+     * @param seed The seed of the simulation and its shoppers.
+     * @param tileCapacity Shoppers per tile, or 0 to let shoppers walk through each other.
+     * @param arrivalRate The mean shopper arrivals per tick.
+     * @param cartShare The fraction of shoppers who take a cart even when a basket would do.
+     * @param shopperLimit How many shoppers arrive in total, or {@link Long#MAX_VALUE} for no limit.
+     */
+    public ScenarioLoop(StoreLayout layout, long seed, int tileCapacity, double arrivalRate, double cartShare, long shopperLimit) {
+        this.simulation = new Simulation(seed, layout.toMap(), 1);
+        if (tileCapacity > 0) simulation.enableOccupancy(tileCapacity);
+        simulation.enableRoutePlanning();
+        this.generator = new LoadGenerator(simulation, seed);
+        generator.setArrivalRate(arrivalRate);
+        generator.setCartShare(cartShare);
+        generator.setShopperLimit(shopperLimit);
+        this.shopperLimit = shopperLimit;
+        this.present = simulation.getShoppers();
+    }
+
+    /**
+     * Adds this tick's arrivals and runs the tick.
+     */
+    public void step() {
+        int before = present.size();
+        generator.run(1);
+        for (int i = before; i < present.size(); i++) {
+            ShoppingRoute route = simulation.getRoute(i);
+            if (route != null) unavailable += route.getUnavailable().size();
+        }
+        // Shoppers leave roughly in the order they came, so skip past those already gone
+        while (checked < present.size() && present.get(checked).getHasExited()) checked++;
+    }
+
+    /**
+     * Checks if every shopper of a limited run has arrived and left.
+     *
+     * @return {@code true} if there is nothing left to simulate.
+     */
+    public boolean isFinished() { return present.size() == shopperLimit && checked == shopperLimit; }
+
+    /**
+     * Sums up the shoppers so far; shoppers still inside count their ticks so far.
+     *
+     * @return The {@link Summary}.
+     */
+    public Summary summarize() {
+        long total = 0, longest = 0;
+        int exited = 0;
+        for (int i = 0; i < present.size(); i++) {
+            long time = simulation.getTimeInStore(i);
+            total += time;
+            longest = Math.max(longest, time);
+            if (present.get(i).getHasExited()) exited++;
+        }
+        return new Summary(present.size(), exited, total, longest, unavailable);
+    }
+
+    /**
+     * Gets the simulation the loop drives.
+     * @return The {@link Simulation}.
+     */
+    public Simulation getSimulation() { return simulation; }
+
+    /**
+     * Stops the simulation's worker threads.
+     */
+    public void shutdown() { simulation.shutdown(); }
+
+    /**
+     * The shoppers of a loop at one tick.
+     */
+    public static final class Summary {
+        private final int arrived;
+        private final int exited;
+        private final long totalTimeInStore;
+        private final long longestTimeInStore;
+        private final long unavailable;
+
+        /**
+         * Constructs a summary.
+         *
+         * @param arrived Shoppers who have arrived.
+         * @param exited Shoppers who have left.
+         * @param totalTimeInStore The summed ticks in the store of every shopper.
+         * @param longestTimeInStore The most ticks any shopper spent in the store.
+         * @param unavailable Shopping-list items no display stocks.
+         */
+        private Summary(int arrived, int exited, long totalTimeInStore, long longestTimeInStore, long unavailable) {
+            this.arrived = arrived;
+            this.exited = exited;
+            this.totalTimeInStore = totalTimeInStore;
+            this.longestTimeInStore = longestTimeInStore;
+            this.unavailable = unavailable;
+        }
+
+        /**
+         * Gets the number of shoppers who have arrived.
+         * @return The arrival count.
+         */
+        public int getArrived() { return arrived; }
+
+        /**
+         * Gets the number of shoppers who have left.
+         * @return The exit count.
+         */
+        public int getExited() { return exited; }
+
+        /**
+         * Gets the summed ticks in the store of every shopper.
+         * @return The total time in store.
+         */
+        public long getTotalTimeInStore() { return totalTimeInStore; }
+
+        /**
+         * Gets the mean ticks in the store per shopper.
+         * @return The mean time in store, or 0 before anyone arrives.
+         */
+        public double getMeanTimeInStore() { return (double) totalTimeInStore / Math.max(1, arrived); }
+
+        /**
+         * Gets the most ticks any shopper spent in the store.
+         * @return The longest time in store.
+         */
+        public long getLongestTimeInStore() { return longestTimeInStore; }
+
+        /**
+         * Gets the number of shopping-list items no display stocks.
+         * @return The unavailable item count.
+         */
+        public long getUnavailable() { return unavailable; }
+    }
+}
\ No newline at end of file
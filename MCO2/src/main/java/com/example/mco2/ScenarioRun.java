@@ -0,0 +1,328 @@
+/**
+ * ScenarioRun.java
+ *
+ * This class holds one simulation submitted to the {@link SimulationServer}: its scenario,
+ * its progress while it runs, and its results once it is done.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A scenario and the state of its run. A scenario is written as {@code key=value} lines
+ * (the {@link Properties} format); every key is optional:
+ * <pre>
+ * seed=42            master seed of the simulation and its arrivals
+ * shoppers=200       how many shoppers arrive in total
+ * rate=0.3           mean shopper arrivals per tick
+ * counters=8         Checkout Counters left open, nearest the Exit first (default: all, shown as -1)
+ * cartShare=0        fraction of shoppers who take a cart even when a basket would do
+ * tileCapacity=2     shoppers per tile, or 0 to let shoppers walk through each other
+ * maxTicks=5000      ticks after which the run stops even if shoppers are still inside
+ * progressTicks=100  ticks between progress updates
+ * </pre>
+ * The run is a {@link ScenarioLoop}, like an {@link ExperimentRunner} run: shoppers walk planned
+ * routes, and the run ends once every shopper has arrived and left, or at {@code maxTicks}.
+ * <p>
+ * Progress and results are read from other threads; every read and write of them holds the
+ * run's lock, and every progress update wakes the threads waiting in {@link #awaitChange(long, long)}.
+ */
+public class ScenarioRun implements Runnable {
+    /** The states a run goes through. */
+    public enum State {
+        /** Accepted and waiting for a worker. */
+        QUEUED,
+        /** Being simulated. */
+        RUNNING,
+        /** Finished; results are available. */
+        DONE,
+        /** Stopped by a cancel request before it finished. */
+        CANCELLED,
+        /** Stopped by an error. */
+        FAILED;
+
+        /**
+         * Checks if a run in this state will not change any more.
+         * @return {@code true} for {@link #DONE}, {@link #CANCELLED} and {@link #FAILED}.
+         */
+        public boolean isFinal() { return this != QUEUED && this != RUNNING; }
+    }
+
+    /** The scenario keys a client may set. */
+    private static final Set<String> KEYS = Set.of("seed", "shoppers", "rate", "counters", "cartShare",
+            "tileCapacity", "maxTicks", "progressTicks");
+
+    /** The layout every run starts from, before closing counters. */
+    private static final StoreLayout DEFAULT_LAYOUT = StoreLayout.of(new SupermarketMap());
+
+    /** Layouts by the number of counters open, so runs with the same count share one blueprint. */
+    private static final Map<Integer, StoreLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private final long id;
+    private final long seed;
+    private final int shoppers;
+    private final double rate;
+    private final int counters;
+    private final double cartShare;
+    private final int tileCapacity;
+    private final long maxTicks;
+    private final int progressTicks;
+
+    private volatile boolean cancelRequested;
+    private State state;
+    private long version;
+    private long tick;
+    private int arrived;
+    private int exited;
+    private long unavailable;
+    private double meanTimeInStore;
+    private long longestTimeInStore;
+    private long fingerprint;
+    private long elapsedNanos;
+    private String error;
+
+    /**
+     * Constructs a queued run from a scenario.
+     *
+     * @param id The identifier of the run.
+     * @param scenario The scenario, as {@code key=value} lines.
+     * @throws IllegalArgumentException if the scenario has an unknown key or a value out of range.
+     */
+    public ScenarioRun(long id, String scenario) {
+        Properties p = new Properties();
+        try {
+            p.load(new StringReader(scenario));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("The scenario is not in key=value format.");
+        }
+        for (String key : p.stringPropertyNames()) {
+            if (!KEYS.contains(key)) throw new IllegalArgumentException("Unknown scenario key: " + key);
+        }
+        this.id = id;
+        this.seed = parseLong(p, "seed", 42L, Long.MIN_VALUE, Long.MAX_VALUE);
+        this.shoppers = (int) parseLong(p, "shoppers", 200, 1, 100_000);
+        this.rate = parseDouble(p, "rate", 0.3, 0.001, 100);
+        this.counters = (int) parseLong(p, "counters", Integer.MAX_VALUE, 1, 100);
+        this.cartShare = parseDouble(p, "cartShare", 0, 0, 1);
+        this.tileCapacity = (int) parseLong(p, "tileCapacity", 2, 0, 1000);
+        this.maxTicks = parseLong(p, "maxTicks", 5000, 1, 10_000_000);
+        this.progressTicks = (int) parseLong(p, "progressTicks", 100, 1, 10_000_000);
+        this.state = State.QUEUED;
+    }
+
+    /**
+     * Reads a whole-number scenario value.
+     *
+     * @param p The scenario.
+     * @param key The key.
+     * @param fallback The value if the key is missing.
+     * @param min The lowest value allowed.
+     * @param max The highest value allowed.
+     * @return The value.
+     * @throws IllegalArgumentException if the value is not a number or out of range.
+     */
+    private static long parseLong(Properties p, String key, long fallback, long min, long max) {
+        String text = p.getProperty(key);
+        if (text == null) return fallback;
+        long value;
+        try {
+            value = Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a whole number.");
+        }
+        if (value < min || value > max) throw new IllegalArgumentException(key + " must be between " + min + " and " + max + ".");
+        return value;
+    }
+
+    /**
+     * Reads a decimal scenario value.
+     *
+     * @param p The scenario.
+     * @param key The key.
+     * @param fallback The value if the key is missing.
+     * @param min The lowest value allowed.
+     * @param max The highest value allowed.
+     * @return The value.
+     * @throws IllegalArgumentException if the value is not a number or out of range.
+     */
+    private static double parseDouble(Properties p, String key, double fallback, double min, double max) {
+        String text = p.getProperty(key);
+        if (text == null) return fallback;
+        double value;
+        try {
+            value = Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number.");
+        }
+        if (!(value >= min && value <= max)) throw new IllegalArgumentException(key + " must be between " + min + " and " + max + ".");
+        return value;
+    }
+
+    /**
+     * Simulates the scenario, publishing progress every {@code progressTicks} ticks.
+     * Does nothing if the run was cancelled while queued.
+     */
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (state != State.QUEUED) return;
+            state = State.RUNNING;
+            version++;
+            notifyAll();
+        }
+        long begin = System.nanoTime();
+        try {
+            StoreLayout layout = LAYOUTS.computeIfAbsent(counters, k -> ExperimentRunner.closeCounters(DEFAULT_LAYOUT, k));
+            ScenarioLoop loop = new ScenarioLoop(layout, seed, tileCapacity, rate, cartShare, shoppers);
+            Simulation simulation = loop.getSimulation();
+            while (!loop.isFinished() && simulation.getTick() < maxTicks && !cancelRequested) {
+                loop.step();
+                if (!loop.isFinished() && simulation.getTick() % progressTicks == 0) {
+                    publish(loop, System.nanoTime() - begin);
+                }
+            }
+            publish(loop, System.nanoTime() - begin);
+            loop.shutdown();
+            finish(cancelRequested ? State.CANCELLED : State.DONE, null);
+        } catch (RuntimeException e) {
+            finish(State.FAILED, e.toString());
+            EventLog.log(LogLevel.WARN, "server.run_failed", String.valueOf(id), e.toString());
+        }
+    }
+
+    /**
+     * Records the progress of the simulation and wakes every waiting thread.
+     *
+     * @param loop The running {@link ScenarioLoop}.
+     * @param elapsed Nanoseconds since the run started.
+     */
+    private void publish(ScenarioLoop loop, long elapsed) {
+        ScenarioLoop.Summary summary = loop.summarize();
+        long hash = loop.getSimulation().fingerprint();
+        synchronized (this) {
+            tick = loop.getSimulation().getTick();
+            arrived = summary.getArrived();
+            exited = summary.getExited();
+            unavailable = summary.getUnavailable();
+            meanTimeInStore = summary.getMeanTimeInStore();
+            longestTimeInStore = summary.getLongestTimeInStore();
+            fingerprint = hash;
+            elapsedNanos = elapsed;
+            version++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Moves the run to a final state and wakes every waiting thread.
+     *
+     * @param finalState The final {@link State}.
+     * @param message The error message, or {@code null}.
+     */
+    private synchronized void finish(State finalState, String message) {
+        state = finalState;
+        error = message;
+        version++;
+        notifyAll();
+    }
+
+    /**
+     * Asks the run to stop. A queued run is cancelled at once; a running one stops at the end of its current tick.
+     *
+     * @return {@code true} if the run had not finished yet.
+     */
+    public synchronized boolean cancel() {
+        if (state.isFinal()) return false;
+        cancelRequested = true;
+        if (state == State.QUEUED) finish(State.CANCELLED, null);
+        return true;
+    }
+
+    /**
+     * Waits until the run changes (progress, or a new state) after a given version.
+     *
+     * @param seen The last version the caller has seen.
+     * @param timeoutMillis The longest time to wait.
+     * @return The current version, which equals {@code seen} if nothing changed in time.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public synchronized long awaitChange(long seen, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (version == seen && !state.isFinal()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) break;
+            wait(left);
+        }
+        return version;
+    }
+
+    /**
+     * Formats the scenario, state, progress and results as one JSON object.
+     *
+     * @return The JSON text, without a line break.
+     */
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder(384);
+        json.append("{\"id\":").append(id);
+        json.append(",\"state\":\"").append(state.name()).append('"');
+        json.append(",\"version\":").append(version);
+        json.append(String.format(Locale.ROOT,
+                ",\"scenario\":{\"seed\":%d,\"shoppers\":%d,\"rate\":%.4f,\"counters\":%d,\"cartShare\":%.4f,"
+                        + "\"tileCapacity\":%d,\"maxTicks\":%d,\"progressTicks\":%d}",
+                seed, shoppers, rate, counters == Integer.MAX_VALUE ? -1 : counters, cartShare,
+                tileCapacity, maxTicks, progressTicks));
+        json.append(String.format(Locale.ROOT,
+                ",\"tick\":%d,\"arrived\":%d,\"exited\":%d,\"unavailable\":%d,\"meanTimeInStore\":%.2f,"
+                        + "\"longestTimeInStore\":%d,\"fingerprint\":\"%016x\",\"elapsedMs\":%.1f",
+                tick, arrived, exited, unavailable, meanTimeInStore, longestTimeInStore, fingerprint,
+                elapsedNanos / 1_000_000.0));
+        if (error != null) json.append(",\"error\":").append(quote(error));
+        return json.append('}').toString();
+    }
+
+    /**
+     * Quotes a string for JSON.
+     *
+     * @param value The string.
+     * @return The string in double quotes, with quotes, backslashes and control characters escaped.
+     */
+    static String quote(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Gets the identifier of the run.
+     * @return The id.
+     */
+    public long getId() { return id; }
+
+    /**
+     * Gets the state of the run.
+     * @return The {@link State}.
+     */
+    public synchronized State getState() { return state; }
+}
\ No newline at end of file
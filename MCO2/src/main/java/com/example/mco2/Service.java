@@ -11,6 +11,8 @@
  */
 package com.example.mco2;
 
+import javafx.scene.control.Alert;
+
 /**
  * Represents a functional amenity on the map that provides a specific service
  * or interaction logic, but does not display products.
@@ -20,7 +22,6 @@ package com.example.mco2;
  * override this to allow the shopper to move onto the tile.
  */
 public class Service extends Amenity {
-
     /**
      * Constructs a new Service amenity.
      *
@@ -40,4 +41,34 @@ public class Service extends Amenity {
     public boolean isPassable() {
         return false;
     }
+
+    /**
+     * Checks if a shopper is on a map running in headless mode (see {@link SupermarketMap#setHeadless(boolean)}).
+     *
+     * @param shopper The {@link Shopper} using the service.
+     * @return {@code true} if popups are suppressed; {@code false} otherwise.
+     */
+    protected static boolean isHeadless(Shopper shopper) {
+        SupermarketMap map = shopper.getCurrentMap();
+        return map != null && map.isHeadless();
+    }
+
+    /**
+     * Helper method to display a JavaFX alert dialog.
+     * Does nothing when the shopper's map runs in headless mode. Package-private so the
+     * exported API does not expose JavaFX types.
+     *
+     * @param shopper The {@link Shopper} the dialog is shown to.
+     * @param type The type of alert (e.g., INFORMATION, ERROR).
+     * @param title The title of the dialog window.
+     * @param message The content text displayed inside the dialog.
+     */
+    void showPopup(Shopper shopper, Alert.AlertType type, String title, String message) {
+        if (isHeadless(shopper)) return;
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
 }
\ No newline at end of file
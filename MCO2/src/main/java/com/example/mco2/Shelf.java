@@ -10,7 +10,6 @@
  */
 package com.example.mco2;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -36,10 +35,7 @@ public class Shelf extends Display {
      */
     public Shelf(Point position, String address) {
         super(position, address);
-        this.tiers = new ArrayList<>(NUM_TIERS);
-        for (int i = 0; i < NUM_TIERS; i++) {
-            this.tiers.add(new ArrayList<>(TIER_CAPACITY));
-        }
+        this.tiers = createTiers(NUM_TIERS, TIER_CAPACITY);
     }
 
     /**
@@ -49,19 +45,18 @@ public class Shelf extends Display {
      */
     @Override
     public void interact(Shopper shopper) {
-        System.out.println("Interacting with Shelf at " + getAddress());
+        EventLog.log(LogLevel.DEBUG, "display.interact", shopper.getName(), getAddress());
     }
 
     /**
-     * Attempts to return a product to the first available non-full tier.
-     * The method checks against a comprehensive list of allowed product serial prefixes
-     * (including food staples and various non-food goods).
+     * Checks if a product belongs on the shelf.
+     * The shelf takes a comprehensive list of serial prefixes (including food staples and various non-food goods).
      *
-     * @param product The {@link Product} to return.
-     * @return {@code true} if the product was successfully added; {@code false} otherwise (wrong type or full).
+     * @param product The {@link Product} being returned.
+     * @return {@code true} if the product type is allowed on the shelf.
      */
     @Override
-    public boolean returnProduct(Product product) {
+    protected boolean accepts(Product product) {
         String prefix = product.getSerialPrefix();
 
         // Check against old (food/drink) and new (non-food) categories
@@ -73,20 +68,7 @@ public class Shelf extends Display {
                 prefix.equals("BOD") || prefix.equals("DEN") || prefix.equals("CLO") ||
                 prefix.equals("STN") || prefix.equals("PET");
 
-        if (!isOldCategory && !isNewCategory) {
-            System.out.println("[Denied: This product type is not allowed on a Shelf.]");
-            return false;
-        }
-
-        // Find first non-full tier
-        for (List<Product> tier : tiers) {
-            if (tier.size() < TIER_CAPACITY) {
-                tier.add(product);
-                return true;
-            }
-        }
-        System.out.println("[Denied: This Shelf is full.]");
-        return false;
+        return isOldCategory || isNewCategory;
     }
 
     /**
@@ -98,33 +80,6 @@ public class Shelf extends Display {
     @Override
     public Product removeProduct(Shopper shopper) { return null; }
 
-    /**
-     * Checks if the shelf is completely full (i.e., both tiers are at maximum capacity).
-     *
-     * @return {@code true} if every tier is full; {@code false} otherwise.
-     */
-    @Override
-    public boolean isFull() {
-        return tiers.get(0).size() == TIER_CAPACITY && tiers.get(1).size() == TIER_CAPACITY;
-    }
-
-    /**
-     * Checks if any product in any tier matches the provided search name (case-insensitive, partial match).
-     *
-     * @param name The name or partial name of the product to search for.
-     * @return {@code true} if the product is found in any tier; {@code false} otherwise.
-     */
-    @Override
-    public boolean containsProductByName(String name) {
-        String lowerName = name.toLowerCase();
-        for (List<Product> tier : tiers) {
-            for (Product p : tier) {
-                if (p.getName().toLowerCase().contains(lowerName)) return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Gets the raw list structure representing all tiers and their contents.
      *
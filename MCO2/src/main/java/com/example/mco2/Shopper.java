@@ -11,10 +11,11 @@
  */
 package com.example.mco2;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents the shopper navigating the supermarket.
@@ -33,6 +34,7 @@ public class Shopper {
     private boolean hasCheckedOut;
     private boolean hasExited = false;
     private SupermarketMap currentMap;
+    private List<Product> allProducts;
 
     /**
      * Constructs a new Shopper instance.
@@ -52,46 +54,91 @@ public class Shopper {
         this.hasCheckedOut = false;
     }
 
+    /**
+     * Constructs a shopper whose state lives elsewhere.
+     * Used by {@link ShopperStore}, whose views override every state accessor.
+     */
+    Shopper() {
+        this.name = null;
+        this.age = 0;
+        this.handCarried = null;
+    }
+
     /**
      * Attempts to move the shopper one tile in the specified direction.
-     * Movement is blocked if the target amenity is impassable (e.g., Wall, Display).
+     * Movement is blocked if the target amenity is impassable (e.g., Wall, Display), or if the map
+     * has an {@link OccupancyGrid} and the target tile is already full of other shoppers.
      * Handles floor transitions if the shopper walks onto {@link Stairs}.
      *
      * @param direction The {@link Direction} of movement.
      * @param map The {@link SupermarketMap} used to check amenities and boundaries.
      */
     public void move(Direction direction, SupermarketMap map) {
-        Point newPosition = this.position.getNextPosition(direction);
+        SimulatorEvents.ShopperMove event = SimulatorEvents.isRecording() ? new SimulatorEvents.ShopperMove() : null;
+        if (event != null) event.begin();
+        boolean blocked = false;
+        Point oldPosition = getPosition();
+        int oldFloor = getCurrentFloor();
+        Point newPosition = oldPosition.getNextPosition(direction);
 
         // Check amenity on CURRENT FLOOR
-        Amenity targetAmenity = map.getAmenityAt(newPosition.getX(), newPosition.getY(), this.currentFloor);
+        Amenity targetAmenity = map.getAmenityAt(newPosition.getX(), newPosition.getY(), oldFloor);
 
-        if (targetAmenity == null || targetAmenity.isPassable()) {
+        OccupancyGrid occupancy = map.getOccupancy();
+        boolean crowded = occupancy != null && (targetAmenity == null || targetAmenity.isPassable())
+                && !occupancy.hasRoomFor(newPosition, oldFloor, targetAmenity);
+
+        if (crowded) {
+            Metrics.CROWD_BLOCKS.increment();
+            EventLog.log(LogLevel.DEBUG, "shopper.blocked", getName(), "Crowd");
+            blocked = true;
+        } else if (targetAmenity == null || targetAmenity.isPassable()) {
 
             // --- ENTRANCE LOCKING LOGIC ---
-            Amenity currentAmenity = map.getAmenityAt(this.position.getX(), this.position.getY(), this.currentFloor);
+            Amenity currentAmenity = map.getAmenityAt(oldPosition.getX(), oldPosition.getY(), oldFloor);
             if (currentAmenity instanceof Entrance) {
                 ((Entrance) currentAmenity).setHasBeenUsed();
             }
             // ------------------------------
 
-            this.position = newPosition;
-
             // Check if we walked onto Stairs
+            // Simple Toggle Logic: 0 -> 1, or 1 -> 0
+            int newFloor = (targetAmenity instanceof Stairs) ? (oldFloor == 0 ? 1 : 0) : oldFloor;
+            setLocation(newPosition, newFloor);
+            Metrics.MOVES.increment();
+
             if (targetAmenity instanceof Stairs) {
-                // Simple Toggle Logic: 0 -> 1, or 1 -> 0
-                int oldFloor = this.currentFloor;
-                this.currentFloor = (this.currentFloor == 0) ? 1 : 0;
-                System.out.println("Traveled from Floor " + oldFloor + " to " + this.currentFloor);
+                Metrics.FLOOR_CHANGES.increment(targetAmenity);
+                SimulatorEvents.floorChange(this, oldFloor);
+                EventLog.log(LogLevel.INFO, "shopper.floor_change", getName(), newFloor == 0 ? "GF" : "2F");
                 // Note: We stay at the same (x,y), assuming stairs are vertically aligned
             }
+            if (occupancy != null) occupancy.move(oldPosition, oldFloor, newPosition, newFloor);
+            Heatmap heatmap = map.getHeatmap();
+            if (heatmap != null) heatmap.visit(newPosition, newFloor);
+
             // Normal Interaction (Exit/Stations)
-            else if (targetAmenity != null) {
+            if (targetAmenity != null && !(targetAmenity instanceof Stairs)) {
                 targetAmenity.interact(this);
             }
 
         } else {
-            System.out.println("Blocked by " + (targetAmenity != null ? targetAmenity.getClass().getSimpleName() : "null"));
+            Metrics.BLOCKS.increment(targetAmenity);
+            EventLog.log(LogLevel.DEBUG, "shopper.blocked", getName(), targetAmenity.getClass().getSimpleName());
+            blocked = true;
+        }
+
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            Point position = getPosition();
+            event.shopper = getName();
+            event.x = position.getX();
+            event.y = position.getY();
+            event.floor = getCurrentFloor();
+            event.blocked = blocked;
+            if (blocked) event.blockedBy = crowded ? "Crowd" : targetAmenity.getClass().getSimpleName();
+            event.commit();
         }
     }
 
@@ -111,9 +158,19 @@ public class Shopper {
      * @return {@code true} if the product was successfully added; {@code false} if inventory is full or restricted.
      */
     public boolean takeProduct(Product product) {
-        if (this.age < 18 && product.getSerialPrefix().equals("ALC")) return false;
-        if (this.equipment != null) return this.equipment.addProduct(product);
-        if (this.handCarried.size() < 2) { this.handCarried.add(product); return true; }
+        if (getAge() < 18 && product.isAlcohol()) {
+            Metrics.deny(DenialReason.UNDERAGE, null);
+            return false;
+        }
+        Equipment equipment = getEquipment();
+        List<Product> handCarried = getHandCarried();
+        if (equipment != null) {
+            if (equipment.addProduct(product)) return true;
+        } else if (handCarried.size() < 2) {
+            handCarried.add(product);
+            return true;
+        }
+        Metrics.deny(DenialReason.CARRY_FULL, null);
         return false;
     }
 
@@ -124,38 +181,61 @@ public class Shopper {
      * @return The removed {@link Product} if successful; {@code null} if the product was not found.
      */
     public Product returnProduct(Product product) {
-        if (this.handCarried.remove(product)) return product;
-        if (this.equipment != null) return this.equipment.removeProduct(product);
+        if (getHandCarried().remove(product)) return product;
+        Equipment equipment = getEquipment();
+        if (equipment != null) return equipment.removeProduct(product);
         return null;
     }
 
     /**
      * Generates a simplified string summary of all products currently held by the shopper
-     * (hand-carried and equipment). Items are grouped by name, showing only the name and quantity.
+     * (hand-carried and equipment). Items are grouped by product, showing only the name and quantity.
      *
      * @return A formatted string listing all unique products and their counts, or an empty string if inventory is empty.
      */
     public String viewChosenProducts() {
-        List<Product> all = getAllProducts();
-        if (all.isEmpty()) return "";
-
-        // 1. Group and Count items using the 2-argument constructor
-        Map<String, ProductSummary> summaryMap = new HashMap<>();
-        for (Product p : all) {
-            // This calls the 2-argument constructor: ProductSummary(String name, double price)
-            summaryMap.putIfAbsent(p.getName(), new ProductSummary(p.getName(), p.getPrice()));
-            summaryMap.get(p.getName()).addQuantity();
+        // 1. One summary per equipment line, then fold in the (at most two) hand-carried items
+        Equipment equipment = getEquipment();
+        SkuMultiset contents = equipment != null ? equipment.getContents() : null;
+        int lines = contents != null ? contents.getLineCount() : 0;
+        List<ProductSummary> summaries = new ArrayList<>(lines + 2);
+        for (int i = 0; i < lines; i++) {
+            summaries.add(summaryOf(contents.getLineProduct(i), contents.getLineQuantity(i)));
+        }
+        Product firstCarried = null;
+        for (Product p : getHandCarried()) {
+            int line = contents != null ? contents.getLine(p) : -1;
+            if (line >= 0) summaries.get(line).addQuantity();
+            else if (firstCarried != null && firstCarried.getSkuId() == p.getSkuId()) summaries.get(summaries.size() - 1).addQuantity();
+            else {
+                summaries.add(summaryOf(p, 1));
+                firstCarried = p;
+            }
         }
+        if (summaries.isEmpty()) return "";
 
         // 2. Build SIMPLIFIED String (Name and Quantity only)
         StringBuilder sb = new StringBuilder();
-        // NOTE: This relies on ProductSummary.java having a public method: public int getQuantity()
-        for (ProductSummary s : summaryMap.values()) {
+        for (ProductSummary s : summaries) {
             sb.append(String.format("%-30s | Qty: %-3d\n", s.getName(), s.getQuantity()));
         }
         return sb.toString();
     }
 
+    /**
+     * Starts a summary line for a product.
+     *
+     * @param product The {@link Product}.
+     * @param quantity The number of units.
+     * @return The {@link ProductSummary}.
+     */
+    private static ProductSummary summaryOf(Product product, int quantity) {
+        // This calls the 2-argument constructor: ProductSummary(String name, double price)
+        ProductSummary summary = new ProductSummary(product.getName(), product.getPrice());
+        summary.addQuantity(quantity);
+        return summary;
+    }
+
     /**
      * Gets the name of the shopper.
      * @return The shopper's name.
@@ -196,7 +276,7 @@ public class Shopper {
      * Checks if the shopper is currently holding any equipment.
      * @return {@code true} if equipment is held; {@code false} otherwise.
      */
-    public boolean hasEquipment() { return this.equipment != null; }
+    public boolean hasEquipment() { return getEquipment() != null; }
 
     /**
      * Gets the list of products the shopper is carrying by hand.
@@ -220,7 +300,19 @@ public class Shopper {
      * Sets the exit status of the shopper.
      * @param status The new exit status.
      */
-    public void setHasExited(boolean status) { this.hasExited = status; }
+    public void setHasExited(boolean status) {
+        // A shopper who leaves the store no longer takes up room on the map
+        SupermarketMap map = getCurrentMap();
+        OccupancyGrid occupancy = (map != null) ? map.getOccupancy() : null;
+        if (occupancy != null && status && !getHasExited()) occupancy.leave(getPosition(), getCurrentFloor());
+        markExited(status);
+    }
+
+    /**
+     * Stores the exit status without any of the bookkeeping of {@link #setHasExited(boolean)}.
+     * @param status The new exit status.
+     */
+    protected void markExited(boolean status) { this.hasExited = status; }
 
     /**
      * Assigns new equipment (Cart or Basket) to the shopper.
@@ -240,23 +332,112 @@ public class Shopper {
      */
     public void setCurrentMap(SupermarketMap map) { this.currentMap = map; }
 
+    /**
+     * Gets the map the shopper is currently in.
+     * @return The {@link SupermarketMap}, or {@code null} if none was set.
+     */
+    public SupermarketMap getCurrentMap() { return currentMap; }
+
+    /**
+     * Puts the shopper back into a previously saved position, facing and floor.
+     * Used by {@link StoreSnapshot} when restoring a saved store; no movement rules are applied.
+     *
+     * @param position The saved {@link Point}.
+     * @param facing The saved {@link Direction}.
+     * @param floor The saved floor index.
+     */
+    void restoreState(Point position, Direction facing, int floor) {
+        SupermarketMap map = getCurrentMap();
+        OccupancyGrid occupancy = (map != null) ? map.getOccupancy() : null;
+        if (occupancy != null && !getHasExited()) occupancy.move(getPosition(), getCurrentFloor(), position, floor);
+        setLocation(position, floor);
+        face(facing);
+    }
+
+    /**
+     * Stores a new position and floor without applying any movement rules or bookkeeping.
+     *
+     * @param position The new {@link Point}.
+     * @param floor The new floor index.
+     */
+    protected void setLocation(Point position, int floor) {
+        this.position = position;
+        this.currentFloor = floor;
+    }
+
     /**
      * Removes the equipment currently held by the shopper and returns it.
      * @return The {@link Equipment} that was held, or {@code null}.
      */
     public Equipment removeEquipment() {
-        Equipment returned = this.equipment;
-        this.equipment = null;
+        Equipment returned = getEquipment();
+        setEquipment(null);
         return returned;
     }
 
     /**
-     * Compiles a single list of all products currently held by the shopper (hand-carried and equipment).
-     * @return A consolidated list of all {@link Product}s.
+     * Gets a read-only view of all products currently held by the shopper: hand-carried ones first,
+     * then the equipment's, line by line. The view is live and never copies; it follows every
+     * take, return, equipment change and checkout. Getting an equipment product by index walks
+     * the equipment's lines (see {@link SkuMultiset#get(int)}), so prefer iterating the view.
+     * @return A consolidated, unmodifiable list of all {@link Product}s.
      */
     public List<Product> getAllProducts() {
-        List<Product> all = new ArrayList<>(this.handCarried);
-        if (this.equipment != null) all.addAll(this.equipment.getCurrentProducts());
-        return all;
+        if (allProducts == null) allProducts = new AbstractList<>() {
+            @Override
+            public Product get(int index) {
+                List<Product> handCarried = getHandCarried();
+                Equipment equipment = getEquipment();
+                if (index < handCarried.size()) return handCarried.get(index);
+                if (equipment == null) throw new IndexOutOfBoundsException(index);
+                return equipment.getContents().get(index - handCarried.size());
+            }
+
+            @Override
+            public int size() { return getProductCount(); }
+
+            @Override
+            public Iterator<Product> iterator() {
+                List<Product> handCarried = getHandCarried();
+                Equipment equipment = getEquipment();
+                if (equipment == null || equipment.isEmpty()) return Collections.unmodifiableList(handCarried).iterator();
+                if (handCarried.isEmpty()) return equipment.getContents().iterator();
+                return super.iterator();
+            }
+        };
+        return allProducts;
+    }
+
+    /**
+     * Gets the number of products held (hand-carried and equipment).
+     * @return The product count.
+     */
+    public int getProductCount() {
+        Equipment equipment = getEquipment();
+        return getHandCarried().size() + (equipment != null ? equipment.getContents().size() : 0);
+    }
+
+    /**
+     * Gets the summed price of every product held, before any discount.
+     * @return The running total in PHP.
+     */
+    public double getProductTotal() {
+        Equipment equipment = getEquipment();
+        double total = (equipment != null) ? equipment.getContents().getTotalPrice() : 0.0;
+        for (Product p : getHandCarried()) total += p.getPrice();
+        return total;
+    }
+
+    /**
+     * Checks if the shopper is holding any alcohol.
+     * @return {@code true} if at least one held product is alcohol.
+     */
+    public boolean hasAlcohol() {
+        Equipment equipment = getEquipment();
+        if (equipment != null && equipment.getContents().getAlcoholCount() > 0) return true;
+        for (Product p : getHandCarried()) {
+            if (p.isAlcohol()) return true;
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+/**
+ * ShopperAction.java
+ *
+ * This enumeration defines the discrete actions a shopper can perform during one
+ * tick of the headless simulation engine.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * Defines the actions a {@link Shopper} can take in a single {@link Simulation} tick.
+ * Each action carries one integer argument whose meaning depends on the action
+ * (a {@link Direction} ordinal, a display slot, or an inventory index).
+ */
+public enum ShopperAction {
+
+    /** Do nothing this tick. */
+    IDLE,
+    /** Move one tile; the argument is the {@link Direction} ordinal. */
+    MOVE,
+    /** Turn to face a direction; the argument is the {@link Direction} ordinal. */
+    FACE,
+    /** Take a product from the display in vision; the argument is the display slot. */
+    TAKE,
+    /** Return a held product to the display in vision; the argument is the inventory index. */
+    RETURN,
+    /** Pick up or return a Cart/Basket at the station in vision. The argument is unused. */
+    EQUIPMENT,
+    /** Pay at the checkout counter in vision. The argument is unused. */
+    CHECKOUT,
+    /** Leave through the exit in vision. The argument is unused. */
+    EXIT,
+    /** Use any other service in vision (e.g., the Entrance or Stairs). The argument is unused. */
+    INTERACT;
+
+    /**
+     * Picks the interaction action that matches the amenity the shopper is facing.
+     *
+     * @param amenity The {@link Amenity} in the shopper's vision.
+     * @return {@link #EQUIPMENT}, {@link #CHECKOUT}, {@link #EXIT}, or {@link #INTERACT}.
+     */
+    public static ShopperAction interactionWith(Amenity amenity) {
+        if (amenity instanceof CartStation || amenity instanceof BasketStation) return EQUIPMENT;
+        if (amenity instanceof CheckoutCounter) return CHECKOUT;
+        if (amenity instanceof Exit) return EXIT;
+        return INTERACT;
+    }
+}
\ No newline at end of file
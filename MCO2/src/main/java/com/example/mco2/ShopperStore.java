@@ -0,0 +1,327 @@
+/**
+ * ShopperStore.java
+ *
+ * This class packs the state of many simulated shoppers into parallel primitive arrays,
+ * so that runs with a million agents do not need a million Shopper objects.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A struct-of-arrays store of shoppers.
+ * <p>
+ * Every shopper is an index. Position, floor, facing, flags (checked out, exited) and age are
+ * stored in parallel primitive arrays, and the (at most two) hand-carried products as SKU ids.
+ * Only shoppers holding a Cart or Basket own an object: their {@link Equipment}. All shoppers
+ * share one {@link SupermarketMap} reference. Loops over the whole population, such as skipping
+ * the shoppers who already left, read a single {@code byte[]} instead of chasing pointers.
+ * <p>
+ * {@link #get(int)} returns a lightweight {@link Shopper} view of one index, so amenities, listeners
+ * and the rest of the simulation work unchanged. Views hold no state of their own; every call reads
+ * or writes the arrays, so any number of views of the same shopper always agree.
+ */
+public class ShopperStore {
+    private static final byte CHECKED_OUT_FLAG = 1;
+    private static final byte EXITED_FLAG = 2;
+    /** Number of hand-carry slots per shopper (see {@link Shopper#takeProduct(Product)}). */
+    private static final int HAND_SLOTS = 2;
+
+    private final SupermarketMap map;
+    private final Direction[] directions = Direction.values();
+    private Product[] productsBySku;
+    private String[] names;
+    private short[] ages;
+    private short[] xs;
+    private short[] ys;
+    private byte[] floors;
+    private byte[] facings;
+    private byte[] flags;
+    private int[] handSkus;
+    private Equipment[] equipment;
+    private int size;
+
+    /**
+     * Constructs an empty store for shoppers in the given map.
+     *
+     * @param map The {@link SupermarketMap} every shopper is in.
+     * @param initialCapacity How many shoppers to make room for up front.
+     */
+    public ShopperStore(SupermarketMap map, int initialCapacity) {
+        this.map = map;
+        this.productsBySku = new Product[0];
+        for (Product p : map.getAllProducts()) rememberProduct(p);
+        int capacity = Math.max(initialCapacity, 16);
+        this.names = new String[capacity];
+        this.ages = new short[capacity];
+        this.xs = new short[capacity];
+        this.ys = new short[capacity];
+        this.floors = new byte[capacity];
+        this.facings = new byte[capacity];
+        this.flags = new byte[capacity];
+        this.handSkus = new int[capacity * HAND_SLOTS];
+        this.equipment = new Equipment[capacity];
+    }
+
+    /**
+     * Adds a shopper facing north on the Ground Floor, like a new {@link Shopper}.
+     *
+     * @param name The name of the shopper.
+     * @param age The age of the shopper.
+     * @param startPosition The tile the shopper starts on.
+     * @return A view of the new shopper.
+     */
+    public Shopper add(String name, int age, Point startPosition) {
+        if (size == names.length) grow();
+        int i = size++;
+        names[i] = name;
+        ages[i] = (short) age;
+        xs[i] = (short) startPosition.getX();
+        ys[i] = (short) startPosition.getY();
+        floors[i] = 0;
+        facings[i] = (byte) Direction.NORTH.ordinal();
+        return new View(i);
+    }
+
+    /**
+     * Removes every shopper, keeping the arrays for the next run. Views of removed shoppers
+     * must not be used afterwards.
+     */
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(flags, 0, size, (byte) 0);
+        Arrays.fill(handSkus, 0, size * HAND_SLOTS, 0);
+        Arrays.fill(equipment, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Gets a view of one shopper. Views are cheap, and any number may exist for the same index.
+     *
+     * @param index The index of the shopper (in the order they were added).
+     * @return A {@link Shopper} backed by this store.
+     */
+    public Shopper get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return new View(index);
+    }
+
+    /**
+     * Gets a read-only list of views of every shopper, in the order they were added.
+     *
+     * @return A list whose elements are created on demand by {@link #get(int)}.
+     */
+    public List<Shopper> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Shopper get(int index) { return ShopperStore.this.get(index); }
+
+            @Override
+            public int size() { return size; }
+        };
+    }
+
+    /**
+     * Checks if a shopper has left the store, without creating a view.
+     *
+     * @param index The index of the shopper.
+     * @return {@code true} if the shopper has exited.
+     */
+    public boolean hasExited(int index) { return (flags[index] & EXITED_FLAG) != 0; }
+
+    /**
+     * Checks if a shopper has paid, without creating a view.
+     *
+     * @param index The index of the shopper.
+     * @return {@code true} if the shopper has checked out.
+     */
+    public boolean hasCheckedOut(int index) { return (flags[index] & CHECKED_OUT_FLAG) != 0; }
+
+    /**
+     * Gets the column of a shopper, without creating a view.
+     *
+     * @param index The index of the shopper.
+     * @return The x-coordinate.
+     */
+    public int getX(int index) { return xs[index]; }
+
+    /**
+     * Gets the row of a shopper, without creating a view.
+     *
+     * @param index The index of the shopper.
+     * @return The y-coordinate.
+     */
+    public int getY(int index) { return ys[index]; }
+
+    /**
+     * Gets the floor of a shopper, without creating a view.
+     *
+     * @param index The index of the shopper.
+     * @return The floor index.
+     */
+    public int getFloor(int index) { return floors[index]; }
+
+    /**
+     * Gets the number of shoppers in the store.
+     * @return The shopper count.
+     */
+    public int size() { return size; }
+
+    /**
+     * Makes a product findable by SKU id, so hand-carried SKU ids can be turned back into products.
+     *
+     * @param product The {@link Product}.
+     */
+    private void rememberProduct(Product product) {
+        int sku = product.getSkuId();
+        if (sku >= productsBySku.length) productsBySku = Arrays.copyOf(productsBySku, Math.max(sku + 1, productsBySku.length * 2));
+        if (productsBySku[sku] == null) productsBySku[sku] = product;
+    }
+
+    /**
+     * Doubles the capacity of every array.
+     */
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        floors = Arrays.copyOf(floors, capacity);
+        facings = Arrays.copyOf(facings, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        handSkus = Arrays.copyOf(handSkus, capacity * HAND_SLOTS);
+        equipment = Arrays.copyOf(equipment, capacity);
+    }
+
+    /**
+     * A {@link Shopper} whose state lives in the arrays of the store, at one index.
+     * Every state accessor of {@link Shopper} is overridden; the movement, carrying and
+     * summary logic is inherited unchanged.
+     */
+    private final class View extends Shopper {
+        private final int index;
+        private List<Product> handCarried;
+
+        /**
+         * Constructs a view of one shopper.
+         *
+         * @param index The index of the shopper.
+         */
+        View(int index) { this.index = index; }
+
+        @Override
+        public String getName() { return names[index]; }
+
+        @Override
+        public int getAge() { return ages[index]; }
+
+        @Override
+        public Point getPosition() { return new Point(xs[index], ys[index]); }
+
+        @Override
+        public Direction getFacing() { return directions[facings[index]]; }
+
+        @Override
+        public void face(Direction direction) { facings[index] = (byte) direction.ordinal(); }
+
+        @Override
+        public int getCurrentFloor() { return floors[index]; }
+
+        @Override
+        protected void setLocation(Point position, int floor) {
+            xs[index] = (short) position.getX();
+            ys[index] = (short) position.getY();
+            floors[index] = (byte) floor;
+        }
+
+        @Override
+        public Equipment getEquipment() { return equipment[index]; }
+
+        @Override
+        public void setEquipment(Equipment newEquipment) { equipment[index] = newEquipment; }
+
+        @Override
+        public boolean getHasCheckedOut() { return hasCheckedOut(index); }
+
+        @Override
+        public void setHasCheckedOut(boolean status) {
+            flags[index] = (byte) (status ? flags[index] | CHECKED_OUT_FLAG : flags[index] & ~CHECKED_OUT_FLAG);
+        }
+
+        @Override
+        public boolean getHasExited() { return hasExited(index); }
+
+        @Override
+        protected void markExited(boolean status) {
+            flags[index] = (byte) (status ? flags[index] | EXITED_FLAG : flags[index] & ~EXITED_FLAG);
+        }
+
+        @Override
+        public SupermarketMap getCurrentMap() { return map; }
+
+        @Override
+        public void setCurrentMap(SupermarketMap newMap) {
+            if (newMap != map) throw new UnsupportedOperationException("Every shopper in a store shares its map.");
+        }
+
+        /**
+         * Gets a mutable list over the hand-carry slots of the shopper.
+         * @return The list of hand-carried {@link Product}s.
+         */
+        @Override
+        public List<Product> getHandCarried() {
+            if (handCarried == null) handCarried = new AbstractList<>() {
+                private final int base = index * HAND_SLOTS;
+
+                @Override
+                public Product get(int i) {
+                    if (i < 0 || i >= size()) throw new IndexOutOfBoundsException(i);
+                    return productsBySku[handSkus[base + i] - 1];
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    while (count < HAND_SLOTS && handSkus[base + count] != 0) count++;
+                    return count;
+                }
+
+                @Override
+                public Product set(int i, Product product) {
+                    Product old = get(i);
+                    rememberProduct(product);
+                    handSkus[base + i] = product.getSkuId() + 1;
+                    return old;
+                }
+
+                @Override
+                public void add(int i, Product product) {
+                    int n = size();
+                    if (i < 0 || i > n) throw new IndexOutOfBoundsException(i);
+                    if (n == HAND_SLOTS) throw new IllegalStateException("Both hands are full.");
+                    rememberProduct(product);
+                    for (int s = n; s > i; s--) handSkus[base + s] = handSkus[base + s - 1];
+                    handSkus[base + i] = product.getSkuId() + 1;
+                    modCount++;
+                }
+
+                @Override
+                public Product remove(int i) {
+                    Product old = get(i);
+                    for (int s = i; s < HAND_SLOTS - 1; s++) handSkus[base + s] = handSkus[base + s + 1];
+                    handSkus[base + HAND_SLOTS - 1] = 0;
+                    modCount++;
+                    return old;
+                }
+            };
+            return handCarried;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+/**
+ * ShoppingRoute.java
+ *
+ * This class holds a planned walk through the store for one shopping list: the displays
+ * to visit in order, then a checkout counter and the Exit, with the steps between them.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable route produced by a {@link RoutePlanner}.
+ * <p>
+ * Stop {@code i} is reached by following {@link #getLeg(int)} from the end of the previous stop
+ * (the first leg starts where the route was planned from). A leg to a {@link Display}, a station
+ * or the {@link Exit} is a list of moves followed by the {@link Direction} to face it, as in
+ * {@link PathFinder#routeTo(Point, int, Amenity)}; a leg to a {@link CheckoutCounter} ends by
+ * stepping onto the counter, which checks the shopper out.
+ */
+public class ShoppingRoute {
+    private final List<Amenity> stops;
+    private final List<List<Direction>> legs;
+    private final List<List<Product>> products;
+    private final Point[] positions;
+    private final int[] floors;
+    private final List<Product> unavailable;
+    private final int length;
+
+    /**
+     * Constructs a route. Called by {@link RoutePlanner}.
+     *
+     * @param stops The amenities to visit, in order.
+     * @param legs The steps leading to each stop.
+     * @param products The products to take at each stop (empty for the counter and the Exit).
+     * @param positions The tile the shopper ends each leg on.
+     * @param floors The floor of each of those tiles.
+     * @param unavailable The products on the list that no reachable display has in stock.
+     * @param length The total number of moves.
+     */
+    ShoppingRoute(List<Amenity> stops, List<List<Direction>> legs, List<List<Product>> products,
+                  Point[] positions, int[] floors, List<Product> unavailable, int length) {
+        this.stops = Collections.unmodifiableList(stops);
+        this.legs = Collections.unmodifiableList(legs);
+        this.products = Collections.unmodifiableList(products);
+        this.positions = positions;
+        this.floors = floors;
+        this.unavailable = Collections.unmodifiableList(unavailable);
+        this.length = length;
+    }
+
+    /**
+     * Gets the amenities to visit: a basket or cart station (for long lists), displays, then a checkout
+     * counter (if anything is bought), then the Exit.
+     * @return The stops, in order.
+     */
+    public List<Amenity> getStops() { return stops; }
+
+    /**
+     * Gets the number of stops.
+     * @return The stop count.
+     */
+    public int getStopCount() { return stops.size(); }
+
+    /**
+     * Gets the steps leading from the previous stop to a stop.
+     *
+     * @param stop The index of the stop.
+     * @return The moves to make, ending with the direction to face (or the step onto a counter).
+     */
+    public List<Direction> getLeg(int stop) { return legs.get(stop); }
+
+    /**
+     * Gets the products to take at a stop.
+     *
+     * @param stop The index of the stop.
+     * @return The {@link Product}s to take (repeated for several units), empty if the stop is not a display.
+     */
+    public List<Product> getProductsAt(int stop) { return products.get(stop); }
+
+    /**
+     * Gets the tile a shopper stands on at a stop: the tile next to a display, station or the Exit
+     * from which it is used, or the checkout counter itself.
+     *
+     * @param stop The index of the stop.
+     * @return The {@link Point} of the tile.
+     */
+    public Point getStandingPosition(int stop) { return positions[stop]; }
+
+    /**
+     * Gets the floor of the tile a shopper stands on at a stop.
+     *
+     * @param stop The index of the stop.
+     * @return The floor index.
+     */
+    public int getStandingFloor(int stop) { return floors[stop]; }
+
+    /**
+     * Gets the products on the list that could not be planned for.
+     * @return The {@link Product}s (one entry per missing unit) that are out of stock everywhere reachable.
+     */
+    public List<Product> getUnavailable() { return unavailable; }
+
+    /**
+     * Gets the walking length of the route.
+     * @return The total number of moves (turns to face a stop are not counted).
+     */
+    public int getLength() { return length; }
+}
\ No newline at end of file
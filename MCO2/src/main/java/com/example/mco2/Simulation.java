@@ -0,0 +1,916 @@
+/**
+ * Simulation.java
+ *
+ * This class is the headless simulation engine. It drives many computer-controlled
+ * shoppers through a SupermarketMap in discrete ticks without any JavaFX window,
+ * using seeded random streams so that every run can be reproduced exactly.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A deterministic, seeded simulation of shoppers moving through the supermarket.
+ * <p>
+ * Every shopper added to the simulation receives its own random stream split from a
+ * single master seed. Each tick runs in two phases:
+ * <ol>
+ *     <li><b>Decide:</b> every shopper picks an action using only the state at the start
+ *     of the tick and its own stream. This phase may run on several threads.</li>
+ *     <li><b>Apply:</b> the chosen actions are applied one by one in shopper order.</li>
+ * </ol>
+ * Because the random numbers used by a shopper in a tick depend only on the master seed,
+ * the shopper's index, and the tick number, a run is bit-for-bit reproducible no matter
+ * how many threads are used.
+ * <p>
+ * With an {@link OccupancyGrid} attached (see {@link #enableOccupancy(int)}), shoppers block each other.
+ * Shoppers heading for a full tile turn instead, and when two shoppers want the last free
+ * spot on a tile, the one applied first wins. The apply phase starts at a different shopper every
+ * tick (rotating with the tick number), so conflicts are settled the same way on every run
+ * without always favouring the shoppers who arrived first.
+ * <p>
+ * With a {@link Heatmap} attached (see {@link #enableHeatmap(int)}), every step, every tick spent
+ * on a tile and every use of an amenity is counted, for finding the busiest aisles and displays.
+ * With {@link SalesAnalytics} enabled (see {@link #enableSalesAnalytics(int, int)}), every checkout is
+ * aggregated into windows of ticks. With {@link Replenishment} enabled (see {@link #enableReplenishment(int)}),
+ * restocking workers refill depleted displays after the shoppers have acted each tick.
+ * With route planning enabled (see {@link #enableRoutePlanning()}), shoppers who arrive with a
+ * shopping list walk a {@link ShoppingRoute} instead of browsing, queueing where the way is full.
+ * <p>
+ * For very large populations, shoppers can be kept in a {@link ShopperStore} instead of one
+ * object each (see {@link #Simulation(long, SupermarketMap, int, boolean)}). Runs are identical
+ * either way; only memory use and speed differ.
+ */
+public class Simulation {
+    /** The tile where every shopper enters the store (the Entrance on the Ground Floor). */
+    private static final Point ENTRANCE_POSITION = new Point(11, 21);
+
+    /** The tile just inside the Entrance, where restocking workers bring stock out of the back room. */
+    private static final Point BACK_ROOM_POSITION = new Point(11, 20);
+
+    /** Ticks a shopper walking a planned route waits for a full tile before stepping aside. */
+    private static final int ROUTE_PATIENCE = 8;
+
+    /** Odd constant used to spread tick numbers across a shopper's seed space. */
+    private static final long TICK_STRIDE = 0xBF58476D1CE4E5B9L;
+
+    private long seed;
+    private SplittableRandom masterRandom;
+    private final SupermarketMap map;
+    private final List<Shopper> shoppers;
+    private final ShopperStore store;
+    private final List<List<Product>> shoppingLists;
+    private final List<ShoppingRoute> routes;
+    private final ForkJoinPool decidePool;
+
+    private InputLog recorder;
+    private StatePublisher publisher;
+    private Replenishment replenishment;
+    private RoutePlanner routePlanner;
+    private int[] routeStops;
+    private int[] routeWaits;
+    private long[] shopperSeeds;
+    private long[] arrivalTicks;
+    private long[] exitTicks;
+    private boolean[] controlled;
+    private ShopperAction[] actions;
+    private int[] actionArgs;
+    private long tick;
+    private long lastDecideNanos;
+    private long lastApplyNanos;
+
+    /**
+     * Constructs a single-threaded simulation on a freshly built {@link SupermarketMap}.
+     *
+     * @param seed The master seed all random streams are derived from.
+     */
+    public Simulation(long seed) {
+        this(seed, new SupermarketMap(), 1);
+    }
+
+    /**
+     * Constructs a simulation on the given map.
+     *
+     * @param seed The master seed all random streams are derived from.
+     * @param map The {@link SupermarketMap} the shoppers walk through.
+     * @param threads The number of threads used for the decide phase (1 = run on the caller's thread).
+     */
+    public Simulation(long seed, SupermarketMap map, int threads) {
+        this(seed, map, threads, false);
+    }
+
+    /**
+     * Constructs a simulation on the given map, choosing how shoppers are stored.
+     *
+     * @param seed The master seed all random streams are derived from.
+     * @param map The {@link SupermarketMap} the shoppers walk through.
+     * @param threads The number of threads used for the decide phase (1 = run on the caller's thread).
+     * @param packedShoppers {@code true} to keep shoppers in a {@link ShopperStore}, for runs with millions of shoppers;
+     *                       {@code false} for one {@link Shopper} object each.
+     */
+    public Simulation(long seed, SupermarketMap map, int threads, boolean packedShoppers) {
+        this.seed = seed;
+        this.masterRandom = new SplittableRandom(seed);
+        this.map = map;
+        this.store = packedShoppers ? new ShopperStore(map, 1024) : null;
+        this.shoppers = packedShoppers ? store.asList() : new ArrayList<>();
+        this.shoppingLists = new ArrayList<>();
+        this.routes = new ArrayList<>();
+        this.decidePool = (threads > 1) ? new ForkJoinPool(threads) : null;
+        this.shopperSeeds = new long[16];
+        this.arrivalTicks = new long[16];
+        this.exitTicks = new long[16];
+        this.controlled = new boolean[16];
+        this.actions = new ShopperAction[16];
+        this.actionArgs = new int[16];
+        this.tick = 0;
+        map.setHeadless(true);
+    }
+
+    /**
+     * Registers the {@code simulation.shoppers} and {@code simulation.tick} gauges in {@link Metrics}.
+     * The registry keeps the simulation reachable for the rest of the process, so this is only for
+     * processes that run a single simulation, such as {@link LoadGenerator#main(String[])}.
+     */
+    public void registerGauges() {
+        Metrics.registerGauge("simulation.shoppers", shoppers::size);
+        Metrics.registerGauge("simulation.tick", this::getTick);
+    }
+
+    /**
+     * Adds a new shopper at the Entrance and splits a random stream for them from the master seed.
+     * Shoppers must be added in the same order for two runs to be identical.
+     *
+     * @param name The name of the shopper.
+     * @param age The age of the shopper.
+     * @return The newly created {@link Shopper}.
+     */
+    public Shopper addShopper(String name, int age) {
+        return addShopper(name, age, null);
+    }
+
+    /**
+     * Adds a new shopper with a shopping list at the Entrance.
+     * Whenever the shopper faces a display stocking an item on the list, they take it
+     * (and it is crossed off the list). With route planning enabled, the shopper instead follows
+     * a route planned for the list. Shopping lists and routes are not saved in snapshots or input
+     * logs; the actions they lead to are.
+     *
+     * @param name The name of the shopper.
+     * @param age The age of the shopper.
+     * @param shoppingList The {@link Product}s (from the map's catalog) the shopper wants, or {@code null} to browse randomly.
+     * @return The newly created {@link Shopper}.
+     */
+    public Shopper addShopper(String name, int age, List<Product> shoppingList) {
+        return addShopper(name, age, shoppingList, false);
+    }
+
+    /**
+     * Adds a new shopper with a shopping list at the Entrance, choosing what they carry it in.
+     *
+     * @param name The name of the shopper.
+     * @param age The age of the shopper.
+     * @param shoppingList The {@link Product}s (from the map's catalog) the shopper wants, or {@code null} to browse randomly.
+     * @param prefersCart {@code true} if a planned route should pick up a cart even when a basket would do.
+     * @return The newly created {@link Shopper}.
+     */
+    public Shopper addShopper(String name, int age, List<Product> shoppingList, boolean prefersCart) {
+        Shopper shopper;
+        if (store != null) {
+            shopper = store.add(name, age, ENTRANCE_POSITION);
+        } else {
+            shopper = new Shopper(name, age, ENTRANCE_POSITION);
+            shopper.setCurrentMap(map);
+            shoppers.add(shopper);
+        }
+        if (map.getOccupancy() != null) map.getOccupancy().enter(ENTRANCE_POSITION, 0);
+
+        int index = shoppers.size() - 1;
+        if (index == shopperSeeds.length) {
+            int newLength = index * 2;
+            shopperSeeds = Arrays.copyOf(shopperSeeds, newLength);
+            arrivalTicks = Arrays.copyOf(arrivalTicks, newLength);
+            exitTicks = Arrays.copyOf(exitTicks, newLength);
+            controlled = Arrays.copyOf(controlled, newLength);
+            actions = Arrays.copyOf(actions, newLength);
+            actionArgs = Arrays.copyOf(actionArgs, newLength);
+            if (routePlanner != null) {
+                routeStops = Arrays.copyOf(routeStops, newLength);
+                routeWaits = Arrays.copyOf(routeWaits, newLength);
+            }
+        }
+        shopperSeeds[index] = masterRandom.split().nextLong();
+        arrivalTicks[index] = tick;
+        exitTicks[index] = -1;
+        shoppingLists.add(shoppingList);
+        routes.add(routePlanner != null && shoppingList != null
+                ? routePlanner.plan(ENTRANCE_POSITION, 0, shoppingList, prefersCart) : null);
+        if (recorder != null) recorder.recordShopper(name, age);
+        return shopper;
+    }
+
+    /**
+     * Adds a shopper controlled by a player instead of the decide phase. Each tick, the player's
+     * shopper applies the action last given to {@link #submit(int, ShopperAction, int)}, or idles.
+     *
+     * @param name The name of the player.
+     * @param age The age of the player.
+     * @return The newly created {@link Shopper}; their index is one less than the shopper count.
+     */
+    public Shopper addPlayer(String name, int age) {
+        Shopper shopper = addShopper(name, age);
+        int index = shoppers.size() - 1;
+        controlled[index] = true;
+        actions[index] = ShopperAction.IDLE;
+        return shopper;
+    }
+
+    /**
+     * Sets the action a player's shopper applies in the next tick, replacing any action submitted
+     * since the last tick.
+     *
+     * @param shopperIndex The index of a shopper added with {@link #addPlayer(String, int)}.
+     * @param action The {@link ShopperAction}.
+     * @param arg The action argument.
+     * @throws IllegalArgumentException if the shopper is not controlled by a player.
+     */
+    public void submit(int shopperIndex, ShopperAction action, int arg) {
+        if (shopperIndex < 0 || shopperIndex >= shoppers.size() || !controlled[shopperIndex]) {
+            throw new IllegalArgumentException("Shopper " + shopperIndex + " is not controlled by a player.");
+        }
+        actions[shopperIndex] = action;
+        actionArgs[shopperIndex] = arg;
+    }
+
+    /**
+     * Takes a shopper out of the store at once, as if they had walked out, such as a player who
+     * disconnected. Whatever they carry leaves with them. Recorded if a recorder is attached.
+     *
+     * @param shopperIndex The index of the shopper.
+     */
+    public void removeShopper(int shopperIndex) {
+        if (hasExited(shopperIndex)) return;
+        shoppers.get(shopperIndex).setHasExited(true);
+        exitTicks[shopperIndex] = tick;
+        actions[shopperIndex] = ShopperAction.IDLE;
+        if (recorder != null) recorder.recordLeave(shopperIndex);
+    }
+
+    /**
+     * Advances the simulation by one tick (decide phase, then apply phase).
+     */
+    public void step() {
+        SimulatorEvents.SimulationTick event = SimulatorEvents.isRecording() ? new SimulatorEvents.SimulationTick() : null;
+        if (event != null) event.begin();
+        int count = shoppers.size();
+        long start = System.nanoTime();
+        if (decidePool != null && count > 1) {
+            decidePool.submit(() -> IntStream.range(0, count).parallel().forEach(this::decide)).join();
+        } else {
+            for (int i = 0; i < count; i++) decide(i);
+        }
+
+        long decided = System.nanoTime();
+        int first = (map.getOccupancy() != null && count > 0) ? (int) (tick % count) : 0;
+        for (int n = 0; n < count; n++) {
+            int i = first + n < count ? first + n : first + n - count;
+            apply(i, actions[i], actionArgs[i]);
+            if (controlled[i]) actions[i] = ShopperAction.IDLE;
+        }
+        if (replenishment != null) replenishment.tick(tick);
+        lastDecideNanos = decided - start;
+        lastApplyNanos = System.nanoTime() - decided;
+        Metrics.DECIDE_TIME.record(lastDecideNanos);
+        Metrics.APPLY_TIME.record(lastApplyNanos);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = tick;
+                event.shoppers = count;
+                event.commit();
+            }
+        }
+        endTick();
+    }
+
+    /**
+     * Ends the current tick without running the decide phase.
+     * Used by {@link Replay}, which applies recorded actions instead of choosing new ones.
+     */
+    public void endTick() {
+        if (recorder != null) recorder.recordTickEnd();
+        Heatmap heatmap = map.getHeatmap();
+        if (heatmap != null) {
+            if (store != null) {
+                for (int i = 0; i < store.size(); i++) {
+                    if (!store.hasExited(i)) heatmap.dwell(new Point(store.getX(i), store.getY(i)), store.getFloor(i));
+                }
+            } else {
+                for (Shopper s : shoppers) {
+                    if (!s.getHasExited()) heatmap.dwell(s.getPosition(), s.getCurrentFloor());
+                }
+            }
+            heatmap.endTick(tick);
+        }
+        if (publisher != null) publisher.endTick(tick);
+        tick++;
+    }
+
+    /**
+     * Advances the simulation by the given number of ticks.
+     *
+     * @param ticks The number of ticks to run.
+     */
+    public void run(int ticks) {
+        for (int t = 0; t < ticks; t++) step();
+    }
+
+    /**
+     * Creates the random stream a shopper uses during the current tick.
+     * The stream depends only on the master seed, the shopper's index and the tick number.
+     *
+     * @param shopperIndex The index of the shopper (in the order they were added).
+     * @return A new {@link SplittableRandom} for this shopper and tick.
+     */
+    private SplittableRandom streamFor(int shopperIndex) {
+        return new SplittableRandom(shopperSeeds[shopperIndex] + tick * TICK_STRIDE);
+    }
+
+    /**
+     * Chooses the action of one shopper for the current tick.
+     * Only reads the map and shopper state, so it is safe to run for many shoppers at once.
+     *
+     * @param index The index of the shopper deciding.
+     */
+    private void decide(int index) {
+        // A player's action was submitted before the tick
+        if (controlled[index]) return;
+        ShopperAction action = ShopperAction.IDLE;
+        int arg = 0;
+
+        if (!hasExited(index)) {
+            Shopper shopper = shoppers.get(index);
+            ShoppingRoute route = routes.get(index);
+            if (route != null) {
+                followRoute(index, shopper, route);
+                return;
+            }
+            SplittableRandom random = streamFor(index);
+            Amenity ahead = map.getAmenityInVision(shopper.getPosition(), shopper.getFacing(), shopper.getCurrentFloor());
+            int roll = random.nextInt(100);
+
+            List<Product> wanted = shoppingLists.get(index);
+            int wantedSlot = (ahead instanceof Display && wanted != null && !shopper.getHasCheckedOut())
+                    ? findWanted((Display) ahead, wanted) : -1;
+
+            if (wantedSlot >= 0) {
+                action = ShopperAction.TAKE;
+                arg = wantedSlot;
+            } else if (ahead instanceof Display && roll < 30) {
+                Display display = (Display) ahead;
+                int held = shopper.getProductCount();
+                if (roll < 20 && !shopper.getHasCheckedOut() && display.getProductCount() > 0) {
+                    action = ShopperAction.TAKE;
+                    arg = random.nextInt(display.getProductCount());
+                } else if (held > 0) {
+                    action = ShopperAction.RETURN;
+                    arg = random.nextInt(held);
+                }
+            } else if (ahead instanceof Service && !ahead.isPassable() && roll < 50) {
+                action = ShopperAction.interactionWith(ahead);
+            }
+
+            if (action == ShopperAction.IDLE) {
+                if (roll < 80 && !isCrowdedAhead(shopper, ahead)) {
+                    action = ShopperAction.MOVE;
+                    arg = shopper.getFacing().ordinal();
+                } else {
+                    action = ShopperAction.FACE;
+                    arg = random.nextInt(Direction.values().length);
+                }
+            }
+        }
+        actions[index] = action;
+        actionArgs[index] = arg;
+    }
+
+    /**
+     * Chooses the next action of a shopper walking a planned route.
+     * <p>
+     * Rather than replaying the planned moves, the shopper takes any step that brings them one
+     * tile closer to where they stand at their next stop, so they can go around a full tile. When
+     * every such step is full they wait (e.g., in line for a checkout counter); after waiting
+     * {@value #ROUTE_PATIENCE} ticks they step aside to any free tile instead, which breaks up
+     * gridlock in narrow aisles. Only this shopper's route position is updated, so it is safe
+     * to run for many shoppers at once.
+     *
+     * @param index The index of the shopper deciding.
+     * @param shopper The {@link Shopper}.
+     * @param route The shopper's {@link ShoppingRoute}.
+     */
+    private void followRoute(int index, Shopper shopper, ShoppingRoute route) {
+        ShopperAction action = ShopperAction.IDLE;
+        int arg = 0;
+        PathFinder pathFinder = routePlanner.getPathFinder();
+        int here = pathFinder.tileOf(shopper.getPosition(), shopper.getCurrentFloor());
+        while (routeStops[index] < route.getStopCount()) {
+            int stop = routeStops[index];
+            Amenity target = route.getStops().get(stop);
+            int goal = pathFinder.tileOf(route.getStandingPosition(stop), route.getStandingFloor(stop));
+            if (here != goal) {
+                Direction step = stepTowards(index, shopper, here, goal);
+                if (step != null) {
+                    action = ShopperAction.MOVE;
+                    arg = step.ordinal();
+                }
+                break;
+            }
+            if (!(target instanceof CheckoutCounter)) {
+                List<Direction> leg = route.getLeg(stop);
+                Direction facing = leg.get(leg.size() - 1);
+                if (shopper.getFacing() != facing) {
+                    action = ShopperAction.FACE;
+                    arg = facing.ordinal();
+                    break;
+                }
+                if (target instanceof Display) {
+                    int slot = shopper.getHasCheckedOut() ? -1 : findWanted((Display) target, shoppingLists.get(index));
+                    if (slot >= 0) {
+                        action = ShopperAction.TAKE;
+                        arg = slot;
+                        break;
+                    }
+                } else if (target instanceof Exit) {
+                    if (shopper.hasEquipment()) {
+                        // Nothing was bought, so the equipment was never taken back at a counter
+                        route = routePlanner.planReturn(shopper.getPosition(), shopper.getCurrentFloor(), shopper.getEquipment());
+                        routes.set(index, route);
+                        routeStops[index] = 0;
+                        continue;
+                    }
+                    action = ShopperAction.EXIT;
+                    break;
+                } else {
+                    // A station is used once; whether it worked shows in the shopper's state
+                    action = ShopperAction.interactionWith(target);
+                    routeStops[index]++;
+                    break;
+                }
+            }
+            routeStops[index]++;
+        }
+        actions[index] = action;
+        actionArgs[index] = arg;
+    }
+
+    /**
+     * Picks the step a route-following shopper takes towards a tile, and counts the ticks they wait.
+     *
+     * @param index The index of the shopper.
+     * @param shopper The {@link Shopper}.
+     * @param here The tile number the shopper is on.
+     * @param goal The tile number they are heading for.
+     * @return The {@link Direction} to move in, or {@code null} to wait.
+     */
+    private Direction stepTowards(int index, Shopper shopper, int here, int goal) {
+        PathFinder pathFinder = routePlanner.getPathFinder();
+        int remaining = pathFinder.distancesFrom(here)[goal];
+        OccupancyGrid occupancy = map.getOccupancy();
+        Direction best = null, aside = null;
+        int bestCrowd = Integer.MAX_VALUE, free = 0;
+        SplittableRandom random = routeWaits[index] >= ROUTE_PATIENCE ? streamFor(index) : null;
+        for (Direction d : Direction.values()) {
+            int next = pathFinder.stepFrom(here, d);
+            // Never step onto a counter on the way somewhere else, since that checks the shopper out
+            if (next < 0 || (next != goal && !pathFinder.canPassOver(next)) || isCrowded(shopper, d)) continue;
+            int left = next == goal ? 0 : pathFinder.distancesFrom(next)[goal];
+            if (left != PathFinder.UNREACHABLE && left < remaining) {
+                // Of the steps that get closer, take the emptiest, so two-way traffic spreads over parallel aisles
+                Point p = pathFinder.pointOf(next);
+                int crowd = occupancy == null ? 0 : occupancy.getOccupancy(p.getX(), p.getY(), pathFinder.floor(next));
+                if (crowd < bestCrowd) {
+                    best = d;
+                    bestCrowd = crowd;
+                }
+            } else if (random != null && random.nextInt(++free) == 0) {
+                // Reservoir sampling keeps the choice of free tile uniform with one pass
+                aside = d;
+            }
+        }
+        if (best == null) best = aside;
+        routeWaits[index] = best == null ? routeWaits[index] + 1 : 0;
+        return best;
+    }
+
+    /**
+     * Checks if a shopper has left the store. With a {@link ShopperStore} this reads a flag
+     * without creating a view, which keeps the many shoppers who already left cheap to skip.
+     *
+     * @param index The index of the shopper.
+     * @return {@code true} if the shopper has exited.
+     */
+    private boolean hasExited(int index) {
+        return store != null ? store.hasExited(index) : shoppers.get(index).getHasExited();
+    }
+
+    /**
+     * Checks if the tile in front of a shopper is full of other shoppers (as of the start of the tick).
+     *
+     * @param shopper The {@link Shopper} about to move.
+     * @param ahead The amenity in front of them, or {@code null}.
+     * @return {@code true} if an occupancy grid is attached and the shopper would not fit.
+     */
+    private boolean isCrowdedAhead(Shopper shopper, Amenity ahead) {
+        OccupancyGrid occupancy = map.getOccupancy();
+        if (occupancy == null) return false;
+        Point next = shopper.getPosition().getNextPosition(shopper.getFacing());
+        return !occupancy.hasRoomFor(next, shopper.getCurrentFloor(), ahead);
+    }
+
+    /**
+     * Checks if the tile a shopper would step onto is full of other shoppers (as of the start of the tick).
+     *
+     * @param shopper The {@link Shopper} about to move.
+     * @param direction The {@link Direction} of the step.
+     * @return {@code true} if an occupancy grid is attached and the shopper would not fit.
+     */
+    private boolean isCrowded(Shopper shopper, Direction direction) {
+        OccupancyGrid occupancy = map.getOccupancy();
+        if (occupancy == null) return false;
+        Point next = shopper.getPosition().getNextPosition(direction);
+        Amenity target = map.getAmenityAt(next.getX(), next.getY(), shopper.getCurrentFloor());
+        return !occupancy.hasRoomFor(next, shopper.getCurrentFloor(), target);
+    }
+
+    /**
+     * Finds the first slot of a display holding a product from a shopping list.
+     *
+     * @param display The {@link Display} the shopper is facing.
+     * @param wanted The products still on the shopper's list.
+     * @return The slot index, or -1 if the display has nothing the shopper wants.
+     */
+    private static int findWanted(Display display, List<Product> wanted) {
+        if (wanted.isEmpty()) return -1;
+        int count = display.getProductCount();
+        for (int i = 0; i < count; i++) {
+            if (wanted.contains(display.getProductAt(i))) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Applies a single action to a shopper and records it if a recorder is attached.
+     * Actions that are no longer possible (e.g., another shopper took the last product first)
+     * are ignored.
+     *
+     * @param shopperIndex The index of the acting {@link Shopper}.
+     * @param action The {@link ShopperAction} to perform.
+     * @param arg The action argument (see {@link ShopperAction}).
+     * @return {@code true} if the action changed the state of the simulation; {@code false} otherwise.
+     */
+    public boolean apply(int shopperIndex, ShopperAction action, int arg) {
+        if (action == ShopperAction.IDLE || hasExited(shopperIndex)) return false;
+        Shopper shopper = shoppers.get(shopperIndex);
+        if (recorder != null) recorder.recordAction(shopperIndex, action, arg);
+        Amenity ahead = map.getAmenityInVision(shopper.getPosition(), shopper.getFacing(), shopper.getCurrentFloor());
+
+        switch (action) {
+            case MOVE: {
+                Point before = shopper.getPosition();
+                int floorBefore = shopper.getCurrentFloor();
+                shopper.move(Direction.values()[arg], map);
+                return !before.equals(shopper.getPosition()) || floorBefore != shopper.getCurrentFloor();
+            }
+            case FACE:
+                shopper.face(Direction.values()[arg]);
+                return true;
+            case TAKE: {
+                if (!(ahead instanceof Display)) return false;
+                Display display = (Display) ahead;
+                Product product = display.takeProductAt(arg);
+                if (product == null) return false;
+                // Crossed off the list, or given up on if the shopper cannot carry it (full, or underage for alcohol)
+                List<Product> wanted = shoppingLists.get(shopperIndex);
+                if (wanted != null) wanted.remove(product);
+                if (!shopper.takeProduct(product)) {
+                    display.returnProduct(product);
+                    return false;
+                }
+                countInteraction(shopper);
+                return true;
+            }
+            case RETURN: {
+                if (!(ahead instanceof Display)) return false;
+                List<Product> held = shopper.getAllProducts();
+                if (arg < 0 || arg >= held.size()) return false;
+                Product product = held.get(arg);
+                if (!((Display) ahead).returnProduct(product)) return false;
+                shopper.returnProduct(product);
+                countInteraction(shopper);
+                return true;
+            }
+            case EQUIPMENT:
+            case CHECKOUT:
+            case EXIT:
+            case INTERACT:
+                if (ahead == null || ahead instanceof Display) return false;
+                countInteraction(shopper);
+                ahead.interact(shopper);
+                if (hasExited(shopperIndex)) exitTicks[shopperIndex] = tick;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Counts a shopper using the amenity in front of them on the heatmap, if one is attached.
+     *
+     * @param shopper The {@link Shopper} interacting.
+     */
+    private void countInteraction(Shopper shopper) {
+        Heatmap heatmap = map.getHeatmap();
+        if (heatmap != null) heatmap.interact(shopper.getPosition().getNextPosition(shopper.getFacing()), shopper.getCurrentFloor());
+    }
+
+    /**
+     * Computes a hash of the full simulation state (shoppers and display stock).
+     * Two runs with the same seed and the same shoppers have equal fingerprints after
+     * the same number of ticks, which makes it easy to check that a run was reproduced.
+     *
+     * @return A 64-bit fingerprint of the current state.
+     */
+    public long fingerprint() {
+        long hash = 1125899906842597L;
+        for (Shopper s : shoppers) {
+            hash = 31 * hash + s.getPosition().getX();
+            hash = 31 * hash + s.getPosition().getY();
+            hash = 31 * hash + s.getCurrentFloor();
+            hash = 31 * hash + s.getFacing().ordinal();
+            hash = 31 * hash + (s.hasEquipment() ? s.getEquipment().getName().hashCode() : 0);
+            hash = 31 * hash + (s.getHasCheckedOut() ? 1 : 0) + (s.getHasExited() ? 2 : 0);
+            for (Product p : s.getAllProducts()) hash = 31 * hash + p.getSerialNumber().hashCode();
+        }
+        for (Display d : map.getAllDisplays()) {
+            int count = d.getProductCount();
+            hash = 31 * hash + count;
+            for (int i = 0; i < count; i++) hash = 31 * hash + d.getProductAt(i).getSerialNumber().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Attaches a new {@link OccupancyGrid} with the given tile capacity to the map, so shoppers block each other.
+     *
+     * @param tileCapacity How many shoppers may stand on an ordinary tile.
+     * @return The new grid, for reading how many shoppers stand on each tile.
+     */
+    public OccupancyGrid enableOccupancy(int tileCapacity) {
+        OccupancyGrid occupancy = new OccupancyGrid(map, tileCapacity);
+        setOccupancy(occupancy);
+        return occupancy;
+    }
+
+    /**
+     * Attaches an occupancy grid to the map and fills it with the shoppers already in the store.
+     * Set any per-tile capacities before attaching the grid, so that a recording captures them.
+     *
+     * @param occupancy An empty {@link OccupancyGrid} for this simulation's map, or {@code null} to turn collisions off.
+     */
+    public void setOccupancy(OccupancyGrid occupancy) {
+        if (occupancy != null) {
+            for (Shopper s : shoppers) {
+                if (!s.getHasExited()) occupancy.enter(s.getPosition(), s.getCurrentFloor());
+            }
+        }
+        map.setOccupancy(occupancy);
+        if (recorder != null && occupancy != null) recorder.recordOccupancy(occupancy);
+    }
+
+    /**
+     * Attaches a new {@link Heatmap} to the map, so shopper traffic is counted from now on.
+     *
+     * @param snapshotInterval How many ticks between published snapshots (see {@link Heatmap#getLatest()}),
+     *                         or 0 to only take snapshots on demand.
+     * @return The new heatmap.
+     */
+    public Heatmap enableHeatmap(int snapshotInterval) {
+        Heatmap heatmap = new Heatmap(map);
+        heatmap.setSnapshotInterval(snapshotInterval);
+        map.setHeatmap(heatmap);
+        return heatmap;
+    }
+
+    /**
+     * Starts aggregating every checkout into windows of simulated time.
+     *
+     * @param windowTicks The length of each tumbling window in ticks.
+     * @param slidingWindows How many tumbling windows the sliding window spans.
+     * @return The {@link SalesAnalytics}, already listening to the map's checkouts.
+     */
+    public SalesAnalytics enableSalesAnalytics(int windowTicks, int slidingWindows) {
+        SalesAnalytics analytics = new SalesAnalytics(this::getTick, windowTicks, slidingWindows,
+                SalesAnalytics.DEFAULT_SKU_CAPACITY);
+        map.addCheckoutListener(analytics);
+        return analytics;
+    }
+
+    /**
+     * Starts restocking displays from a back room by the Entrance, using default stock levels
+     * (40 units of every product, reordering 40 more when 10 are left, delivered after 200 ticks).
+     * Call this before shoppers start taking products, since each display is refilled with the
+     * product it holds now.
+     *
+     * @param workers The number of restocking workers.
+     * @return The {@link Replenishment} subsystem, for adjusting it and reading its statistics.
+     */
+    public Replenishment enableReplenishment(int workers) {
+        BackRoom backRoom = new BackRoom(map, 40, 10, 40, 200);
+        replenishment = new Replenishment(this, backRoom, BACK_ROOM_POSITION, 0, workers);
+        return replenishment;
+    }
+
+    /**
+     * Makes every shopper added from now on with a shopping list walk a planned route from the
+     * Entrance: to a basket or cart if they need one, along their displays, through a checkout
+     * counter and out of the Exit. Call this before shoppers start taking products, since each
+     * display is expected to keep the product it holds now.
+     *
+     * @return The {@link RoutePlanner} used.
+     */
+    public RoutePlanner enableRoutePlanning() {
+        routePlanner = new RoutePlanner(map);
+        routeStops = new int[shopperSeeds.length];
+        routeWaits = new int[shopperSeeds.length];
+        return routePlanner;
+    }
+
+    /**
+     * Refills a display and records it if a recorder is attached.
+     * Called by {@link Replenishment} and, when replaying, by {@link Replay}.
+     *
+     * @param displayIndex The index of the display in {@link SupermarketMap#getAllDisplays()}.
+     * @param productIndex The index of the product in {@link SupermarketMap#getAllProducts()}.
+     * @param count The most units to add.
+     * @return The number of units added.
+     */
+    int restock(int displayIndex, int productIndex, int count) {
+        int placed = map.getAllDisplays().get(displayIndex).restock(map.getAllProducts().get(productIndex), count);
+        if (placed > 0 && recorder != null) recorder.recordRestock(displayIndex, productIndex, placed);
+        return placed;
+    }
+
+    /**
+     * Gets the restocking subsystem.
+     * @return The {@link Replenishment}, or {@code null} if displays are never refilled.
+     */
+    public Replenishment getReplenishment() { return replenishment; }
+
+    /**
+     * Sets the tick counter when a saved simulation is restored by {@link StoreSnapshot}.
+     *
+     * @param tick The tick the snapshot was taken at.
+     */
+    void restoreTick(long tick) { this.tick = tick; }
+
+    /**
+     * Puts the simulation back to tick 0 with no shoppers, ready for another run on the same map.
+     * The map's stock, Entrance, occupancy and heatmap are restored in place (see
+     * {@link SupermarketMap#reset()}) and the shopper arrays are kept, so a rerun costs no more
+     * than the shoppers and stock of the last run, whatever the size of the map. A reset
+     * simulation runs exactly like a new one built with the same seed and settings.
+     * <p>
+     * The recorder is detached, since its log describes the previous run. Sales analytics keep
+     * counting across runs.
+     *
+     * @param seed The master seed for the next run.
+     * @throws IllegalStateException If replenishment is enabled, since its back room and workers cannot be rewound.
+     */
+    public void reset(long seed) {
+        if (replenishment != null) {
+            throw new IllegalStateException("A simulation with replenishment cannot be reset.");
+        }
+        int count = shoppers.size();
+        Arrays.fill(controlled, 0, count, false);
+        if (store != null) store.clear();
+        else shoppers.clear();
+        shoppingLists.clear();
+        routes.clear();
+        if (routePlanner != null) {
+            Arrays.fill(routeStops, 0, count, 0);
+            Arrays.fill(routeWaits, 0, count, 0);
+        }
+        map.reset();
+        this.seed = seed;
+        this.masterRandom = new SplittableRandom(seed);
+        this.recorder = null;
+        this.tick = 0;
+        EventLog.log(LogLevel.DEBUG, "simulation.reset", "seed " + seed, count + " shoppers cleared");
+    }
+
+    /**
+     * Attaches a recorder that receives every shopper joining, every applied action
+     * and every tick end from now on.
+     *
+     * @param recorder The {@link InputLog} to record into, or {@code null} to stop recording.
+     */
+    public void setRecorder(InputLog recorder) {
+        this.recorder = recorder;
+        if (recorder != null && map.getOccupancy() != null) recorder.recordOccupancy(map.getOccupancy());
+    }
+
+    /**
+     * Attaches a publisher that streams shopper positions and display stock to its subscribers
+     * at the end of every tick.
+     *
+     * @param publisher The {@link StatePublisher} for this simulation, or {@code null} to stop publishing.
+     */
+    public void setPublisher(StatePublisher publisher) { this.publisher = publisher; }
+
+    /**
+     * Stops the worker threads used by the decide phase, if any.
+     */
+    public void shutdown() {
+        if (decidePool != null) decidePool.shutdown();
+    }
+
+    /**
+     * Gets how long the decide phase of the last {@link #step()} took.
+     * @return The duration in nanoseconds.
+     */
+    public long getLastDecideNanos() { return lastDecideNanos; }
+
+    /**
+     * Gets how long the apply phase of the last {@link #step()} took.
+     * @return The duration in nanoseconds.
+     */
+    public long getLastApplyNanos() { return lastApplyNanos; }
+
+    /**
+     * Gets the shopping list of a shopper.
+     *
+     * @param shopperIndex The index of the shopper.
+     * @return The products still on the list, or {@code null} if the shopper browses randomly.
+     */
+    public List<Product> getShoppingList(int shopperIndex) { return shoppingLists.get(shopperIndex); }
+
+    /**
+     * Gets the planned route of a shopper.
+     *
+     * @param shopperIndex The index of the shopper.
+     * @return The {@link ShoppingRoute}, or {@code null} if the shopper was added without one.
+     */
+    public ShoppingRoute getRoute(int shopperIndex) { return routes.get(shopperIndex); }
+
+    /**
+     * Gets how long a shopper has been in the store. Arrival and exit ticks are not saved in snapshots.
+     *
+     * @param shopperIndex The index of the shopper.
+     * @return The ticks from the tick they were added to the tick they left through the Exit,
+     *         or to the current tick if they are still inside.
+     */
+    public long getTimeInStore(int shopperIndex) {
+        long exit = exitTicks[shopperIndex];
+        return (exit < 0 ? tick : exit + 1) - arrivalTicks[shopperIndex];
+    }
+
+    /**
+     * Gets the master seed of this run.
+     * @return The master seed.
+     */
+    public long getSeed() { return seed; }
+
+    /**
+     * Gets the number of ticks that have been simulated so far.
+     * @return The current tick.
+     */
+    public long getTick() { return tick; }
+
+    /**
+     * Gets the map the simulation runs on.
+     * @return The {@link SupermarketMap}.
+     */
+    public SupermarketMap getMap() { return map; }
+
+    /**
+     * Gets all shoppers in the simulation, in the order they were added.
+     * With a {@link ShopperStore}, the list is read-only and its elements are views created on demand.
+     * @return The list of {@link Shopper}s.
+     */
+    public List<Shopper> getShoppers() { return shoppers; }
+
+    /**
+     * Gets the packed store the shoppers are kept in.
+     * @return The {@link ShopperStore}, or {@code null} if every shopper is an object of its own.
+     */
+    public ShopperStore getShopperStore() { return store; }
+}
\ No newline at end of file
@@ -0,0 +1,420 @@
+/**
+ * SimulationServer.java
+ *
+ * This class serves simulations over HTTP to other tools on the same machine: clients submit
+ * scenarios, follow their progress and fetch their results.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP server, built on the JDK's {@code com.sun.net.httpserver}, that runs {@link ScenarioRun}s.
+ * It listens on the loopback address only. Every response body is JSON.
+ * <pre>
+ * POST   /runs               submit a scenario (key=value lines); 202 with the run, 503 if the queue is full
+ * GET    /runs               list every retained run
+ * GET    /runs/{id}          state, progress and results of a run
+ * GET    /runs/{id}/progress stream the run as JSON lines, one per update, until it finishes
+ * DELETE /runs/{id}          cancel a run
+ * </pre>
+ * Runs execute on a fixed pool of worker threads, one simulation per thread. Admission control
+ * is a bounded queue in front of the pool: a scenario submitted while every worker is busy and
+ * the queue is full is refused with {@code 503 Service Unavailable} and a {@code Retry-After}
+ * header, instead of piling up. Requests are handled on a separate small pool, so a busy
+ * simulation never delays a status request. A progress stream is handed over to a thread of its
+ * own, so open streams never hold up other requests either; at most {@link #MAX_STREAMS} are open
+ * at once, and further stream requests are refused with {@code 503}. Finished runs are kept for
+ * later reads until {@link #MAX_RETAINED} runs are held; then the oldest finished run is dropped.
+ */
+public class SimulationServer {
+    /** The port used when none is given. */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** The most runs held at once, in any state. */
+    public static final int MAX_RETAINED = 256;
+
+    /** The largest scenario accepted, in bytes. */
+    private static final int MAX_BODY = 16 * 1024;
+
+    /** The most progress streams open at once. */
+    public static final int MAX_STREAMS = 64;
+
+    /** Threads handling HTTP requests. */
+    private static final int HANDLER_THREADS = 8;
+
+    /** Longest wait between two lines of a progress stream; an unchanged run is sent again as a keep-alive. */
+    private static final long STREAM_KEEPALIVE_MILLIS = 5000;
+
+    /** Runs accepted into the queue. */
+    public static final Counter ACCEPTED = Metrics.counter("server.accepted");
+
+    /** Runs refused because the queue was full. */
+    public static final Counter REJECTED = Metrics.counter("server.rejected");
+
+    /** Progress streams refused because {@link #MAX_STREAMS} were open. */
+    public static final Counter STREAMS_REJECTED = Metrics.counter("server.streams_rejected");
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService handlers;
+    private final ThreadPoolExecutor streams;
+    private final Map<Long, ScenarioRun> runs;
+    private final AtomicLong nextId;
+
+    /**
+     * Constructs a server bound to the loopback address. Call {@link #start()} to accept requests.
+     *
+     * @param port The port, or 0 for any free port.
+     * @param workerCount How many simulations run at once.
+     * @param queueCapacity How many accepted runs may wait for a worker.
+     * @throws IOException if the port cannot be bound.
+     */
+    public SimulationServer(int port, int workerCount, int queueCapacity) throws IOException {
+        if (workerCount < 1) throw new IllegalArgumentException("At least one worker is needed.");
+        if (queueCapacity < 0) throw new IllegalArgumentException("The queue capacity cannot be negative.");
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                daemonThreads("simulation-worker"), new ThreadPoolExecutor.AbortPolicy());
+        this.handlers = Executors.newFixedThreadPool(HANDLER_THREADS, daemonThreads("http-handler"));
+        this.streams = new ThreadPoolExecutor(0, MAX_STREAMS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                daemonThreads("progress-stream"), new ThreadPoolExecutor.AbortPolicy());
+        this.runs = new LinkedHashMap<>();
+        this.nextId = new AtomicLong(1);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/runs", this::handle);
+        this.server.setExecutor(handlers);
+    }
+
+    /**
+     * Registers the {@code server.queued} and {@code server.running} gauges in {@link Metrics}.
+     * The registry keeps the server reachable for the rest of the process, so this is only for
+     * processes that run a single server, such as {@link #main(String[])}.
+     */
+    public void registerGauges() {
+        Metrics.registerGauge("server.queued", () -> workers.getQueue().size());
+        Metrics.registerGauge("server.running", workers::getActiveCount);
+    }
+
+    /**
+     * Makes a thread factory for named daemon threads.
+     *
+     * @param name The prefix of the thread names.
+     * @return The factory.
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicLong count = new AtomicLong();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        EventLog.log(LogLevel.INFO, "server.start", "http://127.0.0.1:" + getPort() + "/runs",
+                workers.getMaximumPoolSize() + " workers");
+    }
+
+    /**
+     * Stops accepting requests, cancels every unfinished run and stops the worker threads.
+     */
+    public void stop() {
+        server.stop(0);
+        synchronized (runs) {
+            for (ScenarioRun run : runs.values()) run.cancel();
+        }
+        workers.shutdownNow();
+        handlers.shutdownNow();
+        streams.shutdownNow();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return The port.
+     */
+    public int getPort() { return server.getAddress().getPort(); }
+
+    /**
+     * Routes a request under {@code /runs} to its handler, and turns errors into JSON responses.
+     * The exchange is closed here unless a progress stream took it over.
+     *
+     * @param exchange The request and its response.
+     * @throws IOException if the response cannot be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean handedOver = false;
+        try {
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            // parts[0] is empty and parts[1] is "runs"
+            String method = exchange.getRequestMethod();
+            if (parts.length < 2 || !parts[1].equals("runs")) {
+                sendError(exchange, 404, "Unknown path.");
+                return;
+            }
+            if (parts.length == 2) {
+                if (method.equals("POST")) submit(exchange);
+                else if (method.equals("GET")) list(exchange);
+                else sendError(exchange, 405, "Use GET or POST on /runs.");
+                return;
+            }
+            ScenarioRun run = parts.length <= 4 ? find(parts[2]) : null;
+            if (run == null) {
+                sendError(exchange, 404, "No such run.");
+            } else if (parts.length == 4 && parts[3].equals("progress") && method.equals("GET")) {
+                handedOver = stream(exchange, run);
+            } else if (parts.length == 3 && method.equals("GET")) {
+                send(exchange, 200, run.toJson());
+            } else if (parts.length == 3 && method.equals("DELETE")) {
+                run.cancel();
+                send(exchange, 200, run.toJson());
+            } else {
+                sendError(exchange, parts.length == 3 ? 405 : 404, "Unsupported request.");
+            }
+        } catch (RuntimeException e) {
+            EventLog.log(LogLevel.WARN, "server.error", exchange.getRequestURI().toString(), e.toString());
+            sendError(exchange, 500, e.toString());
+        } finally {
+            if (!handedOver) exchange.close();
+        }
+    }
+
+    /**
+     * Handles {@code POST /runs}: parses the scenario and queues it, if there is room.
+     *
+     * @param exchange The request and its response.
+     * @throws IOException if the request cannot be read or the response cannot be sent.
+     */
+    private void submit(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY + 1);
+        }
+        if (body.length > MAX_BODY) {
+            sendError(exchange, 413, "A scenario may be at most " + MAX_BODY + " bytes.");
+            return;
+        }
+        ScenarioRun run;
+        try {
+            run = new ScenarioRun(nextId.getAndIncrement(), new String(body, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if (!retain(run)) {
+            REJECTED.increment();
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            sendError(exchange, 503, "Too many runs are held; try again once some have finished.");
+            return;
+        }
+        try {
+            workers.execute(run);
+        } catch (RejectedExecutionException e) {
+            synchronized (runs) {
+                runs.remove(run.getId());
+            }
+            REJECTED.increment();
+            EventLog.log(LogLevel.WARN, "server.rejected", String.valueOf(run.getId()), "queue full");
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Every worker is busy and the queue is full; try again later.");
+            return;
+        }
+        ACCEPTED.increment();
+        EventLog.log(LogLevel.INFO, "server.accepted", String.valueOf(run.getId()), null);
+        exchange.getResponseHeaders().set("Location", "/runs/" + run.getId());
+        send(exchange, 202, run.toJson());
+    }
+
+    /**
+     * Adds a run to the retained runs, dropping the oldest finished run if too many are held.
+     *
+     * @param run The new {@link ScenarioRun}.
+     * @return {@code false} if every held run is still queued or running.
+     */
+    private boolean retain(ScenarioRun run) {
+        synchronized (runs) {
+            if (runs.size() >= MAX_RETAINED) {
+                Iterator<ScenarioRun> it = runs.values().iterator();
+                while (it.hasNext()) {
+                    if (it.next().getState().isFinal()) {
+                        it.remove();
+                        break;
+                    }
+                }
+                if (runs.size() >= MAX_RETAINED) return false;
+            }
+            runs.put(run.getId(), run);
+            return true;
+        }
+    }
+
+    /**
+     * Looks up a retained run.
+     *
+     * @param id The id, as it appears in the path.
+     * @return The {@link ScenarioRun}, or {@code null} if the id is not a number or not held.
+     */
+    private ScenarioRun find(String id) {
+        try {
+            synchronized (runs) {
+                return runs.get(Long.parseLong(id));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Handles {@code GET /runs}: lists every retained run, oldest first.
+     *
+     * @param exchange The request and its response.
+     * @throws IOException if the response cannot be sent.
+     */
+    private void list(HttpExchange exchange) throws IOException {
+        List<ScenarioRun> held;
+        synchronized (runs) {
+            held = new ArrayList<>(runs.values());
+        }
+        StringBuilder json = new StringBuilder("{\"queued\":").append(workers.getQueue().size())
+                .append(",\"running\":").append(workers.getActiveCount()).append(",\"runs\":[");
+        for (int i = 0; i < held.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(held.get(i).toJson());
+        }
+        send(exchange, 200, json.append("]}").toString());
+    }
+
+    /**
+     * Handles {@code GET /runs/{id}/progress}: hands the exchange over to a stream thread, or
+     * refuses it if {@link #MAX_STREAMS} streams are open.
+     *
+     * @param exchange The request and its response.
+     * @param run The {@link ScenarioRun} to follow.
+     * @return {@code true} if a stream thread took the exchange over (and will close it).
+     * @throws IOException if the refusal cannot be sent.
+     */
+    private boolean stream(HttpExchange exchange, ScenarioRun run) throws IOException {
+        try {
+            streams.execute(() -> follow(exchange, run));
+            return true;
+        } catch (RejectedExecutionException e) {
+            STREAMS_REJECTED.increment();
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            sendError(exchange, 503, "Too many progress streams are open; try again later.");
+            return false;
+        }
+    }
+
+    /**
+     * Sends the run as a JSON line now and after every change, until it reaches a final state,
+     * the client goes away or the server stops. Runs on a stream thread and closes the exchange.
+     *
+     * @param exchange The request and its response.
+     * @param run The {@link ScenarioRun} to follow.
+     */
+    private static void follow(HttpExchange exchange, ScenarioRun run) {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            long seen = -1;
+            while (true) {
+                seen = run.awaitChange(seen, STREAM_KEEPALIVE_MILLIS);
+                out.write((run.toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (run.getState().isFinal()) break;
+            }
+        } catch (IOException e) {
+            // The client closed the stream; the run carries on
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends a JSON error response.
+     *
+     * @param exchange The request and its response.
+     * @param status The HTTP status code.
+     * @param message The error message.
+     * @throws IOException if the response cannot be sent.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + ScenarioRun.quote(message) + "}");
+    }
+
+    /**
+     * Sends a complete JSON response.
+     *
+     * @param exchange The request and its response.
+     * @param status The HTTP status code.
+     * @param json The response body.
+     * @throws IOException if the response cannot be sent.
+     */
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Starts a server and keeps it running until the process is stopped.
+     * Usage: {@code SimulationServer [port] [workers] [queue]}.
+     *
+     * @param args The port (default {@value #DEFAULT_PORT}), the number of workers (default: all processors)
+     *             and the number of runs that may wait for a worker (default: 4 per worker).
+     * @throws IOException if the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queue = args.length > 2 ? Integer.parseInt(args[2]) : 4 * workerCount;
+        EventLog.setDefaultLevel(LogLevel.WARN);
+
+        SimulationServer server = new SimulationServer(port, workerCount, queue);
+        server.registerGauges();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.printf("Serving simulations on http://127.0.0.1:%d/runs with %d workers and a queue of %d%n",
+                server.getPort(), workerCount, queue);
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            server.stop();
+        }
+    }
+}
\ No newline at end of file
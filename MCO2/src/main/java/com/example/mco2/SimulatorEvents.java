@@ -0,0 +1,233 @@
+/**
+ * SimulatorEvents.java
+ *
+ * This class holds the custom Java Flight Recorder events of the simulator, so that
+ * simulation activity shows up next to GC, lock and CPU data in JDK Mission Control.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JFR events, all under the "Supermarket Simulator" category.
+ * <p>
+ * Events are only recorded while a recording with them enabled is running, for example
+ * {@code java -XX:StartFlightRecording=filename=run.jfr,settings=profile ...}.
+ * When they are disabled, {@code begin()} and {@code commit()} do nothing and the JIT removes
+ * the event object, and the static helpers below return after a single {@code isEnabled()} check.
+ * Until JFR has been started at all, no event object is created (see {@link #isRecording()}).
+ * Stack traces are turned off for the high-frequency events to keep recordings small.
+ */
+public final class SimulatorEvents {
+    private static final String CATEGORY = "Supermarket Simulator";
+
+    /**
+     * This class only holds the event types.
+     */
+    private SimulatorEvents() { }
+
+    /**
+     * Checks if JFR has been started in this JVM, from the command line, {@code jcmd} or the API.
+     * Until then no recording can be running, so callers skip creating events altogether: loading
+     * the first event class sets up JFR's metadata, which adds a few hundred milliseconds to the
+     * start of every run.
+     *
+     * @return {@code true} once JFR has been started.
+     */
+    static boolean isRecording() { return FlightRecorder.isInitialized(); }
+
+    /** One {@link Simulation#step()}: decide and apply for every shopper. */
+    @Name("com.example.mco2.SimulationTick")
+    @Label("Simulation Tick")
+    @Category({CATEGORY, "Simulation"})
+    @Description("One tick of the headless simulation engine")
+    @StackTrace(false)
+    static final class SimulationTick extends Event {
+        @Label("Tick")
+        long tick;
+
+        @Label("Shoppers")
+        int shoppers;
+    }
+
+    /** One call to {@link Shopper#move(Direction, SupermarketMap)}, including any amenity it triggered. */
+    @Name("com.example.mco2.ShopperMove")
+    @Label("Shopper Move")
+    @Category({CATEGORY, "Shopper"})
+    @StackTrace(false)
+    static final class ShopperMove extends Event {
+        @Label("Shopper")
+        String shopper;
+
+        @Label("X")
+        int x;
+
+        @Label("Y")
+        int y;
+
+        @Label("Floor")
+        int floor;
+
+        @Label("Blocked")
+        @Description("True if an impassable amenity or a full tile (with an occupancy limit) stopped the move")
+        boolean blocked;
+
+        @Label("Blocked By")
+        @Description("The kind of amenity that stopped the move, or Crowd if the tile was full")
+        String blockedBy;
+    }
+
+    /** A shopper taking the stairs to the other floor. */
+    @Name("com.example.mco2.FloorChange")
+    @Label("Floor Change")
+    @Category({CATEGORY, "Shopper"})
+    @StackTrace(false)
+    static final class FloorChange extends Event {
+        @Label("Shopper")
+        String shopper;
+
+        @Label("From Floor")
+        int fromFloor;
+
+        @Label("To Floor")
+        int toFloor;
+    }
+
+    /** A product removed from a display. */
+    @Name("com.example.mco2.DisplayTake")
+    @Label("Display Take")
+    @Category({CATEGORY, "Display"})
+    @StackTrace(false)
+    static final class DisplayTake extends Event {
+        @Label("Display")
+        String display;
+
+        @Label("Display Type")
+        String displayType;
+
+        @Label("Product")
+        String product;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    /** A product offered back to a display, whether it was accepted or not. */
+    @Name("com.example.mco2.DisplayReturn")
+    @Label("Display Return")
+    @Category({CATEGORY, "Display"})
+    @StackTrace(false)
+    static final class DisplayReturn extends Event {
+        @Label("Display")
+        String display;
+
+        @Label("Display Type")
+        String displayType;
+
+        @Label("Product")
+        String product;
+
+        @Label("Accepted")
+        boolean accepted;
+
+        @Label("Denial Reason")
+        String reason;
+    }
+
+    /** Pricing a shopper's items with {@link CheckoutCounter#priceItems(java.util.List, boolean)}. */
+    @Name("com.example.mco2.CheckoutPricing")
+    @Label("Checkout Pricing")
+    @Category({CATEGORY, "Checkout"})
+    static final class CheckoutPricing extends Event {
+        @Label("Shopper")
+        String shopper;
+
+        @Label("Items")
+        int items;
+
+        @Label("Senior")
+        boolean senior;
+
+        @Label("Final Total")
+        @Description("Amount paid in PHP")
+        double finalTotal;
+    }
+
+    /** Writing a receipt file at the checkout. */
+    @Name("com.example.mco2.ReceiptWrite")
+    @Label("Receipt Write")
+    @Category({CATEGORY, "Checkout"})
+    static final class ReceiptWrite extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Line Items")
+        int lineItems;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * Records a product being taken off a display.
+     *
+     * @param display The {@link Display} the product was taken from.
+     * @param slot The slot index it was taken from.
+     * @param product The {@link Product} taken.
+     */
+    static void displayTake(Display display, int slot, Product product) {
+        if (!isRecording()) return;
+        DisplayTake event = new DisplayTake();
+        if (!event.isEnabled()) return;
+        event.display = display.getAddress();
+        event.displayType = display.getClass().getSimpleName();
+        event.product = product.getSerialNumber();
+        event.slot = slot;
+        event.commit();
+    }
+
+    /**
+     * Records a product being offered back to a display.
+     *
+     * @param display The {@link Display} the product was offered to.
+     * @param product The {@link Product} offered.
+     * @param reason Why the display refused it, or {@code null} if it was accepted.
+     */
+    static void displayReturn(Display display, Product product, DenialReason reason) {
+        if (!isRecording()) return;
+        DisplayReturn event = new DisplayReturn();
+        if (!event.isEnabled()) return;
+        event.display = display.getAddress();
+        event.displayType = display.getClass().getSimpleName();
+        event.product = product.getSerialNumber();
+        event.accepted = reason == null;
+        event.reason = reason == null ? null : reason.name();
+        event.commit();
+    }
+
+    /**
+     * Records a shopper taking the stairs.
+     *
+     * @param shopper The {@link Shopper} who changed floors.
+     * @param fromFloor The floor they left.
+     */
+    static void floorChange(Shopper shopper, int fromFloor) {
+        if (!isRecording()) return;
+        FloorChange event = new FloorChange();
+        if (!event.isEnabled()) return;
+        event.shopper = shopper.getName();
+        event.fromFloor = fromFloor;
+        event.toFloor = shopper.getCurrentFloor();
+        event.commit();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,223 @@
+/**
+ * SkuMultiset.java
+ *
+ * This class counts products by SKU id, the way the contents of a Cart or Basket are stored.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A multiset of {@link Product}s keyed by {@link Product#getSkuId()}.
+ * <p>
+ * Counts live in an {@code int[]} indexed by SKU id, next to a dense list of the distinct SKUs
+ * present (the "lines"), so adding, removing and counting a product are O(1) and anything that
+ * walks the contents line by line (summaries, pricing) is O(distinct SKUs). The total price is
+ * kept up to date as products come and go. Products with the same serial number are treated as
+ * interchangeable: the first one added stands for its line.
+ * <p>
+ * Lines are kept in the order their SKU first arrived, except that emptying a line moves the
+ * last line into its place.
+ */
+public class SkuMultiset implements Iterable<Product> {
+    private int[] counts = new int[0];
+    private int[] lineOf = new int[0];
+    private int[] lineSkus = new int[4];
+    private Product[] lineProducts = new Product[4];
+    private int lines;
+    private int size;
+    private double totalPrice;
+    private int alcoholCount;
+
+    /**
+     * Constructs an empty multiset.
+     */
+    public SkuMultiset() { }
+
+    /**
+     * Adds one unit of a product.
+     *
+     * @param product The {@link Product} to add.
+     */
+    public void add(Product product) {
+        int sku = product.getSkuId();
+        if (sku >= counts.length) grow(sku);
+        if (counts[sku]++ == 0) {
+            if (lines == lineSkus.length) {
+                lineSkus = Arrays.copyOf(lineSkus, lines * 2);
+                lineProducts = Arrays.copyOf(lineProducts, lines * 2);
+            }
+            lineOf[sku] = lines;
+            lineSkus[lines] = sku;
+            lineProducts[lines] = product;
+            lines++;
+        }
+        size++;
+        totalPrice += product.getPrice();
+        if (product.isAlcohol()) alcoholCount++;
+    }
+
+    /**
+     * Removes one unit of a product.
+     *
+     * @param product The {@link Product} to remove (any product with the same serial number).
+     * @return {@code true} if a unit was removed; {@code false} if none was held.
+     */
+    public boolean remove(Product product) {
+        int sku = product.getSkuId();
+        if (sku >= counts.length || counts[sku] == 0) return false;
+        size--;
+        totalPrice -= product.getPrice();
+        if (product.isAlcohol()) alcoholCount--;
+        if (--counts[sku] == 0) {
+            int line = lineOf[sku];
+            lines--;
+            lineSkus[line] = lineSkus[lines];
+            lineProducts[line] = lineProducts[lines];
+            lineOf[lineSkus[line]] = line;
+            lineProducts[lines] = null;
+        }
+        if (size == 0) totalPrice = 0.0;
+        return true;
+    }
+
+    /**
+     * Counts the units held of a product.
+     *
+     * @param product The {@link Product} to count.
+     * @return The number of units with the same serial number.
+     */
+    public int count(Product product) {
+        int sku = product.getSkuId();
+        return sku < counts.length ? counts[sku] : 0;
+    }
+
+    /**
+     * Gets the unit at a position, counting through the lines in order. This walks the lines, so
+     * it is O(distinct SKUs); code visiting every unit should iterate instead.
+     *
+     * @param index A position less than {@link #size()}.
+     * @return The {@link Product} standing for that unit.
+     */
+    public Product get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        int line = 0;
+        while (index >= counts[lineSkus[line]]) index -= counts[lineSkus[line++]];
+        return lineProducts[line];
+    }
+
+    /**
+     * Gets the line holding a product.
+     *
+     * @param product The {@link Product} to look up (any product with the same serial number).
+     * @return The line index, or -1 if none is held.
+     */
+    public int getLine(Product product) {
+        int sku = product.getSkuId();
+        return sku < counts.length && counts[sku] > 0 ? lineOf[sku] : -1;
+    }
+
+    /**
+     * Gets the product of a line.
+     *
+     * @param line A line index less than {@link #getLineCount()}.
+     * @return The {@link Product} standing for the line.
+     */
+    public Product getLineProduct(int line) { return lineProducts[line]; }
+
+    /**
+     * Gets the number of units on a line.
+     *
+     * @param line A line index less than {@link #getLineCount()}.
+     * @return The quantity.
+     */
+    public int getLineQuantity(int line) { return counts[lineSkus[line]]; }
+
+    /**
+     * Gets the number of distinct SKUs held.
+     * @return The line count.
+     */
+    public int getLineCount() { return lines; }
+
+    /**
+     * Gets the number of units held.
+     * @return The size of the multiset.
+     */
+    public int size() { return size; }
+
+    /**
+     * Checks if nothing is held.
+     * @return {@code true} if the multiset is empty.
+     */
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Gets the summed price of every unit held, before any discount.
+     * @return The total price in PHP.
+     */
+    public double getTotalPrice() { return totalPrice; }
+
+    /**
+     * Gets the number of alcohol units held.
+     * @return The alcohol count.
+     */
+    public int getAlcoholCount() { return alcoholCount; }
+
+    /**
+     * Walks every unit, line by line, without copying.
+     *
+     * @return An {@link Iterator} that does not support removal.
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        return new Iterator<>() {
+            private int line;
+            private int taken;
+
+            @Override
+            public boolean hasNext() { return line < lines; }
+
+            @Override
+            public Product next() {
+                if (line >= lines) throw new NoSuchElementException();
+                Product product = lineProducts[line];
+                if (++taken == counts[lineSkus[line]]) {
+                    line++;
+                    taken = 0;
+                }
+                return product;
+            }
+        };
+    }
+
+    /**
+     * Removes every unit.
+     */
+    public void clear() {
+        for (int line = 0; line < lines; line++) {
+            counts[lineSkus[line]] = 0;
+            lineProducts[line] = null;
+        }
+        lines = 0;
+        size = 0;
+        totalPrice = 0.0;
+        alcoholCount = 0;
+    }
+
+    /**
+     * Makes room for SKU ids up to the given one.
+     *
+     * @param sku The largest SKU id to fit.
+     */
+    private void grow(int sku) {
+        int length = Math.max(sku + 1, counts.length * 2);
+        counts = Arrays.copyOf(counts, length);
+        lineOf = Arrays.copyOf(lineOf, length);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+/**
+ * SpaceSaving.java
+ *
+ * This class finds the most frequent keys of an unbounded stream (e.g., the best-selling
+ * SKUs) while only ever remembering a fixed number of them.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Space-Saving heavy-hitters algorithm (Metwally, Agrawal and El Abbadi).
+ * <p>
+ * At most {@code capacity} keys are tracked. When a new key arrives and the table is full,
+ * it replaces the key with the smallest count and inherits that count as its possible error.
+ * Any key whose true count is above {@code total / capacity} is guaranteed to be tracked,
+ * and every reported count overestimates the true count by at most its {@link Entry#getError()}.
+ * Eviction scans the table for the minimum, which is cheap for the few dozen keys used here.
+ * Not thread-safe.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private long total;
+
+    /**
+     * One tracked key with its estimated count.
+     */
+    public static class Entry {
+        private final String key;
+        private long count;
+        private long error;
+
+        /**
+         * Constructs a tracked key.
+         *
+         * @param key The key.
+         * @param count The estimated count.
+         * @param error How much the count may overestimate the true count.
+         */
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Gets the key.
+         * @return The key (e.g., a serial number).
+         */
+        public String getKey() { return key; }
+
+        /**
+         * Gets the estimated count.
+         * @return The count, never below the true count.
+         */
+        public long getCount() { return count; }
+
+        /**
+         * Gets the largest possible overestimate of the count.
+         * @return The error bound.
+         */
+        public long getError() { return error; }
+
+        /**
+         * Gets a printable form of the entry.
+         * @return The key and count, with the error bound if it is not zero (e.g., "BRD001=12(err 3)").
+         */
+        @Override
+        public String toString() { return error == 0 ? key + "=" + count : key + "=" + count + "(err " + error + ")"; }
+    }
+
+    /**
+     * Constructs an empty summary.
+     *
+     * @param capacity The maximum number of keys tracked (at least 1).
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts occurrences of a key.
+     *
+     * @param key The key seen.
+     * @param count How many times it was seen.
+     */
+    public void offer(String key, long count) {
+        total += count;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count += count;
+        } else if (entries.size() < capacity) {
+            entries.put(key, new Entry(key, count, 0));
+        } else {
+            Entry min = null;
+            for (Entry e : entries.values()) {
+                if (min == null || e.count < min.count) min = e;
+            }
+            entries.remove(min.key);
+            entries.put(key, new Entry(key, min.count + count, min.count));
+        }
+    }
+
+    /**
+     * Adds every key of another summary to this one (e.g., to combine time windows).
+     *
+     * @param other The summary to add.
+     */
+    public void merge(SpaceSaving other) {
+        for (Entry e : other.entries.values()) {
+            offer(e.key, e.count);
+            Entry merged = entries.get(e.key);
+            if (merged != null) merged.error += e.error;
+        }
+    }
+
+    /**
+     * Gets the most frequent keys.
+     *
+     * @param n The number of keys wanted.
+     * @return Up to {@code n} copies of the tracked entries, highest count first.
+     */
+    public List<Entry> getTop(int n) {
+        List<Entry> sorted = new ArrayList<>();
+        for (Entry e : entries.values()) sorted.add(new Entry(e.key, e.count, e.error));
+        sorted.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparing(Entry::getKey));
+        return sorted.size() > n ? sorted.subList(0, n) : sorted;
+    }
+
+    /**
+     * Gets the total count of everything offered, tracked or not.
+     * @return The stream length.
+     */
+    public long getTotal() { return total; }
+
+    /**
+     * Gets the maximum number of keys tracked.
+     * @return The capacity.
+     */
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Forgets every key.
+     */
+    public void clear() {
+        entries.clear();
+        total = 0;
+    }
+}
\ No newline at end of file
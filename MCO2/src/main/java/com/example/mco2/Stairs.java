@@ -50,10 +50,6 @@ public class Stairs extends Service {
     public void interact(Shopper shopper) {
         // This popup only shows if you inspect it (press SPACE).
         // Actual movement happens automatically when you step on it.
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Stairs");
-        alert.setHeaderText(null);
-        alert.setContentText("Walk onto this tile to travel between floors.");
-        alert.show();
+        showPopup(shopper, Alert.AlertType.INFORMATION, "Stairs", "Walk onto this tile to travel between floors.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+/**
+ * StartupReport.java
+ *
+ * This class measures how long the simulator takes to show its first frame, phase by phase.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timestamps of the startup phases, from the start of the JVM process to the first frame.
+ * Each {@link #mark(String)} ends a phase that began at the previous mark; the first phase
+ * ({@code jvm}) begins when the process started. Time spent waiting for the player (the name
+ * and age dialogs) is marked with {@link #markWaiting(String)} and left out of the total.
+ * <p>
+ * Run {@code SupermarketSimulator --name=<name> --age=<age> --startup-report} to skip the dialogs,
+ * print the report once the first frame is laid out and exit; this is how the effect of the
+ * class-data sharing archive in the jlink image is measured.
+ */
+public final class StartupReport {
+    /** When the process started, on the {@link System#nanoTime()} clock (to the millisecond). */
+    private static final long PROCESS_START_NANOS = processStartNanos();
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> durations = new ArrayList<>();
+    private static final List<Boolean> waiting = new ArrayList<>();
+    private static long lastMark = PROCESS_START_NANOS;
+
+    /**
+     * This class only holds the report.
+     */
+    private StartupReport() { }
+
+    /**
+     * Works out when the process started from its start instant, which the operating system
+     * reports to the millisecond at best.
+     *
+     * @return The start time in {@link System#nanoTime()} units, or now if the OS does not say.
+     */
+    private static long processStartNanos() {
+        long now = System.nanoTime();
+        long wallNow = System.currentTimeMillis();
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> now - Math.max(0, wallNow - start.toEpochMilli()) * 1_000_000L)
+                .orElse(now);
+    }
+
+    /**
+     * Ends a startup phase.
+     *
+     * @param phase The name of the phase that just finished.
+     */
+    public static synchronized void mark(String phase) { add(phase, false); }
+
+    /**
+     * Ends a phase spent waiting for the player, which does not count towards the startup time.
+     *
+     * @param phase The name of the phase that just finished.
+     */
+    public static synchronized void markWaiting(String phase) { add(phase, true); }
+
+    /**
+     * Records a phase that ends now.
+     *
+     * @param phase The phase name.
+     * @param waited {@code true} if the phase was spent waiting for the player.
+     */
+    private static void add(String phase, boolean waited) {
+        long now = System.nanoTime();
+        phases.add(phase);
+        durations.add(now - lastMark);
+        waiting.add(waited);
+        lastMark = now;
+    }
+
+    /**
+     * Gets the startup time so far, without the time spent waiting for the player.
+     * @return The time in milliseconds.
+     */
+    public static synchronized long getStartupMillis() {
+        long total = 0;
+        for (int i = 0; i < phases.size(); i++) {
+            if (!waiting.get(i)) total += durations.get(i);
+        }
+        return total / 1_000_000L;
+    }
+
+    /**
+     * Formats the report, e.g. {@code "startup 640 ms: jvm 110 ms, toolkit 260 ms, ... (waited 3200 ms for input)"}.
+     * @return The report.
+     */
+    public static synchronized String format() {
+        StringBuilder report = new StringBuilder("startup ").append(getStartupMillis()).append(" ms:");
+        StringBuilder waits = new StringBuilder();
+        String separator = " ";
+        for (int i = 0; i < phases.size(); i++) {
+            long millis = durations.get(i) / 1_000_000L;
+            if (waiting.get(i)) {
+                waits.append(" (waited ").append(millis).append(" ms for ").append(phases.get(i)).append(')');
+            } else {
+                report.append(separator).append(phases.get(i)).append(' ').append(millis).append(" ms");
+                separator = ", ";
+            }
+        }
+        return report.append(waits).toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+/**
+ * StartupTraining.java
+ *
+ * This class is the training run used at build time to decide which classes go into the
+ * class-data sharing (CDS) archive of the jlink image.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.lang.module.ModuleReader;
+import java.lang.module.ResolvedModule;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the classes a launch of the simulator needs, so that
+ * {@code java -XX:DumpLoadedClassList=<file> -m com.example.mco2/com.example.mco2.StartupTraining}
+ * lists them for {@code java -Xshare:dump}. The package phase of a build with the {@code cds}
+ * profile ({@code mvn -Pcds package}) does both with the jlink image's own {@code java}, which puts
+ * the archive where the image loads it by default ({@code lib/server/classes.jsa}); every launcher
+ * of the image then starts with these classes already parsed and verified.
+ * <p>
+ * The training run never opens a window, so it gives the same archive on every build machine:
+ * <ul>
+ *     <li>it runs a short headless scenario, the way batch runs and the servers use the simulator;</li>
+ *     <li>it loads every class of the simulator, so the other entry points benefit as well;</li>
+ *     <li>it loads the JavaFX packages the GUI starts with.</li>
+ * </ul>
+ * The run exits with status 1 if the scenario does not finish, which fails the build.
+ */
+public final class StartupTraining {
+    /** JavaFX packages the GUI uses at startup. */
+    private static final List<String> GUI_PACKAGES = List.of(
+            "javafx/application/", "javafx/stage/", "javafx/scene/", "javafx/scene/layout/",
+            "javafx/scene/control/", "javafx/scene/shape/", "javafx/scene/paint/", "javafx/scene/image/",
+            "javafx/scene/input/", "javafx/animation/", "javafx/geometry/", "javafx/beans/property/",
+            "javafx/collections/", "com/sun/javafx/application/", "com/sun/javafx/scene/control/skin/");
+
+    /**
+     * This class only holds the training run.
+     */
+    private StartupTraining() { }
+
+    /**
+     * Loads (without initializing) every class of a module in the given packages.
+     *
+     * @param module The module name.
+     * @param packages Package paths such as {@code "javafx/scene/"} (subpackages excluded), or
+     *                 {@code null} for every package.
+     * @return The number of classes loaded.
+     * @throws IOException if the module cannot be read.
+     */
+    private static int loadClasses(String module, List<String> packages) throws IOException {
+        Optional<ResolvedModule> resolved = ModuleLayer.boot().configuration().findModule(module);
+        if (resolved.isEmpty()) return 0;
+        List<String> names;
+        try (ModuleReader reader = resolved.get().reference().open()) {
+            names = reader.list()
+                    .filter(n -> n.endsWith(".class") && !n.endsWith("module-info.class"))
+                    // JFR event classes cannot be archived, and loading one starts JFR
+                    .filter(n -> !n.startsWith("com/example/mco2/SimulatorEvents$"))
+                    .filter(n -> packages == null || packages.contains(n.substring(0, n.lastIndexOf('/') + 1)))
+                    .collect(Collectors.toList());
+        }
+        ClassLoader loader = StartupTraining.class.getClassLoader();
+        int loaded = 0;
+        for (String name : names) {
+            try {
+                Class.forName(name.substring(0, name.length() - 6).replace('/', '.'), false, loader);
+                loaded++;
+            } catch (ClassNotFoundException | LinkageError e) {
+                // Not loadable in this configuration (e.g. a platform-specific class); leave it out
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Runs the training.
+     *
+     * @param args Unused.
+     * @throws IOException if a module cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        EventLog.setDefaultLevel(LogLevel.WARN);
+
+        ScenarioRun run = new ScenarioRun(1, "shoppers=100\nrate=0.5\nmaxTicks=600\nprogressTicks=600");
+        run.run();
+        System.out.println("Training scenario: " + run.getState());
+        if (run.getState() != ScenarioRun.State.DONE) {
+            System.err.println("The training scenario did not finish: " + run.toJson());
+            System.exit(1);
+        }
+
+        int loaded = loadClasses("com.example.mco2", null);
+        System.out.println("Loaded " + loaded + " simulator classes");
+
+        loaded = 0;
+        for (String module : List.of("javafx.base", "javafx.graphics", "javafx.controls")) {
+            loaded += loadClasses(module, GUI_PACKAGES);
+        }
+        System.out.println("Loaded " + loaded + " JavaFX classes");
+        System.exit(0);
+    }
+}
\ No newline at end of file
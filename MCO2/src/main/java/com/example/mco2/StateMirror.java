@@ -0,0 +1,215 @@
+/**
+ * StateMirror.java
+ *
+ * This class rebuilds the live state of a simulation from a stream written by a StatePublisher,
+ * for viewers running outside the simulation.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A copy of the shopper positions and display stock of a published simulation, kept up to date
+ * by reading frames from a {@link StatePublisher} stream. Deltas are applied on top of the last
+ * keyframe; a delta read before the first keyframe is skipped.
+ */
+public class StateMirror {
+    private final DataInputStream in;
+    private final int size;
+    private final int floorCount;
+    private final int[] stock;
+    private int[] xs;
+    private int[] ys;
+    /** The floor of every shopper, or -1 once they have left. */
+    private int[] floors;
+    private int shopperCount;
+    private long tick;
+    private long frames;
+    private boolean synced;
+    private byte[] frame;
+
+    /**
+     * Constructs a mirror reading from a stream, and reads the stream header.
+     *
+     * @param stream A stream positioned at the start of a {@link StatePublisher} stream.
+     * @throws IOException if the header cannot be read or is not a state stream.
+     */
+    public StateMirror(InputStream stream) throws IOException {
+        this.in = new DataInputStream(stream);
+        if (in.readInt() != StatePublisher.MAGIC) throw new IOException("Not a state stream.");
+        if (in.readByte() != StatePublisher.VERSION) throw new IOException("Unsupported state stream version.");
+        this.size = Varint.read(in);
+        this.floorCount = Varint.read(in);
+        this.stock = new int[Varint.read(in)];
+        this.xs = new int[1024];
+        this.ys = new int[1024];
+        this.floors = new int[1024];
+        this.frame = new byte[4096];
+    }
+
+    /**
+     * Connects to a publisher listening on the loopback address (see {@link StatePublisher#listen(int)}).
+     *
+     * @param port The port of the publisher.
+     * @return A mirror reading from the connection.
+     * @throws IOException if the connection fails or the header cannot be read.
+     */
+    public static StateMirror connect(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        return new StateMirror(socket.getInputStream());
+    }
+
+    /**
+     * Reads and applies the next frame, waiting for it if necessary.
+     *
+     * @return {@code false} if the stream has ended.
+     * @throws IOException if the stream cannot be read or holds a malformed frame.
+     */
+    public boolean readFrame() throws IOException {
+        int length;
+        try {
+            length = Varint.read(in);
+        } catch (EOFException e) {
+            return false;
+        }
+        if (length > frame.length) frame = new byte[Math.max(length, frame.length * 2)];
+        in.readFully(frame, 0, length);
+        apply(ByteBuffer.wrap(frame, 0, length));
+        return true;
+    }
+
+    /**
+     * Applies one frame (without its length prefix).
+     *
+     * @param buffer The frame.
+     */
+    private void apply(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        boolean keyframe = tag == StatePublisher.TAG_KEYFRAME;
+        if (!keyframe && !synced) return;
+        long frameTick = Varint.readLong(buffer);
+        int count = Varint.read(buffer);
+        if (count > floors.length) {
+            int capacity = Math.max(count, floors.length * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            floors = Arrays.copyOf(floors, capacity);
+        }
+
+        int entries = Varint.read(buffer);
+        int index = -1;
+        for (int e = 0; e < entries; e++) {
+            index += Varint.read(buffer) + 1;
+            int tile = Varint.read(buffer);
+            if (tile == StatePublisher.EXITED) {
+                floors[index] = -1;
+            } else if (tile == StatePublisher.OFF_GRID) {
+                xs[index] = Varint.unzigzag(Varint.read(buffer));
+                ys[index] = Varint.unzigzag(Varint.read(buffer));
+                floors[index] = Varint.read(buffer);
+            } else {
+                tile -= StatePublisher.FIRST_TILE;
+                xs[index] = tile % size;
+                ys[index] = tile / size % size;
+                floors[index] = tile / (size * size);
+            }
+        }
+        entries = Varint.read(buffer);
+        index = -1;
+        for (int e = 0; e < entries; e++) {
+            index += Varint.read(buffer) + 1;
+            stock[index] = Varint.read(buffer);
+        }
+        shopperCount = count;
+        tick = frameTick;
+        synced = true;
+        frames++;
+    }
+
+    /**
+     * Checks if a shopper has left the store.
+     *
+     * @param shopper The index of the shopper.
+     * @return {@code true} if they have left.
+     */
+    public boolean hasExited(int shopper) { return floors[shopper] < 0; }
+
+    /**
+     * Gets the column of a shopper.
+     *
+     * @param shopper The index of a shopper still in the store.
+     * @return The column (outside the grid if the shopper walked off it).
+     */
+    public int getX(int shopper) { return xs[shopper]; }
+
+    /**
+     * Gets the row of a shopper.
+     *
+     * @param shopper The index of a shopper still in the store.
+     * @return The row.
+     */
+    public int getY(int shopper) { return ys[shopper]; }
+
+    /**
+     * Gets the floor of a shopper.
+     *
+     * @param shopper The index of a shopper still in the store.
+     * @return The floor index.
+     */
+    public int getFloor(int shopper) { return floors[shopper]; }
+
+    /**
+     * Gets the number of products on a display.
+     *
+     * @param display The index of the display in {@link SupermarketMap#getAllDisplays()}.
+     * @return The product count.
+     */
+    public int getStock(int display) { return stock[display]; }
+
+    /**
+     * Gets the number of shoppers so far, including those who have left.
+     * @return The shopper count.
+     */
+    public int getShopperCount() { return shopperCount; }
+
+    /**
+     * Gets the number of displays.
+     * @return The display count.
+     */
+    public int getDisplayCount() { return stock.length; }
+
+    /**
+     * Gets the size of the map.
+     * @return The width (and height) of each floor.
+     */
+    public int getMapSize() { return size; }
+
+    /**
+     * Gets the number of floors.
+     * @return The floor count.
+     */
+    public int getFloorCount() { return floorCount; }
+
+    /**
+     * Gets the tick of the last frame applied.
+     * @return The tick.
+     */
+    public long getTick() { return tick; }
+
+    /**
+     * Gets the number of frames applied so far.
+     * @return The frame count.
+     */
+    public long getFrameCount() { return frames; }
+}
\ No newline at end of file
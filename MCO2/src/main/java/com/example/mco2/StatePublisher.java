@@ -0,0 +1,403 @@
+/**
+ * StatePublisher.java
+ *
+ * This class streams the live state of a simulation to local subscribers (loopback sockets,
+ * pipes or files) as compact delta-encoded frames.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes where every shopper stands and how much every display holds, once per tick (or every
+ * few ticks), to any number of subscribers. Attach it with {@link Simulation#setPublisher(StatePublisher)}.
+ * <p>
+ * Stream layout: a header ({@value #MAGIC} magic number, format version, then the map size, floor
+ * count and display count as varints), followed by frames. Every frame is its length as a varint,
+ * then a one-byte tag ({@link #TAG_KEYFRAME} or {@link #TAG_DELTA}) and these varints:
+ * <ul>
+ *     <li>the tick, and the number of shoppers so far;</li>
+ *     <li>the number of shopper entries, then for each: the gap to the previous entry's index, and the
+ *     shopper's tile packed as {@code 2 + (floor * size + y) * size + x}, or 0 once they have left. A shopper
+ *     standing off the grid is sent as 1 followed by their column and row (zigzag-encoded) and floor;</li>
+ *     <li>the number of display entries, then for each: the gap to the previous entry's index, and the
+ *     number of products on the display.</li>
+ * </ul>
+ * A delta lists only the shoppers and displays that changed since the previous frame; a keyframe
+ * lists all of them. A shopper who took one step costs about three bytes. {@link StateMirror}
+ * reads the stream back.
+ * <p>
+ * Frames are encoded once on the simulation thread into a reused buffer, by comparing against
+ * the state last published. Each subscriber has its own writer thread and a queue of at most
+ * {@link #QUEUE_FRAMES} frames. A subscriber that falls behind does not slow the simulation: its
+ * queued frames are dropped, and it is sent a keyframe to catch up. New subscribers start with
+ * a keyframe.
+ */
+public class StatePublisher implements AutoCloseable {
+    /** Magic number at the start of every stream ("SMST"). */
+    public static final int MAGIC = 0x534D5354;
+
+    /** The current version of the stream format. */
+    public static final byte VERSION = 1;
+
+    /** Tag of a frame listing every shopper and display. */
+    public static final byte TAG_KEYFRAME = 0x01;
+
+    /** Tag of a frame listing only what changed. */
+    public static final byte TAG_DELTA = 0x02;
+
+    /** Tile code of a shopper who has left the store. */
+    static final int EXITED = 0;
+
+    /** Tile code of a shopper standing off the grid; their coordinates follow as zigzag varints, then the floor. */
+    static final int OFF_GRID = 1;
+
+    /** Tile code of the first tile of the grid. */
+    static final int FIRST_TILE = 2;
+
+    /** Remembered in place of a tile code for shoppers off the grid, who are sent in every frame. */
+    private static final int OFF_GRID_KEY = -2;
+
+    /** Frames a subscriber may fall behind by before it is resynchronized with a keyframe. */
+    public static final int QUEUE_FRAMES = 64;
+
+    /** Frames handed to subscribers. */
+    public static final Counter FRAMES = Metrics.counter("stream.frames");
+
+    /** Encoded bytes handed to subscribers. */
+    public static final Counter BYTES = Metrics.counter("stream.bytes");
+
+    /** Frames dropped because a subscriber fell behind. */
+    public static final Counter DROPPED = Metrics.counter("stream.dropped");
+
+    private final Simulation simulation;
+    private final int size;
+    private final List<Display> displays;
+    private final List<Subscriber> subscribers;
+    private final byte[] header;
+    private int interval;
+    private int[] lastTiles;
+    private int lastCount;
+    private int[] lastStock;
+    private byte[] buffer;
+    private int length;
+    private ServerSocket listener;
+    private long lastPublishNanos;
+
+    /**
+     * Constructs a publisher for a simulation. Nothing is published until it is attached with
+     * {@link Simulation#setPublisher(StatePublisher)}.
+     *
+     * @param simulation The {@link Simulation} to publish.
+     */
+    public StatePublisher(Simulation simulation) {
+        SupermarketMap map = simulation.getMap();
+        this.simulation = simulation;
+        this.size = map.getMapSize();
+        this.displays = map.getAllDisplays();
+        this.subscribers = new CopyOnWriteArrayList<>();
+        this.interval = 1;
+        // -1 is never a real value, so every shopper and display is in the first delta
+        this.lastTiles = new int[1024];
+        this.lastStock = new int[displays.size()];
+        Arrays.fill(lastTiles, -1);
+        Arrays.fill(lastStock, -1);
+        this.buffer = new byte[4096];
+
+        ByteBuffer head = ByteBuffer.allocate(4 + 1 + 15);
+        head.putInt(MAGIC).put(VERSION);
+        Varint.write(head, size);
+        Varint.write(head, map.getFloorCount());
+        Varint.write(head, displays.size());
+        this.header = Arrays.copyOf(head.array(), head.position());
+    }
+
+    /**
+     * Publishes only every few ticks. Changes in between are merged into the next frame.
+     *
+     * @param ticks The number of ticks between frames (at least 1).
+     */
+    public void setInterval(int ticks) {
+        if (ticks < 1) throw new IllegalArgumentException("The interval must be at least one tick.");
+        this.interval = ticks;
+    }
+
+    /**
+     * Adds a subscriber writing to a stream, such as a pipe or a file. The stream header is
+     * written first, then a keyframe at the next published tick.
+     *
+     * @param out The destination; it is closed when the subscriber is dropped or the publisher is closed.
+     */
+    public void subscribe(OutputStream out) {
+        Subscriber subscriber = new Subscriber(out);
+        subscribers.add(subscriber);
+        subscriber.start();
+    }
+
+    /**
+     * Accepts subscribers over TCP on the loopback address. Every connection is subscribed as it arrives.
+     *
+     * @param port The port, or 0 for any free port.
+     * @return The port listened on.
+     * @throws IOException if the port cannot be bound.
+     */
+    public synchronized int listen(int port) throws IOException {
+        if (listener != null) throw new IllegalStateException("The publisher is already listening.");
+        ServerSocket socket = new ServerSocket(port, 16, InetAddress.getLoopbackAddress());
+        listener = socket;
+        Thread acceptor = new Thread(() -> {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    client.setTcpNoDelay(true);
+                    subscribe(client.getOutputStream());
+                } catch (IOException e) {
+                    if (!socket.isClosed()) EventLog.log(LogLevel.WARN, "stream.accept_failed", null, e.toString());
+                }
+            }
+        }, "state-stream-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Publishes a frame if this tick is due. Called by {@link Simulation#endTick()}.
+     *
+     * @param tick The tick that just ended.
+     */
+    void endTick(long tick) {
+        if (subscribers.isEmpty() || tick % interval != 0) return;
+        long start = System.nanoTime();
+        // Subscribers joining from now on wait for the next frame
+        Subscriber[] current = subscribers.toArray(new Subscriber[0]);
+        boolean keyframeWanted = false;
+        for (Subscriber s : current) keyframeWanted |= s.frames.isResyncWanted();
+
+        byte[] delta = encode(tick, false);
+        byte[] keyframe = keyframeWanted ? encode(tick, true) : null;
+        for (Subscriber s : current) s.offer(s.frames.takeResync() ? keyframe : delta);
+        lastPublishNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Encodes one frame. A delta also records the published state as the base of the next delta.
+     *
+     * @param tick The tick of the frame.
+     * @param keyframe {@code true} to list everything, {@code false} to list only changes.
+     * @return The frame, prefixed by its length.
+     */
+    private byte[] encode(long tick, boolean keyframe) {
+        int count = simulation.getShoppers().size();
+        if (count > lastTiles.length) {
+            int old = lastTiles.length;
+            lastTiles = Arrays.copyOf(lastTiles, Math.max(count, old * 2));
+            Arrays.fill(lastTiles, old, lastTiles.length, -1);
+        }
+        // After a reset, shoppers reuse the indices of the last run
+        if (count < lastCount && !keyframe) Arrays.fill(lastTiles, count, lastCount, -1);
+
+        length = 0;
+        ensureCapacity(1 + 10 + 5 + 5);
+        buffer[length++] = keyframe ? TAG_KEYFRAME : TAG_DELTA;
+        writeVarint(tick);
+        writeVarint(count);
+
+        // Entries are counted while they are written, so leave room for the count and move them up after
+        int countAt = length;
+        length += 5;
+        int entries = 0, previous = -1;
+        ShopperStore store = simulation.getShopperStore();
+        List<Shopper> shoppers = simulation.getShoppers();
+        for (int i = 0; i < count; i++) {
+            int x, y, floor;
+            boolean exited;
+            if (store != null) {
+                exited = store.hasExited(i);
+                x = store.getX(i);
+                y = store.getY(i);
+                floor = store.getFloor(i);
+            } else {
+                Shopper s = shoppers.get(i);
+                Point p = s.getPosition();
+                exited = s.getHasExited();
+                x = p.getX();
+                y = p.getY();
+                floor = s.getCurrentFloor();
+            }
+            boolean onGrid = x >= 0 && x < size && y >= 0 && y < size;
+            int tile = exited ? EXITED : onGrid ? FIRST_TILE + (floor * size + y) * size + x : OFF_GRID_KEY;
+            if (keyframe || tile != lastTiles[i] || tile == OFF_GRID_KEY) {
+                ensureCapacity(5 + 5 + 15);
+                writeVarint(i - previous - 1);
+                if (tile == OFF_GRID_KEY) {
+                    writeVarint(OFF_GRID);
+                    writeVarint(Varint.zigzag(x));
+                    writeVarint(Varint.zigzag(y));
+                    writeVarint(floor);
+                } else {
+                    writeVarint(tile);
+                }
+                previous = i;
+                entries++;
+            }
+            if (!keyframe) lastTiles[i] = tile;
+        }
+        length = closeSection(countAt, entries);
+        if (!keyframe) lastCount = count;
+
+        countAt = length;
+        ensureCapacity(5);
+        length += 5;
+        entries = 0;
+        previous = -1;
+        for (int i = 0; i < displays.size(); i++) {
+            int stock = displays.get(i).getProductCount();
+            if (keyframe || stock != lastStock[i]) {
+                ensureCapacity(10);
+                writeVarint(i - previous - 1);
+                writeVarint(stock);
+                previous = i;
+                entries++;
+            }
+            if (!keyframe) lastStock[i] = stock;
+        }
+        length = closeSection(countAt, entries);
+
+        byte[] frame = new byte[Varint.size(length) + length];
+        System.arraycopy(buffer, 0, frame, Varint.write(frame, 0, length), length);
+        return frame;
+    }
+
+    /**
+     * Writes the entry count of a section into the room left for it, and moves the entries up
+     * against it so no padding is sent.
+     *
+     * @param countAt Where the room for the count starts.
+     * @param entries The number of entries.
+     * @return The new length of the frame.
+     */
+    private int closeSection(int countAt, int entries) {
+        int countSize = Varint.size(entries);
+        int bodyStart = countAt + 5;
+        System.arraycopy(buffer, bodyStart, buffer, countAt + countSize, length - bodyStart);
+        int end = length - (5 - countSize);
+        length = countAt;
+        writeVarint(entries);
+        return end;
+    }
+
+    /**
+     * Stops listening and drops every subscriber, closing their streams.
+     */
+    @Override
+    public synchronized void close() {
+        if (listener != null) {
+            try {
+                listener.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+        for (Subscriber s : subscribers) s.stop();
+        subscribers.clear();
+    }
+
+    /**
+     * Gets how many subscribers are connected.
+     * @return The subscriber count.
+     */
+    public int getSubscriberCount() { return subscribers.size(); }
+
+    /**
+     * Gets how long encoding and queueing the last frame took on the simulation thread.
+     * @return The duration in nanoseconds.
+     */
+    public long getLastPublishNanos() { return lastPublishNanos; }
+
+    private void writeVarint(long value) {
+        length = Varint.write(buffer, length, value);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+
+    /**
+     * One subscriber: a stream, the frames waiting to be written to it, and the thread writing them.
+     */
+    private final class Subscriber implements Runnable {
+        private final OutputStream out;
+        /** Frames waiting to be written; asks for a keyframe when the subscriber joins, and when it falls behind. */
+        private final FrameQueue frames;
+        private final Thread writer;
+
+        /**
+         * Constructs a subscriber that starts with a keyframe.
+         *
+         * @param out The destination stream.
+         */
+        Subscriber(OutputStream out) {
+            this.out = out;
+            this.frames = new FrameQueue(QUEUE_FRAMES, DROPPED, true);
+            this.writer = new Thread(this, "state-stream-writer");
+            this.writer.setDaemon(true);
+        }
+
+        /**
+         * Starts the writer thread.
+         */
+        void start() { writer.start(); }
+
+        /**
+         * Queues a frame, or drops the queue and asks for a keyframe if the subscriber is too far behind.
+         *
+         * @param frame The encoded frame.
+         */
+        void offer(byte[] frame) {
+            if (frames.offer(frame)) {
+                FRAMES.increment();
+                BYTES.add(frame.length);
+            }
+        }
+
+        /**
+         * Writes the header, then every queued frame, flushing whenever the queue runs dry.
+         */
+        @Override
+        public void run() {
+            try {
+                out.write(header);
+                frames.drainTo(out);
+            } catch (IOException e) {
+                if (!(e instanceof SocketException)) EventLog.log(LogLevel.WARN, "stream.write_failed", null, e.toString());
+            } catch (InterruptedException e) {
+                // Stopped by the publisher
+            }
+            subscribers.remove(this);
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+
+        /**
+         * Stops the writer thread, which closes the stream.
+         */
+        void stop() { writer.interrupt(); }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+/**
+ * StockLevel.java
+ *
+ * This enum describes how well stocked a display is, relative to its low-stock level.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * The stock level of a {@link Display}. A display reports a {@link StockListener} event
+ * every time a take, return or restock moves it from one level to another.
+ */
+public enum StockLevel {
+    /** More products than the display's low-stock level. */
+    STOCKED,
+    /** At or below the low-stock level, but not empty. */
+    LOW,
+    /** No products left. */
+    EMPTY
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+/**
+ * StockListener.java
+ *
+ * This interface is notified every time a display crosses a stock threshold.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+/**
+ * Receives the stock level changes of every display on a {@link SupermarketMap}.
+ * Register listeners with {@link SupermarketMap#addStockListener(StockListener)}.
+ * Listeners are called on the thread that changed the display, right after the change,
+ * and only when the {@link StockLevel} actually changes, so a display running low sends one
+ * {@link StockLevel#LOW} event rather than one event per product taken.
+ */
+public interface StockListener {
+
+    /**
+     * Called when a display moves from one stock level to another.
+     *
+     * @param display The {@link Display} whose stock changed.
+     * @param from The previous {@link StockLevel}.
+     * @param to The new {@link StockLevel}.
+     */
+    void onStockLevelChange(Display display, StockLevel from, StockLevel to);
+}
\ No newline at end of file
@@ -0,0 +1,603 @@
+/**
+ * StoreBlueprint.java
+ *
+ * This class holds everything about a store that never changes while it is open: the floor
+ * layouts, the product catalog, the fixed amenities and the stock every display opens with.
+ * One blueprint can be shared by any number of maps and threads.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The immutable part of a {@link SupermarketMap}.
+ * <p>
+ * Layouts are parsed once, when the blueprint is built. Amenities without state (Walls, Stairs,
+ * Checkout Counters, stations, the Exit and Product Search terminals) are created once and placed
+ * on every map built from the blueprint. Displays and the Entrance change while a store is open,
+ * so each map gets its own, backed by the arrays of its {@link StoreOverlay}; the blueprint only
+ * describes them (kind, tile and address) and keeps the opening stock of every display slot, so a
+ * map is stocked, or restocked to opening state, with array copies.
+ * <p>
+ * The product catalog is built once and shared by every blueprint, so a {@link Product} is the
+ * same object in every store.
+ */
+public final class StoreBlueprint {
+    /** The uniform size (width and height) of the square map grid for each floor. */
+    static final int MAP_SIZE = 22;
+
+    /** The product catalog shared by every store. */
+    private static final List<Product> CATALOG = Collections.unmodifiableList(createCatalog());
+
+    private final String[][] layouts;
+    private final Amenity[][][] fixtures;
+    private final String[] displayCodes;
+    private final Point[] displayPositions;
+    private final int[] displayFloors;
+    private final String[] displayAddresses;
+    private final int[] slotBases;
+    private final int[] tierBases;
+    private final Product[] openingSlots;
+    private final int[] openingTierSizes;
+    private final Point[] entrancePositions;
+    private final int[] entranceFloors;
+
+    /**
+     * Holds the blueprint of the default layout, built the first time it is asked for.
+     */
+    private static final class DefaultHolder {
+        private static final StoreBlueprint INSTANCE =
+                new StoreBlueprint(SupermarketMap.GROUND_FLOOR_LAYOUT, SupermarketMap.SECOND_FLOOR_LAYOUT);
+    }
+
+    /**
+     * Parses two floor layouts and works out the opening stock of every display.
+     * Each layout must have {@value #MAP_SIZE} rows of {@value #MAP_SIZE} space-separated tile codes.
+     *
+     * @param groundFloor The Ground Floor layout.
+     * @param secondFloor The Second Floor layout.
+     */
+    private StoreBlueprint(String[] groundFloor, String[] secondFloor) {
+        this.layouts = new String[][] { groundFloor.clone(), secondFloor.clone() };
+        this.fixtures = new Amenity[layouts.length][MAP_SIZE][MAP_SIZE];
+
+        List<Display> prototypes = new ArrayList<>();
+        List<Integer> floorsOfDisplays = new ArrayList<>();
+        List<Point> entrances = new ArrayList<>();
+        List<Integer> floorsOfEntrances = new ArrayList<>();
+        for (int f = 0; f < layouts.length; f++) {
+            String floorPrefix = (f == 0) ? "GF" : "2F";
+            for (int r = 0; r < MAP_SIZE; r++) {
+                String[] row = layouts[f][r].split(" ");
+                for (int c = 0; c < MAP_SIZE; c++) {
+                    Point pos = new Point(c, r);
+                    String type = row[c];
+                    Amenity amenity = null;
+                    boolean perMap = false;
+                    String addr = floorPrefix + ", R" + r + "C" + c;
+
+                    switch (type) {
+                        case "w": amenity = new Wall(pos); break;
+                        case "r": case "sh": case "t": case "f":
+                            prototypes.add(newDisplay(type, pos, addr));
+                            floorsOfDisplays.add(f);
+                            perMap = true;
+                            break;
+                        case "p": amenity = new ProductSearch(pos); break;
+                        case "c": amenity = new CheckoutCounter(pos); break;
+                        case "bs": amenity = new CartStation(pos); break;
+                        case "cs": amenity = new BasketStation(pos); break;
+                        case "ex": amenity = new Exit(pos); break;
+                        case "en":
+                            entrances.add(pos);
+                            floorsOfEntrances.add(f);
+                            perMap = true;
+                            break;
+                        case "st": amenity = new Stairs(pos); break;
+                        case "b": break;
+                    }
+
+                    boolean edge = r == 0 || r == MAP_SIZE - 1 || c == 0 || c == MAP_SIZE - 1;
+                    if (amenity == null && !perMap && edge) amenity = new Wall(pos);
+                    fixtures[f][r][c] = amenity;
+                }
+            }
+        }
+
+        // Stock prototypes of the displays once, then remember their slots as the opening stock
+        stockDisplays(prototypes);
+        int n = prototypes.size();
+        this.displayCodes = new String[n];
+        this.displayPositions = new Point[n];
+        this.displayFloors = new int[n];
+        this.displayAddresses = new String[n];
+        this.slotBases = new int[n];
+        this.tierBases = new int[n];
+        int slots = 0, tiers = 0;
+        for (int i = 0; i < n; i++) {
+            Display d = prototypes.get(i);
+            displayCodes[i] = codeOf(d);
+            displayPositions[i] = d.getPosition();
+            displayFloors[i] = floorsOfDisplays.get(i);
+            displayAddresses[i] = d.getAddress();
+            slotBases[i] = slots;
+            tierBases[i] = tiers;
+            slots += d.getCapacity();
+            tiers += d.getTierCount();
+        }
+        this.openingSlots = new Product[slots];
+        this.openingTierSizes = new int[tiers];
+        for (int i = 0; i < n; i++) prototypes.get(i).bindStock(openingSlots, slotBases[i], openingTierSizes, tierBases[i]);
+
+        this.entrancePositions = entrances.toArray(new Point[0]);
+        this.entranceFloors = floorsOfEntrances.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Gets the blueprint of the default layout ({@link SupermarketMap#GROUND_FLOOR_LAYOUT} and
+     * {@link SupermarketMap#SECOND_FLOOR_LAYOUT}). It is built once and then shared.
+     *
+     * @return The default {@link StoreBlueprint}.
+     */
+    public static StoreBlueprint getDefault() { return DefaultHolder.INSTANCE; }
+
+    /**
+     * Gets a blueprint for two floor layouts. The default layout always gives the shared default
+     * blueprint; any other layout is parsed into a new one, which callers should keep and reuse.
+     *
+     * @param groundFloor The Ground Floor layout.
+     * @param secondFloor The Second Floor layout.
+     * @return The {@link StoreBlueprint}.
+     */
+    public static StoreBlueprint of(String[] groundFloor, String[] secondFloor) {
+        if (Arrays.equals(groundFloor, SupermarketMap.GROUND_FLOOR_LAYOUT)
+                && Arrays.equals(secondFloor, SupermarketMap.SECOND_FLOOR_LAYOUT)) {
+            return getDefault();
+        }
+        return new StoreBlueprint(groundFloor, secondFloor);
+    }
+
+    /**
+     * Creates an empty display of the kind a tile code stands for.
+     *
+     * @param code The tile code ({@code "r"}, {@code "sh"}, {@code "t"} or {@code "f"}).
+     * @param position The tile of the display.
+     * @param address The address of the display (e.g., "GF, R5C10").
+     * @return The new {@link Display}.
+     */
+    private static Display newDisplay(String code, Point position, String address) {
+        switch (code) {
+            case "r": return new ChilledCounter(position, address);
+            case "sh": return new Shelf(position, address);
+            case "t": return new Table(position, address);
+            default: return new Refrigerator(position, address);
+        }
+    }
+
+    /**
+     * Gets the tile code of a display.
+     *
+     * @param display The {@link Display}.
+     * @return Its tile code.
+     */
+    private static String codeOf(Display display) {
+        if (display instanceof ChilledCounter) return "r";
+        if (display instanceof Shelf) return "sh";
+        if (display instanceof Table) return "t";
+        return "f";
+    }
+
+    /**
+     * Creates a fresh, empty display for a map built from this blueprint.
+     *
+     * @param index The index of the display, in the order of {@link SupermarketMap#getAllDisplays()}.
+     * @return The new {@link Display}.
+     */
+    Display newDisplay(int index) {
+        return newDisplay(displayCodes[index], displayPositions[index], displayAddresses[index]);
+    }
+
+
+    /**
+     * Gets the shared amenity without state on a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The {@link Amenity}, or {@code null} for an empty tile, a display or the Entrance.
+     */
+    Amenity getFixture(int x, int y, int floor) { return fixtures[floor][y][x]; }
+
+    /**
+     * Gets the row of shared amenities of a floor. Maps copy it into their own grid.
+     *
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The row; it must not be modified.
+     */
+    Amenity[] getFixtureRow(int y, int floor) { return fixtures[floor][y]; }
+
+    /**
+     * Gets the number of displays.
+     * @return The display count.
+     */
+    public int getDisplayCount() { return displayCodes.length; }
+
+    /**
+     * Gets the floor of a display.
+     *
+     * @param index The index of the display.
+     * @return The floor index.
+     */
+    int getDisplayFloor(int index) { return displayFloors[index]; }
+
+    /**
+     * Gets where the stock of a display starts in the slot arrays of an overlay.
+     *
+     * @param index The index of the display.
+     * @return The first slot of the display.
+     */
+    int getSlotBase(int index) { return slotBases[index]; }
+
+    /**
+     * Gets where the tier sizes of a display start in the tier arrays of an overlay.
+     *
+     * @param index The index of the display.
+     * @return The first tier of the display.
+     */
+    int getTierBase(int index) { return tierBases[index]; }
+
+    /**
+     * Gets the product in every display slot when the store opens.
+     * @return The opening slots; the array must not be modified.
+     */
+    Product[] getOpeningSlots() { return openingSlots; }
+
+    /**
+     * Gets the number of products on every display tier when the store opens.
+     * @return The opening tier sizes; the array must not be modified.
+     */
+    int[] getOpeningTierSizes() { return openingTierSizes; }
+
+    /**
+     * Gets the number of Entrances.
+     * @return The Entrance count.
+     */
+    public int getEntranceCount() { return entrancePositions.length; }
+
+    /**
+     * Gets the tile of an Entrance.
+     *
+     * @param index The index of the Entrance, in reading order (Ground Floor first).
+     * @return The {@link Point} of the Entrance.
+     */
+    Point getEntrancePosition(int index) { return entrancePositions[index]; }
+
+    /**
+     * Gets the floor of an Entrance.
+     *
+     * @param index The index of the Entrance.
+     * @return The floor index.
+     */
+    int getEntranceFloor(int index) { return entranceFloors[index]; }
+
+    /**
+     * Gets the layout rows a floor was built from.
+     *
+     * @param floor The floor index (0 for Ground Floor, 1 for 2nd Floor).
+     * @return A copy of the layout rows of that floor.
+     */
+    public String[] getLayout(int floor) { return layouts[floor].clone(); }
+
+    /**
+     * Gets the number of floors.
+     * @return The floor count.
+     */
+    public int getFloorCount() { return layouts.length; }
+
+    /**
+     * Gets the product catalog shared by every store. A product's index in this list is stable
+     * and is used to refer to products in snapshots.
+     *
+     * @return The read-only list of all {@link Product}s.
+     */
+    public static List<Product> getCatalog() { return CATALOG; }
+
+    /**
+     * Populates the catalog with all defined {@link Product} items, categorized by their
+     * 3-letter serial prefix (e.g., BRD, FRZ, CHK).
+     *
+     * @return The products, in catalog order.
+     */
+    private static List<Product> createCatalog() {
+        List<Product> allProducts = new ArrayList<>();
+        // ==========================================
+        //       2ND FLOOR PRODUCTS (Your New List)
+        // ==========================================
+
+        // 1. BREAD (BRD)
+        allProducts.add(new Product("BRD001", "Gardenia White Bread", 85.00, true, false));
+        allProducts.add(new Product("BRD002", "Pan de Manila Pandesal", 60.00, true, false));
+        allProducts.add(new Product("BRD003", "Monde Special Mamon", 75.00, true, false));
+
+        // 2. EGGS (EGG)
+        allProducts.add(new Product("EGG001", "Bounty Fresh L-Eggs", 290.00, true, false));
+        allProducts.add(new Product("EGG002", "Magnolia Brown Eggs", 130.00, true, false));
+        allProducts.add(new Product("EGG003", "Salted Eggs (6pcs)", 85.00, true, false));
+
+        // 3. FROZEN (FRZ)
+        allProducts.add(new Product("FRZ001", "Tender Juicy Hotdog", 220.00, true, false));
+        allProducts.add(new Product("FRZ002", "Pampanga's Best Tocino", 150.00, true, false));
+        allProducts.add(new Product("FRZ003", "CDO Young Pork Tocino", 75.00, true, false));
+
+        // 4. MILK (MLK)
+        allProducts.add(new Product("MLK001", "Bear Brand Fresh Milk", 115.00, true, true));
+        allProducts.add(new Product("MLK002", "Selecta Skim Milk", 35.00, true, true));
+        allProducts.add(new Product("MLK003", "Magnolia Fresh Milk", 98.00, true, true));
+
+        // 5. CHEESE (CHS)
+        allProducts.add(new Product("CHS001", "Eden Cheese Original", 58.00, true, false));
+        allProducts.add(new Product("CHS002", "Magnolia Cheezee", 65.00, true, false));
+        allProducts.add(new Product("CHS003", "Ques-O Cheddar Block", 48.00, true, false));
+
+        // 6. CLEANING (CLE)
+        allProducts.add(new Product("CLE001", "Joy Dishwashing Liq", 60.00, false, false));
+        allProducts.add(new Product("CLE002", "Zonrox Bleach (1L)", 40.00, false, false));
+        allProducts.add(new Product("CLE003", "Ariel Powder (600g)", 135.00, false, false));
+
+        // 7. HOME ESSENTIALS (HOM)
+        allProducts.add(new Product("HOM001", "Sanicare Kitchen Towel", 95.00, false, false));
+        allProducts.add(new Product("HOM002", "Reynolds Aluminum Foil", 110.00, false, false));
+        allProducts.add(new Product("HOM003", "Scotch Brite Sponge", 35.00, false, false));
+
+        // 8. HAIR CARE (HAR)
+        allProducts.add(new Product("HAR001", "Palmolive Shampoo", 95.00, false, false));
+        allProducts.add(new Product("HAR002", "Cream Silk Conditioner", 110.00, false, false));
+        allProducts.add(new Product("HAR003", "Gatsby Styling Wax", 130.00, false, false));
+
+        // 9. BODY CARE (BOD)
+        allProducts.add(new Product("BOD001", "Safeguard Bar Soap", 55.00, false, false));
+        allProducts.add(new Product("BOD002", "Johnson's Baby Powder", 70.00, false, false));
+        allProducts.add(new Product("BOD003", "Green Cross Alcohol", 80.00, false, false));
+
+        // 10. DENTAL CARE (DEN)
+        allProducts.add(new Product("DEN001", "Colgate Toothpaste", 105.00, false, false));
+        allProducts.add(new Product("DEN002", "Oral-B Toothbrush", 90.00, false, false));
+        allProducts.add(new Product("DEN003", "Listerine Mouthwash", 140.00, false, false));
+
+        // 11. VEGETABLES (VEG)
+        allProducts.add(new Product("VEG001", "Broccoli Heads", 140.00, true, false));
+        allProducts.add(new Product("VEG002", "Baguio Carrots", 95.00, true, false));
+        allProducts.add(new Product("VEG003", "Ampalaya (1kg)", 110.00, true, false));
+
+        // 12. CLOTHES (CLO)
+        allProducts.add(new Product("CLO001", "Cotton T-Shirt", 250.00, false, false));
+        allProducts.add(new Product("CLO002", "Boxer Shorts (3pk)", 350.00, false, false));
+        allProducts.add(new Product("CLO003", "Ankle Socks (3pk)", 150.00, false, false));
+
+        // 13. STATIONERY (STN)
+        allProducts.add(new Product("STN001", "Panda Ballpens (12)", 85.00, false, false));
+        allProducts.add(new Product("STN002", "Cattleya Notebook", 35.00, false, false));
+        allProducts.add(new Product("STN003", "Yellow Pad Ream", 120.00, false, false));
+
+        // 14. PET FOOD (PET)
+        allProducts.add(new Product("PET001", "Pedigree Dog Food", 140.00, true, false));
+        allProducts.add(new Product("PET002", "Whiskas Cat Food", 35.00, true, false));
+        allProducts.add(new Product("PET003", "Purina One Dry Food", 380.00, true, false));
+
+        // ==========================================
+        //       GROUND FLOOR PRODUCTS (RESTORED)
+        // ==========================================
+        // System requires 3 variants per type to display properly.
+
+        // FRUITS (FRU)
+        allProducts.add(new Product("FRU001", "Davao Pomelos", 120.00, true, false));
+        allProducts.add(new Product("FRU002", "Phil. Mangoes", 180.00, true, false));
+        allProducts.add(new Product("FRU003", "Apples", 60.00, true, false));
+        // CHICKEN (CHK)
+        allProducts.add(new Product("CHK001", "Chicken Thigh", 200.00, true, false));
+        allProducts.add(new Product("CHK002", "Ground Chicken", 120.00, true, false));
+        allProducts.add(new Product("CHK003", "Drumsticks", 185.00, true, false));
+        // BEEF (BEF)
+        allProducts.add(new Product("BEF001", "Rib-eye Steak", 450.00, true, false));
+        allProducts.add(new Product("BEF002", "Ground Beef", 305.00, true, false));
+        allProducts.add(new Product("BEF003", "Beef Shank", 310.00, true, false));
+        // SEAFOOD (SEA)
+        allProducts.add(new Product("SEA001", "Tilapia Fillet", 210.00, true, false));
+        allProducts.add(new Product("SEA002", "Shrimp", 350.00, true, false));
+        allProducts.add(new Product("SEA003", "Squid Rings", 175.00, true, false));
+        // CEREAL (CER)
+        allProducts.add(new Product("CER001", "Koko Krunch", 120.00, true, false));
+        allProducts.add(new Product("CER002", "Quaker Oats", 95.00, true, false));
+        allProducts.add(new Product("CER003", "Honey Bunches", 145.00, true, false));
+        // NOODLES (NDL)
+        allProducts.add(new Product("NDL001", "Pancit Canton", 25.00, true, false));
+        allProducts.add(new Product("NDL002", "Miswa", 40.00, true, false));
+        allProducts.add(new Product("NDL003", "Egg Noodles", 65.00, true, false));
+        // SNACKS (SNK)
+        allProducts.add(new Product("SNK001", "Lay's Chips", 55.00, true, false));
+        allProducts.add(new Product("SNK002", "Choco Cookies", 110.00, true, false));
+        allProducts.add(new Product("SNK003", "Crackers", 45.00, true, false));
+        // CANNED (CAN)
+        allProducts.add(new Product("CAN001", "Century Tuna", 49.00, true, false));
+        allProducts.add(new Product("CAN002", "Condensed Soup", 65.00, true, false));
+        allProducts.add(new Product("CAN003", "Sardines", 35.00, true, false));
+        // CONDIMENTS (CON)
+        allProducts.add(new Product("CON001", "Soy Sauce", 21.00, true, false));
+        allProducts.add(new Product("CON002", "Banana Ketchup", 60.00, true, false));
+        allProducts.add(new Product("CON003", "Vinegar", 85.00, true, false));
+        // DRINKS/SOFT (SFT)
+        allProducts.add(new Product("SFT001", "Distilled Water", 30.00, true, true));
+        allProducts.add(new Product("SFT002", "Coke 1.5L", 65.00, true, true));
+        allProducts.add(new Product("SFT003", "Sprite", 40.00, true, true));
+        // JUICE (JUC)
+        allProducts.add(new Product("JUC001", "C2 Green Tea", 85.00, true, true));
+        allProducts.add(new Product("JUC002", "Orange Juice", 70.00, true, true));
+        allProducts.add(new Product("JUC003", "Pineapple Juice", 90.00, true, true));
+        // ALCOHOL (ALC)
+        allProducts.add(new Product("ALC001", "Pale Pilsen", 60.00, true, true));
+        allProducts.add(new Product("ALC002", "Tanduay Rhum", 350.00, true, true));
+        allProducts.add(new Product("ALC003", "Emperador", 500.00, true, true));
+        return allProducts;
+    }
+
+    /**
+     * Fills every display with its default products.
+     *
+     * @param allDisplays The displays, in map order.
+     */
+    private static void stockDisplays(List<Display> allDisplays) {
+        // Track cycling indices for all categories
+        int brd=0, egg=0, frz=0, mlk=0, chs=0;
+        int cle=0, hom=0, har=0, bod=0, den=0;
+        int veg=0, clo=0, stn=0, pet=0;
+        // GF Indices
+        int chk=0, bef=0, sea=0, fru=0, can=0, sft=0;
+        int cer=0, ndl=0, snk=0, con=0, juc=0, alc=0;
+
+        for (Display display : allDisplays) {
+            String prefix = prefixFor(display);
+            if (prefix.isEmpty()) continue;
+
+            List<Product> source = productsByPrefix(prefix);
+            if (source.size() < 3) continue;
+
+            int variantIndex = 0;
+            switch (prefix) {
+                // NEW 2F MAPPINGS
+                case "BRD": variantIndex = (brd++) % 3; break;
+                case "EGG": variantIndex = (egg++) % 3; break;
+                case "FRZ": variantIndex = (frz++) % 3; break;
+                case "MLK": variantIndex = (mlk++) % 3; break;
+                case "CHS": variantIndex = (chs++) % 3; break;
+                case "CLE": variantIndex = (cle++) % 3; break;
+                case "HOM": variantIndex = (hom++) % 3; break;
+                case "HAR": variantIndex = (har++) % 3; break;
+                case "BOD": variantIndex = (bod++) % 3; break;
+                case "DEN": variantIndex = (den++) % 3; break;
+                case "VEG": variantIndex = (veg++) % 3; break;
+                case "CLO": variantIndex = (clo++) % 3; break;
+                case "STN": variantIndex = (stn++) % 3; break;
+                case "PET": variantIndex = (pet++) % 3; break;
+
+                // GF ORIGINAL MAPPINGS
+                case "CHK": variantIndex = (chk++) % 3; break;
+                case "BEF": variantIndex = (bef++) % 3; break;
+                case "SEA": variantIndex = (sea++) % 3; break;
+                case "FRU": variantIndex = (fru++) % 3; break;
+                case "CAN": variantIndex = (can++) % 3; break;
+                case "SFT": variantIndex = (sft++) % 3; break;
+                case "CER": variantIndex = (cer++) % 3; break;
+                case "NDL": variantIndex = (ndl++) % 3; break;
+                case "SNK": variantIndex = (snk++) % 3; break;
+                case "CON": variantIndex = (con++) % 3; break;
+                case "JUC": variantIndex = (juc++) % 3; break;
+                case "ALC": variantIndex = (alc++) % 3; break;
+            }
+
+            Product p = source.get(variantIndex);
+            // A custom layout may put a display where its product does not belong; leave it empty
+            while (!display.isFull()) {
+                if (!display.returnProduct(p)) break;
+            }
+        }
+    }
+
+    /**
+     * Gets the 3-letter serial prefix of the products a display is stocked with, from its kind,
+     * floor and position.
+     *
+     * @param d The {@link Display}.
+     * @return The prefix, or an empty string if the display is not stocked.
+     */
+    public static String prefixFor(Display d) {
+        int r = d.getPosition().getY();
+        int c = d.getPosition().getX();
+        boolean isGF = d.getAddress().startsWith("GF");
+        boolean is2F = d.getAddress().startsWith("2F");
+
+        // --- GROUND FLOOR LOGIC (Restored Full Logic) ---
+        if (isGF) {
+            if (d instanceof ChilledCounter) {
+                if (c <= 7) return "CHK";
+                if (c <= 14) return "BEF";
+                return "SEA";
+            }
+            if (d instanceof Table) return "FRU";
+
+            if (d instanceof Shelf) {
+                // Top Half (Rows ~4-7)
+                if (r <= 7) {
+                    if (c <= 3) return "ALC";
+                    if (c <= 8) return "SFT";
+                    if (c <= 15) return "CER";
+                    return "CAN";
+                }
+                // Bottom Half (Rows ~10-13)
+                else {
+                    if (c <= 3) return "CON";
+                    if (c <= 8) return "JUC";
+                    if (c <= 15) return "NDL";
+                    return "SNK";
+                }
+            }
+        }
+
+        // --- SECOND FLOOR LOGIC (Clusters A-P) ---
+        if (is2F) {
+            // ROW 1: Refrigerators (Clusters A, B, C)
+            if (r == 1) {
+                if (c <= 6) return "MLK";
+                if (c <= 12) return "FRZ";
+                return "CHS";
+            }
+
+            // ROWS 4-7: Shelves & Tables (D, E, F, G, H)
+            if (r >= 4 && r <= 7) {
+                if (c <= 3) return "PET";
+                if (c <= 7) return "CLO";
+                if (c <= 11) return "VEG";
+                if (c <= 15) return "CLE";
+                return "HOM";
+            }
+
+            // ROWS 10-13: Shelves & Tables (I, J, K, L, M)
+            if (r >= 10 && r <= 13) {
+                if (c <= 3) return "STN";
+                if (c <= 7) return "DEN";
+                if (c <= 11) return "VEG";
+                if (c <= 15) return "HAR";
+                return "BOD";
+            }
+
+            // ROW 20: Tables (N, O, P)
+            if (r == 20) {
+                if (c <= 7) return "BRD";
+                if (c <= 13) return "EGG";
+                return "BRD";
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Lists the catalog products with a serial prefix.
+     *
+     * @param prefix The 3-letter prefix.
+     * @return The matching products, in catalog order.
+     */
+    private static List<Product> productsByPrefix(String prefix) {
+        List<Product> filtered = new ArrayList<>();
+        for (Product p : CATALOG) {
+            if (p.getSerialPrefix().equals(prefix)) filtered.add(p);
+        }
+        return filtered;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,190 @@
+/**
+ * StoreLayout.java
+ *
+ * This class holds the tile codes of both floors of a store as an immutable value, so candidate
+ * layouts can be edited, compared, used as map keys and turned into a SupermarketMap.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Arrays;
+
+/**
+ * An immutable grid of tile codes, indexed by floor, row and column, in the format of
+ * {@link SupermarketMap#GROUND_FLOOR_LAYOUT} (e.g., {@code "sh"} for a Shelf, {@code "b"} for an empty tile).
+ * Two layouts are equal if every tile holds the same code, so a layout can key a cache of scores.
+ * Edits are made on a copy from {@link #toGrid()} and wrapped again with {@link #StoreLayout(String[][][])}.
+ */
+public final class StoreLayout {
+    private final String[][][] codes;
+    private final int hash;
+    private volatile StoreBlueprint blueprint;
+
+    /**
+     * Constructs a layout from the rows of both floors.
+     *
+     * @param groundFloor The Ground Floor rows, each a space-separated list of tile codes.
+     * @param secondFloor The Second Floor rows.
+     */
+    public StoreLayout(String[] groundFloor, String[] secondFloor) {
+        this(new String[][][] { split(groundFloor), split(secondFloor) });
+    }
+
+    /**
+     * Constructs a layout from a grid of tile codes. The grid is copied.
+     *
+     * @param grid The codes, indexed by {@code [floor][row][column]}.
+     */
+    public StoreLayout(String[][][] grid) {
+        this.codes = new String[grid.length][][];
+        for (int f = 0; f < grid.length; f++) {
+            codes[f] = new String[grid[f].length][];
+            for (int y = 0; y < grid[f].length; y++) codes[f][y] = grid[f][y].clone();
+        }
+        this.hash = Arrays.deepHashCode(codes);
+    }
+
+    /**
+     * Gets the layout a map was built from.
+     *
+     * @param map The {@link SupermarketMap}.
+     * @return Its {@link StoreLayout}.
+     */
+    public static StoreLayout of(SupermarketMap map) {
+        return new StoreLayout(map.getLayout(0), map.getLayout(1));
+    }
+
+    /**
+     * Splits space-separated rows into tile codes.
+     *
+     * @param rows The rows.
+     * @return The codes, indexed by {@code [row][column]}.
+     */
+    private static String[][] split(String[] rows) {
+        String[][] grid = new String[rows.length][];
+        for (int y = 0; y < rows.length; y++) grid[y] = rows[y].trim().split("\\s+");
+        return grid;
+    }
+
+    /**
+     * Gets the code of a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @param floor The floor index.
+     * @return The tile code.
+     */
+    public String get(int x, int y, int floor) { return codes[floor][y][x]; }
+
+    /**
+     * Copies the tile codes into a new grid that can be edited freely.
+     *
+     * @return The codes, indexed by {@code [floor][row][column]}.
+     */
+    public String[][][] toGrid() {
+        String[][][] grid = new String[codes.length][][];
+        for (int f = 0; f < codes.length; f++) {
+            grid[f] = new String[codes[f].length][];
+            for (int y = 0; y < codes[f].length; y++) grid[f][y] = codes[f][y].clone();
+        }
+        return grid;
+    }
+
+    /**
+     * Gets the rows of one floor in the format {@link SupermarketMap} reads.
+     *
+     * @param floor The floor index.
+     * @return The space-separated rows.
+     */
+    public String[] getRows(int floor) {
+        String[] rows = new String[codes[floor].length];
+        for (int y = 0; y < rows.length; y++) rows[y] = String.join(" ", codes[floor][y]);
+        return rows;
+    }
+
+    /**
+     * Builds a new, fully stocked map with this layout. Maps built from the same layout share
+     * one {@link StoreBlueprint}, so the layout is parsed and stocked only once.
+     *
+     * @return The {@link SupermarketMap}.
+     */
+    public SupermarketMap toMap() { return new SupermarketMap(getBlueprint()); }
+
+    /**
+     * Gets the blueprint of this layout, building it on first use.
+     *
+     * @return The {@link StoreBlueprint}.
+     */
+    public StoreBlueprint getBlueprint() {
+        StoreBlueprint result = blueprint;
+        if (result == null) {
+            result = StoreBlueprint.of(getRows(0), getRows(1));
+            blueprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the tiles whose code differs from another layout of the same size.
+     *
+     * @param other The layout to compare with.
+     * @return The number of changed tiles.
+     */
+    public int countDifferences(StoreLayout other) {
+        int changed = 0;
+        for (int f = 0; f < codes.length; f++) {
+            for (int y = 0; y < codes[f].length; y++) {
+                for (int x = 0; x < codes[f][y].length; x++) {
+                    if (!codes[f][y][x].equals(other.codes[f][y][x])) changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Gets the number of floors.
+     * @return The floor count.
+     */
+    public int getFloorCount() { return codes.length; }
+
+    /**
+     * Compares this layout to another object. Two layouts are equal if every tile holds the same code.
+     *
+     * @param obj The object to compare with.
+     * @return true if the object is a StoreLayout with identical codes; false otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof StoreLayout)) return false;
+        StoreLayout other = (StoreLayout) obj;
+        return hash == other.hash && Arrays.deepEquals(codes, other.codes);
+    }
+
+    /**
+     * Gets a hash of every tile code, computed once when the layout is built.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() { return hash; }
+
+    /**
+     * Formats the layout as the rows of each floor, one floor after the other.
+     *
+     * @return The rows, separated by line breaks.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int f = 0; f < codes.length; f++) {
+            sb.append(f == 0 ? "GF" : "2F").append(System.lineSeparator());
+            for (String row : getRows(f)) sb.append(row).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+/**
+ * StoreOverlay.java
+ *
+ * This class holds the state of one open store that changes while shoppers move through it:
+ * the stock of every display and whether each Entrance has locked behind its first shopper.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.util.Arrays;
+
+/**
+ * The mutable part of a {@link SupermarketMap}, laid over a shared {@link StoreBlueprint}.
+ * <p>
+ * Display stock is stored in two flat arrays for the whole store: one {@link Product} slot per
+ * unit of display capacity, and the number of products on every tier. Every {@link Display} and
+ * {@link Entrance} of the map reads and writes these arrays directly, so restoring the opening
+ * state is a couple of array copies, whatever the number of displays. Shopper state lives in the
+ * {@link Simulation} (or {@link ShopperStore}).
+ * <p>
+ * Resetting does not notify stock listeners.
+ */
+public final class StoreOverlay {
+    private final StoreBlueprint blueprint;
+    private final Product[] slots;
+    private final int[] tierSizes;
+    private final boolean[] entrancesUsed;
+
+    /**
+     * Constructs an overlay with empty displays and unused Entrances.
+     *
+     * @param blueprint The {@link StoreBlueprint} the overlay belongs to.
+     */
+    StoreOverlay(StoreBlueprint blueprint) {
+        this.blueprint = blueprint;
+        this.slots = new Product[blueprint.getOpeningSlots().length];
+        this.tierSizes = new int[blueprint.getOpeningTierSizes().length];
+        this.entrancesUsed = new boolean[blueprint.getEntranceCount()];
+    }
+
+    /**
+     * Binds a display of the map to its part of the stock arrays.
+     *
+     * @param display The {@link Display}.
+     * @param index The index of the display in the blueprint.
+     */
+    void bind(Display display, int index) {
+        display.bindStock(slots, blueprint.getSlotBase(index), tierSizes, blueprint.getTierBase(index));
+    }
+
+    /**
+     * Binds an Entrance of the map to its used flag.
+     *
+     * @param entrance The {@link Entrance}.
+     * @param index The index of the Entrance in the blueprint.
+     */
+    void bind(Entrance entrance, int index) {
+        entrance.bindState(entrancesUsed, index);
+    }
+
+    /**
+     * Puts every display back to its opening stock.
+     */
+    public void resetStock() {
+        System.arraycopy(blueprint.getOpeningSlots(), 0, slots, 0, slots.length);
+        System.arraycopy(blueprint.getOpeningTierSizes(), 0, tierSizes, 0, tierSizes.length);
+    }
+
+    /**
+     * Puts every display back to its opening stock and unlocks every Entrance.
+     */
+    public void reset() {
+        resetStock();
+        Arrays.fill(entrancesUsed, false);
+    }
+
+    /**
+     * Gets the blueprint the overlay is laid over.
+     * @return The {@link StoreBlueprint}.
+     */
+    public StoreBlueprint getBlueprint() { return blueprint; }
+}
\ No newline at end of file
@@ -0,0 +1,374 @@
+/**
+ * StoreSnapshot.java
+ *
+ * This class saves and restores the complete state of a Simulation (floor layouts,
+ * display contents, entrance locks and every shopper) in a compact, versioned binary format.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a {@link Simulation} into a binary snapshot and rebuilds it again.
+ * <p>
+ * Products are written as their index in the map's product catalog, so each stocked or
+ * carried item takes four bytes and restoring never has to search for a product.
+ * The layout of a snapshot (version {@value #VERSION}) is:
+ * <ol>
+ *     <li>Header: magic number, version, master seed, tick.</li>
+ *     <li>Floors: row count, then every layout row as a length-prefixed UTF-8 string.</li>
+ *     <li>Catalog: size, then the serial number of every product, used to check that the snapshot's
+ *     product indices mean the same products when it is restored.</li>
+ *     <li>Displays (in map order): for every tier, the product count and product indices.</li>
+ *     <li>Entrances (in map order): one byte each, 1 if locked.</li>
+ *     <li>Occupancy: one byte, 1 if an {@link OccupancyGrid} is attached, followed by
+ *     the capacity of every tile (floor by floor, row by row).</li>
+ *     <li>Shoppers (in the order they joined): name, age, position, floor, facing, status flags,
+ *     equipment type, hand-carried items and equipment items.</li>
+ * </ol>
+ * Strings and product lists are prefixed with their length as an unsigned 16-bit count; encoding
+ * fails rather than let a longer one wrap, and restoring rejects a count the display or
+ * equipment has no room for.
+ */
+public final class StoreSnapshot {
+    /** Magic number at the start of every snapshot ("SMSS"). */
+    public static final int MAGIC = 0x534D5353;
+
+    /** The version of the snapshot format. */
+    public static final short VERSION = 1;
+
+    /** The largest length prefix of a string or product list. */
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private static final byte NO_EQUIPMENT = 0;
+    private static final byte CART = 1;
+    private static final byte BASKET = 2;
+
+    private static final byte CHECKED_OUT_FLAG = 1;
+    private static final byte EXITED_FLAG = 2;
+
+    /**
+     * This class only has static helpers.
+     */
+    private StoreSnapshot() { }
+
+    /**
+     * Saves a snapshot of the simulation to a file.
+     *
+     * @param simulation The {@link Simulation} to save.
+     * @param file The destination path (overwritten if it exists).
+     * @throws IOException if the file cannot be written.
+     */
+    public static void save(Simulation simulation, Path file) throws IOException {
+        ByteBuffer buffer = encode(simulation);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * Restores a simulation from a snapshot file.
+     *
+     * @param file The path of a file written by {@link #save(Simulation, Path)}.
+     * @param threads The number of decide-phase threads for the restored simulation.
+     * @return The restored {@link Simulation}, ready to continue from the saved tick.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static Simulation load(Path file, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            buffer.flip();
+            return decode(buffer, threads);
+        }
+    }
+
+    /**
+     * Encodes the simulation into a new buffer.
+     *
+     * @param simulation The {@link Simulation} to encode.
+     * @return A buffer positioned at 0 and holding exactly the snapshot bytes.
+     * @throws IllegalArgumentException if a string or product list is too long for its length prefix.
+     */
+    public static ByteBuffer encode(Simulation simulation) {
+        SupermarketMap map = simulation.getMap();
+        List<Product> catalog = map.getAllProducts();
+        Map<Product, Integer> productIndex = new IdentityHashMap<>(catalog.size() * 2);
+        for (int i = 0; i < catalog.size(); i++) productIndex.put(catalog.get(i), i);
+
+        List<byte[]> serials = new ArrayList<>(catalog.size());
+        for (Product p : catalog) serials.add(p.getSerialNumber().getBytes(StandardCharsets.UTF_8));
+        List<byte[]> rows = new ArrayList<>();
+        for (int floor = 0; floor < map.getFloorCount(); floor++) {
+            for (String row : map.getLayout(floor)) rows.add(row.getBytes(StandardCharsets.UTF_8));
+        }
+        List<Entrance> entrances = findEntrances(map);
+        List<Shopper> shoppers = simulation.getShoppers();
+        List<byte[]> names = new ArrayList<>(shoppers.size());
+        for (Shopper s : shoppers) names.add(s.getName().getBytes(StandardCharsets.UTF_8));
+
+        // Compute the exact size up front so large stores are written without re-copying
+        int size = 4 + 2 + 8 + 8;                       // header
+        size += 4 + 4 + 4 + 4 + 4 + entrances.size() + 4; // section counts and entrance flags
+        OccupancyGrid occupancy = map.getOccupancy();
+        int tiles = map.getFloorCount() * map.getMapSize() * map.getMapSize();
+        size += 1 + (occupancy != null ? 4 * tiles : 0);
+        for (byte[] row : rows) size += 2 + row.length;
+        for (byte[] serial : serials) size += 2 + serial.length;
+        for (Display d : map.getAllDisplays()) size += 2 * d.getTierCount() + 4 * d.getProductCount();
+        for (int i = 0; i < shoppers.size(); i++) {
+            Shopper s = shoppers.get(i);
+            size += 2 + names.get(i).length + 4 + 2 + 2 + 1 + 1 + 1 + 1 + 2 + 2;
+            size += 4 * s.getHandCarried().size();
+            if (s.hasEquipment()) size += 4 * s.getEquipment().getCurrentProducts().size();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(simulation.getSeed()).putLong(simulation.getTick());
+
+        buffer.putInt(map.getFloorCount()).putInt(map.getMapSize());
+        for (byte[] row : rows) writeBytes(buffer, row, "Layout row");
+
+        buffer.putInt(catalog.size());
+        for (byte[] serial : serials) writeBytes(buffer, serial, "Serial number");
+        buffer.putInt(map.getAllDisplays().size());
+        for (Display d : map.getAllDisplays()) {
+            for (int t = 0; t < d.getTierCount(); t++) writeProducts(buffer, d.getTier(t), productIndex);
+        }
+
+        buffer.putInt(entrances.size());
+        for (Entrance e : entrances) buffer.put((byte) (e.getHasBeenUsed() ? 1 : 0));
+
+        buffer.put((byte) (occupancy != null ? 1 : 0));
+        if (occupancy != null) {
+            for (int f = 0; f < map.getFloorCount(); f++) {
+                for (int y = 0; y < map.getMapSize(); y++) {
+                    for (int x = 0; x < map.getMapSize(); x++) buffer.putInt(occupancy.getCapacity(x, y, f));
+                }
+            }
+        }
+
+        buffer.putInt(shoppers.size());
+        for (int i = 0; i < shoppers.size(); i++) {
+            Shopper s = shoppers.get(i);
+            byte[] name = names.get(i);
+            writeBytes(buffer, name, "Shopper name");
+            buffer.putInt(s.getAge());
+            buffer.putShort((short) s.getPosition().getX()).putShort((short) s.getPosition().getY());
+            buffer.put((byte) s.getCurrentFloor()).put((byte) s.getFacing().ordinal());
+            byte flags = 0;
+            if (s.getHasCheckedOut()) flags |= CHECKED_OUT_FLAG;
+            if (s.getHasExited()) flags |= EXITED_FLAG;
+            buffer.put(flags);
+
+            Equipment equipment = s.getEquipment();
+            byte type = NO_EQUIPMENT;
+            if (equipment instanceof Cart) type = CART;
+            else if (equipment instanceof Basket) type = BASKET;
+            buffer.put(type);
+
+            writeProducts(buffer, s.getHandCarried(), productIndex);
+            writeProducts(buffer, equipment != null ? equipment.getCurrentProducts() : List.of(), productIndex);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Rebuilds a simulation from snapshot bytes.
+     *
+     * @param buffer A buffer positioned at the start of a snapshot.
+     * @param threads The number of decide-phase threads for the restored simulation.
+     * @return The restored {@link Simulation}.
+     * @throws IOException if the bytes are not a valid snapshot of a supported version.
+     */
+    public static Simulation decode(ByteBuffer buffer, int threads) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a store snapshot.");
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + ".");
+            long seed = buffer.getLong();
+            long tick = buffer.getLong();
+
+            int floorCount = buffer.getInt();
+            int rowCount = buffer.getInt();
+            if (floorCount != 2) throw new IOException("Snapshot has " + floorCount + " floors; expected 2.");
+            String[][] layouts = new String[floorCount][rowCount];
+            for (int f = 0; f < floorCount; f++) {
+                for (int r = 0; r < rowCount; r++) layouts[f][r] = readString(buffer);
+            }
+            SupermarketMap map = new SupermarketMap(layouts[0], layouts[1], false);
+
+            Product[] catalog = map.getAllProducts().toArray(new Product[0]);
+            if (buffer.getInt() != catalog.length) throw new IOException("Snapshot product catalog does not match.");
+            for (Product p : catalog) {
+                String serial = readString(buffer);
+                if (!serial.equals(p.getSerialNumber())) {
+                    throw new IOException("Snapshot product catalog does not match: found " + serial
+                            + " where " + p.getSerialNumber() + " was expected.");
+                }
+            }
+
+            List<Display> displays = map.getAllDisplays();
+            if (buffer.getInt() != displays.size()) throw new IOException("Snapshot displays do not match the layout.");
+            for (Display d : displays) {
+                for (int t = 0; t < d.getTierCount(); t++) {
+                    List<Product> tier = d.getTier(t);
+                    tier.clear();
+                    if (readProducts(buffer, tier, catalog, d.getCapacity() / d.getTierCount()) < 0) {
+                        throw new IOException("Snapshot overfills display " + d.getAddress() + ".");
+                    }
+                }
+            }
+
+            List<Entrance> entrances = findEntrances(map);
+            if (buffer.getInt() != entrances.size()) throw new IOException("Snapshot entrances do not match the layout.");
+            for (Entrance e : entrances) {
+                if (buffer.get() != 0) e.setHasBeenUsed();
+            }
+
+            Simulation simulation = new Simulation(seed, map, threads);
+            if (buffer.get() != 0) {
+                OccupancyGrid occupancy = new OccupancyGrid(map, 1);
+                for (int f = 0; f < map.getFloorCount(); f++) {
+                    for (int y = 0; y < map.getMapSize(); y++) {
+                        for (int x = 0; x < map.getMapSize(); x++) occupancy.setCapacity(x, y, f, buffer.getInt());
+                    }
+                }
+                simulation.setOccupancy(occupancy);
+            }
+            int shopperCount = buffer.getInt();
+            Direction[] directions = Direction.values();
+            for (int i = 0; i < shopperCount; i++) {
+                String name = readString(buffer);
+                Shopper s = simulation.addShopper(name, buffer.getInt());
+                Point position = new Point(buffer.getShort(), buffer.getShort());
+                int floor = buffer.get();
+                s.restoreState(position, directions[buffer.get()], floor);
+                byte flags = buffer.get();
+                s.setHasCheckedOut((flags & CHECKED_OUT_FLAG) != 0);
+                s.setHasExited((flags & EXITED_FLAG) != 0);
+
+                byte type = buffer.get();
+                if (type == CART) s.setEquipment(new Cart());
+                else if (type == BASKET) s.setEquipment(new Basket());
+
+                if (readProducts(buffer, s.getHandCarried(), catalog, 2) < 0) {
+                    throw new IOException("Snapshot gives shopper " + name + " too many items to carry.");
+                }
+                List<Product> equipmentItems = new ArrayList<>();
+                int room = s.hasEquipment() ? s.getEquipment().getMaxCapacity() : 0;
+                if (readProducts(buffer, equipmentItems, catalog, room) < 0) {
+                    throw new IOException("Snapshot overfills the equipment of shopper " + name + ".");
+                }
+                if (s.hasEquipment()) {
+                    for (Product p : equipmentItems) s.getEquipment().addProduct(p);
+                }
+            }
+            simulation.restoreTick(tick);
+            return simulation;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot is truncated or corrupted.", e);
+        }
+    }
+
+    /**
+     * Collects all Entrance amenities in a fixed order (floor, then row, then column).
+     *
+     * @param map The map to scan.
+     * @return The entrances of the map.
+     */
+    private static List<Entrance> findEntrances(SupermarketMap map) {
+        List<Entrance> entrances = new ArrayList<>();
+        for (int f = 0; f < map.getFloorCount(); f++) {
+            for (int y = 0; y < map.getMapSize(); y++) {
+                for (int x = 0; x < map.getMapSize(); x++) {
+                    if (map.getAmenityAt(x, y, f) instanceof Entrance) entrances.add((Entrance) map.getAmenityAt(x, y, f));
+                }
+            }
+        }
+        return entrances;
+    }
+
+    /**
+     * Writes a length prefix, failing if the length does not fit in it.
+     *
+     * @param buffer The buffer to write to.
+     * @param count The length.
+     * @param what What is being written, for the error message.
+     * @throws IllegalArgumentException if the length is over {@value #MAX_COUNT}.
+     */
+    private static void writeCount(ByteBuffer buffer, int count, String what) {
+        if (count > MAX_COUNT) throw new IllegalArgumentException(what + " of length " + count + " is too long for a snapshot.");
+        buffer.putShort((short) count);
+    }
+
+    /**
+     * Writes bytes prefixed with their length.
+     *
+     * @param buffer The buffer to write to.
+     * @param bytes The bytes.
+     * @param what What is being written, for the error message.
+     */
+    private static void writeBytes(ByteBuffer buffer, byte[] bytes, String what) {
+        writeCount(buffer, bytes.length, what);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes a list of products as a count followed by their catalog indices.
+     *
+     * @param buffer The buffer to write to.
+     * @param products The products.
+     * @param productIndex The catalog index of every product of the map.
+     */
+    private static void writeProducts(ByteBuffer buffer, List<Product> products, Map<Product, Integer> productIndex) {
+        writeCount(buffer, products.size(), "Product list");
+        for (Product p : products) buffer.putInt(productIndex.get(p));
+    }
+
+    /**
+     * Reads a list written by {@link #writeProducts(ByteBuffer, List, Map)}.
+     *
+     * @param buffer The buffer to read from.
+     * @param target The list the products are added to.
+     * @param catalog The map's product catalog.
+     * @param room The most products the list may hold.
+     * @return The number of products read, or -1 (with nothing read) if there are more than {@code room}.
+     */
+    private static int readProducts(ByteBuffer buffer, List<Product> target, Product[] catalog, int room) {
+        int count = Short.toUnsignedInt(buffer.getShort());
+        if (count > room) return -1;
+        for (int i = 0; i < count; i++) target.add(catalog[buffer.getInt()]);
+        return count;
+    }
+
+    /**
+     * Reads a UTF-8 string prefixed with its length in bytes.
+     *
+     * @param buffer The buffer to read from.
+     * @return The string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
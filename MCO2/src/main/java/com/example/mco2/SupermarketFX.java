@@ -26,7 +26,10 @@ import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The main JavaFX application class that runs the Supermarket Simulation GUI.
@@ -39,16 +42,32 @@ public class SupermarketFX extends Application {
     private static final int TILE_SIZE = 30;
     /** The size of the square map grid (22x22). */
     private static final int MAP_SIZE = 22;
+    /** Opacity of the tile of a display that has run out of products. */
+    private static final double EMPTY_DISPLAY_OPACITY = 0.4;
+    /** Keys that move or turn the shopper, limited to one per server tick in a shared store. */
+    private static final Set<KeyCode> MOVEMENT_KEYS = EnumSet.of(KeyCode.W, KeyCode.A, KeyCode.S, KeyCode.D,
+            KeyCode.I, KeyCode.J, KeyCode.K, KeyCode.L);
 
     // --- GAME OBJECTS ---
     private SupermarketMap map;
     private Shopper shopper;
     private Stage primaryStage;
+    /** Records every action of the current session so it can be replayed headlessly. */
+    private InputLog sessionLog;
+    /** Counts where the shopper walks, stands and interacts during the session. */
+    private Heatmap heatmap;
 
     // --- GUI COMPONENTS ---
     private GridPane mapGrid;
     private StackPane[][] tileViews = new StackPane[MAP_SIZE][MAP_SIZE];
     private Rectangle playerSprite;
+    /** Translucent tiles drawn over the map while the heatmap overlay is shown. */
+    private Rectangle[][] heatCells = new Rectangle[MAP_SIZE][MAP_SIZE];
+    /** The icon of each tile, created the first time the tile shows one (see {@link #iconViewAt(int, int)}). */
+    private javafx.scene.image.ImageView[][] iconViews = new javafx.scene.image.ImageView[MAP_SIZE][MAP_SIZE];
+    /** Icons already loaded, by image path, so each file is decoded once per session. */
+    private final Map<String, javafx.scene.image.Image> iconCache = new HashMap<>();
+    private boolean showHeatmap = false;
     private Label floorLabel;
     private Label facingLabel;
 
@@ -56,13 +75,27 @@ public class SupermarketFX extends Application {
     /** Flag to lock user input during automated movement or dialogs. */
     private boolean inputLocked = false;
 
+    // --- STARTUP ---
+    /** The map, built in the background while the player fills in the name and age dialogs. */
+    private CompletableFuture<SupermarketMap> mapLoading;
+
+    // --- SHARED STORE ---
+    /** The connection to a {@link MultiplayerServer}, or {@code null} when playing alone. */
+    private NetworkClient client;
+    /** Counts connections, so states still arriving from a closed one are ignored. */
+    private int connectionCount = 0;
+    /** Sprites for the other players in view, reused from state to state. */
+    private final List<Rectangle> otherSprites = new ArrayList<>();
+
     /**
      * The entry point for the JavaFX application. Initializes the primary stage and starts the game setup process.
      * @param stage The primary stage for this application.
      */
     @Override
     public void start(Stage stage) {
+        StartupReport.mark("toolkit");
         this.primaryStage = stage;
+        mapLoading = CompletableFuture.supplyAsync(SupermarketMap::new);
         startGame();
     }
 
@@ -71,6 +104,215 @@ public class SupermarketFX extends Application {
      * (map, shopper), and constructing the main GUI elements.
      */
     private void startGame() {
+        // --- 1. ASK FOR SHOPPER DETAILS ---
+        shopper = askForShopper();
+        StartupReport.markWaiting("input");
+
+        // --- 2. INITIALIZE GAME LOGIC ---
+        map = mapLoading.join();
+        heatmap = new Heatmap(map);
+        map.setHeatmap(heatmap);
+        map.addStockListener(this::onStockLevelChange);
+        beginSession();
+        joinServer();
+        StartupReport.mark("map");
+
+        // --- 3. SETUP UI ---
+        BorderPane root = new BorderPane();
+        mapGrid = new GridPane();
+        mapGrid.setStyle("-fx-background-color: #222;");
+
+        // Initialize Floor Label
+        floorLabel = new Label();
+        floorLabel.setStyle("-fx-text-fill: white; -fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10; -fx-background-color: #333;");
+
+        // Initialize Facing Label
+        facingLabel = new Label();
+        facingLabel.setStyle("-fx-text-fill: white; -fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10; -fx-background-color: #333;");
+
+        // Place both labels in an HBox at the top
+        HBox topBar = new HBox(20); // 20px spacing between labels
+        topBar.setStyle("-fx-background-color: #333;");
+        topBar.getChildren().addAll(floorLabel, facingLabel);
+
+        setupGrid();
+        root.setCenter(mapGrid);
+        root.setTop(topBar); // Use the new HBox here
+
+        showSession();
+
+        Scene scene = new Scene(root, 1000, 700);
+        scene.setOnKeyPressed(e -> handleInput(e.getCode()));
+
+        primaryStage.setTitle("Supermarket Simulator GUI");
+        primaryStage.setScene(scene);
+        primaryStage.setMaximized(true);
+        primaryStage.show();
+        mapGrid.requestFocus();
+        StartupReport.mark("scene");
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                onFirstFrame();
+            }
+        });
+    }
+
+    /**
+     * Records the time to the first frame. With {@code --startup-report} on the command line, the
+     * report is also printed and the application exits.
+     */
+    private void onFirstFrame() {
+        StartupReport.mark("first frame");
+        EventLog.log(LogLevel.INFO, "startup.first_frame", null, StartupReport.format());
+        if (getParameters().getUnnamed().contains("--startup-report")) {
+            System.out.println(StartupReport.format());
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Starts a new session on the same map and window. The map is put back the way it opened
+     * (see {@link SupermarketMap#reset()}) and the existing scene, tiles and icons are reused,
+     * so nothing is rebuilt or reloaded.
+     */
+    private void restartGame() {
+        shopper = askForShopper();
+        leaveServer();
+        map.reset();
+        beginSession();
+        joinServer();
+        showSession();
+        mapGrid.requestFocus();
+    }
+
+    /**
+     * Puts the current shopper in the map and starts recording their session.
+     */
+    private void beginSession() {
+        shopper.setCurrentMap(map);
+        sessionLog = new InputLog(0);
+        sessionLog.recordShopper(shopper.getName(), shopper.getAge());
+    }
+
+    /**
+     * Joins the shared store given as {@code --connect=host[:port]} on the command line, if any.
+     * If the server cannot be reached the player shops alone.
+     */
+    private void joinServer() {
+        String address = getParameters().getNamed().get("connect");
+        if (address == null) return;
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? address : address.substring(0, colon);
+        int connection = ++connectionCount;
+        try {
+            int port = colon < 0 ? MultiplayerServer.DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1));
+            client = NetworkClient.connect(host, port, shopper.getName(), shopper.getAge(),
+                    state -> Platform.runLater(() -> { if (connection == connectionCount) onServerState(state); }));
+            if (client.getMapSize() != MAP_SIZE) {
+                leaveServer();
+                new Alert(Alert.AlertType.ERROR, "The shared store uses a different map. Shopping alone.").showAndWait();
+            }
+        } catch (IOException | NumberFormatException e) {
+            client = null;
+            new Alert(Alert.AlertType.ERROR, "Could not join " + address + ": " + e.getMessage() + "\nShopping alone.").showAndWait();
+        }
+    }
+
+    /**
+     * Disconnects from the shared store, if connected. The server takes the shopper out of its store.
+     */
+    private void leaveServer() {
+        if (client == null) return;
+        client.close();
+        client = null;
+        connectionCount++;
+        placeOthers(Collections.emptyList());
+    }
+
+    /**
+     * Applies a state from the server: moves the shopper to where the server has them (keeping
+     * any moves still on their way), refreshes the displays that changed and draws the other players.
+     * @param state The state, or {@code null} if the connection was lost.
+     */
+    private void onServerState(NetworkClient.State state) {
+        if (state == null) {
+            leaveServer();
+            new Alert(Alert.AlertType.WARNING, "Lost the connection to the shared store. Shopping alone.").show();
+            return;
+        }
+        int oldFloor = shopper.getCurrentFloor();
+        boolean wasExited = shopper.getHasExited();
+        client.reconcile(state, shopper, map);
+
+        List<Display> displays = map.getAllDisplays();
+        for (int index : state.getChangedDisplays()) {
+            Display display = displays.get(index);
+            if (map.getFloorOf(display) != shopper.getCurrentFloor()) continue;
+            Point p = display.getPosition();
+            tileViews[p.getY()][p.getX()].setOpacity(isEmptyDisplay(display) ? EMPTY_DISPLAY_OPACITY : 1.0);
+        }
+        updateVisualsAfterMove(oldFloor);
+        placeOthers(state.getOthers());
+
+        if (!wasExited && shopper.getHasExited() && !inputLocked) showEndGameDialog();
+    }
+
+    /**
+     * Draws the other players in view as blue squares.
+     * @param others The other shoppers, each as shopper index, column, row and facing ordinal.
+     */
+    private void placeOthers(List<int[]> others) {
+        for (Rectangle sprite : otherSprites) {
+            if (sprite.getParent() != null) ((Pane) sprite.getParent()).getChildren().remove(sprite);
+        }
+        int used = 0;
+        for (int[] other : others) {
+            int x = other[1];
+            int y = other[2];
+            if (x >= MAP_SIZE || y >= MAP_SIZE) continue;
+            if (used == otherSprites.size()) {
+                Rectangle sprite = new Rectangle();
+                sprite.widthProperty().bind(tileViews[0][0].widthProperty().multiply(0.5));
+                sprite.heightProperty().bind(tileViews[0][0].heightProperty().multiply(0.5));
+                sprite.setFill(Color.ROYALBLUE);
+                sprite.setArcWidth(10);
+                sprite.setArcHeight(10);
+                sprite.setMouseTransparent(true);
+                otherSprites.add(sprite);
+            }
+            tileViews[y][x].getChildren().add(otherSprites.get(used++));
+        }
+    }
+
+    /**
+     * Draws the current floor and the shopper, and updates the floor and facing labels.
+     */
+    private void showSession() {
+        floorLabel.setText("FLOOR: " + (shopper.getCurrentFloor() == 0 ? "Ground Floor" : "2nd Floor"));
+        facingLabel.setText("FACING: " + shopper.getFacing().name());
+        refreshMapVisuals();
+        placePlayer();
+    }
+
+    /**
+     * Asks the player for their name and age, unless both were given on the command line
+     * as {@code --name=<name> --age=<age>}.
+     *
+     * @return A new {@link Shopper} standing at the Entrance.
+     */
+    private Shopper askForShopper() {
+        Map<String, String> named = getParameters().getNamed();
+        if (named.containsKey("name") && named.containsKey("age")) {
+            try {
+                int age = Integer.parseInt(named.get("age"));
+                if (age > 0 && !named.get("name").isBlank()) return new Shopper(named.get("name"), age, new Point(11, 21));
+            } catch (NumberFormatException e) {
+                // Fall back to asking
+            }
+        }
+
         // --- 1. ASK FOR NAME ---
         TextInputDialog nameDialog = new TextInputDialog();
         nameDialog.setTitle("Welcome");
@@ -105,68 +347,34 @@ public class SupermarketFX extends Application {
             }
         }
 
-        // --- 3. INITIALIZE GAME LOGIC ---
-        map = new SupermarketMap();
-        shopper = new Shopper(name, age, new Point(11, 21));
-        shopper.setCurrentMap(map);
-
-        // --- 4. SETUP UI ---
-        BorderPane root = new BorderPane();
-        mapGrid = new GridPane();
-        mapGrid.setStyle("-fx-background-color: #222;");
-
-        // Initialize Floor Label
-        floorLabel = new Label("FLOOR: " + (shopper.getCurrentFloor() == 0 ? "Ground Floor" : "2nd Floor"));
-        floorLabel.setStyle("-fx-text-fill: white; -fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10; -fx-background-color: #333;");
-
-        // Initialize Facing Label
-        facingLabel = new Label("FACING: " + shopper.getFacing().name());
-        facingLabel.setStyle("-fx-text-fill: white; -fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10; -fx-background-color: #333;");
-
-        // Place both labels in an HBox at the top
-        HBox topBar = new HBox(20); // 20px spacing between labels
-        topBar.setStyle("-fx-background-color: #333;");
-        topBar.getChildren().addAll(floorLabel, facingLabel);
-
-        setupGrid();
-        root.setCenter(mapGrid);
-        root.setTop(topBar); // Use the new HBox here
-
-        refreshMapVisuals();
-        placePlayer();
-
-        Scene scene = new Scene(root, 1000, 700);
-        scene.setOnKeyPressed(e -> handleInput(e.getCode()));
-
-        primaryStage.setTitle("Supermarket Simulator GUI");
-        primaryStage.setScene(scene);
-        primaryStage.setMaximized(true);
-        primaryStage.show();
-        mapGrid.requestFocus();
+        return new Shopper(name, age, new Point(11, 21));
     }
 
     /**
      * Handles keyboard input for movement, facing, inventory, and interaction.
+     * H toggles the heatmap overlay, which shades each tile by how long the shopper has stood on it.
      * @param code The {@link KeyCode} pressed by the user.
      */
     private void handleInput(KeyCode code) {
         // If animating or exited, ignore input
         if (inputLocked || shopper.getHasExited()) return;
+        if (client != null && MOVEMENT_KEYS.contains(code) && !client.canSendMovement()) return;
 
         boolean actionTaken = false;
         int oldFloor = shopper.getCurrentFloor();
 
         switch (code) {
-            case W: shopper.move(Direction.NORTH, map); actionTaken = true; break;
-            case S: shopper.move(Direction.SOUTH, map); actionTaken = true; break;
-            case A: shopper.move(Direction.WEST, map); actionTaken = true; break;
-            case D: shopper.move(Direction.EAST, map); actionTaken = true; break;
-            case I: shopper.face(Direction.NORTH); actionTaken = true; break;
-            case K: shopper.face(Direction.SOUTH); actionTaken = true; break;
-            case J: shopper.face(Direction.WEST); actionTaken = true; break;
-            case L: shopper.face(Direction.EAST); actionTaken = true; break;
+            case W: moveShopper(Direction.NORTH); actionTaken = true; break;
+            case S: moveShopper(Direction.SOUTH); actionTaken = true; break;
+            case A: moveShopper(Direction.WEST); actionTaken = true; break;
+            case D: moveShopper(Direction.EAST); actionTaken = true; break;
+            case I: faceShopper(Direction.NORTH); actionTaken = true; break;
+            case K: faceShopper(Direction.SOUTH); actionTaken = true; break;
+            case J: faceShopper(Direction.WEST); actionTaken = true; break;
+            case L: faceShopper(Direction.EAST); actionTaken = true; break;
             case V: showInventoryDialog(); break;
             case SPACE: handleInteraction(); break;
+            case H: showHeatmap = !showHeatmap; updateHeatmapOverlay(); break;
         }
 
         if (actionTaken) {
@@ -178,6 +386,63 @@ public class SupermarketFX extends Application {
         }
     }
 
+    /**
+     * Moves the shopper one tile and records the action in the session log.
+     * @param direction The {@link Direction} to move in.
+     */
+    private void moveShopper(Direction direction) {
+        recordAction(ShopperAction.MOVE, direction.ordinal());
+        shopper.move(direction, map);
+    }
+
+    /**
+     * Turns the shopper and records the action in the session log.
+     * @param direction The {@link Direction} to face.
+     */
+    private void faceShopper(Direction direction) {
+        recordAction(ShopperAction.FACE, direction.ordinal());
+        shopper.face(direction);
+    }
+
+    /**
+     * Appends one action to the session log, and sends it to the server in a shared store.
+     * Every GUI action is recorded as its own tick.
+     * @param action The {@link ShopperAction} performed.
+     * @param arg The action argument (see {@link ShopperAction}).
+     */
+    private void recordAction(ShopperAction action, int arg) {
+        if (client != null) client.send(action, arg);
+        sessionLog.recordAction(0, action, arg);
+        sessionLog.recordTickEnd();
+        heatmap.dwell(shopper.getPosition(), shopper.getCurrentFloor());
+        if (action != ShopperAction.MOVE && action != ShopperAction.FACE) {
+            heatmap.interact(shopper.getPosition().getNextPosition(shopper.getFacing()), shopper.getCurrentFloor());
+        }
+    }
+
+    /**
+     * Saves the session log next to the receipts as {@code session_<name>.bin}.
+     * The file can be replayed headlessly with {@link Replay}.
+     */
+    private void saveSessionLog() {
+        if (sessionLog == null || sessionLog.getTickCount() == 0) return;
+        try {
+            sessionLog.writeTo(Path.of("session_" + shopper.getName() + ".bin"));
+        } catch (IOException e) {
+            System.err.println("Failed to save session log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by JavaFX when the application closes. Saves the session log of the current game
+     * and leaves the shared store, if any.
+     */
+    @Override
+    public void stop() {
+        saveSessionLog();
+        if (client != null) client.close();
+    }
+
     /**
      * Updates the GUI visuals after the shopper moves or changes facing direction.
      * Refreshes map tiles if a floor transition occurred, and updates the floor and facing labels.
@@ -232,14 +497,14 @@ public class SupermarketFX extends Application {
         if (isPassable) {
             // MOVE
             int oldFloor = shopper.getCurrentFloor();
-            shopper.face(dir);
-            shopper.move(dir, map);
+            faceShopper(dir);
+            moveShopper(dir);
             updateVisualsAfterMove(oldFloor);
         } else {
             // INTERACT
             // Must FACE the target first, then call the
             // main handleInteraction() method so the GUI windows open.
-            shopper.face(dir);
+            faceShopper(dir);
             handleInteraction();
         }
 
@@ -282,7 +547,7 @@ public class SupermarketFX extends Application {
                 if (shopper.getCurrentFloor() != floorAtStart) return;
 
                 int oldFloor = shopper.getCurrentFloor();
-                shopper.move(d, map);
+                moveShopper(d);
                 updateVisualsAfterMove(oldFloor);
             });
             timeline.getKeyFrames().add(kf);
@@ -306,6 +571,7 @@ public class SupermarketFX extends Application {
      * Displays the game over dialog with options to restart the simulation or exit the application.
      */
     private void showEndGameDialog() {
+        saveSessionLog();
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Simulation Ended");
         alert.setHeaderText("Thank you for shopping!");
@@ -318,7 +584,7 @@ public class SupermarketFX extends Application {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == restartBtn) {
-            startGame(); // RESTART
+            restartGame(); // RESTART
         } else {
             Platform.exit(); // EXIT
         }
@@ -358,6 +624,20 @@ public class SupermarketFX extends Application {
                 final int finalR = r;
                 tile.setOnMouseClicked(e -> handleTileClick(finalC, finalR));
 
+                Rectangle heatCell = new Rectangle();
+                heatCell.widthProperty().bind(tile.widthProperty());
+                heatCell.heightProperty().bind(tile.heightProperty());
+                heatCell.setMouseTransparent(true);
+                heatCell.setVisible(false);
+                heatCells[r][c] = heatCell;
+
+                iconViews[r][c] = null;
+
+                Rectangle clip = new Rectangle();
+                clip.widthProperty().bind(tile.widthProperty());
+                clip.heightProperty().bind(tile.heightProperty());
+                tile.setClip(clip);
+
                 mapGrid.add(tile, c, r);
             }
         }
@@ -431,7 +711,6 @@ public class SupermarketFX extends Application {
      */
     private void refreshMapVisuals() {
         int currentFloor = shopper.getCurrentFloor();
-        final int ICON_SIZE = 30;
 
         for (int r = 0; r < MAP_SIZE; r++) {
             for (int c = 0; c < MAP_SIZE; c++) {
@@ -456,38 +735,112 @@ public class SupermarketFX extends Application {
                     else if (amenity instanceof CartStation || amenity instanceof BasketStation) color = "#a5a5a5";
                 }
                 tile.setStyle("-fx-background-color: " + color + "; -fx-border-color: #555; -fx-border-width: 0.5px;");
+                tile.setOpacity(isEmptyDisplay(amenity) ? EMPTY_DISPLAY_OPACITY : 1.0);
 
                 // 2. Add Image Symbol
                 String imagePath = getAmenityImagePath(amenity);
                 if (!imagePath.isEmpty()) {
-                    try {
-                        String resourceUrl = "/" + imagePath;
-
+                    javafx.scene.image.Image image = loadIcon(imagePath);
+                    if (image != null) {
+                        javafx.scene.image.ImageView iconView = iconViewAt(r, c);
+                        iconView.setImage(image);
+                        tile.getChildren().add(iconView);
+                    }
+                }
+                tile.getChildren().add(heatCells[r][c]);
+            }
+        }
+        updateHeatmapOverlay();
+    }
 
-                        javafx.scene.image.Image image = new javafx.scene.image.Image(
-                                getClass().getResource(resourceUrl).toExternalForm(),
-                                ICON_SIZE,
-                                ICON_SIZE,
-                                true,
-                                true
-                        );
+    /**
+     * Gets the icon view of a tile, creating it the first time the tile shows an icon.
+     * Most tiles never show one, so they never get a view.
+     *
+     * @param r The row.
+     * @param c The column.
+     * @return The tile's {@link javafx.scene.image.ImageView}.
+     */
+    private javafx.scene.image.ImageView iconViewAt(int r, int c) {
+        javafx.scene.image.ImageView iconView = iconViews[r][c];
+        if (iconView == null) {
+            StackPane tile = tileViews[r][c];
+            iconView = new javafx.scene.image.ImageView();
+            iconView.fitWidthProperty().bind(tile.widthProperty().multiply(0.8));
+            iconView.fitHeightProperty().bind(tile.heightProperty().multiply(0.8));
+            iconView.setPreserveRatio(true);
+            iconViews[r][c] = iconView;
+        }
+        return iconView;
+    }
 
-                        javafx.scene.image.ImageView imageView = new javafx.scene.image.ImageView(image);
+    /**
+     * Loads an icon from the resources, or takes it from the cache if it was loaded before.
+     *
+     * @param imagePath The file name of the icon (e.g., "checkout.png").
+     * @return The {@link javafx.scene.image.Image}, or {@code null} if it cannot be loaded.
+     */
+    private javafx.scene.image.Image loadIcon(String imagePath) {
+        final int ICON_SIZE = 30;
+        javafx.scene.image.Image image = iconCache.get(imagePath);
+        if (image == null) {
+            try {
+                String resourceUrl = "/" + imagePath;
+                image = new javafx.scene.image.Image(
+                        getClass().getResource(resourceUrl).toExternalForm(),
+                        ICON_SIZE,
+                        ICON_SIZE,
+                        true,
+                        true
+                );
+                iconCache.put(imagePath, image);
+            } catch (Exception e) {
+                System.err.println("Failed to load image for: " + imagePath + ". Check file path/resolution.");
+            }
+        }
+        return image;
+    }
 
-                        // Bind size for dynamic resizing
-                        imageView.fitWidthProperty().bind(tile.widthProperty().multiply(0.8));
-                        imageView.fitHeightProperty().bind(tile.heightProperty().multiply(0.8));
-                        imageView.setPreserveRatio(true);
+    /**
+     * Dims a display's tile as soon as it runs out, and restores it once it is stocked again.
+     *
+     * @param display The {@link Display} whose stock changed.
+     * @param from The previous {@link StockLevel}.
+     * @param to The new {@link StockLevel}.
+     */
+    private void onStockLevelChange(Display display, StockLevel from, StockLevel to) {
+        if (from != StockLevel.EMPTY && to != StockLevel.EMPTY) return;
+        if (map.getFloorOf(display) != shopper.getCurrentFloor()) return;
+        Point p = display.getPosition();
+        tileViews[p.getY()][p.getX()].setOpacity(to == StockLevel.EMPTY ? EMPTY_DISPLAY_OPACITY : 1.0);
+    }
 
-                        javafx.scene.shape.Rectangle clip = new javafx.scene.shape.Rectangle();
-                        clip.widthProperty().bind(tile.widthProperty());
-                        clip.heightProperty().bind(tile.heightProperty());
-                        tile.setClip(clip);
+    /**
+     * Checks if an amenity is a display with nothing left on it.
+     *
+     * @param amenity The amenity on a tile, or {@code null}.
+     * @return {@code true} if it is an empty {@link Display}.
+     */
+    private static boolean isEmptyDisplay(Amenity amenity) {
+        return amenity instanceof Display && ((Display) amenity).getStockLevel() == StockLevel.EMPTY;
+    }
 
-                        tile.getChildren().add(imageView);
-                    } catch (Exception e) {
-                        System.err.println("Failed to load image for: " + imagePath + ". Check file path/resolution.");
-                    }
+    /**
+     * Shades every tile of the current floor by its dwell count, from blue (briefly) to yellow
+     * (longest), or hides the shading if the overlay is turned off.
+     */
+    private void updateHeatmapOverlay() {
+        HeatmapSnapshot snapshot = heatmap.snapshot();
+        int floor = shopper.getCurrentFloor();
+        double max = Math.sqrt(Math.max(1, snapshot.getMax(HeatmapSnapshot.Metric.DWELL, floor)));
+        for (int r = 0; r < MAP_SIZE; r++) {
+            for (int c = 0; c < MAP_SIZE; c++) {
+                int dwell = snapshot.get(HeatmapSnapshot.Metric.DWELL, c, r, floor);
+                Rectangle cell = heatCells[r][c];
+                cell.setVisible(showHeatmap && dwell > 0);
+                if (dwell > 0) {
+                    int rgb = HeatmapSnapshot.heatColor(Math.sqrt(dwell) / max);
+                    cell.setFill(Color.rgb((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, 0.55));
                 }
             }
         }
@@ -503,6 +856,7 @@ public class SupermarketFX extends Application {
         int x = shopper.getPosition().getX();
         int y = shopper.getPosition().getY();
         tileViews[y][x].getChildren().add(playerSprite);
+        if (showHeatmap) updateHeatmapOverlay();
     }
 
     /**
@@ -519,6 +873,7 @@ public class SupermarketFX extends Application {
         } else if (amenity instanceof ProductSearch) {
             showSearchDialog((ProductSearch) amenity);
         } else {
+            recordAction(ShopperAction.interactionWith(amenity), 0);
             amenity.interact(shopper);
         }
     }
@@ -530,11 +885,8 @@ public class SupermarketFX extends Application {
         // 1. Get the Item List string
         String itemsText = shopper.viewChosenProducts();
 
-        // 2. Calculate a running total for the "Summary" look
-        double total = 0.0;
-        for (Product p : shopper.getAllProducts()) {
-            total += p.getPrice();
-        }
+        // 2. Get the running total for the "Summary" look
+        double total = shopper.getProductTotal();
 
         // 3. Format the final message
         String message;
@@ -679,22 +1031,9 @@ public class SupermarketFX extends Application {
                 showReturnDialog(display);
             } else {
                 try {
-                    Product p = null;
-                    if (display instanceof Shelf || display instanceof Refrigerator) {
-                        // Complex tier removal logic
-                        List<List<Product>> tiers = (display instanceof Shelf) ? ((Shelf)display).getTiers() : ((Refrigerator)display).getTiers();
-                        int runningCount = 0;
-                        for (List<Product> tier : tiers) {
-                            if (selectedIndex < runningCount + tier.size()) {
-                                p = tier.remove(selectedIndex - runningCount);
-                                break;
-                            }
-                            runningCount += tier.size();
-                        }
-                    } else {
-                        // Simple flat removal
-                        p = flatList.remove(selectedIndex);
-                    }
+                    // Slots are numbered tier by tier, same as the button layout above
+                    Product p = display.takeProductAt(selectedIndex);
+                    if (p != null) recordAction(ShopperAction.TAKE, selectedIndex);
 
                     if (p != null) {
                         if (shopper.takeProduct(p)) {
@@ -708,7 +1047,7 @@ public class SupermarketFX extends Application {
                             Alert alert = new Alert(Alert.AlertType.ERROR);
                             alert.setTitle("Error");
                             alert.setHeaderText(null);
-                            if (shopper.getAge() < 18 && p.getSerialPrefix().equals("ALC")) {
+                            if (shopper.getAge() < 18 && p.isAlcohol()) {
                                 alert.setContentText("Denied: You are underage!");
                             } else {
                                 alert.setContentText("Hands or Cart Full!");
@@ -745,6 +1084,7 @@ public class SupermarketFX extends Application {
         if (result.isPresent()) {
             Product p = result.get();
             if (display.returnProduct(p)) {
+                recordAction(ShopperAction.RETURN, myItems.indexOf(p));
                 shopper.returnProduct(p);
                 Alert alert = new Alert(Alert.AlertType.INFORMATION);
                 alert.setTitle("Notification");
@@ -772,15 +1112,12 @@ public class SupermarketFX extends Application {
         Optional<String> result = dialog.showAndWait();
 
         result.ifPresent(name -> {
-            List<Display> displays = map.getAllDisplays();
-            boolean found = false;
+            List<Display> displays = map.findDisplaysWithProduct(name);
+            boolean found = !displays.isEmpty();
             StringBuilder locs = new StringBuilder("Found at:\n");
 
             for (Display d : displays) {
-                if (d.containsProductByName(name)) {
-                    locs.append("- ").append(d.getAddress()).append("\n");
-                    found = true;
-                }
+                locs.append("- ").append(d.getAddress()).append("\n");
             }
             if (found) new Alert(Alert.AlertType.INFORMATION, locs.toString()).show();
             else new Alert(Alert.AlertType.WARNING, "Product not found.").show();
@@ -789,9 +1126,12 @@ public class SupermarketFX extends Application {
 
     /**
      * The standard main method that launches the JavaFX application.
-     * @param args Command line arguments.
+     * @param args Command line arguments; {@code --connect=host[:port]} joins a shared store run by {@link MultiplayerServer},
+     *             {@code --name=<name> --age=<age>} skips the dialogs, and {@code --startup-report} prints
+     *             the time to the first frame (see {@link StartupReport}) and exits.
      */
     public static void main(String[] args) {
+        StartupReport.mark("jvm");
         launch(args);
     }
 }
\ No newline at end of file
@@ -11,7 +11,6 @@
  */
 package com.example.mco2;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,7 +31,7 @@ public class Table extends Display {
      */
     public Table(Point position, String address) {
         super(position, address);
-        this.products = new ArrayList<>(MAX_CAPACITY);
+        this.products = createTiers(1, MAX_CAPACITY).get(0);
     }
 
     /**
@@ -42,36 +41,25 @@ public class Table extends Display {
      */
     @Override
     public void interact(Shopper shopper) {
-        System.out.println("Interacting with Table at " + getAddress());
+        EventLog.log(LogLevel.DEBUG, "display.interact", shopper.getName(), getAddress());
     }
 
     /**
-     * Attempts to return a product to the table.
+     * Checks if a product belongs on the table.
      * Only products with serial prefixes "FRU" (Fruits), "BRD" (Bread), "EGG" (Eggs), or "VEG" (Vegetables) are allowed.
      *
-     * @param product The {@link Product} to return.
-     * @return {@code true} if the product was successfully added; {@code false} otherwise (wrong type or full).
+     * @param product The {@link Product} being returned.
+     * @return {@code true} if the product type is allowed on the table.
      */
     @Override
-    public boolean returnProduct(Product product) {
+    protected boolean accepts(Product product) {
         String prefix = product.getSerialPrefix();
 
         // UPDATE: Added Bread (BRD), Eggs (EGG), and Vegetables (VEG)
-        boolean isAllowed = prefix.equals("FRU") ||
+        return prefix.equals("FRU") ||
                 prefix.equals("BRD") ||
                 prefix.equals("EGG") ||
                 prefix.equals("VEG");
-
-        if (!isAllowed) {
-            System.out.println("[Denied: This item cannot be placed on a Table.]");
-            return false;
-        }
-        if (isFull()) {
-            System.out.println("[Denied: This Table is full.]");
-            return false;
-        }
-        this.products.add(product);
-        return true;
     }
 
     /**
@@ -83,29 +71,6 @@ public class Table extends Display {
     @Override
     public Product removeProduct(Shopper shopper) { return null; }
 
-    /**
-     * Checks if the table is full.
-     *
-     * @return {@code true} if the list is at maximum capacity, {@code false} otherwise.
-     */
-    @Override
-    public boolean isFull() { return this.products.size() >= MAX_CAPACITY; }
-
-    /**
-     * Checks if any product matching the provided name is currently on the table (case-insensitive, partial match).
-     *
-     * @param name The name to search for.
-     * @return {@code true} if the product is found; {@code false} otherwise.
-     */
-    @Override
-    public boolean containsProductByName(String name) {
-        String lowerName = name.toLowerCase();
-        for (Product p : products) {
-            if (p.getName().toLowerCase().contains(lowerName)) return true;
-        }
-        return false;
-    }
-
     /**
      * Gets the raw list of products currently stored on the table.
      *
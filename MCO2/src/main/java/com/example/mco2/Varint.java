@@ -0,0 +1,167 @@
+/**
+ * Varint.java
+ *
+ * This class encodes and decodes the variable-length integers used by the input log, the state
+ * stream and the multiplayer protocol.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned varints: 7 bits per byte, low bits first, with the top bit set on every byte but the
+ * last. Values below 128 take one byte. Signed values are zigzag-encoded first
+ * ({@link #zigzag(int)}), so small negative values stay short too.
+ * <p>
+ * An {@code int} written as a varint must not be negative unless it is widened with
+ * {@link Integer#toUnsignedLong(int)}; it then takes five bytes and reads back unchanged.
+ */
+public final class Varint {
+    /** The most bytes a varint of up to 64 bits takes. */
+    public static final int MAX_BYTES = 10;
+
+    /**
+     * This class only has static helpers.
+     */
+    private Varint() { }
+
+    /**
+     * Gets the number of bytes a varint takes.
+     *
+     * @param value A non-negative value.
+     * @return The size in bytes.
+     */
+    public static int size(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Maps a signed value to an unsigned one: 0, -1, 1, -2, 2... become 0, 1, 2, 3, 4...
+     *
+     * @param value The value.
+     * @return The zigzag-encoded value.
+     */
+    public static int zigzag(int value) { return (value << 1) ^ (value >> 31); }
+
+    /**
+     * Reverses {@link #zigzag(int)}.
+     *
+     * @param value The zigzag-encoded value.
+     * @return The original value.
+     */
+    public static int unzigzag(int value) { return (value >>> 1) ^ -(value & 1); }
+
+    /**
+     * Writes a varint into an array. The caller makes sure there is room for it.
+     *
+     * @param buffer The array.
+     * @param at Where the varint starts.
+     * @param value A non-negative value.
+     * @return Where the varint ends.
+     */
+    public static int write(byte[] buffer, int at, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[at++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[at++] = (byte) value;
+        return at;
+    }
+
+    /**
+     * Writes a varint into a buffer.
+     *
+     * @param out The buffer.
+     * @param value A non-negative value.
+     */
+    public static void write(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Writes a varint to a stream.
+     *
+     * @param out The stream.
+     * @param value A non-negative value.
+     * @throws IOException if the stream fails.
+     */
+    public static void write(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads a varint of up to 32 bits from a buffer.
+     *
+     * @param buffer The buffer.
+     * @return The value.
+     */
+    public static int read(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a varint of up to 64 bits from a buffer.
+     *
+     * @param buffer The buffer.
+     * @return The value.
+     */
+    public static long readLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a varint of up to 32 bits from a stream.
+     *
+     * @param in The stream.
+     * @return The value.
+     * @throws EOFException if the stream ends first.
+     * @throws IOException if the stream fails or holds a varint longer than 32 bits.
+     */
+    public static int read(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint.");
+    }
+}
\ No newline at end of file
@@ -42,6 +42,6 @@ public class Wall extends Amenity {
      */
     @Override
     public void interact(Shopper shopper) {
-        System.out.println("You are facing a wall. Nothing here.");
+        EventLog.log(LogLevel.DEBUG, "wall.interact", shopper.getName(), null);
     }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ module com.example.mco2 {
     requires javafx.fxml;
 
     requires javafx.graphics;
+    requires jdk.jfr;
+    requires jdk.httpserver;
 
     opens com.example.mco2 to javafx.graphics, javafx.fxml;
 
@@ -0,0 +1,85 @@
+/**
+ * ReplayTest.java
+ *
+ * Tests that a recorded InputLog replays to the same run, and that seeking is exact.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Records a session of 1000 ticks, then replays it from a file.
+ */
+class ReplayTest {
+    private static final long SEED = 7L;
+    private static final int TICKS = 1000;
+
+    /**
+     * Keeps the event log quiet while the simulations run.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Records a session on several decide threads, noting the fingerprint halfway.
+     *
+     * @param fingerprints Receives the fingerprints after tick 300 and after the last tick.
+     * @return The recorded log.
+     */
+    private static InputLog record(long[] fingerprints) {
+        Simulation simulation = new Simulation(SEED, new SupermarketMap(), 4);
+        try {
+            InputLog log = new InputLog(SEED);
+            simulation.setRecorder(log);
+            for (int i = 0; i < 100; i++) simulation.addShopper("S" + i, 10 + i % 70);
+            simulation.run(300);
+            fingerprints[0] = simulation.fingerprint();
+            simulation.run(TICKS - 300);
+            fingerprints[1] = simulation.fingerprint();
+            return log;
+        } finally {
+            simulation.shutdown();
+        }
+    }
+
+    @Test
+    void replayFromFileReachesTheRecordedState(@TempDir Path dir) throws IOException {
+        long[] fingerprints = new long[2];
+        InputLog log = record(fingerprints);
+        Path file = dir.resolve("session.bin");
+        log.writeTo(file);
+
+        Replay replay = new Replay(InputLog.readFrom(file));
+        assertEquals(TICKS, replay.getTickCount());
+        replay.runToEnd();
+        assertEquals(fingerprints[1], replay.getSimulation().fingerprint());
+    }
+
+    @Test
+    void seekingReachesTheSameStateFromAnyDirection() {
+        long[] fingerprints = new long[2];
+        Replay replay = new Replay(record(fingerprints));
+
+        replay.seek(300);
+        assertEquals(300, replay.getCurrentTick());
+        assertEquals(fingerprints[0], replay.getSimulation().fingerprint());
+
+        replay.seek(TICKS);
+        assertEquals(fingerprints[1], replay.getSimulation().fingerprint());
+
+        // Backwards, past several snapshots
+        replay.seek(300);
+        assertEquals(fingerprints[0], replay.getSimulation().fingerprint());
+    }
+}
\ No newline at end of file
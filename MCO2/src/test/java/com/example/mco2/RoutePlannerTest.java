@@ -0,0 +1,223 @@
+/**
+ * RoutePlannerTest.java
+ *
+ * Tests that the routes a RoutePlanner plans are complete, walkable and no longer than the
+ * nearest-neighbour tour they start from.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plans random shopping lists from the Entrance of the default map and walks every route
+ * tile by tile.
+ */
+class RoutePlannerTest {
+    /**
+     * Keeps the event log quiet.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Finds the Entrance of the ground floor.
+     *
+     * @param map The map.
+     * @return The position of the Entrance.
+     */
+    private static Point entrance(SupermarketMap map) {
+        for (int y = 0; y < map.getMapSize(); y++) {
+            for (int x = 0; x < map.getMapSize(); x++) {
+                if (map.getAmenityAt(x, y, 0) instanceof Entrance) return new Point(x, y);
+            }
+        }
+        throw new IllegalStateException("The map has no Entrance.");
+    }
+
+    /**
+     * Draws a shopping list of random products, some of them repeated.
+     *
+     * @param random The random source.
+     * @param catalog The products to draw from.
+     * @param size The number of units.
+     * @return The list.
+     */
+    private static List<Product> randomList(SplittableRandom random, List<Product> catalog, int size) {
+        List<Product> list = new ArrayList<>(size);
+        while (list.size() < size) {
+            Product p = catalog.get(random.nextInt(catalog.size()));
+            int copies = Math.min(size - list.size(), 1 + random.nextInt(3));
+            for (int c = 0; c < copies; c++) list.add(p);
+        }
+        return list;
+    }
+
+    /**
+     * Counts the units of every SKU in a list of products.
+     *
+     * @param products The products.
+     * @param counts The counts to add to, by SKU id.
+     */
+    private static void countSkus(List<Product> products, Map<Integer, Integer> counts) {
+        for (Product p : products) counts.merge(p.getSkuId(), 1, Integer::sum);
+    }
+
+    /**
+     * Checks everything a planned route promises:
+     * <ul>
+     *     <li>every unit on the list is either taken at a display holding that SKU or reported
+     *     unavailable, and a SKU is only unavailable once the map's whole stock of it is taken;</li>
+     *     <li>walking the legs from the start lands on each standing position, never crosses a
+     *     checkout counter (only the checkout stop ends on one), and faces each other stop;</li>
+     *     <li>the route checks out if anything was taken and ends at the Exit;</li>
+     *     <li>its length is the number of steps walked, and no more than the length of the
+     *     nearest-neighbour tour before improvement.</li>
+     * </ul>
+     *
+     * @param map The map.
+     * @param planner The planner for the map.
+     * @param start The start tile (on the ground floor).
+     * @param list The shopping list.
+     * @param prefersCart Whether the route was planned for a shopper who prefers a cart.
+     * @param route The planned route.
+     */
+    private static void assertValid(SupermarketMap map, RoutePlanner planner, Point start, List<Product> list,
+                                    boolean prefersCart, ShoppingRoute route) {
+        // Units: taken + unavailable = requested, taken only where stocked
+        Map<Integer, Integer> requested = new HashMap<>();
+        Map<Integer, Integer> taken = new HashMap<>();
+        Map<Integer, Integer> unavailable = new HashMap<>();
+        countSkus(list, requested);
+        countSkus(route.getUnavailable(), unavailable);
+        for (int i = 0; i < route.getStopCount(); i++) {
+            List<Product> products = route.getProductsAt(i);
+            if (products.isEmpty()) continue;
+            Display display = assertInstanceOf(Display.class, route.getStops().get(i));
+            assertTrue(display.getProductCount() >= products.size(), "stop " + i + " takes more than its display holds");
+            for (Product p : products) assertEquals(display.getProductAt(0).getSkuId(), p.getSkuId(), "stop " + i + " holds another product");
+            countSkus(products, taken);
+        }
+        for (Map.Entry<Integer, Integer> e : requested.entrySet()) {
+            int sku = e.getKey();
+            int got = taken.getOrDefault(sku, 0);
+            assertEquals(e.getValue(), got + unavailable.getOrDefault(sku, 0), "units of SKU " + sku);
+            if (unavailable.containsKey(sku)) {
+                int stock = 0;
+                for (Display d : map.getAllDisplays()) {
+                    if (d.getProductCount() > 0 && d.getProductAt(0).getSkuId() == sku) stock += d.getProductCount();
+                }
+                assertEquals(stock, got, "SKU " + sku + " reported unavailable while still stocked");
+            }
+        }
+        assertEquals(requested.keySet(), mergedKeys(taken, unavailable));
+
+        // Legs: walk them, never over a counter
+        PathFinder pathFinder = planner.getPathFinder();
+        int tile = pathFinder.tileOf(start, 0);
+        int steps = 0;
+        for (int i = 0; i < route.getStopCount(); i++) {
+            Amenity stop = route.getStops().get(i);
+            boolean counter = stop instanceof CheckoutCounter;
+            List<Direction> leg = route.getLeg(i);
+            List<Direction> moves = counter ? leg : leg.subList(0, leg.size() - 1);
+            for (int s = 0; s < moves.size(); s++) {
+                tile = pathFinder.stepFrom(tile, moves.get(s));
+                assertNotEquals(-1, tile, "leg " + i + " walks into a wall");
+                boolean last = s == moves.size() - 1;
+                if (!(counter && last)) assertTrue(pathFinder.canPassOver(tile), "leg " + i + " crosses a counter");
+            }
+            steps += moves.size();
+            assertEquals(pathFinder.tileOf(route.getStandingPosition(i), route.getStandingFloor(i)), tile, "standing tile of stop " + i);
+            if (!counter) {
+                Point faced = pathFinder.pointOf(tile).getNextPosition(leg.get(leg.size() - 1));
+                assertEquals(stop.getPosition().getX(), faced.getX(), "stop " + i + " is not faced");
+                assertEquals(stop.getPosition().getY(), faced.getY(), "stop " + i + " is not faced");
+                assertEquals(map.getAmenityAt(faced.getX(), faced.getY(), pathFinder.floor(tile)), stop);
+            }
+        }
+        assertEquals(route.getLength(), steps);
+
+        // Ending: checkout (if anything was taken), then the Exit
+        int last = route.getStopCount() - 1;
+        assertInstanceOf(Exit.class, route.getStops().get(last));
+        if (!taken.isEmpty()) assertInstanceOf(CheckoutCounter.class, route.getStops().get(last - 1));
+
+        // Improvement never makes the route longer than the tour it starts from
+        ShoppingRoute seed = planner.plan(start, 0, list, prefersCart, false);
+        assertTrue(route.getLength() <= seed.getLength(),
+                "improved route of " + route.getLength() + " steps is longer than its seed of " + seed.getLength());
+    }
+
+    /**
+     * Gets the SKU ids present in either of two counts.
+     *
+     * @param a The first counts.
+     * @param b The second counts.
+     * @return The union of their keys.
+     */
+    private static Set<Integer> mergedKeys(Map<Integer, Integer> a, Map<Integer, Integer> b) {
+        Set<Integer> keys = new HashSet<>(a.keySet());
+        keys.addAll(b.keySet());
+        return keys;
+    }
+
+    @Test
+    void randomListsAreCompleteWalkableAndImproved() {
+        SupermarketMap map = new SupermarketMap();
+        RoutePlanner planner = new RoutePlanner(map);
+        Point start = entrance(map);
+        List<Product> catalog = map.getAllProducts();
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int i = 0; i < 3000; i++) {
+            List<Product> list = randomList(random, catalog, 1 + random.nextInt(40));
+            boolean prefersCart = i % 3 == 0;
+            ShoppingRoute route = planner.plan(start, 0, list, prefersCart);
+            assertValid(map, planner, start, list, prefersCart, route);
+        }
+    }
+
+    @Test
+    void soldOutProductIsReportedUnavailable() {
+        SupermarketMap map = new SupermarketMap();
+        RoutePlanner planner = new RoutePlanner(map);
+        Point start = entrance(map);
+        List<Product> catalog = map.getAllProducts();
+        Product soldOut = catalog.get(0);
+        for (Display d : map.getAllDisplays()) {
+            while (d.getProductCount() > 0 && d.getProductAt(0).getSkuId() == soldOut.getSkuId()) d.takeProductAt(0);
+        }
+
+        List<Product> list = List.of(catalog.get(1), soldOut, catalog.get(2), soldOut);
+        ShoppingRoute route = planner.plan(start, 0, list);
+        assertEquals(List.of(soldOut, soldOut), route.getUnavailable());
+        assertValid(map, planner, start, list, false, route);
+    }
+
+    @Test
+    void emptyListGoesStraightToTheExit() {
+        SupermarketMap map = new SupermarketMap();
+        RoutePlanner planner = new RoutePlanner(map);
+        Point start = entrance(map);
+        ShoppingRoute route = planner.plan(start, 0, List.of());
+        assertEquals(1, route.getStopCount());
+        assertValid(map, planner, start, List.of(), false, route);
+    }
+}
\ No newline at end of file
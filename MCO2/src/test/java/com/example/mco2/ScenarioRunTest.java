@@ -0,0 +1,93 @@
+/**
+ * ScenarioRunTest.java
+ *
+ * Tests how ScenarioRun reads scenarios and reports its run.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scenarios are {@code key=value} lines; the parsed values are read back through {@link ScenarioRun#toJson()}.
+ */
+class ScenarioRunTest {
+    /**
+     * Keeps the event log quiet while the simulations run.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Parses a scenario and expects it to be refused.
+     *
+     * @param scenario The scenario text.
+     * @return The message of the exception.
+     */
+    private static String refused(String scenario) {
+        return assertThrows(IllegalArgumentException.class, () -> new ScenarioRun(1, scenario)).getMessage();
+    }
+
+    @Test
+    void emptyScenarioUsesTheDefaults() {
+        String json = new ScenarioRun(7, "").toJson();
+        assertTrue(json.startsWith("{\"id\":7,\"state\":\"QUEUED\""), json);
+        assertTrue(json.contains("\"scenario\":{\"seed\":42,\"shoppers\":200,\"rate\":0.3000,\"counters\":-1,"
+                + "\"cartShare\":0.0000,\"tileCapacity\":2,\"maxTicks\":5000,\"progressTicks\":100}"), json);
+    }
+
+    @Test
+    void valuesAreReadWithSurroundingSpaceAndComments() {
+        String json = new ScenarioRun(1, "# a comment\nseed = -5\nshoppers=10 \nrate:1.5\ncounters=3\ncartShare=1\n"
+                + "tileCapacity=0\nmaxTicks=100\nprogressTicks=10\n").toJson();
+        assertTrue(json.contains("\"scenario\":{\"seed\":-5,\"shoppers\":10,\"rate\":1.5000,\"counters\":3,"
+                + "\"cartShare\":1.0000,\"tileCapacity\":0,\"maxTicks\":100,\"progressTicks\":10}"), json);
+    }
+
+    @Test
+    void unknownKeysAreRefused() {
+        assertEquals("Unknown scenario key: speed", refused("seed=1\nspeed=2"));
+    }
+
+    @Test
+    void malformedAndOutOfRangeValuesAreRefused() {
+        assertEquals("shoppers must be a whole number.", refused("shoppers=lots"));
+        assertEquals("shoppers must be between 1 and 100000.", refused("shoppers=0"));
+        assertEquals("rate must be a number.", refused("rate=fast"));
+        assertEquals("rate must be between 0.001 and 100.0.", refused("rate=NaN"));
+        assertEquals("cartShare must be between 0.0 and 1.0.", refused("cartShare=1.5"));
+        assertEquals("The scenario is not in key=value format.", refused("seed=\\u00zz"));
+    }
+
+    @Test
+    void runEndsOnceEveryShopperHasLeft() {
+        ScenarioRun run = new ScenarioRun(1, "seed=3\nshoppers=40\nrate=0.5");
+        run.run();
+        assertEquals(ScenarioRun.State.DONE, run.getState());
+        assertTrue(run.toJson().contains("\"arrived\":40,\"exited\":40,"), run.toJson());
+        assertFalse(run.cancel());
+    }
+
+    @Test
+    void cancellingAQueuedRunStopsItBeforeItStarts() {
+        ScenarioRun run = new ScenarioRun(1, "");
+        assertTrue(run.cancel());
+        assertEquals(ScenarioRun.State.CANCELLED, run.getState());
+        run.run();
+        assertTrue(run.toJson().contains("\"tick\":0,"), run.toJson());
+    }
+
+    @Test
+    void quoteEscapesJsonSpecialCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", ScenarioRun.quote("a\"b\\c\nd\u0001"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+/**
+ * SimulationDeterminismTest.java
+ *
+ * Tests that a seeded Simulation produces the same run however it is executed.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * A run is identified by {@link Simulation#fingerprint()}, which covers every shopper's state and
+ * the stock of every display.
+ */
+class SimulationDeterminismTest {
+    private static final int SHOPPERS = 150;
+    private static final int TICKS = 400;
+
+    /**
+     * Keeps the event log quiet while the simulations run.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Runs a simulation with a fixed set of shoppers.
+     *
+     * @param seed The master seed.
+     * @param threads The number of decide threads.
+     * @param packed {@code true} to keep shoppers in a {@link ShopperStore}.
+     * @return The fingerprint after the run.
+     */
+    private static long run(long seed, int threads, boolean packed) {
+        return run(seed, threads, packed, SHOPPERS, TICKS);
+    }
+
+    /**
+     * Runs a simulation with a given number of shoppers.
+     *
+     * @param seed The master seed.
+     * @param threads The number of decide threads.
+     * @param packed {@code true} to keep shoppers in a {@link ShopperStore}.
+     * @param shoppers The number of shoppers, all added before the first tick.
+     * @param ticks The number of ticks.
+     * @return The fingerprint after the run.
+     */
+    private static long run(long seed, int threads, boolean packed, int shoppers, int ticks) {
+        Simulation simulation = new Simulation(seed, new SupermarketMap(), threads, packed);
+        try {
+            for (int i = 0; i < shoppers; i++) simulation.addShopper("S" + i, 10 + i % 70);
+            simulation.run(ticks);
+            return simulation.fingerprint();
+        } finally {
+            simulation.shutdown();
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameRunOnAnyNumberOfThreads() {
+        long expected = run(42L, 1, false);
+        assertEquals(expected, run(42L, 1, false));
+        assertEquals(expected, run(42L, 4, false));
+        assertEquals(expected, run(42L, 8, false));
+    }
+
+    @Test
+    void packedShoppersGiveTheSameRunAsShopperObjects() {
+        long expected = run(42L, 1, false);
+        assertEquals(expected, run(42L, 1, true));
+        assertEquals(expected, run(42L, 4, true));
+    }
+
+    @Test
+    void differentSeedsGiveDifferentRuns() {
+        assertNotEquals(run(42L, 1, false), run(43L, 1, false));
+    }
+
+    @Test
+    void aSingleShopperDependsOnTheSeed() {
+        long first = run(1L, 1, false, 1, 200);
+        assertNotEquals(first, run(2L, 1, false, 1, 200));
+        assertNotEquals(first, run(99L, 1, false, 1, 200));
+        assertEquals(run(2L, 1, false, 1, 200), run(2L, 1, true, 1, 200));
+    }
+}
\ No newline at end of file
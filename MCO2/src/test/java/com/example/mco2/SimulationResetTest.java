@@ -0,0 +1,102 @@
+/**
+ * SimulationResetTest.java
+ *
+ * Tests that resetting a Simulation in place gives the same run as building a new one.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every feature that keeps state between ticks (occupancy, route planning, the heatmap) is enabled,
+ * so the reset has to clear all of it.
+ */
+class SimulationResetTest {
+    /**
+     * Keeps the event log quiet while the simulations run.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Creates a simulation with occupancy, route planning and a heatmap enabled.
+     *
+     * @param seed The master seed.
+     * @param packed {@code true} to keep shoppers in a {@link ShopperStore}.
+     * @return The simulation.
+     */
+    private static Simulation create(long seed, boolean packed) {
+        Simulation simulation = new Simulation(seed, new SupermarketMap(), 1, packed);
+        simulation.enableOccupancy(2);
+        simulation.enableRoutePlanning();
+        simulation.enableHeatmap(0);
+        return simulation;
+    }
+
+    /**
+     * Adds shoppers (half of them with shopping lists) while the simulation runs, then runs on.
+     *
+     * @param simulation The simulation.
+     * @param seed The seed for the shopping lists.
+     */
+    private static void populate(Simulation simulation, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Product> catalog = simulation.getMap().getAllProducts();
+        for (int i = 0; i < 150; i++) {
+            List<Product> list = null;
+            if (i % 2 == 0) {
+                list = new ArrayList<>();
+                for (int k = 0; k < 4; k++) list.add(catalog.get(random.nextInt(catalog.size())));
+            }
+            simulation.addShopper("S" + i, 18 + i % 60, list, i % 3 == 0);
+            if (i % 3 == 0) simulation.step();
+        }
+        simulation.run(400);
+    }
+
+    /**
+     * Checks that a simulation reset after a run with another seed matches a new simulation.
+     *
+     * @param packed {@code true} to keep shoppers in a {@link ShopperStore}.
+     */
+    private static void assertResetMatchesNew(boolean packed) {
+        Simulation fresh = create(9L, packed);
+        populate(fresh, 9L);
+
+        Simulation reused = create(5L, packed);
+        populate(reused, 5L);
+        reused.reset(9L);
+        assertEquals(0, reused.getTick());
+        assertEquals(0, reused.getShoppers().size());
+        populate(reused, 9L);
+
+        assertEquals(fresh.fingerprint(), reused.fingerprint());
+        assertEquals(fresh.getMap().getOccupancy().getTotal(), reused.getMap().getOccupancy().getTotal());
+        assertEquals(fresh.getMap().getHeatmap().getVisits(11, 20, 0), reused.getMap().getHeatmap().getVisits(11, 20, 0));
+    }
+
+    @Test
+    void resetGivesTheSameRunAsANewSimulation() { assertResetMatchesNew(false); }
+
+    @Test
+    void resetGivesTheSameRunWithPackedShoppers() { assertResetMatchesNew(true); }
+
+    @Test
+    void resetIsRefusedWithReplenishment() {
+        Simulation simulation = new Simulation(1L);
+        simulation.enableReplenishment(1);
+        assertThrows(IllegalStateException.class, () -> simulation.reset(2L));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+/**
+ * SimulationServerTest.java
+ *
+ * Tests that the SimulationServer keeps answering while progress streams are open.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a server on a free loopback port with one worker, and a scenario long enough to stay
+ * running for the whole test.
+ */
+class SimulationServerTest {
+    private static final String LONG_SCENARIO = "shoppers=100000\nrate=50\nmaxTicks=10000000";
+
+    private SimulationServer server;
+    private final List<HttpURLConnection> open = new ArrayList<>();
+
+    /**
+     * Keeps the event log quiet while the server runs.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Starts the server.
+     *
+     * @throws IOException if no port can be bound.
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new SimulationServer(0, 1, 4);
+        server.start();
+    }
+
+    /**
+     * Closes every stream still open and stops the server.
+     */
+    @AfterEach
+    void stopServer() {
+        for (HttpURLConnection connection : open) connection.disconnect();
+        server.stop();
+    }
+
+    /**
+     * Opens a connection to a path of the server.
+     *
+     * @param method The HTTP method.
+     * @param path The path, e.g. {@code "/runs"}.
+     * @return The connection, not yet sent.
+     * @throws IOException if the connection cannot be made.
+     */
+    private HttpURLConnection request(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    /**
+     * Submits a scenario.
+     *
+     * @param scenario The scenario text.
+     * @return The path of the new run.
+     * @throws IOException if the request fails.
+     */
+    private String submit(String scenario) throws IOException {
+        HttpURLConnection connection = request("POST", "/runs");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(scenario.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(202, connection.getResponseCode());
+        String location = connection.getHeaderField("Location");
+        connection.getInputStream().close();
+        return location;
+    }
+
+    /**
+     * Opens a progress stream and reads its first line, leaving the stream open.
+     *
+     * @param run The path of the run.
+     * @return The status code; for 200, the first line has been read.
+     * @throws IOException if the request fails.
+     */
+    private int follow(String run) throws IOException {
+        HttpURLConnection connection = request("GET", run + "/progress");
+        open.add(connection);
+        int status = connection.getResponseCode();
+        if (status == 200) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            assertTrue(reader.readLine().startsWith("{\"id\":"));
+        }
+        return status;
+    }
+
+    /**
+     * Reads a whole response body.
+     *
+     * @param connection The connection.
+     * @return The body.
+     * @throws IOException if the response cannot be read.
+     */
+    private static String body(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void openStreamsDoNotHoldUpOtherRequests() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            String run = submit(LONG_SCENARIO);
+            // More streams than there are request handler threads
+            for (int i = 0; i < 20; i++) assertEquals(200, follow(run));
+
+            HttpURLConnection status = request("GET", run);
+            assertEquals(200, status.getResponseCode());
+            assertTrue(body(status).contains("\"state\":\"RUNNING\""));
+            submit("shoppers=1");
+        });
+    }
+
+    @Test
+    void streamsBeyondTheLimitAreRefused() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            String run = submit(LONG_SCENARIO);
+            for (int i = 0; i < SimulationServer.MAX_STREAMS; i++) assertEquals(200, follow(run));
+
+            HttpURLConnection refused = request("GET", run + "/progress");
+            assertEquals(503, refused.getResponseCode());
+            assertEquals("5", refused.getHeaderField("Retry-After"));
+            assertTrue(body(refused).contains("Too many progress streams"));
+
+            // A closed stream is noticed at its next keep-alive, which makes room for another
+            open.remove(0).disconnect();
+            long deadline = System.currentTimeMillis() + 20000;
+            int status;
+            while ((status = follow(run)) == 503 && System.currentTimeMillis() < deadline) Thread.sleep(200);
+            assertEquals(200, status);
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+/**
+ * SkuMultisetTest.java
+ *
+ * Tests the invariants of SkuMultiset against a simple map of counts.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Uses the products of the default map's catalog, which hold several units of each SKU.
+ */
+class SkuMultisetTest {
+    private static final List<Product> CATALOG = new SupermarketMap().getAllProducts();
+
+    /**
+     * Checks every derived value of the multiset against the expected counts by SKU id.
+     *
+     * @param set The multiset.
+     * @param expected The expected number of units of each SKU id (zero counts left out).
+     */
+    private static void assertMatches(SkuMultiset set, Map<Integer, Integer> expected) {
+        int size = 0;
+        int alcohol = 0;
+        double price = 0.0;
+        for (Product product : CATALOG) {
+            assertEquals(expected.getOrDefault(product.getSkuId(), 0), set.count(product));
+            int line = set.getLine(product);
+            if (set.count(product) == 0) assertEquals(-1, line);
+            else assertEquals(product.getSkuId(), set.getLineProduct(line).getSkuId());
+        }
+        for (int line = 0; line < set.getLineCount(); line++) {
+            Product product = set.getLineProduct(line);
+            int quantity = set.getLineQuantity(line);
+            assertEquals(expected.get(product.getSkuId()), quantity);
+            size += quantity;
+            price += product.getPrice() * quantity;
+            if (product.isAlcohol()) alcohol += quantity;
+        }
+        assertEquals(expected.size(), set.getLineCount());
+        assertEquals(size, set.size());
+        assertEquals(size == 0, set.isEmpty());
+        assertEquals(alcohol, set.getAlcoholCount());
+        assertEquals(price, set.getTotalPrice(), 1e-6);
+
+        // The iterator and get(int) walk the same units, line by line
+        Iterator<Product> units = set.iterator();
+        for (int i = 0; i < size; i++) {
+            assertTrue(units.hasNext());
+            assertSame(set.get(i), units.next());
+        }
+        assertFalse(units.hasNext());
+        assertThrows(NoSuchElementException.class, units::next);
+        assertThrows(IndexOutOfBoundsException.class, () -> set.get(set.size()));
+    }
+
+    @Test
+    void randomAddsAndRemovesKeepEveryCountConsistent() {
+        SplittableRandom random = new SplittableRandom(39L);
+        SkuMultiset set = new SkuMultiset();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 5000; step++) {
+            Product product = CATALOG.get(random.nextInt(CATALOG.size()));
+            int sku = product.getSkuId();
+            if (random.nextInt(3) > 0) {
+                set.add(product);
+                expected.merge(sku, 1, Integer::sum);
+            } else {
+                boolean held = expected.containsKey(sku);
+                assertEquals(held, set.remove(product));
+                if (held && expected.merge(sku, -1, Integer::sum) == 0) expected.remove(sku);
+            }
+            if (step % 250 == 0) assertMatches(set, expected);
+        }
+        assertMatches(set, expected);
+    }
+
+    @Test
+    void emptyingALineMovesTheLastLineIntoItsPlace() {
+        Product first = CATALOG.get(0);
+        Product second = null;
+        Product third = null;
+        for (Product product : CATALOG) {
+            if (second == null && product.getSkuId() != first.getSkuId()) second = product;
+            else if (second != null && product.getSkuId() != first.getSkuId() && product.getSkuId() != second.getSkuId()) {
+                third = product;
+                break;
+            }
+        }
+        SkuMultiset set = new SkuMultiset();
+        set.add(first);
+        set.add(second);
+        set.add(third);
+        assertTrue(set.remove(first));
+        assertEquals(2, set.getLineCount());
+        assertSame(third, set.getLineProduct(0));
+        assertSame(second, set.getLineProduct(1));
+    }
+
+    @Test
+    void clearEmptiesEverything() {
+        SkuMultiset set = new SkuMultiset();
+        for (int i = 0; i < 40; i++) set.add(CATALOG.get(i % CATALOG.size()));
+        set.clear();
+        assertMatches(set, Map.of());
+        assertEquals(0.0, set.getTotalPrice());
+
+        set.add(CATALOG.get(1));
+        assertMatches(set, Map.of(CATALOG.get(1).getSkuId(), 1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+/**
+ * StateMirrorTest.java
+ *
+ * Tests that a StateMirror reading a StatePublisher's stream ends up with the simulation's state.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Publishes a packed simulation on a free loopback port and reads it back on another thread.
+ */
+class StateMirrorTest {
+    private Simulation simulation;
+    private StatePublisher publisher;
+    private StateMirror mirror;
+    private Thread reader;
+    private final AtomicLong mirroredTick = new AtomicLong(-1);
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Keeps the event log quiet while the simulation runs.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Starts publishing a simulation with no shoppers yet.
+     *
+     * @throws IOException if no port can be bound.
+     */
+    @BeforeEach
+    void startPublisher() throws IOException {
+        simulation = new Simulation(3L, new SupermarketMap(), 1, true);
+        publisher = new StatePublisher(simulation);
+        simulation.setPublisher(publisher);
+    }
+
+    /**
+     * Stops the publisher and the simulation.
+     */
+    @AfterEach
+    void stop() {
+        publisher.close();
+        simulation.shutdown();
+    }
+
+    /**
+     * Connects a mirror and starts reading its frames on another thread.
+     *
+     * @throws Exception if the connection fails or the publisher does not take the subscriber.
+     */
+    private void subscribe() throws Exception {
+        mirror = StateMirror.connect(publisher.listen(0));
+        reader = new Thread(() -> {
+            try {
+                while (mirror.readFrame()) mirroredTick.set(mirror.getTick());
+            } catch (IOException e) {
+                failure.set(e);
+            }
+        }, "mirror-reader");
+        reader.start();
+        while (publisher.getSubscriberCount() == 0) Thread.sleep(5);
+    }
+
+    /**
+     * Runs the simulation for a number of ticks, with arrivals during the first of them.
+     *
+     * @param ticks The number of ticks.
+     * @param arrivingTicks The number of first ticks with new shoppers.
+     */
+    private void run(int ticks, int arrivingTicks) {
+        for (int t = 0; t < ticks; t++) {
+            if (t < arrivingTicks) for (int i = 0; i < 5; i++) simulation.addShopper("S", 30);
+            simulation.step();
+        }
+    }
+
+    /**
+     * Waits for the mirror to read the frame of the last tick run, then compares it with the simulation.
+     *
+     * @throws InterruptedException if the test is interrupted while waiting.
+     */
+    private void assertMirrored() throws InterruptedException {
+        long last = simulation.getTick() - 1;
+        while (mirroredTick.get() != last && failure.get() == null) Thread.sleep(5);
+        assertNull(failure.get());
+
+        ShopperStore store = simulation.getShopperStore();
+        assertEquals(store.size(), mirror.getShopperCount());
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(store.hasExited(i), mirror.hasExited(i), "exit of shopper " + i);
+            if (store.hasExited(i)) continue;
+            assertEquals(store.getX(i), mirror.getX(i), "column of shopper " + i);
+            assertEquals(store.getY(i), mirror.getY(i), "row of shopper " + i);
+            assertEquals(store.getFloor(i), mirror.getFloor(i), "floor of shopper " + i);
+        }
+        List<Display> displays = simulation.getMap().getAllDisplays();
+        assertEquals(displays.size(), mirror.getDisplayCount());
+        for (int d = 0; d < displays.size(); d++) {
+            assertEquals(displays.get(d).getProductCount(), mirror.getStock(d), "stock of display " + d);
+        }
+    }
+
+    @Test
+    void mirrorFollowsEveryTick() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            subscribe();
+            run(300, 100);
+            assertMirrored();
+            assertEquals(simulation.getMap().getMapSize(), mirror.getMapSize());
+        });
+    }
+
+    @Test
+    void lateSubscriberStartsFromAKeyframe() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            run(150, 100);
+            subscribe();
+            run(20, 0);
+            assertMirrored();
+        });
+    }
+
+    @Test
+    void closingThePublisherEndsTheStream() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            subscribe();
+            run(10, 10);
+            assertMirrored();
+            publisher.close();
+            reader.join();
+            assertNull(failure.get());
+            assertFalse(reader.isAlive());
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+/**
+ * StoreSnapshotTest.java
+ *
+ * Tests that a StoreSnapshot restores a simulation exactly.
+ *
+ * @author Bernard Salvador
+ * @author Ram Liwanag
+ *
+ */
+package com.example.mco2;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A restored simulation must match the original both when it is restored and after both
+ * have run on.
+ */
+class StoreSnapshotTest {
+    /**
+     * Keeps the event log quiet while the simulations run.
+     */
+    @BeforeAll
+    static void quietLog() { EventLog.setLevel(LogLevel.OFF); }
+
+    /**
+     * Creates a simulation that has run long enough for shoppers to hold products and check out.
+     *
+     * @param packed {@code true} to keep shoppers in a {@link ShopperStore}.
+     * @return The simulation.
+     */
+    private static Simulation busyStore(boolean packed) {
+        Simulation simulation = new Simulation(7L, new SupermarketMap(), 1, packed);
+        for (int i = 0; i < 100; i++) simulation.addShopper("S" + i, 10 + i % 70);
+        simulation.run(400);
+        return simulation;
+    }
+
+    @Test
+    void restoredSimulationContinuesLikeTheOriginal(@TempDir Path dir) throws IOException {
+        Simulation original = busyStore(false);
+        Path file = dir.resolve("store.bin");
+        StoreSnapshot.save(original, file);
+
+        Simulation restored = StoreSnapshot.load(file, 2);
+        try {
+            assertEquals(original.getTick(), restored.getTick());
+            assertEquals(original.fingerprint(), restored.fingerprint());
+
+            original.run(600);
+            restored.run(600);
+            assertEquals(original.fingerprint(), restored.fingerprint());
+        } finally {
+            restored.shutdown();
+        }
+    }
+
+    @Test
+    void packedShoppersRoundTrip() throws IOException {
+        Simulation original = busyStore(true);
+        ByteBuffer encoded = StoreSnapshot.encode(original);
+
+        Simulation restored = StoreSnapshot.decode(encoded, 1);
+        assertEquals(original.fingerprint(), restored.fingerprint());
+
+        original.run(200);
+        restored.run(200);
+        assertEquals(original.fingerprint(), restored.fingerprint());
+    }
+
+    /**
+     * Finds where the catalog section of a snapshot starts, skipping the header and the layout rows.
+     *
+     * @param snapshot The snapshot bytes.
+     * @return The position of the catalog size.
+     */
+    private static int catalogStart(ByteBuffer snapshot) {
+        ByteBuffer buffer = snapshot.duplicate().position(4 + 2 + 8 + 8);
+        int rows = buffer.getInt() * buffer.getInt();
+        for (int r = 0; r < rows; r++) buffer.position(buffer.position() + 2 + buffer.getShort());
+        return buffer.position();
+    }
+
+    @Test
+    void mismatchedCatalogIsRejected() {
+        ByteBuffer encoded = StoreSnapshot.encode(busyStore(false));
+        // Change the first letter of the first serial number
+        int serial = catalogStart(encoded) + 4 + 2;
+        encoded.put(serial, (byte) (encoded.get(serial) + 1));
+
+        IOException e = assertThrows(IOException.class, () -> StoreSnapshot.decode(encoded, 1));
+        assertTrue(e.getMessage().contains("catalog"), e.getMessage());
+    }
+
+    @Test
+    void overfilledDisplayIsRejected() {
+        ByteBuffer encoded = StoreSnapshot.encode(busyStore(false));
+        ByteBuffer buffer = encoded.duplicate().position(catalogStart(encoded));
+        int products = buffer.getInt();
+        for (int i = 0; i < products; i++) buffer.position(buffer.position() + 2 + buffer.getShort());
+        // The product count of the first tier of the first display, past what any tier holds
+        encoded.putShort(buffer.position() + 4, (short) 0xFFFF);
+
+        IOException e = assertThrows(IOException.class, () -> StoreSnapshot.decode(encoded, 1));
+        assertTrue(e.getMessage().contains("overfills"), e.getMessage());
+    }
+}
\ No newline at end of file